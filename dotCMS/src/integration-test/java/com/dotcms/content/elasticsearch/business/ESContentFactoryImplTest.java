@@ -4,10 +4,13 @@ import com.dotcms.IntegrationTestBase;
 import com.dotcms.util.IntegrationTestInitService;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.contentlet.model.IndexPolicy;
 import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UUIDGenerator;
 import com.dotmarketing.util.UtilMethods;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -17,6 +20,7 @@ import org.junit.Test;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -93,6 +97,69 @@ public class ESContentFactoryImplTest extends IntegrationTestBase {
         Assert.assertEquals(0, inodesSet.size());
     }
 
+    @Test
+    public void findContentlets_keepsTheOrderAndMatchesTheFatContentlet() throws Exception {
+        final List<String> inodes = new DotConnect()
+                .setSQL("select inode from contentlet order by mod_date")
+                .setMaxRows(100)
+                .loadObjectResults()
+                .stream()
+                .map(r -> (String) r.get("inode"))
+                .collect(Collectors.toList());
+        Collections.reverse(inodes);
+
+        CacheLocator.getContentletCache().clearCache();
+        final List<Contentlet> contentlets = instance.findContentlets(inodes);
+
+        Assert.assertEquals(inodes, contentlets.stream().map(Contentlet::getInode).collect(Collectors.toList()));
+        for (final Contentlet contentlet : contentlets) {
+            final Contentlet fromFatty = instance.convertFatContentletToContentlet(
+                    (com.dotmarketing.portlets.contentlet.business.Contentlet) HibernateUtil.load(
+                            com.dotmarketing.portlets.contentlet.business.Contentlet.class, contentlet.getInode()));
+            Assert.assertEquals(fromFatty.getMap(), contentlet.getMap());
+        }
+        HibernateUtil.getSession().clear();
+    }
+
+    @Test
+    public void findContentletsIterator_returnsTheSameContentletsAsFindContentlets() throws Exception {
+        final List<String> inodes = new DotConnect()
+                .setSQL("select inode from contentlet")
+                .loadObjectResults()
+                .stream()
+                .map(r -> (String) r.get("inode"))
+                .collect(Collectors.toList());
+
+        final List<String> iterated = new ArrayList<>();
+        instance.findContentletsIterator(inodes).forEachRemaining(c -> iterated.add(c.getInode()));
+
+        Assert.assertEquals(inodes, iterated);
+        try (final Stream<Contentlet> stream = APILocator.getContentletAPI().findContentletsStream(inodes)) {
+            Assert.assertEquals(inodes, stream.map(Contentlet::getInode).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void findContentletsStream_missingInodesAreSkipped() throws Exception {
+        final List<String> inodes = new DotConnect()
+                .setSQL("select inode from contentlet")
+                .setMaxRows(5)
+                .loadObjectResults()
+                .stream()
+                .map(r -> (String) r.get("inode"))
+                .collect(Collectors.toList());
+        final List<String> withMissing = new ArrayList<>(inodes);
+        withMissing.add(1, UUIDGenerator.generateUuid());
+        withMissing.add(UUIDGenerator.generateUuid());
+
+        try (final Stream<Contentlet> stream = APILocator.getContentletAPI().findContentletsStream(withMissing)) {
+            Assert.assertEquals(inodes.size(), stream.toArray().length);
+        }
+        try (final Stream<Contentlet> stream = APILocator.getContentletAPI().findContentletsStream(withMissing)) {
+            Assert.assertEquals(inodes.size(), stream.count());
+        }
+    }
+
     @Test
     public void saveContentlets() throws Exception {
         try {
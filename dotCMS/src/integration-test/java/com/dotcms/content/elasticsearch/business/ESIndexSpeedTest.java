@@ -1,13 +1,18 @@
 package com.dotcms.content.elasticsearch.business;
 
+import java.util.List;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.dotcms.IntegrationTestBase;
 import com.dotcms.util.IntegrationTestInitService;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Logger;
 import com.liferay.portal.model.User;
 
 public class ESIndexSpeedTest extends IntegrationTestBase {
@@ -31,6 +36,27 @@ public class ESIndexSpeedTest extends IntegrationTestBase {
 		}
 	}
 	
+	@Test
+	public void mapContentletsOneByOneAndInBatch() throws Exception {
+		final ESMappingAPIImpl mappingAPI = new ESMappingAPIImpl();
+		final List<Contentlet> contentlets = contAPI.search("+working:true", 500, 0, "modDate", APILocator.systemUser(), false);
+
+		CacheLocator.getCacheAdministrator().flushAll();
+		long start = System.nanoTime();
+		for (final Contentlet contentlet : contentlets) {
+			mappingAPI.toMap(contentlet);
+		}
+		final double oneByOne = contentlets.size() / ((System.nanoTime() - start) / 1e9);
+
+		CacheLocator.getCacheAdministrator().flushAll();
+		start = System.nanoTime();
+		mappingAPI.toMaps(contentlets);
+		final double inBatch = contentlets.size() / ((System.nanoTime() - start) / 1e9);
+
+		Logger.info(this, String.format("Mapped %d contentlets, one by one: %.1f docs/sec, in batch: %.1f docs/sec",
+				contentlets.size(), oneByOne, inBatch));
+	}
+
 	@Test
 	public void callIndexSearch10k() throws Exception {
 		for(int i=1;i<=10000;i++) {
@@ -1,5 +1,6 @@
 package com.dotcms.content.elasticsearch.business;
 
+import com.dotcms.content.business.DotMappingException;
 import com.dotcms.content.elasticsearch.constants.ESMappingConstants;
 import com.dotcms.contenttype.business.ContentTypeAPI;
 import com.dotcms.contenttype.business.FieldAPI;
@@ -67,6 +68,22 @@ public class ESMappingAPITest {
         relationshipAPI = APILocator.getRelationshipAPI();
     }
 
+    @Test
+    public void testToMaps_shouldBuildTheSameMapsAsToMap()
+            throws DotDataException, DotSecurityException, DotMappingException {
+
+        final ESMappingAPIImpl esMappingAPI = new ESMappingAPIImpl();
+        final List<Contentlet> contentlets = contentletAPI
+                .search("+working:true", 100, 0, "modDate", user, false);
+
+        final Map<String, Map<String, Object>> maps = esMappingAPI.toMaps(contentlets);
+
+        assertEquals(contentlets.size(), maps.size());
+        for (final Contentlet contentlet : contentlets) {
+            assertEquals(esMappingAPI.toMap(contentlet), maps.get(contentlet.getInode()));
+        }
+    }
+
     @Test
     public void testLoadRelationshipFields_whenUsingLegacyRelationships_shouldSuccess()
             throws DotDataException, DotSecurityException {
@@ -0,0 +1,117 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.dotcms.IntegrationTestBase;
+import com.dotcms.contenttype.model.type.ContentType;
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.common.model.ContentletSearch;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.PaginatedArrayList;
+import com.dotmarketing.util.UUIDGenerator;
+import java.util.Collections;
+import java.util.Map;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LiveQueryResultCacheIntegrationTest extends IntegrationTestBase {
+
+    private static final LiveQueryResultCache cache = LiveQueryResultCache.getInstance();
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        //Setting web app environment
+        IntegrationTestInitService.getInstance().init();
+        Config.setProperty("LIVE_QUERY_RESULT_CACHE_ENABLED", true);
+        Config.setProperty("LIVE_QUERY_RESULT_CACHE_SETTLE_MILLIS", 0);
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        Config.setProperty("LIVE_QUERY_RESULT_CACHE_ENABLED", false);
+        Config.setProperty("LIVE_QUERY_RESULT_CACHE_SETTLE_MILLIS", 2000);
+    }
+
+    @Test
+    public void put_resultsCachedWithTheTokensReadBeforeTheSearch() {
+        final String site = UUIDGenerator.generateUuid();
+        final String query = "+contentType:News +conhost:" + site + " +live:true";
+
+        final Map<String, Long> tokens = cache.tokens(query);
+        assertNotNull(tokens);
+        cache.put(query, "title", 10, 0, tokens, results());
+
+        assertEquals(1, cache.get(query, "title", 10, 0).size());
+    }
+
+    @Test
+    public void put_invalidatedWhileSearching_resultsNotServed() throws Exception {
+        final String site = UUIDGenerator.generateUuid();
+        final String query = "+contentType:News +conhost:" + site + " +live:true";
+
+        // read before the search
+        final Map<String, Long> tokens = cache.tokens(query);
+        assertNotNull(tokens);
+
+        // content changes while the search runs and another request creates the tokens again
+        cache.invalidate("News", site);
+        Thread.sleep(10);
+        assertNotNull(cache.tokens(query));
+
+        // the search returns what it found before the change
+        cache.put(query, "title", 10, 0, tokens, results());
+
+        assertNull(cache.get(query, "title", 10, 0));
+    }
+
+    @Test
+    public void written_searchBetweenTheAddAndTheExecute_resultsNotServed() throws Exception {
+        final String site = UUIDGenerator.generateUuid();
+        final String query = "+contentType:News +conhost:" + site + " +live:true";
+
+        // the live index request is added to a bulk that is executed later
+        final IndexRequest request = new IndexRequest("live", "content", UUIDGenerator.generateUuid());
+        cache.invalidateWhenWritten(Collections.<DocWriteRequest<?>, Contentlet>singletonMap(request, contentlet(site)));
+
+        // a search runs against the index that does not have the change yet
+        Thread.sleep(10);
+        final Map<String, Long> tokens = cache.tokens(query);
+        assertNotNull(tokens);
+        cache.put(query, "title", 10, 0, tokens, results());
+        assertNotNull(cache.get(query, "title", 10, 0));
+
+        // the bulk is executed
+        cache.written(new BulkRequest().add(request));
+
+        assertNull(cache.get(query, "title", 10, 0));
+    }
+
+    private Contentlet contentlet(final String site) {
+        final ContentType contentType = mock(ContentType.class);
+        when(contentType.variable()).thenReturn("News");
+        final Contentlet contentlet = mock(Contentlet.class);
+        when(contentlet.getContentType()).thenReturn(contentType);
+        when(contentlet.getHost()).thenReturn(site);
+        return contentlet;
+    }
+
+    private PaginatedArrayList<ContentletSearch> results() {
+        final ContentletSearch hit = new ContentletSearch();
+        hit.setIdentifier(UUIDGenerator.generateUuid());
+        hit.setInode(UUIDGenerator.generateUuid());
+        final PaginatedArrayList<ContentletSearch> list = new PaginatedArrayList<>();
+        list.add(hit);
+        list.setTotalResults(1);
+        return list;
+    }
+
+}
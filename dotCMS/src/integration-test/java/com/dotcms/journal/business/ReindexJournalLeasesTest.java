@@ -0,0 +1,147 @@
+package com.dotcms.journal.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.IntegrationTestBase;
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.common.business.journal.DistributedJournalFactory;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the row locks taken by {@link ReindexJournalLeases} on the dist_process table and the move of those
+ * rows to the dist_journal table, skipped on the databases that cannot skip locked rows
+ */
+public class ReindexJournalLeasesTest extends IntegrationTestBase {
+
+    private static final String SERVER_ID = "leases-test";
+
+    private static ReindexJournalLeases leases;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+        leases = ReindexJournalLeases.getInstance();
+    }
+
+    @Test
+    public void getMode_matchesTheDatabase() {
+        if (DbConnectionFactory.isMsSql()) {
+            assertEquals("UPDLOCK READPAST", leases.getMode());
+        } else if (DbConnectionFactory.isOracle() || DbConnectionFactory.isH2()) {
+            assertEquals("OPTIMISTIC", leases.getMode());
+        }
+        assertEquals(!"OPTIMISTIC".equals(leases.getMode()), leases.canSkipLockedRows());
+    }
+
+    @Test
+    public void lockProcessRecords_rowsLockedByAnotherServer_skipped() throws Exception {
+        Assume.assumeTrue("The database cannot skip locked rows", leases.canSkipLockedRows());
+        final List<Long> ids = insertProcessRecords(UUID.randomUUID().toString(), 2);
+
+        try (Connection first = newConnection(); Connection second = newConnection()) {
+            try {
+                assertTrue(leases.lockProcessRecords(first, Integer.MAX_VALUE).containsAll(ids));
+
+                final List<Long> lockedBySecond = leases.lockProcessRecords(second, Integer.MAX_VALUE);
+                assertFalse(lockedBySecond.contains(ids.get(0)));
+                assertFalse(lockedBySecond.contains(ids.get(1)));
+            } finally {
+                first.rollback();
+                second.rollback();
+            }
+
+            try {
+                assertTrue("the rows are locked again once released",
+                        leases.lockProcessRecords(second, Integer.MAX_VALUE).containsAll(ids));
+            } finally {
+                second.rollback();
+            }
+        } finally {
+            deleteRecords(ids);
+        }
+    }
+
+    @Test
+    public void moveProcessRecords_sameObjectMovedByTwoServers_oneJournalRow() throws Exception {
+        Assume.assumeTrue("The database cannot skip locked rows", leases.canSkipLockedRows());
+        final String object = UUID.randomUUID().toString();
+        final List<Long> ids = insertProcessRecords(object, 2);
+        final ESDistributedJournalFactoryImpl<String> factory = new ESDistributedJournalFactoryImpl<>("0");
+
+        try (Connection first = newConnection(); Connection second = newConnection()) {
+            // neither sees the journal row of the other, the second insert waits for the first to commit
+            factory.moveProcessRecords(first, Collections.singletonList(ids.get(0)));
+            final CompletableFuture<Void> secondMove = CompletableFuture.runAsync(() -> {
+                try {
+                    factory.moveProcessRecords(second, Collections.singletonList(ids.get(1)));
+                    second.commit();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(500);
+            first.commit();
+            secondMove.get(30, TimeUnit.SECONDS);
+
+            assertEquals(1, count("SELECT count(*) AS total FROM dist_journal WHERE object_to_index = ?", object));
+            assertEquals(0, count("SELECT count(*) AS total FROM dist_process WHERE object_to_index = ?", object));
+        } finally {
+            deleteRecords(ids);
+            new DotConnect().setSQL("DELETE FROM dist_journal WHERE object_to_index = ?").addParam(object).loadResult();
+        }
+    }
+
+    private static List<Long> insertProcessRecords(final String object, final int records) throws Exception {
+        for (int i = 0; i < records; i++) {
+            new DotConnect()
+                    .setSQL("INSERT INTO dist_process (object_to_index, serverid, journal_type, time_entered) VALUES (?, ?, ?, ?)")
+                    .addParam(object)
+                    .addParam(SERVER_ID)
+                    .addParam(DistributedJournalFactory.JOURNAL_TYPE_CACHE)
+                    .addParam(new Timestamp(System.currentTimeMillis()))
+                    .loadResult();
+        }
+
+        final List<Long> ids = new ArrayList<>();
+        for (final Map<String, Object> row : new DotConnect()
+                .setSQL("SELECT id FROM dist_process WHERE object_to_index = ? ORDER BY id")
+                .addParam(object)
+                .loadObjectResults()) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        assertEquals(records, ids.size());
+        return ids;
+    }
+
+    private static void deleteRecords(final List<Long> ids) throws Exception {
+        for (final Long id : ids) {
+            new DotConnect().setSQL("DELETE FROM dist_process WHERE id = ?").addParam(id).loadResult();
+        }
+    }
+
+    private static int count(final String sql, final String object) throws Exception {
+        return new DotConnect().setSQL(sql).addParam(object).getInt("total");
+    }
+
+    private static Connection newConnection() throws Exception {
+        final Connection con = DbConnectionFactory.getDataSource().getConnection();
+        con.setAutoCommit(false);
+        return con;
+    }
+
+}
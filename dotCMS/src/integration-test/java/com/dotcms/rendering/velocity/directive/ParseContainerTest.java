@@ -0,0 +1,133 @@
+package com.dotcms.rendering.velocity.directive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.dotcms.rendering.velocity.services.FragmentDependencies;
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.PageMode;
+import com.google.common.collect.ImmutableList;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks which containers {@link ParseContainer} keeps as fragments
+ */
+public class ParseContainerTest {
+
+    private static final String PATH = "/LIVE/container1/1.container";
+    private static final String[] ARGUMENTS = {"container1", "1"};
+
+    private static boolean enabled;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+        enabled = FragmentDependencies.isEnabled();
+        Config.setProperty("VELOCITY_FRAGMENT_CACHE_ENABLED", true);
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        Config.setProperty("VELOCITY_FRAGMENT_CACHE_ENABLED", enabled);
+    }
+
+    @After
+    public void stopRecording() {
+        FragmentDependencies.end();
+    }
+
+    @Test
+    public void fragmentKey_cacheablePage_keyedByPageContainerAndContents() {
+        final InternalContextAdapter context = context("page1");
+        context.put("contentletListcontainer11", "[content1, content2]");
+
+        assertEquals("page1_" + PATH + "_contentletListcontainer11=[content1, content2]",
+                new ParseContainer().fragmentKey(context, params(PageMode.LIVE), PATH, ARGUMENTS));
+    }
+
+    @Test
+    public void fragmentKey_insideAnotherFragment_notCached() {
+        FragmentDependencies.start();
+
+        assertNull("only the outermost fragment is cached",
+                new ParseContainer().fragmentKey(context("page1"), params(PageMode.LIVE), PATH, ARGUMENTS));
+    }
+
+    @Test
+    public void fragmentKey_pageNotCacheable_notCached() {
+        assertNull(new ParseContainer().fragmentKey(context(null), params(PageMode.LIVE), PATH, ARGUMENTS));
+        assertNull(new ParseContainer().fragmentKey(context("page1"), params(PageMode.PREVIEW_MODE), PATH, ARGUMENTS));
+    }
+
+    @Test
+    public void changedVariables_containerSetsAndRemovesVariables_sameContextOnAHit() {
+        final InternalContextAdapter missContext = context("page1");
+        missContext.put("CONTAINER_NAME", "Previous");
+        missContext.put("ContentIdentifier", "content0");
+        final Map<String, Object> before = DotDirective.snapshot(missContext);
+
+        // what the container does while it renders
+        final Date modDate = new Date();
+        final List<String> categories = new ArrayList<>(ImmutableList.of("cat1", "cat2"));
+        missContext.put("CONTAINER_NAME", "Main");
+        missContext.put("CONTAINER_NUM_CONTENTLETS", 2);
+        missContext.put("ContentLastModDate", modDate);
+        missContext.put("ContentletCategories", categories);
+        missContext.remove("ContentIdentifier");
+        final Map<String, Serializable> variables = DotDirective.changedVariables(before, missContext);
+
+        final InternalContextAdapter hitContext = context("page1");
+        hitContext.put("CONTAINER_NAME", "Previous");
+        hitContext.put("ContentIdentifier", "content0");
+        DotDirective.restoreVariables(hitContext, variables);
+
+        assertEquals("Main", hitContext.get("CONTAINER_NAME"));
+        assertEquals(2, hitContext.get("CONTAINER_NUM_CONTENTLETS"));
+        assertEquals(modDate, hitContext.get("ContentLastModDate"));
+        assertEquals(categories, hitContext.get("ContentletCategories"));
+        assertFalse(hitContext.containsKey("ContentIdentifier"));
+        assertEquals(missContext.getKeys().length, hitContext.getKeys().length);
+    }
+
+    @Test
+    public void changedVariables_containerSetsAnObject_notCached() {
+        final InternalContextAdapter context = context("page1");
+        final Map<String, Object> before = DotDirective.snapshot(context);
+
+        context.put("CONTAINER_NAME", "Main");
+        context.put("imageObject", new Object());
+
+        assertNull("a fragment that leaves an object in the context is not cached",
+                DotDirective.changedVariables(before, context));
+    }
+
+    private static InternalContextAdapter context(final String pageKey) {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getAttribute(FragmentDependencies.PAGE_KEY_ATTRIBUTE)).thenReturn(pageKey);
+        final VelocityContext context = new VelocityContext();
+        context.put("request", request);
+        return new InternalContextAdapterImpl(context);
+    }
+
+    private static RenderParams params(final PageMode mode) {
+        return new RenderParams(APILocator.systemUser(), APILocator.getLanguageAPI().getDefaultLanguage(), null, mode);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.dotcms.rendering.velocity.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.business.CacheLocator;
+import java.util.Map;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the dependencies recorded by {@link FragmentDependencies} while a fragment renders
+ */
+public class FragmentDependenciesTest {
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+    }
+
+    @After
+    public void stopRecording() {
+        FragmentDependencies.end();
+    }
+
+    @Test
+    public void recordQuery_typedQuery_recordsEveryType() {
+        FragmentDependencies.start();
+        FragmentDependencies.recordQuery("+contentType:News +languageId:1 +(structureName:\"Blog-Post\" ContentType : Event)");
+        final Map<String, String> dependencies = FragmentDependencies.end();
+
+        assertEquals(3, dependencies.size());
+        assertTrue(dependencies.containsKey(FragmentDependencies.QUERY + "news"));
+        assertTrue(dependencies.containsKey(FragmentDependencies.QUERY + "blog-post"));
+        assertTrue(dependencies.containsKey(FragmentDependencies.QUERY + "event"));
+        assertFalse(dependencies.containsKey(FragmentDependencies.ANY_QUERY));
+    }
+
+    @Test
+    public void recordQuery_untypedQuery_recordsAnyQuery() {
+        FragmentDependencies.start();
+        FragmentDependencies.recordQuery("+title:news* +languageId:1");
+        FragmentDependencies.recordQuery(null);
+        final Map<String, String> dependencies = FragmentDependencies.end();
+
+        assertEquals(1, dependencies.size());
+        assertTrue(dependencies.containsKey(FragmentDependencies.ANY_QUERY));
+    }
+
+    @Test
+    public void record_notRecording_nothingKept() {
+        FragmentDependencies.recordContent("notRecorded");
+        FragmentDependencies.recordQuery("+contentType:News");
+
+        assertFalse(FragmentDependencies.isRecording());
+        assertNull(FragmentDependencies.end());
+    }
+
+    @Test
+    public void record_sameDependencyTwice_keepsTheFirstStamp() {
+        final String identifier = "fragment" + System.currentTimeMillis();
+        FragmentDependencies.start();
+        FragmentDependencies.recordContent(identifier);
+        final String stamp = CacheLocator.getBlockFragmentCache().stamp(FragmentDependencies.CONTENT + identifier);
+        CacheLocator.getBlockFragmentCache().invalidate(FragmentDependencies.CONTENT + identifier);
+        FragmentDependencies.recordContent(identifier);
+        final Map<String, String> dependencies = FragmentDependencies.end();
+
+        assertEquals(stamp, dependencies.get(FragmentDependencies.CONTENT + identifier));
+        assertNotEquals(stamp, CacheLocator.getBlockFragmentCache().stamp(FragmentDependencies.CONTENT + identifier));
+    }
+
+}
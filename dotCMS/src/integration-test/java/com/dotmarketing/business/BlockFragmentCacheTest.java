@@ -0,0 +1,102 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import com.dotcms.util.IntegrationTestInitService;
+import com.google.common.collect.ImmutableMap;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the fragments served by the {@link BlockFragmentCacheImpl} as their dependencies change
+ */
+public class BlockFragmentCacheTest {
+
+    private static final Map<String, Serializable> NO_VARIABLES = ImmutableMap.of();
+
+    private static BlockFragmentCache cache;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+        cache = CacheLocator.getBlockFragmentCache();
+    }
+
+    @Test
+    public void get_stampsUnchanged_fragmentServed() {
+        final String time = String.valueOf(System.currentTimeMillis());
+        cache.add("fragment" + time, "<div>fragment</div>", NO_VARIABLES, stamps("content:a" + time, "type:b" + time), 60);
+
+        assertEquals("<div>fragment</div>", cache.get("fragment" + time).getValue());
+    }
+
+    @Test
+    public void get_variablesKeptWithTheFragment() {
+        final String time = String.valueOf(System.currentTimeMillis());
+        final Map<String, Serializable> variables = new HashMap<>();
+        variables.put("CONTAINER_NAME", "Main");
+        variables.put("removed", null);
+        cache.add("fragment" + time, "<div>fragment</div>", variables, stamps("content:a" + time), 60);
+
+        assertEquals(variables, cache.get("fragment" + time).getVariables());
+    }
+
+    @Test
+    public void get_oneStampInvalidated_onlyTheFragmentsDependingOnItAreStale() {
+        final String time = String.valueOf(System.currentTimeMillis());
+        cache.add("fragment1" + time, "<div>1</div>", NO_VARIABLES, stamps("content:a" + time, "type:b" + time), 60);
+        cache.add("fragment2" + time, "<div>2</div>", NO_VARIABLES, stamps("content:c" + time, "type:b" + time), 60);
+
+        cache.invalidate("content:a" + time);
+
+        assertNull(cache.get("fragment1" + time));
+        assertEquals("<div>2</div>", cache.get("fragment2" + time).getValue());
+    }
+
+    @Test
+    public void stamp_invalidated_newStampNotMatchingTheOldFragments() {
+        final String time = String.valueOf(System.currentTimeMillis());
+        final Map<String, String> stamps = stamps("content:a" + time);
+        cache.add("fragment" + time, "<div>fragment</div>", NO_VARIABLES, stamps, 60);
+
+        cache.invalidate("content:a" + time);
+
+        // the next render records a new stamp, the fragment rendered before the change still does not match
+        assertNotEquals(stamps.get("content:a" + time), cache.stamp("content:a" + time));
+        assertNull(cache.get("fragment" + time));
+    }
+
+    @Test
+    public void get_expired_notServed() {
+        final String time = String.valueOf(System.currentTimeMillis());
+        cache.add("fragment" + time, "<div>fragment</div>", NO_VARIABLES, stamps("content:a" + time), 0);
+
+        assertNull(cache.get("fragment" + time));
+    }
+
+    @Test
+    public void clearCache_fragmentsAndStampsRemoved() {
+        final String time = String.valueOf(System.currentTimeMillis());
+        final Map<String, String> stamps = stamps("content:a" + time);
+        cache.add("fragment" + time, "<div>fragment</div>", NO_VARIABLES, stamps, 60);
+
+        cache.clearCache();
+
+        assertNull(cache.get("fragment" + time));
+        assertNotEquals(stamps.get("content:a" + time), cache.stamp("content:a" + time));
+    }
+
+    private static Map<String, String> stamps(final String... dependencies) {
+        final ImmutableMap.Builder<String, String> stamps = ImmutableMap.builder();
+        for (final String dependency : dependencies) {
+            stamps.put(dependency, cache.stamp(dependency));
+        }
+        return stamps.build();
+    }
+
+}
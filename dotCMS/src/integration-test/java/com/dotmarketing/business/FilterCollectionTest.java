@@ -0,0 +1,201 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.IntegrationTestBase;
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.liferay.portal.ejb.UserTestUtil;
+import com.liferay.portal.model.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks {@link PermissionAPI#filterCollection(List, int, boolean, User)}, which checks the roles of the user as bits
+ * against the permission source of each permissionable, gives the same answer as
+ * {@link PermissionAPI#doesUserHavePermission(Permissionable, int, User, boolean)} for every permissionable
+ */
+public class FilterCollectionTest extends IntegrationTestBase {
+
+    private static PermissionAPI permissionAPI;
+    private static RoleAPI roleAPI;
+    private static User systemUser;
+    private static Host host;
+    private static Role role;
+    private static User roleUser;
+    private static User owner;
+    private static User frontEndUser;
+    private static User adminUser;
+
+    private static Folder anonymousFolder;
+    private static Folder roleFolder;
+    private static Folder ownerFolder;
+    private static Folder inheritingFolder;
+    private static Folder inheritingSubFolder;
+    private static Folder noneFolder;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+
+        permissionAPI = APILocator.getPermissionAPI();
+        roleAPI = APILocator.getRoleAPI();
+        systemUser = APILocator.systemUser();
+
+        final long time = System.currentTimeMillis();
+        host = new Host();
+        host.setHostname("filtercollection" + time + ".dotcms.com");
+        host = APILocator.getHostAPI().save(host, systemUser, false);
+        permissionAPI.permissionIndividually(host.getParentPermissionable(), host, systemUser);
+
+        role = new Role();
+        role.setName("FilterCollectionRole" + time);
+        role.setRoleKey("FilterCollectionRole" + time);
+        role.setEditUsers(true);
+        role.setEditPermissions(true);
+        role.setEditLayouts(true);
+        role.setDescription("FilterCollectionRole");
+        role = roleAPI.save(role);
+
+        roleUser = UserTestUtil.getUser("filtercollectionrole" + time, false, true);
+        roleAPI.addRoleToUser(role, roleUser);
+        owner = UserTestUtil.getUser("filtercollectionowner" + time, false, true);
+        frontEndUser = UserTestUtil.getUser("filtercollectionfrontend" + time, false, true);
+        roleAPI.addRoleToUser(roleAPI.loadLoggedinSiteRole(), frontEndUser);
+        adminUser = UserTestUtil.getUser("filtercollectionadmin" + time, false, true);
+        roleAPI.addRoleToUser(roleAPI.loadCMSAdminRole(), adminUser);
+
+        anonymousFolder = individualFolder("/anonymous" + time + "/",
+                roleAPI.loadCMSAnonymousRole(), PermissionAPI.PERMISSION_READ);
+        roleFolder = individualFolder("/role" + time + "/", role,
+                PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT);
+        ownerFolder = individualFolder("/owner" + time + "/", roleAPI.loadCMSOwnerRole(),
+                PermissionAPI.PERMISSION_READ);
+        ownerFolder.setOwner(owner.getUserId());
+        APILocator.getFolderAPI().save(ownerFolder, systemUser, false);
+        noneFolder = individualFolder("/none" + time + "/", roleAPI.loadLoggedinSiteRole(),
+                PermissionAPI.PERMISSION_EDIT);
+
+        // the folders under the host inherit READ for the role from it, the ones permissioned individually
+        // above do not
+        permissionAPI.save(new Permission(Folder.class.getCanonicalName(), host.getPermissionId(), role.getId(),
+                PermissionAPI.PERMISSION_READ, true), host, systemUser, false);
+
+        inheritingFolder = APILocator.getFolderAPI()
+                .createFolders("/inheriting" + time + "/", host, systemUser, false);
+        inheritingSubFolder = APILocator.getFolderAPI()
+                .createFolders("/inheriting" + time + "/sub/", host, systemUser, false);
+        assertTrue(permissionAPI.isInheritingPermissions(inheritingFolder));
+        assertTrue(permissionAPI.isInheritingPermissions(inheritingSubFolder));
+    }
+
+    @AfterClass
+    public static void cleanUp() throws Exception {
+        APILocator.getHostAPI().archive(host, systemUser, false);
+        APILocator.getHostAPI().delete(host, systemUser, false);
+    }
+
+    private static Folder individualFolder(final String path, final Role role, final int permission)
+            throws DotDataException, DotSecurityException {
+        final Folder folder = APILocator.getFolderAPI().createFolders(path, host, systemUser, false);
+        permissionAPI.permissionIndividually(host, folder, systemUser);
+        permissionAPI.save(new Permission(folder.getPermissionId(), role.getId(), permission, true),
+                folder, systemUser, false);
+        return folder;
+    }
+
+    private static List<Folder> folders() {
+        return Arrays.asList(anonymousFolder, roleFolder, ownerFolder, inheritingFolder, inheritingSubFolder,
+                noneFolder);
+    }
+
+    /**
+     * Filters the folders for the user and checks the result is the folders
+     * {@link PermissionAPI#doesUserHavePermission(Permissionable, int, User, boolean)} lets the user see, and that
+     * the given list is left as it was
+     */
+    private List<Folder> assertSameAsDoesUserHavePermission(final User user, final int permission,
+            final boolean respectFrontendRoles) throws DotDataException, DotSecurityException {
+
+        final List<Folder> expected = new ArrayList<>();
+        for (final Folder folder : folders()) {
+            if (permissionAPI.doesUserHavePermission(folder, permission, user, respectFrontendRoles)) {
+                expected.add(folder);
+            }
+        }
+
+        final List<Folder> input = new ArrayList<>(folders());
+        // twice, the second time from the effective permissions cached by the first
+        for (int i = 0; i < 2; i++) {
+            final List<Folder> filtered = permissionAPI.filterCollection(input, permission, respectFrontendRoles, user);
+            assertEquals(expected, filtered);
+        }
+        assertEquals(folders(), input);
+        return expected;
+    }
+
+    @Test
+    public void testAnonymous() throws Exception {
+        final List<Folder> filtered = assertSameAsDoesUserHavePermission(null, PermissionAPI.PERMISSION_READ, true);
+        assertEquals(Arrays.asList(anonymousFolder), filtered);
+
+        assertTrue(assertSameAsDoesUserHavePermission(null, PermissionAPI.PERMISSION_READ, false).isEmpty());
+    }
+
+    @Test
+    public void testFrontEndUser() throws Exception {
+        final List<Folder> respecting =
+                assertSameAsDoesUserHavePermission(frontEndUser, PermissionAPI.PERMISSION_READ, true);
+        assertTrue(respecting.contains(anonymousFolder));
+        assertFalse(respecting.contains(roleFolder));
+
+        final List<Folder> editable =
+                assertSameAsDoesUserHavePermission(frontEndUser, PermissionAPI.PERMISSION_EDIT, true);
+        assertTrue(editable.contains(noneFolder));
+
+        assertSameAsDoesUserHavePermission(frontEndUser, PermissionAPI.PERMISSION_READ, false);
+        assertSameAsDoesUserHavePermission(frontEndUser, PermissionAPI.PERMISSION_EDIT, false);
+    }
+
+    @Test
+    public void testOwner() throws Exception {
+        final List<Folder> filtered = assertSameAsDoesUserHavePermission(owner, PermissionAPI.PERMISSION_READ, false);
+        assertTrue(filtered.contains(ownerFolder));
+        assertFalse(filtered.contains(roleFolder));
+
+        assertFalse(assertSameAsDoesUserHavePermission(roleUser, PermissionAPI.PERMISSION_READ, false)
+                .contains(ownerFolder));
+    }
+
+    @Test
+    public void testAdmin() throws Exception {
+        assertEquals(folders(), assertSameAsDoesUserHavePermission(adminUser, PermissionAPI.PERMISSION_EDIT, false));
+        assertEquals(folders(), assertSameAsDoesUserHavePermission(systemUser, PermissionAPI.PERMISSION_EDIT, false));
+    }
+
+    @Test
+    public void testInheritedPermissions() throws Exception {
+        final List<Folder> read = assertSameAsDoesUserHavePermission(roleUser, PermissionAPI.PERMISSION_READ, false);
+        assertTrue(read.contains(roleFolder));
+        assertTrue(read.contains(inheritingFolder));
+        assertTrue(read.contains(inheritingSubFolder));
+        assertFalse(read.contains(anonymousFolder));
+
+        final List<Folder> edit = assertSameAsDoesUserHavePermission(roleUser, PermissionAPI.PERMISSION_EDIT, false);
+        assertEquals(Arrays.asList(roleFolder), edit);
+
+        // folders check PUBLISH as EDIT
+        assertEquals(edit, assertSameAsDoesUserHavePermission(roleUser, PermissionAPI.PERMISSION_PUBLISH, false));
+    }
+
+}
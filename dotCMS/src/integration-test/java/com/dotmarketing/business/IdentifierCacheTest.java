@@ -0,0 +1,91 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.business.cache.provider.CacheProvider;
+import com.dotmarketing.business.cache.provider.caffine.CaffineCache;
+import com.dotmarketing.business.cache.provider.h22.H22Cache;
+import com.dotmarketing.util.UUIDGenerator;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the bulk lookups of the {@link IdentifierCacheImpl} and the cache administrator under it
+ */
+public class IdentifierCacheTest {
+
+    private static IdentifierCache ic;
+    private static Host defaultHost;
+    private static Host systemHost;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+        ic = CacheLocator.getIdentifierCache();
+        defaultHost = APILocator.getHostAPI().findDefaultHost(APILocator.systemUser(), false);
+        systemHost = APILocator.getHostAPI().findSystemHost();
+    }
+
+    @Test
+    public void getIdentifiers_onlyTheCachedOnesReturned() throws Exception {
+        final Identifier cached = APILocator.getIdentifierAPI().find(defaultHost.getIdentifier());
+        ic.addIdentifierToCache(cached);
+        ic.removeFromCacheByIdentifier(systemHost.getIdentifier());
+        final String neverLoaded = UUIDGenerator.generateUuid();
+
+        final Map<String, Identifier> identifiers = ic.getIdentifiers(
+                Arrays.asList(defaultHost.getIdentifier(), systemHost.getIdentifier(), neverLoaded));
+
+        assertEquals(1, identifiers.size());
+        assertEquals(cached.getId(), identifiers.get(defaultHost.getIdentifier()).getId());
+        assertFalse(identifiers.containsKey(systemHost.getIdentifier()));
+        assertFalse(identifiers.containsKey(neverLoaded));
+    }
+
+    @Test
+    public void getIdentifiers_404sReturned() throws Exception {
+        final String missing = UUIDGenerator.generateUuid();
+        APILocator.getIdentifierAPI().find(missing);
+
+        final Map<String, Identifier> identifiers = ic.getIdentifiers(Arrays.asList(missing));
+
+        assertEquals(IdentifierAPI.IDENT404, identifiers.get(missing).getAssetType());
+    }
+
+    @Test
+    public void getAll_secondLevelHits_putInTheFirstLevel() throws Exception {
+        final CacheProvider memory = CacheProvider.getInstance(CaffineCache.class.getName());
+        final CacheProvider disk = CacheProvider.getInstance(H22Cache.class.getName());
+        Assume.assumeTrue("the contentlet cache chain is not Caffine then H22", memory != null && disk != null
+                && memory.isInitialized() && disk.isInitialized());
+
+        final String group = "contentletcache";
+        final String key = "getall" + System.currentTimeMillis();
+        final DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
+        cache.put(key, "value", group);
+        final long until = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (disk.get(group, key) == null && System.currentTimeMillis() < until) {
+            Thread.sleep(100);
+        }
+        assertNotNull("written to the disk cache", disk.get(group, key));
+        memory.remove(group, key);
+
+        final Map<String, Object> found = cache.getAll(Arrays.asList(key.toUpperCase(), "missing" + key), group);
+
+        assertEquals(1, found.size());
+        assertEquals("value", found.get(key.toUpperCase()));
+        assertTrue("promoted to the memory cache", "value".equals(memory.get(group, key)));
+        cache.remove(key, group);
+    }
+
+}
@@ -22,7 +22,10 @@ import com.dotmarketing.util.UUIDGenerator;
 import com.liferay.portal.model.User;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -509,6 +512,43 @@ public class IdentifierFactoryTest {
 
     }
 
+    @Test
+    public void testFindByIdsCachedUncachedAndMissing() throws DotDataException {
+        final String missingId = UUIDGenerator.generateUuid();
+        factory.find(systemHost.getIdentifier());
+        ic.removeFromCacheByIdentifier(defaultHost.getIdentifier());
+
+        final Map<String, Identifier> identifiers = factory.find(
+                Arrays.asList(defaultHost.getIdentifier(), systemHost.getIdentifier(), missingId, null));
+
+        Assert.assertEquals(2, identifiers.size());
+        Assert.assertEquals(defaultHost.getIdentifier(), identifiers.get(defaultHost.getIdentifier()).getId());
+        Assert.assertEquals(systemHost.getIdentifier(), identifiers.get(systemHost.getIdentifier()).getId());
+        Assert.assertFalse(identifiers.containsKey(missingId));
+
+        // the loaded ones are cached, the missing one as a 404
+        final Map<String, Identifier> cached = ic.getIdentifiers(
+                Arrays.asList(defaultHost.getIdentifier(), missingId));
+        Assert.assertEquals(defaultHost.getIdentifier(), cached.get(defaultHost.getIdentifier()).getId());
+        Assert.assertEquals(IdentifierAPI.IDENT404, cached.get(missingId).getAssetType());
+    }
+
+    @Test
+    public void testFindByIdsManyIds() throws DotDataException {
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            ids.add(UUIDGenerator.generateUuid());
+        }
+        ids.add(700, defaultHost.getIdentifier());
+        ic.removeFromCacheByIdentifier(defaultHost.getIdentifier());
+
+        final Map<String, Identifier> identifiers = factory.find(ids);
+
+        Assert.assertEquals(1, identifiers.size());
+        Assert.assertEquals(defaultHost.getIdentifier(), identifiers.get(defaultHost.getIdentifier()).getId());
+        Assert.assertEquals(ids.size(), ic.getIdentifiers(ids).size());
+    }
+
     private void deleteIdentifier(Identifier identifier) throws DotDataException {
         final DotConnect db = new DotConnect();
         db.setSQL("delete from identifier where id = ?");
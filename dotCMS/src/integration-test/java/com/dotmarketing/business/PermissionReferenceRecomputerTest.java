@@ -0,0 +1,139 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.IntegrationTestBase;
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.LocalTransaction;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.util.Config;
+import com.liferay.portal.model.User;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the references rebuilt by the {@link PermissionReferenceRecomputer} once a change adding inheritable
+ * permissions commits
+ */
+public class PermissionReferenceRecomputerTest extends IntegrationTestBase {
+
+    private static PermissionAPI permissionAPI;
+    private static User systemUser;
+    private static Host host;
+    private static Role role;
+    private static boolean insertLazily;
+    private static boolean recompute;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+
+        insertLazily = Config.getBooleanProperty("PERMISSIONS_REFERENCES_INSERT_LAZILY", true);
+        recompute = Config.getBooleanProperty("PERMISSION_REFERENCES_BACKGROUND_RECOMPUTE", true);
+        Config.setProperty("PERMISSIONS_REFERENCES_INSERT_LAZILY", true);
+        Config.setProperty("PERMISSION_REFERENCES_BACKGROUND_RECOMPUTE", true);
+
+        permissionAPI = APILocator.getPermissionAPI();
+        systemUser = APILocator.systemUser();
+
+        final long time = System.currentTimeMillis();
+        host = new Host();
+        host.setHostname("recomputer" + time + ".dotcms.com");
+        host = APILocator.getHostAPI().save(host, systemUser, false);
+        permissionAPI.permissionIndividually(host.getParentPermissionable(), host, systemUser);
+
+        role = new Role();
+        role.setName("PermissionReferenceRecomputerRole" + time);
+        role.setRoleKey("PermissionReferenceRecomputerRole" + time);
+        role.setEditUsers(true);
+        role.setEditPermissions(true);
+        role.setEditLayouts(true);
+        role.setDescription("PermissionReferenceRecomputerRole");
+        role = APILocator.getRoleAPI().save(role);
+
+        permissionAPI.save(new Permission(Folder.class.getCanonicalName(), host.getPermissionId(), role.getId(),
+                PermissionAPI.PERMISSION_READ, true), host, systemUser, false);
+        waitForRecomputer();
+    }
+
+    @AfterClass
+    public static void cleanUp() throws Exception {
+        Config.setProperty("PERMISSIONS_REFERENCES_INSERT_LAZILY", insertLazily);
+        Config.setProperty("PERMISSION_REFERENCES_BACKGROUND_RECOMPUTE", recompute);
+        APILocator.getHostAPI().archive(host, systemUser, false);
+        APILocator.getHostAPI().delete(host, systemUser, false);
+    }
+
+    @Test
+    public void addInheritablePermissions_referencesRebuiltInTheBackground() throws Exception {
+        final long time = System.currentTimeMillis();
+        final Folder parent = APILocator.getFolderAPI().createFolders("/added" + time + "/", host, systemUser, false);
+        final Folder child = APILocator.getFolderAPI()
+                .createFolders("/added" + time + "/child/", host, systemUser, false);
+        permissionAPI.permissionIndividually(host, parent, systemUser);
+        waitForRecomputer();
+
+        permissionAPI.save(new Permission(Folder.class.getCanonicalName(), parent.getPermissionId(), role.getId(),
+                PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT, true), parent, systemUser, false);
+        waitForRecomputer();
+
+        assertEquals(parent.getPermissionId(), reference(child));
+    }
+
+    @Test
+    public void addThenRemoveInheritablePermissions_removalNotUndoneByTheRecomputer() throws Exception {
+        final long time = System.currentTimeMillis();
+        final Folder parent = APILocator.getFolderAPI().createFolders("/removed" + time + "/", host, systemUser, false);
+        final Folder child = APILocator.getFolderAPI()
+                .createFolders("/removed" + time + "/child/", host, systemUser, false);
+        permissionAPI.permissionIndividually(host, parent, systemUser);
+        waitForRecomputer();
+        final long skipped = PermissionReferenceRecomputer.getInstance().getStepsSkipped();
+
+        // both in the same transaction, the recomputation of the add only runs once the removal committed
+        LocalTransaction.wrapReturnWithListeners(() -> {
+            permissionAPI.save(new Permission(Folder.class.getCanonicalName(), parent.getPermissionId(),
+                    role.getId(), PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT, true),
+                    parent, systemUser, false);
+            permissionAPI.removePermissions(parent);
+            return null;
+        });
+        waitForRecomputer();
+
+        assertTrue(PermissionReferenceRecomputer.getInstance().getStepsSkipped() > skipped);
+        final String reference = reference(child);
+        assertFalse("the child no longer inherits from the parent", parent.getPermissionId().equals(reference));
+        assertTrue("the child inherits from the host again", reference == null
+                || reference.equals(host.getPermissionId()));
+    }
+
+    /**
+     * The permissionable the folder takes its folder permissions from, null when the reference was not built yet
+     */
+    private static String reference(final Folder folder) throws Exception {
+        final List<Map<String, Object>> rows = new DotConnect()
+                .setSQL("select reference_id from permission_reference where asset_id = ? and permission_type = ?")
+                .addParam(folder.getPermissionId())
+                .addParam(Folder.class.getCanonicalName())
+                .loadObjectResults();
+        return rows.isEmpty() ? null : (String) rows.get(0).get("reference_id");
+    }
+
+    private static void waitForRecomputer() throws InterruptedException {
+        final long until = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (PermissionReferenceRecomputer.getInstance().getPending() > 0 && System.currentTimeMillis() < until) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, PermissionReferenceRecomputer.getInstance().getPending());
+    }
+
+}
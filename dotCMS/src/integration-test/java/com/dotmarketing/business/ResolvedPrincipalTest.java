@@ -0,0 +1,151 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.IntegrationTestBase;
+import com.dotcms.api.web.HttpServletRequestThreadLocal;
+import com.dotcms.mock.request.MockAttributeRequest;
+import com.dotcms.mock.request.MockHttpRequest;
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.common.db.DotConnect;
+import com.liferay.portal.model.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the roles of a {@link ResolvedPrincipal} and when the one kept in the request is resolved again
+ */
+public class ResolvedPrincipalTest extends IntegrationTestBase {
+
+    private static RoleAPI roleAPI;
+    private static User systemUser;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+        roleAPI = APILocator.getRoleAPI();
+        systemUser = APILocator.systemUser();
+    }
+
+    @Before
+    public void setUp() {
+        HttpServletRequestThreadLocal.INSTANCE.setRequest(
+                new MockAttributeRequest(new MockHttpRequest("localhost", "/").request()).request());
+    }
+
+    @After
+    public void tearDown() {
+        HttpServletRequestThreadLocal.INSTANCE.setRequest(null);
+    }
+
+    @Test
+    public void resolve_sameRequest_resolvedOnce() throws Exception {
+        final User user = newUser();
+
+        assertSame(ResolvedPrincipal.resolve(user), ResolvedPrincipal.resolve(user));
+    }
+
+    @Test
+    public void resolve_afterClearUserRoleCache_resolvedAgain() throws Exception {
+        final User user = newUser();
+        final Role role = newRole();
+
+        final ResolvedPrincipal before = ResolvedPrincipal.resolve(user);
+        assertFalse(before.getRoleIds().contains(role.getId()));
+
+        // granted behind the back of the role cache, like a change made by another server
+        new DotConnect().setSQL("insert into users_cms_roles (id, user_id, role_id) values (?, ?, ?)")
+                .addParam(UUID.randomUUID().toString())
+                .addParam(user.getUserId())
+                .addParam(role.getId())
+                .loadResult();
+        assertSame("the role cache did not change", before, ResolvedPrincipal.resolve(user));
+
+        CacheLocator.getRoleCache().clearUserRoleCache();
+
+        final ResolvedPrincipal after = ResolvedPrincipal.resolve(user);
+        assertNotSame(before, after);
+        assertTrue(after.getRoleIds().contains(role.getId()));
+    }
+
+    @Test
+    public void resolve_outsideOfARequest_resolvedOnEveryCall() throws Exception {
+        HttpServletRequestThreadLocal.INSTANCE.setRequest(null);
+        final User user = newUser();
+
+        assertNotSame(ResolvedPrincipal.resolve(user), ResolvedPrincipal.resolve(user));
+    }
+
+    @Test
+    public void hasOnlyFrontEndRoles_sameAsTheRolesOfTheUser() throws Exception {
+        final User frontEndUser = newUser();
+        roleAPI.addRoleToUser(roleAPI.loadLoggedinSiteRole(), frontEndUser);
+        final User backEndUser = newUser();
+        roleAPI.addRoleToUser(newRole(), backEndUser);
+
+        assertTrue("anonymous", ResolvedPrincipal.resolve(null).hasOnlyFrontEndRoles());
+        assertFalse("a back end role", ResolvedPrincipal.resolve(backEndUser).hasOnlyFrontEndRoles());
+        for (final User user : new User[]{frontEndUser, backEndUser, systemUser}) {
+            assertEquals(user.getUserId(), onlyFrontEndRoles(user),
+                    ResolvedPrincipal.resolve(user).hasOnlyFrontEndRoles());
+        }
+    }
+
+    @Test
+    public void isAdmin_onlyForTheAdminRole() throws Exception {
+        final User admin = newUser();
+        roleAPI.addRoleToUser(roleAPI.loadCMSAdminRole(), admin);
+
+        assertTrue(ResolvedPrincipal.resolve(admin).isAdmin());
+        assertFalse(ResolvedPrincipal.resolve(newUser()).isAdmin());
+        assertFalse(ResolvedPrincipal.resolve(null).isAdmin());
+    }
+
+    /**
+     * The rule doesUserHavePermission applied before the principal: every role of the user is CMS Anonymous,
+     * Logged-in Site User or the anonymous role
+     */
+    private static boolean onlyFrontEndRoles(final User user) throws Exception {
+        final List<String> frontEndRoles = new ArrayList<>(3);
+        frontEndRoles.add(roleAPI.loadCMSAnonymousRole().getId());
+        frontEndRoles.add(roleAPI.loadLoggedinSiteRole().getId());
+        frontEndRoles.add(roleAPI.loadRoleByKey("anonymous").getId());
+
+        final List<String> userRoleIds = new ArrayList<>();
+        for (final Role role : roleAPI.loadRolesForUser(user.getUserId())) {
+            userRoleIds.add(role.getId());
+        }
+        return frontEndRoles.containsAll(userRoleIds);
+    }
+
+    private static User newUser() throws Exception {
+        final String email = "principal" + UUID.randomUUID().toString().substring(0, 8) + "@test.com";
+        final User user = APILocator.getUserAPI().createUser(email, email);
+        user.setFirstName("Principal");
+        user.setLastName("Test");
+        APILocator.getUserAPI().save(user, systemUser, false);
+        return user;
+    }
+
+    private static Role newRole() throws Exception {
+        final String name = "ResolvedPrincipalRole" + UUID.randomUUID().toString().substring(0, 8);
+        Role role = new Role();
+        role.setName(name);
+        role.setRoleKey(name);
+        role.setEditUsers(true);
+        role.setEditPermissions(true);
+        role.setEditLayouts(true);
+        role.setDescription("ResolvedPrincipalTest");
+        return roleAPI.save(role);
+    }
+
+}
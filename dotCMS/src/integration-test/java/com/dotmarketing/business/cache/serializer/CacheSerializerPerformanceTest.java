@@ -0,0 +1,116 @@
+package com.dotmarketing.business.cache.serializer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.dotcms.util.IntegrationTestInitService;
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+import com.dotmarketing.util.Logger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the {@link BinaryCacheSerializer} against plain java serialization using the contentlets,
+ * identifiers and version infos of the test database
+ */
+public class CacheSerializerPerformanceTest {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 20;
+
+    private static final List<Object> objects = new ArrayList<>();
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+
+        final List<Contentlet> contentlets = APILocator.getContentletAPI().findAllContent(0, 500);
+        for (final Contentlet contentlet : contentlets) {
+            objects.add(new Contentlet(contentlet.getMap()));
+            final Identifier identifier = APILocator.getIdentifierAPI().find(contentlet.getIdentifier());
+            if (identifier != null) {
+                objects.add(identifier);
+            }
+            final ContentletVersionInfo info = APILocator.getVersionableAPI()
+                    .getContentletVersionInfo(contentlet.getIdentifier(), contentlet.getLanguageId());
+            if (info != null) {
+                objects.add(info);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+
+        final BinaryCacheSerializer serializer = new BinaryCacheSerializer();
+        for (final Object object : objects) {
+            final Object copy = serializer.deserialize(serializer.serialize(object));
+            assertThat("Same class after the round trip", copy.getClass().equals(object.getClass()));
+            if (object instanceof Contentlet) {
+                assertThat("Same contentlet properties after the round trip",
+                        ((Contentlet) object).getMap().keySet().equals(((Contentlet) copy).getMap().keySet()));
+            } else {
+                assertThat("Same object after the round trip", copy.equals(object));
+            }
+        }
+    }
+
+    /**
+     * Only the sizes are asserted, the timings depend on the machine running the tests and are just logged
+     */
+    @Test
+    public void testBinaryIsSmaller() throws Exception {
+
+        final Result java = measure(new JavaCacheSerializer());
+        final Result binary = measure(new BinaryCacheSerializer());
+
+        Logger.info(this, "Java serialization  : " + java);
+        Logger.info(this, "Binary serialization: " + binary);
+
+        assertThat("Binary payloads should be smaller", binary.bytes < java.bytes);
+    }
+
+    private Result measure(final CacheSerializer serializer) throws Exception {
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (final Object object : objects) {
+                serializer.deserialize(serializer.serialize(object));
+            }
+        }
+
+        final Result result = new Result();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (final Object object : objects) {
+                long start = System.nanoTime();
+                final byte[] data = serializer.serialize(object);
+                result.writeNanos += System.nanoTime() - start;
+                result.bytes += data.length;
+
+                start = System.nanoTime();
+                serializer.deserialize(data);
+                result.readNanos += System.nanoTime() - start;
+            }
+        }
+        return result;
+    }
+
+    private static class Result {
+
+        long bytes;
+        long writeNanos;
+        long readNanos;
+
+        @Override
+        public String toString() {
+            return "bytes=" + bytes / ROUNDS + ", write=" + TimeUnit.NANOSECONDS.toMillis(writeNanos / ROUNDS)
+                    + "ms, read=" + TimeUnit.NANOSECONDS.toMillis(readNanos / ROUNDS) + "ms per round of "
+                    + objects.size() + " objects";
+        }
+    }
+
+}
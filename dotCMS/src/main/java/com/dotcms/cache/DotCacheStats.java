@@ -0,0 +1,73 @@
+package com.dotcms.cache;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.cache.provider.CacheProviderStats;
+import com.dotmarketing.business.cache.provider.CacheStats;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX and REST view of the {@link CacheProviderStats} of the cache providers in use
+ */
+public class DotCacheStats implements DotCacheStatsMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=DotCache";
+
+    private static final DotCacheStats INSTANCE = new DotCacheStats();
+
+    private DotCacheStats() {
+    }
+
+    public static DotCacheStats getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    @Override
+    public List<String> getProviders() {
+        final List<String> providers = new ArrayList<>();
+        for (final CacheProviderStats providerStats : CacheLocator.getCacheAdministrator().getCacheStatsList()) {
+            providers.add(providerStats.getProviderName());
+        }
+        return providers;
+    }
+
+    @Override
+    public List<Map<String, String>> getRegionStats(final String provider) {
+        for (final CacheProviderStats providerStats : CacheLocator.getCacheAdministrator().getCacheStatsList()) {
+            if (providerStats.getProviderName().equals(provider)) {
+                return toMaps(providerStats);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<String, List<Map<String, String>>> getStats() {
+        final Map<String, List<Map<String, String>>> stats = new LinkedHashMap<>();
+        for (final CacheProviderStats providerStats : CacheLocator.getCacheAdministrator().getCacheStatsList()) {
+            stats.put(providerStats.getProviderName(), toMaps(providerStats));
+        }
+        return stats;
+    }
+
+    private List<Map<String, String>> toMaps(final CacheProviderStats providerStats) {
+        final List<Map<String, String>> regions = new ArrayList<>();
+        for (final CacheStats regionStats : providerStats.getStats()) {
+            final Map<String, String> region = new LinkedHashMap<>();
+            for (final String column : regionStats.getStatColumns()) {
+                region.put(column, regionStats.getStatValue(column));
+            }
+            regions.add(region);
+        }
+        return regions;
+    }
+
+} // E:O:F:DotCacheStats.
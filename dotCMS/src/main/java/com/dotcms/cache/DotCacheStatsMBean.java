@@ -0,0 +1,31 @@
+package com.dotcms.cache;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link DotCacheStats}
+ */
+public interface DotCacheStatsMBean extends DotMBean {
+
+    /**
+     * Returns the names of the cache providers in use
+     * @return List
+     */
+    public List<String> getProviders();
+
+    /**
+     * Returns the stats of every region of a cache provider, i.e. size, weight, hit ratio, evictions
+     * @param provider {@link String} provider name
+     * @return List
+     */
+    public List<Map<String, String>> getRegionStats(String provider);
+
+    /**
+     * Returns the stats of every region by provider name
+     * @return Map
+     */
+    public Map<String, List<Map<String, String>>> getStats();
+
+} // E:O:F:DotCacheStatsMBean.
@@ -15,6 +15,15 @@ public interface ContentMappingAPI {
 
 	public Object toMappedObj(Contentlet con) throws DotMappingException;
 
+	/**
+	 * Builds the maps to index of a whole batch of contentlets, looking up what they need for the
+	 * whole batch at once instead of for each contentlet
+	 * @param contentlets
+	 * @return Map of the contentlet inode to its map
+	 * @throws DotMappingException
+	 */
+	public Map<String, Map<String, Object>> toMaps(List<Contentlet> contentlets) throws DotMappingException;
+
 	/*public Contentlet toContentlet(String string) throws DotMappingException;
 	public Contentlet toContentlet(Map<String, Object> map) throws DotMappingException;*/
 
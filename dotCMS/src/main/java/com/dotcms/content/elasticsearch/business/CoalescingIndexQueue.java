@@ -0,0 +1,498 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.common.business.journal.DistributedJournalAPI;
+import com.dotmarketing.common.business.journal.DistributedJournalFactory;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+import com.dotmarketing.portlets.contentlet.model.IndexPolicy;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the deferred index operations of the content saved on this server for a short window, so the saves of
+ * the same identifier and language that come one after the other are indexed once. An entry is indexed once it
+ * went {@code INDEX_COALESCE_WINDOW_MILLIS} without a new save, or {@code INDEX_COALESCE_MAX_DELAY_MILLIS} after
+ * its first save, and what gets indexed is the working and live versions the content has by then, not the
+ * versions that were queued.
+ * <p>
+ * The first save of an entry writes a reindex journal record held by the entry, that no server picks up, before
+ * the entry is queued. The record is deleted once the entry is indexed and released to the reindex thread when
+ * the entry fails to be indexed or is still pending on shutdown. The records a server could not delete or release
+ * because it stopped are released by that server on its next start, and by any server once they are
+ * {@code INDEX_COALESCE_RECOVERY_SECONDS} old, so a deferred save is never lost.
+ * <p>
+ * Only the {@link IndexPolicy#DEFER} operations go through the queue. The content indexed with
+ * {@link IndexPolicy#FORCE} or {@link IndexPolicy#WAIT_FOR} is indexed right away, along with the current working
+ * and live versions of its pending entries, which are then done.
+ * <p>
+ * The queue is off unless {@code INDEX_COALESCE_ENABLED} is set. Stats are exposed by the
+ * {@value #MBEAN_OBJECT_NAME} MBean.
+ *
+ * @author dotCMS
+ */
+public class CoalescingIndexQueue implements CoalescingIndexQueueMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=CoalescingIndexQueue";
+
+    private static final CoalescingIndexQueue INSTANCE = new CoalescingIndexQueue();
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder journalCoalesced = new LongAdder();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final AtomicLong holderSequence;
+
+    private final LongSupplier clock;
+    private final Supplier<DistributedJournalAPI<String>> journal;
+    private final VersionLoader versionLoader;
+    private final IndexCall deferredIndexer;
+    private final Supplier<String> serverId;
+    private final boolean scheduled;
+    private final long startedAt;
+
+    private ScheduledExecutorService flusher;
+    private volatile long recoveredAt;
+
+    private CoalescingIndexQueue() {
+        this(System::currentTimeMillis, APILocator::getDistributedJournalAPI, CoalescingIndexQueue::loadLatestVersions,
+                contentlets -> APILocator.getContentletIndexAPI().indexContentList(contentlets, null, false),
+                ConfigUtils::getServerId, true);
+    }
+
+    @VisibleForTesting
+    CoalescingIndexQueue(final LongSupplier clock, final Supplier<DistributedJournalAPI<String>> journal,
+            final VersionLoader versionLoader, final IndexCall deferredIndexer, final Supplier<String> serverId,
+            final boolean scheduled) {
+        this.clock = clock;
+        this.journal = journal;
+        this.versionLoader = versionLoader;
+        this.deferredIndexer = deferredIndexer;
+        this.serverId = serverId;
+        this.scheduled = scheduled;
+        this.startedAt = clock.getAsLong();
+        this.recoveredAt = startedAt;
+        this.holderSequence = new AtomicLong(startedAt);
+    }
+
+    public static CoalescingIndexQueue getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * Queues the given contentlets to be indexed once the window of their identifier and language closes
+     *
+     * @return the contentlets that could not be queued, to be indexed right away
+     */
+    public List<Contentlet> enqueue(final Collection<Contentlet> contentlets) {
+        startFlusher();
+        final List<Contentlet> notQueued = new ArrayList<>();
+        for (final Contentlet contentlet : contentlets) {
+            if (!UtilMethods.isSet(contentlet.getIdentifier())) {
+                notQueued.add(contentlet);
+                continue;
+            }
+            queued.increment();
+            final String key = key(contentlet);
+            final long now = clock.getAsLong();
+
+            final Pending current = pending.get(key);
+            if (current != null) {
+                current.lastAt = now;
+                coalesced.increment();
+                continue;
+            }
+
+            // the journal record is written before the entry is queued, so the save survives this server
+            final Pending created = new Pending(contentlet.getIdentifier(), contentlet.getLanguageId(), nextHolder(), now);
+            try {
+                journal.get().addHeldReindexEntry(created.identifier, created.holder);
+            } catch (DotDataException e) {
+                Logger.warn(this, "Unable to add " + created.identifier + " to the reindex journal, indexing it now: "
+                        + e.getMessage());
+                notQueued.add(contentlet);
+                continue;
+            }
+
+            final Pending previous = pending.putIfAbsent(key, created);
+            if (previous != null) {
+                previous.lastAt = now;
+                coalesced.increment();
+                settle(Collections.singletonList(created), true);
+            }
+        }
+        return notQueued;
+    }
+
+    /**
+     * Indexes the given contentlets right away with the given call. When some of them have a pending entry, the
+     * working and live versions their content has now are indexed along with them and the entries are done, so
+     * the versions the entries stand for are not left out of the index.
+     */
+    public void indexNow(final List<Contentlet> contentToIndex, final IndexCall indexCall) throws DotDataException {
+
+        final List<Pending> taken = new ArrayList<>();
+        if (!pending.isEmpty()) {
+            for (final Contentlet contentlet : contentToIndex) {
+                if (UtilMethods.isSet(contentlet.getIdentifier())) {
+                    final Pending entry = pending.remove(key(contentlet));
+                    if (entry != null) {
+                        taken.add(entry);
+                    }
+                }
+            }
+        }
+        if (taken.isEmpty()) {
+            indexCall.index(contentToIndex);
+            return;
+        }
+
+        bypassed.add(taken.size());
+        coalesced.add(taken.size());
+        final List<Contentlet> contentAndPending = new ArrayList<>(contentToIndex);
+        boolean loaded = false;
+        try {
+            final Set<String> inodes = contentToIndex.stream().map(Contentlet::getInode).collect(Collectors.toSet());
+            for (final Pending entry : taken) {
+                for (final Contentlet version : versionLoader.load(entry.identifier, entry.languageId)) {
+                    if (inodes.add(version.getInode())) {
+                        contentAndPending.add(version);
+                    }
+                }
+            }
+            loaded = true;
+        } catch (Exception e) {
+            Logger.warn(this, "Unable to load the versions of " + taken.size()
+                    + " queued contents, releasing them to the reindex journal: " + e.getMessage());
+        }
+
+        boolean done = false;
+        try {
+            indexCall.index(contentAndPending);
+            done = loaded;
+        } finally {
+            settle(taken, done);
+        }
+    }
+
+    /**
+     * Counts the journal records the reindex thread skipped because another record of the same batch already
+     * indexes their identifier
+     */
+    public void journalCoalesced(final int records) {
+        journalCoalesced.add(records);
+    }
+
+    /**
+     * Indexes the entries whose window closed, or all of them
+     */
+    void flush(final boolean all) {
+        final long now = clock.getAsLong();
+        final long window = getWindowMillis();
+        final long maxDelay = Config.getLongProperty("INDEX_COALESCE_MAX_DELAY_MILLIS", 5000);
+        final List<Pending> due = new ArrayList<>();
+        for (final Map.Entry<String, Pending> entry : pending.entrySet()) {
+            final Pending candidate = entry.getValue();
+            if ((all || now - candidate.lastAt >= window || now - candidate.firstAt >= maxDelay)
+                    && pending.remove(entry.getKey(), candidate)) {
+                due.add(candidate);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        boolean done = false;
+        try {
+            final List<Contentlet> contentToIndex = new ArrayList<>();
+            for (final Pending entry : due) {
+                contentToIndex.addAll(versionLoader.load(entry.identifier, entry.languageId));
+            }
+            deferredIndexer.index(contentToIndex);
+            indexed.add(due.size());
+            done = true;
+        } catch (Exception e) {
+            failed.add(due.size());
+            Logger.error(this, "Unable to index " + due.size()
+                    + " queued contents, releasing them to the reindex journal: " + e.getMessage(), e);
+        } finally {
+            settle(due, done);
+        }
+    }
+
+    /**
+     * Deletes the journal records of the entries once indexed, or releases them to the reindex thread
+     */
+    private void settle(final Collection<Pending> entries, final boolean done) {
+        final List<String> holders = entries.stream().map(entry -> entry.holder).collect(Collectors.toList());
+        try {
+            if (done) {
+                journal.get().deleteHeldReindexEntries(holders);
+            } else {
+                journal.get().releaseHeldReindexEntries(holders);
+            }
+        } catch (DotDataException e) {
+            Logger.error(this, "Unable to " + (done ? "delete " : "release ") + holders.size()
+                    + " reindex journal records held by the index queue, they are released after "
+                    + getRecoverySeconds() + " seconds", e);
+        }
+    }
+
+    /**
+     * Loads the working and live versions the content has now, none when it was deleted
+     */
+    private static List<Contentlet> loadLatestVersions(final String identifier, final long languageId)
+            throws Exception {
+        final List<Contentlet> versions = new ArrayList<>(2);
+        final ContentletVersionInfo info =
+                APILocator.getVersionableAPI().getContentletVersionInfo(identifier, languageId);
+        if (info == null || !UtilMethods.isSet(info.getWorkingInode())) {
+            return versions;
+        }
+        final Set<String> inodes = new HashSet<>();
+        inodes.add(info.getWorkingInode());
+        if (UtilMethods.isSet(info.getLiveInode())) {
+            inodes.add(info.getLiveInode());
+        }
+        for (final String inode : inodes) {
+            final Contentlet contentlet =
+                    APILocator.getContentletAPI().find(inode, APILocator.getUserAPI().getSystemUser(), false);
+            if (contentlet != null) {
+                contentlet.setIndexPolicy(IndexPolicy.DEFER);
+                versions.add(contentlet);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Releases the journal records held by queues that stopped before indexing them: the ones held by the previous
+     * run of this server and, from any server, the ones older than {@code INDEX_COALESCE_RECOVERY_SECONDS}
+     */
+    public void recover() {
+        releaseAbandoned(holderPrefix(), new Date(startedAt));
+        releaseAbandoned(DistributedJournalFactory.REINDEX_JOURNAL_HOLDER_PREFIX,
+                new Date(clock.getAsLong() - TimeUnit.SECONDS.toMillis(getRecoverySeconds())));
+        recoveredAt = clock.getAsLong();
+    }
+
+    private void releaseAbandoned(final String holderPrefix, final Date heldBefore) {
+        try {
+            final int released = journal.get().releaseHeldReindexEntries(holderPrefix, heldBefore);
+            if (released > 0) {
+                recovered.add(released);
+                Logger.info(this, "Released " + released + " reindex journal records left by a stopped index queue");
+            }
+        } catch (DotDataException e) {
+            Logger.error(this, "Unable to release the reindex journal records left by a stopped index queue", e);
+        }
+    }
+
+    /**
+     * Runs the flusher once: indexes the entries whose window closed and, every
+     * {@code INDEX_COALESCE_RECOVERY_SECONDS}, releases the abandoned journal records
+     */
+    @VisibleForTesting
+    void tick() {
+        flush(false);
+        if (clock.getAsLong() - recoveredAt >= TimeUnit.SECONDS.toMillis(getRecoverySeconds())) {
+            recover();
+        }
+    }
+
+    private synchronized void startFlusher() {
+        if (flusher == null && scheduled) {
+            final long period = Math.max(50, getWindowMillis() / 2);
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "CoalescingIndexQueue-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(() -> {
+                try {
+                    tick();
+                } catch (Throwable e) {
+                    Logger.error(CoalescingIndexQueue.class, "Error flushing the index queue: " + e.getMessage(), e);
+                } finally {
+                    DbConnectionFactory.closeSilently();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the flusher, the journal records of the pending entries are released so the reindex thread indexes
+     * them
+     */
+    public synchronized void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        if (!pending.isEmpty()) {
+            final List<Pending> entries = new ArrayList<>(pending.values());
+            entries.forEach(entry -> pending.remove(key(entry.identifier, entry.languageId), entry));
+            Logger.info(this, "Releasing " + entries.size() + " queued contents to the reindex journal");
+            settle(entries, false);
+            DbConnectionFactory.closeSilently();
+        }
+    }
+
+    private String nextHolder() {
+        return holderPrefix() + Long.toString(holderSequence.incrementAndGet(), Character.MAX_RADIX);
+    }
+
+    private String holderPrefix() {
+        return DistributedJournalFactory.REINDEX_JOURNAL_HOLDER_PREFIX + serverId.get() + ":";
+    }
+
+    private String key(final Contentlet contentlet) {
+        return key(contentlet.getIdentifier(), contentlet.getLanguageId());
+    }
+
+    private String key(final String identifier, final long languageId) {
+        return identifier + "_" + languageId;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Config.getBooleanProperty("INDEX_COALESCE_ENABLED", false);
+    }
+
+    @Override
+    public long getWindowMillis() {
+        return Config.getLongProperty("INDEX_COALESCE_WINDOW_MILLIS", 1000);
+    }
+
+    private long getRecoverySeconds() {
+        return Config.getLongProperty("INDEX_COALESCE_RECOVERY_SECONDS", 60);
+    }
+
+    @Override
+    public int getPending() {
+        return pending.size();
+    }
+
+    @Override
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    @Override
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public long getBypassed() {
+        return bypassed.sum();
+    }
+
+    @Override
+    public long getJournalCoalesced() {
+        return journalCoalesced.sum();
+    }
+
+    @Override
+    public long getIndexed() {
+        return indexed.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRecovered() {
+        return recovered.sum();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("windowMillis", getWindowMillis());
+        stats.put("pending", getPending());
+        stats.put("queued", getQueued());
+        stats.put("coalesced", getCoalesced());
+        stats.put("bypassed", getBypassed());
+        stats.put("journalCoalesced", getJournalCoalesced());
+        stats.put("indexed", getIndexed());
+        stats.put("failed", getFailed());
+        stats.put("recovered", getRecovered());
+        return stats;
+    }
+
+    /**
+     * Indexes a list of contentlets
+     */
+    @FunctionalInterface
+    public interface IndexCall {
+
+        void index(List<Contentlet> contentlets) throws DotDataException;
+    }
+
+    /**
+     * Loads the working and live versions the content of an identifier and language has now
+     */
+    @FunctionalInterface
+    interface VersionLoader {
+
+        List<Contentlet> load(String identifier, long languageId) throws Exception;
+    }
+
+    /**
+     * An identifier and language waiting to be indexed, with the holder of its journal record and the time of its
+     * first and last save
+     */
+    private static class Pending {
+
+        private final String identifier;
+        private final long languageId;
+        private final String holder;
+        private final long firstAt;
+        private volatile long lastAt;
+
+        Pending(final String identifier, final long languageId, final String holder, final long now) {
+            this.identifier = identifier;
+            this.languageId = languageId;
+            this.holder = holder;
+            this.firstAt = now;
+            this.lastAt = now;
+        }
+    }
+
+} // E:O:F:CoalescingIndexQueue.
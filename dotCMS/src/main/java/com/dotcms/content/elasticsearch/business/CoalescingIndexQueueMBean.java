@@ -0,0 +1,78 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link CoalescingIndexQueue}, the deferred index operations held to be
+ * indexed once
+ */
+public interface CoalescingIndexQueueMBean extends DotMBean {
+
+    /**
+     * True when the deferred index operations go through the queue
+     * @return boolean
+     */
+    public boolean isEnabled();
+
+    /**
+     * Millis an entry waits for new saves of the same content before it is indexed
+     * @return long
+     */
+    public long getWindowMillis();
+
+    /**
+     * Identifier and language pairs waiting to be indexed
+     * @return int
+     */
+    public int getPending();
+
+    /**
+     * Index operations added to the queue
+     * @return long
+     */
+    public long getQueued();
+
+    /**
+     * Index operations saved because the same content was already pending or was indexed right away
+     * @return long
+     */
+    public long getCoalesced();
+
+    /**
+     * Pending entries indexed along with the content indexed with a FORCE or WAIT_FOR policy
+     * @return long
+     */
+    public long getBypassed();
+
+    /**
+     * Reindex journal records skipped because another record of the same batch indexed their identifier
+     * @return long
+     */
+    public long getJournalCoalesced();
+
+    /**
+     * Entries indexed by the queue
+     * @return long
+     */
+    public long getIndexed();
+
+    /**
+     * Entries that failed to be indexed and were released to the reindex journal
+     * @return long
+     */
+    public long getFailed();
+
+    /**
+     * Reindex journal records released because the queue holding them stopped
+     * @return long
+     */
+    public long getRecovered();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:CoalescingIndexQueueMBean.
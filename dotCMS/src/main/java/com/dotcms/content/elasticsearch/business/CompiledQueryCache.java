@@ -0,0 +1,262 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.content.elasticsearch.business.ESContentFactoryImpl.TranslatedQuery;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.util.Config;
+import java.io.Serializable;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+
+/**
+ * Caches the lucene queries already translated and with their dates rewritten, so the same query only goes
+ * through {@link ESContentFactoryImpl#translateQuery(String, String)} and the date rewriting once.
+ * <p>
+ * The date values of a query ({@code yyyyMMddHHmmss}) are lifted out as parameters before it is compiled, so
+ * the queries that only differ in their dates, like the ones widgets build with the current time, share the
+ * same compiled template and only need their dates bound back. A template is only shared once the first
+ * query compiled with it gave exactly the same result as compiling the query as is, otherwise the query is
+ * cached as is.
+ * <p>
+ * The compiled queries are kept in the {@link com.dotmarketing.portlets.contentlet.business.ContentletCache},
+ * next to the translated queries. Hit and miss stats are exposed by the {@value #MBEAN_OBJECT_NAME} MBean.
+ *
+ * @author dotCMS
+ */
+public class CompiledQueryCache implements CompiledQueryCacheMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=CompiledQueryCache";
+
+    private static final Pattern DATE_PARAMETER = Pattern.compile("(?<![\\w.*])(\\d{14})(?![\\w.*])");
+    private static final String PARAMETER_PREFIX = "__dotqp";
+    private static final String PARAMETER_SUFFIX = "__";
+    private static final String DATE_PARAMETER_FORMAT = "yyyyMMddHHmmss";
+
+    private static final CompiledQueryCache INSTANCE = new CompiledQueryCache();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder templates = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+
+    private CompiledQueryCache() {
+    }
+
+    public static CompiledQueryCache getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * Returns the elasticsearch query of a dotCMS lucene query, translated and with its dates rewritten
+     */
+    public QueryStringQueryBuilder compile(final String query, final String sortBy) {
+        if (!isEnabled()) {
+            return QueryBuilders.queryStringQuery(rewrite(query, sortBy));
+        }
+
+        final List<String> dates = new ArrayList<>();
+        final String template = liftDates(query, dates);
+        final String templateKey = template + " --- " + sortBy;
+
+        CompiledQuery compiled = CacheLocator.getContentletCache().getCompiledQuery(templateKey);
+        if (compiled != null && !compiled.isTemplate() && !dates.isEmpty()) {
+            // the template could not be shared, the query is cached as is
+            compiled = CacheLocator.getContentletCache().getCompiledQuery(query + " --- " + sortBy);
+        }
+        if (compiled != null) {
+            hits.increment();
+            savedNanos.add(compiled.compileNanos);
+            return compiled.toQueryBuilder(dates);
+        }
+
+        misses.increment();
+        final long start = System.nanoTime();
+        final String rewritten = rewrite(query, sortBy);
+        if (dates.isEmpty()) {
+            compiled = new CompiledQuery(rewritten, false, System.nanoTime() - start);
+            CacheLocator.getContentletCache().addCompiledQuery(templateKey, compiled);
+            return compiled.toQueryBuilder(dates);
+        }
+
+        final String rewrittenTemplate = rewrite(template, sortBy);
+        if (rewritten.equals(bind(rewrittenTemplate, dates))) {
+            templates.increment();
+            compiled = new CompiledQuery(rewrittenTemplate, true, System.nanoTime() - start);
+            CacheLocator.getContentletCache().addCompiledQuery(templateKey, compiled);
+        } else {
+            compiled = new CompiledQuery(rewritten, false, System.nanoTime() - start);
+            CacheLocator.getContentletCache().addCompiledQuery(templateKey, new CompiledQuery(template, false, 0));
+            CacheLocator.getContentletCache().addCompiledQuery(query + " --- " + sortBy, compiled);
+        }
+        compileNanos.add(compiled.compileNanos);
+        return QueryBuilders.queryStringQuery(rewritten);
+    }
+
+    private String rewrite(final String query, final String sortBy) {
+        final TranslatedQuery translated = ESContentFactoryImpl.translateQuery(query, sortBy);
+        return ESContentFactoryImpl.findAndReplaceQueryDates(translated.getQuery());
+    }
+
+    /**
+     * Replaces the valid {@code yyyyMMddHHmmss} dates of the query with numbered parameters, adding the
+     * replaced dates to the given list
+     */
+    static String liftDates(final String query, final List<String> dates) {
+        final Matcher matcher = DATE_PARAMETER.matcher(query);
+        final StringBuffer template = new StringBuffer(query.length());
+        while (matcher.find()) {
+            final String date = matcher.group(1);
+            if (isDate(date)) {
+                matcher.appendReplacement(template, PARAMETER_PREFIX + dates.size() + PARAMETER_SUFFIX);
+                dates.add(date);
+            }
+        }
+        matcher.appendTail(template);
+        return template.toString();
+    }
+
+    /**
+     * Puts the given dates back in place of the parameters of a template
+     */
+    static String bind(final String template, final List<String> dates) {
+        String query = template;
+        for (int i = dates.size() - 1; i >= 0; i--) {
+            query = query.replace(PARAMETER_PREFIX + i + PARAMETER_SUFFIX, dates.get(i));
+        }
+        return query;
+    }
+
+    private static boolean isDate(final String value) {
+        final SimpleDateFormat format = new SimpleDateFormat(DATE_PARAMETER_FORMAT);
+        format.setLenient(false);
+        final ParsePosition position = new ParsePosition(0);
+        final Date date = format.parse(value, position);
+        return date != null && position.getIndex() == value.length();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Config.getBooleanProperty("COMPILED_QUERY_CACHE_ENABLED", true);
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getTemplates() {
+        return templates.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        final long lookups = hits.sum() + misses.sum();
+        return lookups == 0 ? 0 : hits.sum() / (double) lookups;
+    }
+
+    @Override
+    public double getAverageCompileMillis() {
+        final long count = misses.sum();
+        return count == 0 ? 0 : compileNanos.sum() / (count * 1_000_000d);
+    }
+
+    @Override
+    public long getCompileMillisSaved() {
+        return savedNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("hits", getHits());
+        stats.put("misses", getMisses());
+        stats.put("templates", getTemplates());
+        stats.put("hitRate", getHitRate());
+        stats.put("averageCompileMillis", getAverageCompileMillis());
+        stats.put("compileMillisSaved", getCompileMillisSaved());
+        return stats;
+    }
+
+    /**
+     * A query ready to be sent to elasticsearch, either as is or, when it is a template, once its date
+     * parameters are bound
+     */
+    public static class CompiledQuery implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String query;
+        private final boolean template;
+        private final long compileNanos;
+        private transient QueryStringQueryBuilder queryBuilder;
+
+        CompiledQuery(final String query, final boolean template, final long compileNanos) {
+            this.query = query;
+            this.template = template;
+            this.compileNanos = compileNanos;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public boolean isTemplate() {
+            return template;
+        }
+
+        /**
+         * Returns the query builder of this query with the given dates bound, the builder of a query without
+         * parameters is built once and shared
+         */
+        QueryStringQueryBuilder toQueryBuilder(final List<String> dates) {
+            if (template) {
+                return QueryBuilders.queryStringQuery(bind(query, dates));
+            }
+            if (queryBuilder == null) {
+                queryBuilder = QueryBuilders.queryStringQuery(query);
+            }
+            return queryBuilder;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final CompiledQuery that = (CompiledQuery) o;
+            return template == that.template && Objects.equals(query, that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, template);
+        }
+    }
+
+} // E:O:F:CompiledQueryCache.
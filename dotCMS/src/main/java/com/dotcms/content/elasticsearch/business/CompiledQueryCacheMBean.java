@@ -0,0 +1,59 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link CompiledQueryCache}, the stats of the compiled lucene queries
+ */
+public interface CompiledQueryCacheMBean extends DotMBean {
+
+    /**
+     * True when the compiled queries are cached
+     * @return boolean
+     */
+    public boolean isEnabled();
+
+    /**
+     * Number of queries found compiled in the cache
+     * @return long
+     */
+    public long getHits();
+
+    /**
+     * Number of queries that had to be compiled
+     * @return long
+     */
+    public long getMisses();
+
+    /**
+     * Number of compiled queries shared by all the queries that only differ in their dates
+     * @return long
+     */
+    public long getTemplates();
+
+    /**
+     * Hits over all the lookups, from 0 to 1
+     * @return double
+     */
+    public double getHitRate();
+
+    /**
+     * Average time in millis to translate a query and rewrite its dates
+     * @return double
+     */
+    public double getAverageCompileMillis();
+
+    /**
+     * Time in millis the hits would have taken to compile their queries
+     * @return long
+     */
+    public long getCompileMillisSaved();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:CompiledQueryCacheMBean.
@@ -0,0 +1,286 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.contenttype.model.type.ContentType;
+import com.dotcms.contenttype.model.type.FileAssetContentType;
+import com.dotcms.contenttype.transform.field.LegacyFieldTransformer;
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.DotStateException;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.contentlet.business.BinaryFileFilter;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.structure.business.FieldAPI;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.portlets.structure.model.Structure;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import com.google.common.collect.Lists;
+import com.liferay.util.StringPool;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * Loads contentlets straight from the contentlet table with parameterized batch queries, building
+ * the {@link Contentlet} from the raw rows instead of going through the Hibernate fat contentlet.
+ * The identifiers, folders and content type fields the rows refer to are resolved once per batch.
+ *
+ * An instance keeps per-load lookups and is not meant to be shared between threads.
+ */
+class ContentletLoader {
+
+    static final int BATCH_SIZE = Config.getIntProperty("CONTENTLET_LOADER_BATCH_SIZE", 500);
+
+    private static final String SELECT_CONTENTLETS_BY_INODES =
+            "select contentlet.*, contentlet_1_.owner from contentlet join inode contentlet_1_ "
+            + "on contentlet_1_.inode = contentlet.inode and contentlet_1_.type = 'contentlet' "
+            + "where contentlet.inode in (%s)";
+
+    private final FieldAPI fieldAPI = APILocator.getFieldAPI();
+    private final Map<String, ContentType> contentTypes = new HashMap<>();
+    private final Map<String, List<Field>> fieldsByType = new HashMap<>();
+    private final Map<String, String> folders = new HashMap<>();
+
+    /**
+     * Loads the contentlets of the given inodes, the returned map is keyed by inode and keeps the
+     * order of the inodes passed in. Inodes that do not exist are not in the map
+     */
+    Map<String, Contentlet> load(final Collection<String> inodes)
+            throws DotDataException, DotSecurityException {
+
+        final Map<String, Map<String, Object>> rows = new HashMap<>(inodes.size());
+        final List<String> distinct = new ArrayList<>(new HashSet<>(inodes));
+        for (final List<String> batch : Lists.partition(distinct, BATCH_SIZE)) {
+            final DotConnect dc = new DotConnect().setSQL(String.format(SELECT_CONTENTLETS_BY_INODES,
+                    DotConnect.createParametersPlaceholder(batch.size())));
+            for (final String inode : batch) {
+                dc.addParam(inode);
+            }
+            for (final Map<String, Object> row : dc.loadObjectResults()) {
+                rows.put((String) row.get("inode"), row);
+            }
+        }
+
+        final Set<String> identifierIds = new HashSet<>();
+        for (final Map<String, Object> row : rows.values()) {
+            if (UtilMethods.isSet((String) row.get("identifier"))) {
+                identifierIds.add((String) row.get("identifier"));
+            }
+        }
+        final Map<String, Identifier> identifiers = identifierIds.isEmpty()
+                ? new HashMap<>() : APILocator.getIdentifierAPI().find(identifierIds);
+
+        final Map<String, Contentlet> contentlets = new LinkedHashMap<>(rows.size());
+        for (final String inode : inodes) {
+            final Map<String, Object> row = rows.get(inode);
+            if (row != null && !contentlets.containsKey(inode)) {
+                contentlets.put(inode, toContentlet(row, identifiers));
+            }
+        }
+        return contentlets;
+    }
+
+    /**
+     * Builds the contentlet of a contentlet table row, the same way
+     * {@link ESContentFactoryImpl#convertFatContentletToContentlet} does for a fat contentlet
+     */
+    private Contentlet toContentlet(final Map<String, Object> row, final Map<String, Identifier> identifiers)
+            throws DotDataException, DotSecurityException {
+
+        final String inode = (String) row.get("inode");
+        final String structureInode = (String) row.get("structure_inode");
+        final String identifierId = (String) row.get("identifier");
+        final Identifier identifier = UtilMethods.isSet(identifierId) ? identifiers.get(identifierId) : null;
+
+        final Contentlet contentlet = new Contentlet();
+        contentlet.setStructureInode(structureInode);
+        try {
+            APILocator.getContentletAPI().copyProperties(contentlet, getFieldValues(row, identifier));
+        } catch (Exception e) {
+            Logger.error(this, "Unable to copy contentlet properties", e);
+            throw new DotDataException("Unable to copy contentlet properties", e);
+        }
+        contentlet.setInode(inode);
+        contentlet.setStructureInode(structureInode);
+        contentlet.setIdentifier(identifierId);
+        contentlet.setSortOrder(row.get("sort_order") == null ? 0 : ((Number) row.get("sort_order")).intValue());
+        contentlet.setLanguageId(row.get("language_id") == null ? 0 : ((Number) row.get("language_id")).longValue());
+        contentlet.setNextReview((Date) row.get("next_review"));
+        contentlet.setLastReview((Date) row.get("last_review"));
+        contentlet.setOwner((String) row.get("owner"));
+        contentlet.setModUser((String) row.get("mod_user"));
+        contentlet.setModDate((Date) row.get("mod_date"));
+        contentlet.setReviewInterval((String) row.get("review_interval"));
+
+        if (UtilMethods.isSet(identifierId)) {
+            if (identifier == null || !UtilMethods.isSet(identifier.getId())) {
+                throw new DotStateException("Contentlet's identifier not found in db. Contentlet's inode: " + inode
+                        + ". Contentlet's identifier: " + identifierId);
+            }
+            contentlet.setHost(identifier.getHostId());
+            contentlet.setFolder(getFolder(identifier));
+
+            // lets check if we have publish/expire fields to set
+            final Structure st = contentlet.getStructure();
+            if (UtilMethods.isSet(st.getPublishDateVar())) {
+                contentlet.setDateProperty(st.getPublishDateVar(), identifier.getSysPublishDate());
+            }
+            if (UtilMethods.isSet(st.getExpireDateVar())) {
+                contentlet.setDateProperty(st.getExpireDateVar(), identifier.getSysExpireDate());
+            }
+        } else {
+            if (!UtilMethods.isSet(structureInode)) {
+                throw new DotDataException("Contentlet must have a structure type.");
+            }
+            contentlet.setHost(contentlet.isSystemHost()
+                    ? Host.SYSTEM_HOST : APILocator.getHostAPI().findSystemHost().getIdentifier());
+            contentlet.setFolder(APILocator.getFolderAPI().findSystemFolder().getInode());
+        }
+
+        final String wysiwyg = (String) row.get("disabled_wysiwyg");
+        if (UtilMethods.isSet(wysiwyg)) {
+            final List<String> wysiwygFields = new ArrayList<>();
+            final StringTokenizer st = new StringTokenizer(wysiwyg, ",");
+            while (st.hasMoreTokens()) {
+                wysiwygFields.add(st.nextToken().trim());
+            }
+            contentlet.setDisabledWysiwyg(wysiwygFields);
+        }
+        return contentlet;
+    }
+
+    /**
+     * Returns the field values of a contentlet table row keyed by velocity var name, the same values
+     * {@link com.dotmarketing.portlets.contentlet.business.Contentlet#getMap()} returns for a fat contentlet
+     */
+    private Map<String, Object> getFieldValues(final Map<String, Object> row, final Identifier identifier)
+            throws DotDataException, DotSecurityException {
+
+        final String structureInode = (String) row.get("structure_inode");
+        final ContentType contentType = getContentType(structureInode);
+        final Map<String, Object> values = new HashMap<>();
+        for (final Field field : getFields(structureInode)) {
+            final String column = field.getFieldContentlet();
+            Object value;
+            if (fieldAPI.isElementConstant(field)) {
+                value = field.getValues();
+            } else if (identifier != null && contentType instanceof FileAssetContentType
+                    && FileAssetAPI.FILE_NAME_FIELD.equals(field.getVelocityVarName())) {
+                value = identifier.getAssetName();
+            } else if (Field.FieldType.BINARY.toString().equals(field.getFieldType())) {
+                value = getBinaryFile((String) row.get("inode"), field.getVelocityVarName());
+            } else {
+                value = toFieldValue(column, row.get(column));
+            }
+            values.put(field.getVelocityVarName(), value);
+        }
+        return values;
+    }
+
+    /**
+     * Turns a column value into the type the fat contentlet getter of that column returns, the
+     * primitive columns default to their zero value when null
+     */
+    private Object toFieldValue(final String column, final Object value) {
+        if (column.startsWith("bool")) {
+            if (value == null) {
+                return false;
+            }
+            if (value instanceof Boolean) {
+                return value;
+            }
+            if (value instanceof Number) {
+                return ((Number) value).intValue() != 0;
+            }
+            final String bool = value.toString().trim();
+            return "1".equals(bool) || "t".equalsIgnoreCase(bool) || Boolean.parseBoolean(bool);
+        }
+        if (column.startsWith("integer")) {
+            return value == null ? 0L : ((Number) value).longValue();
+        }
+        if (column.startsWith("float")) {
+            return value == null ? 0F : ((Number) value).floatValue();
+        }
+        if (column.startsWith("text")) {
+            return value == null ? null : value.toString();
+        }
+        return value;
+    }
+
+    private File getBinaryFile(final String inode, final String velocityVarName) {
+        final File binaryFileFolder = new File(APILocator.getFileAssetAPI().getRealAssetsRootPath()
+                + File.separator + inode.charAt(0) + File.separator + inode.charAt(1)
+                + File.separator + inode + File.separator + velocityVarName);
+        if (binaryFileFolder.exists()) {
+            final File[] files = binaryFileFolder.listFiles(new BinaryFileFilter());
+            if (files != null && files.length > 0) {
+                return files[0];
+            }
+        }
+        return null;
+    }
+
+    private ContentType getContentType(final String structureInode)
+            throws DotDataException, DotSecurityException {
+        ContentType contentType = contentTypes.get(structureInode);
+        if (contentType == null) {
+            contentType = APILocator.getContentTypeAPI(APILocator.systemUser()).find(structureInode);
+            contentTypes.put(structureInode, contentType);
+        }
+        return contentType;
+    }
+
+    /**
+     * Returns the fields of the content type that hold a value in the contentlet table, skipping the
+     * same fields {@link com.dotmarketing.portlets.contentlet.business.Contentlet#getMap()} does
+     */
+    private List<Field> getFields(final String structureInode) throws DotDataException, DotSecurityException {
+        List<Field> fields = fieldsByType.get(structureInode);
+        if (fields == null) {
+            fields = new ArrayList<>();
+            for (final Field field : new LegacyFieldTransformer(getContentType(structureInode).fields()).asOldFieldList()) {
+                if (!fieldAPI.valueSettable(field)
+                        || Field.FieldType.HOST_OR_FOLDER.toString().equals(field.getFieldType())
+                        || Field.FieldType.TAG.toString().equals(field.getFieldType())) {
+                    continue;
+                }
+                if (field.getFieldContentlet() != null && field.getFieldContentlet().startsWith("system_field")
+                        && !Field.FieldType.BINARY.toString().equals(field.getFieldType())) {
+                    continue;
+                }
+                fields.add(field);
+            }
+            fieldsByType.put(structureInode, fields);
+        }
+        return fields;
+    }
+
+    private String getFolder(final Identifier identifier) throws DotDataException, DotSecurityException {
+        final String key = identifier.getHostId() + StringPool.COLON + identifier.getParentPath();
+        String folderInode = folders.get(key);
+        if (folderInode == null) {
+            final Folder folder = "/".equals(identifier.getParentPath())
+                    ? APILocator.getFolderAPI().findSystemFolder()
+                    : APILocator.getFolderAPI().findFolderByPath(identifier.getParentPath(),
+                            identifier.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
+            folderInode = folder.getInode();
+            folders.put(key, folderInode);
+        }
+        return folderInode;
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.content.elasticsearch.constants.ESMappingConstants;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks what the related content copies into its index documents from a contentlet, so a save only reindexes
+ * the related content whose copies changed. A document copies, for each relationship it has with the contentlet,
+ * the identifier of the contentlet and the order of the relationship ({@code <relation>} and
+ * {@code <relation>-order} fields), all of it taken from the {@code tree} table, nothing from the fields of the
+ * contentlet. So the copies of a contentlet are its relationship entries: relation type, related identifier and
+ * order.
+ * <p>
+ * Once the dependencies of a contentlet are queued to be reindexed its entries are kept in the
+ * {@code PropagatedRelationshipsCache} region, on commit. The next save compares the entries it has then
+ * against the kept ones and only the related identifiers whose entries were added, removed or reordered are
+ * reindexed. When nothing is kept (first save, evicted, or invalidated by another server) the related documents
+ * are looked up in the index as before. The kept entries of the contentlet and of every dependency being
+ * reindexed are removed through the cache before anything else, so a relationship changed from either side, on
+ * any server of the cluster, is never compared against stale entries.
+ * <p>
+ * Tracking is on unless {@code DEPENDENCY_REINDEX_TRACKING_ENABLED} is turned off. Stats are exposed by the
+ * {@value #MBEAN_OBJECT_NAME} MBean.
+ *
+ * @author dotCMS
+ */
+public class DependencyReindexTracker implements DependencyReindexTrackerMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=DependencyReindexTracker";
+
+    private static final String SEPARATOR = "|";
+
+    private static final DependencyReindexTracker INSTANCE = new DependencyReindexTracker();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder tracked = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+    private final LongAdder reindexed = new LongAdder();
+    private final LongAdder avoided = new LongAdder();
+
+    private DependencyReindexTracker() {
+    }
+
+    public static DependencyReindexTracker getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * Returns the relationship entries of the contentlet out of its {@code tree} rows, only the rows of the
+     * given relation types are taken
+     */
+    static Set<String> relationshipEntries(final String identifier, final Collection<String> relationTypes,
+            final List<? extends Map<String, String>> treeRows) {
+
+        final Set<String> entries = new HashSet<>();
+        for (final Map<String, String> row : treeRows) {
+            final String relationType = row.get(ESMappingConstants.RELATION_TYPE);
+            if (relationTypes.contains(relationType)) {
+                final String child = row.get(ESMappingConstants.CHILD);
+                final String related = identifier.equalsIgnoreCase(child) ? row.get(ESMappingConstants.PARENT) : child;
+                entries.add(relationType + SEPARATOR + related + SEPARATOR + row.get(ESMappingConstants.TREE_ORDER));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the related identifiers whose entries changed since the dependencies of the contentlet were last
+     * reindexed, or null when that is not known and the index has to be looked up
+     */
+    public Set<String> changedDependencies(final String identifier, final Set<String> entries) {
+
+        checks.increment();
+        final Set<String> propagated =
+                isEnabled() ? CacheLocator.getContentletCache().getPropagatedRelationships(identifier) : null;
+        if (propagated == null) {
+            untracked.increment();
+            return null;
+        }
+        tracked.increment();
+
+        final Set<String> changed = new LinkedHashSet<>();
+        for (final String entry : entries) {
+            if (!propagated.contains(entry)) {
+                changed.add(related(entry));
+            }
+        }
+        for (final String entry : propagated) {
+            if (!entries.contains(entry)) {
+                changed.add(related(entry));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Records that the given dependencies of the contentlet are being reindexed, its entries are kept once the
+     * transaction commits
+     */
+    public void dependenciesQueued(final String identifier, final Set<String> entries,
+            final Collection<String> dependencies) {
+
+        final Set<String> related = new HashSet<>();
+        entries.forEach(entry -> related.add(related(entry)));
+        reindexed.add(dependencies.size());
+        related.removeAll(dependencies);
+        avoided.add(related.size());
+
+        if (!isEnabled()) {
+            return;
+        }
+        CacheLocator.getContentletCache().removePropagatedRelationships(identifier);
+        dependencies.forEach(dependency -> CacheLocator.getContentletCache().removePropagatedRelationships(dependency));
+        try {
+            HibernateUtil.addCommitListener(identifier + "DependencyReindexTracker",
+                    () -> CacheLocator.getContentletCache().addPropagatedRelationships(identifier, entries));
+        } catch (DotHibernateException e) {
+            Logger.warn(this, "Unable to keep the relationship entries of " + identifier + ": " + e.getMessage());
+        }
+    }
+
+    private static String related(final String entry) {
+        final int start = entry.indexOf(SEPARATOR) + 1;
+        return entry.substring(start, entry.indexOf(SEPARATOR, start));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Config.getBooleanProperty("DEPENDENCY_REINDEX_TRACKING_ENABLED", true);
+    }
+
+    @Override
+    public long getChecks() {
+        return checks.sum();
+    }
+
+    @Override
+    public long getTracked() {
+        return tracked.sum();
+    }
+
+    @Override
+    public long getUntracked() {
+        return untracked.sum();
+    }
+
+    @Override
+    public long getReindexed() {
+        return reindexed.sum();
+    }
+
+    @Override
+    public long getAvoided() {
+        return avoided.sum();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("checks", getChecks());
+        stats.put("tracked", getTracked());
+        stats.put("untracked", getUntracked());
+        stats.put("reindexed", getReindexed());
+        stats.put("avoided", getAvoided());
+        return stats;
+    }
+
+} // E:O:F:DependencyReindexTracker.
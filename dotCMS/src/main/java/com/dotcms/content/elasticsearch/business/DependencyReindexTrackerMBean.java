@@ -0,0 +1,54 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link DependencyReindexTracker}, the related content reindexed
+ * on save
+ */
+public interface DependencyReindexTrackerMBean extends DotMBean {
+
+    /**
+     * True when the relationship entries propagated to the related content are kept
+     * @return boolean
+     */
+    public boolean isEnabled();
+
+    /**
+     * Saves whose related content was checked
+     * @return long
+     */
+    public long getChecks();
+
+    /**
+     * Checks answered with the kept relationship entries
+     * @return long
+     */
+    public long getTracked();
+
+    /**
+     * Checks that had to look up the related documents in the index
+     * @return long
+     */
+    public long getUntracked();
+
+    /**
+     * Related contents reindexed because their copies changed
+     * @return long
+     */
+    public long getReindexed();
+
+    /**
+     * Related contents not reindexed because their copies did not change
+     * @return long
+     */
+    public long getAvoided();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:DependencyReindexTrackerMBean.
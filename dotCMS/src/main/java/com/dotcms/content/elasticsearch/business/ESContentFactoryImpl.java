@@ -44,6 +44,7 @@ import com.dotmarketing.portlets.workflows.business.WorkFlowFactory;
 import com.dotmarketing.portlets.workflows.model.WorkflowTask;
 import com.dotmarketing.util.*;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.primitives.Ints;
 import com.liferay.portal.model.User;
 import com.liferay.util.StringPool;
@@ -94,6 +95,8 @@ import static com.dotcms.content.elasticsearch.business.ESMappingAPIImpl.datetim
 public class ESContentFactoryImpl extends ContentletFactory {
 
     private static final String[] ES_FIELDS = {"inode", "identifier"};
+    private static final String IDENTIFIER_DOTRAW = "identifier_dotraw";
+    private static final String INODE_DOTRAW = "inode_dotraw";
     private final ContentletCache contentletCache;
 	private final ESClient client;
 	private final LanguageAPI languageAPI;
@@ -729,28 +732,21 @@ public class ESContentFactoryImpl extends ContentletFactory {
 
 	@Override
 	protected Contentlet find(String inode) throws ElasticsearchException, DotStateException, DotDataException, DotSecurityException {
-		Contentlet con = contentletCache.get(inode);
-		if (con != null && InodeUtils.isSet(con.getInode())) {
-			if(CACHE_404_CONTENTLET.equals(con.getInode())){
-				return null;
+		// concurrent finds of the same inode wait for a single load
+		final Contentlet con = contentletCache.get(inode, () -> {
+			com.dotmarketing.portlets.contentlet.business.Contentlet fatty = null;
+			try{
+				fatty = (com.dotmarketing.portlets.contentlet.business.Contentlet)HibernateUtil.load(com.dotmarketing.portlets.contentlet.business.Contentlet.class, inode);
+			} catch (DotHibernateException e) {
+				if(!(e.getCause() instanceof ObjectNotFoundException))
+					throw e;
 			}
-			return con;
+			return (fatty == null) ? cache404Content : convertFatContentletToContentlet(fatty);
+		});
+		if (con == null || !InodeUtils.isSet(con.getInode()) || CACHE_404_CONTENTLET.equals(con.getInode())) {
+			return null;
 		}
-		com.dotmarketing.portlets.contentlet.business.Contentlet fatty = null;
-        try{
-            fatty = (com.dotmarketing.portlets.contentlet.business.Contentlet)HibernateUtil.load(com.dotmarketing.portlets.contentlet.business.Contentlet.class, inode);
-        } catch (DotHibernateException e) {
-            if(!(e.getCause() instanceof ObjectNotFoundException))
-                throw e;
-        }
-        if(fatty == null){
-        	contentletCache.add(inode, cache404Content);
-            return null;
-        }else{
-            Contentlet c = convertFatContentletToContentlet(fatty);
-            contentletCache.add(c.getInode(), c);
-            return c;
-        }
+		return con;
 	}
 
 	@Override
@@ -911,46 +907,63 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	@Override
 	protected List<Contentlet> findContentlets(List<String> inodes) throws DotDataException, DotStateException, DotSecurityException {
 
-	    ArrayList<Contentlet> result = new ArrayList<Contentlet>();
-        ArrayList<String> inodesNotFound = new ArrayList<String>();
-        for (String i : inodes) {
-            Contentlet c = contentletCache.get(i);
-            if(c != null && InodeUtils.isSet(c.getInode())){
-                result.add(c);
-            } else {
-                inodesNotFound.add(i);
+        // a single cache lookup for all the inodes
+        final Map<String, Contentlet> cached = contentletCache.getAll(inodes);
+        final List<String> inodesNotFound = new ArrayList<>();
+        for (final String inode : inodes) {
+            final Contentlet c = cached.get(inode);
+            if (c == null || !InodeUtils.isSet(c.getInode())) {
+                inodesNotFound.add(inode);
             }
         }
-        if(inodesNotFound.isEmpty()){
-            return result;
-        }
-
 
+        final Map<String, Contentlet> loaded = inodesNotFound.isEmpty()
+                ? Collections.emptyMap() : new ContentletLoader().load(inodesNotFound);
+        contentletCache.addAll(loaded.values());
 
-        final String contentletBase = "select {contentlet.*} from contentlet join inode contentlet_1_ "
-                + "on contentlet_1_.inode = contentlet.inode and contentlet_1_.type = 'contentlet' where  contentlet.inode in ('";
+        // keep the order of the inodes passed in, usually the order of the index hits
+        final List<Contentlet> result = new ArrayList<>(inodes.size());
+        for (final String inode : inodes) {
+            final Contentlet c = loaded.containsKey(inode) ? loaded.get(inode) : cached.get(inode);
+            if (c != null && InodeUtils.isSet(c.getInode())) {
+                result.add(c);
+            }
+        }
+        return result;
+	}
 
-        for(int init=0; init < inodesNotFound.size(); init+=200) {
-            int end = Math.min(init + 200, inodesNotFound.size());
+	/**
+	 * Returns an iterator over the contentlets of the given inodes, in the same order. The contentlets
+	 * are loaded lazily, {@link ContentletLoader#BATCH_SIZE} at a time, so only one batch is held in
+	 * memory at any given moment. Inodes that do not exist are skipped
+	 */
+	protected Iterator<Contentlet> findContentletsIterator(final List<String> inodes) {
 
-            HibernateUtil hu = new HibernateUtil(com.dotmarketing.portlets.contentlet.business.Contentlet.class);
-            final StringBuilder hql = new StringBuilder()
-                    .append(contentletBase)
-                    .append(StringUtils.join(inodesNotFound.subList(init, end), "','"))
-                    .append("') order by contentlet.mod_date DESC");
+	    final Iterator<List<String>> batches = Lists.partition(inodes, ContentletLoader.BATCH_SIZE).iterator();
+	    return new Iterator<Contentlet>() {
 
-            hu.setSQLQuery(hql.toString());
+	        private Iterator<Contentlet> current = Collections.emptyIterator();
 
-            List<com.dotmarketing.portlets.contentlet.business.Contentlet> fatties =  hu.list();
-            for (com.dotmarketing.portlets.contentlet.business.Contentlet fatty : fatties) {
-                Contentlet con = convertFatContentletToContentlet(fatty);
-                result.add(con);
-                contentletCache.add(con.getInode(), con);
-            }
-            HibernateUtil.getSession().clear();
-        }
+	        @Override
+	        public boolean hasNext() {
+	            while (!current.hasNext() && batches.hasNext()) {
+	                try {
+	                    current = findContentlets(batches.next()).iterator();
+	                } catch (DotDataException | DotSecurityException e) {
+	                    throw new DotRuntimeException(e.getMessage(), e);
+	                }
+	            }
+	            return current.hasNext();
+	        }
 
-        return result;
+	        @Override
+	        public Contentlet next() {
+	            if (!hasNext()) {
+	                throw new NoSuchElementException();
+	            }
+	            return current.next();
+	        }
+	    };
 	}
 
 	/**
@@ -1251,7 +1264,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 
 	@Override
 	protected long indexCount(final String query) {
-	    final String qq = findAndReplaceQueryDates(translateQuery(query, null).getQuery());
+	    final QueryStringQueryBuilder qb = CompiledQueryCache.getInstance().compile(query, null);
 
 	    // we check the query to figure out wich indexes to hit
         String indexToHit;
@@ -1269,7 +1282,6 @@ public class ESContentFactoryImpl extends ContentletFactory {
             indexToHit=info.working;
 
         final Client client              = this.client.getClient();
-        final QueryStringQueryBuilder qb = QueryBuilders.queryStringQuery(qq);
         final SearchRequestBuilder searchRequestBuilder = client.prepareSearch().setSize(0);
         searchRequestBuilder.setQuery(qb);
         searchRequestBuilder.setIndices(indexToHit);
@@ -1280,8 +1292,8 @@ public class ESContentFactoryImpl extends ContentletFactory {
     protected long indexCount(final String query,
                         final long timeoutMillis) {
 
-        final String queryStringQuery =
-                findAndReplaceQueryDates(translateQuery(query, null).getQuery());
+        final QueryStringQueryBuilder queryStringQueryBuilder =
+                CompiledQueryCache.getInstance().compile(query, null);
 
         // we check the query to figure out wich indexes to hit
         IndiciesInfo info;
@@ -1295,8 +1307,6 @@ public class ESContentFactoryImpl extends ContentletFactory {
         }
 
         final Client client = this.client.getClient();
-        final QueryStringQueryBuilder queryStringQueryBuilder =
-                QueryBuilders.queryStringQuery(queryStringQuery);
         final SearchRequestBuilder searchRequestBuilder =
                 client.prepareSearch().setSize(0);
 
@@ -1314,8 +1324,8 @@ public class ESContentFactoryImpl extends ContentletFactory {
                               final Consumer<Long> indexCountSuccess,
                               final Consumer<Exception> indexCountFailure) {
 
-        final String queryStringQuery =
-                findAndReplaceQueryDates(translateQuery(query, null).getQuery());
+        final QueryStringQueryBuilder queryStringQueryBuilder =
+                CompiledQueryCache.getInstance().compile(query, null);
 
         // we check the query to figure out wich indexes to hit
         IndiciesInfo info;
@@ -1333,8 +1343,6 @@ public class ESContentFactoryImpl extends ContentletFactory {
         }
 
         final Client client = this.client.getClient();
-        final QueryStringQueryBuilder queryStringQueryBuilder =
-                QueryBuilders.queryStringQuery(queryStringQuery);
         final SearchRequestBuilder searchRequestBuilder =
                 client.prepareSearch().setSize(0);
 
@@ -1369,17 +1377,17 @@ public class ESContentFactoryImpl extends ContentletFactory {
      * @return
      */
     private SearchRequestBuilder createRequest(Client client, String query) {
-		return createRequest(client, query, null);
+		return createRequest(client, QueryBuilders.queryStringQuery(query), null);
 	}
 
     /**
      *
      * @param client
-     * @param query
+     * @param query the query already compiled by the {@link CompiledQueryCache}
      * @param sortBy i.e. "random" or null object.
      * @return
      */
-    private SearchRequestBuilder createRequest(Client client, String query, String sortBy) {
+    private SearchRequestBuilder createRequest(Client client, QueryStringQueryBuilder query, String sortBy) {
 
         SearchSourceBuilder ssb = SearchSourceBuilder.searchSource();
 
@@ -1390,22 +1398,35 @@ public class ESContentFactoryImpl extends ContentletFactory {
             if("random".equals(sortBy)){
                 return client.prepareSearch().setSource(ssb)
                         .setQuery(QueryBuilders.functionScoreQuery(QueryBuilders.matchAllQuery(), new RandomScoreFunctionBuilder()))
-                        .setPostFilter(QueryBuilders.queryStringQuery(query)); //Cache is handled internally.
+                        .setPostFilter(query); //Cache is handled internally.
             } else {
                 return client.prepareSearch().setSource(ssb)
                         .setQuery(QueryBuilders.matchAllQuery())
-                        .setPostFilter(QueryBuilders.queryStringQuery(query)); //Cache is handled internally.
+                        .setPostFilter(query); //Cache is handled internally.
             }
 
         } else {
-            return client.prepareSearch().setSource(ssb).setQuery(QueryBuilders.queryStringQuery(query));
+            return client.prepareSearch().setSource(ssb).setQuery(query);
         }
     }
 
 	@Override
 	protected SearchHits indexSearch(String query, int limit, int offset, String sortBy) {
+	    return indexSearch(query, limit, offset, sortBy, null);
+	}
+
+	@Override
+	protected SearchHits indexSearchAfter(String query, int limit, String sortBy, Object[] searchAfter) {
+	    return indexSearch(query, limit, 0, sortBy, searchAfter == null ? new Object[0] : searchAfter);
+	}
 
-	    String qq=findAndReplaceQueryDates(translateQuery(query, sortBy).getQuery());
+	/**
+	 * Searches the index paging with an offset or, when searchAfter is not null, with the sort values of the last
+	 * hit of the previous page
+	 */
+	private SearchHits indexSearch(String query, int limit, int offset, String sortBy, Object[] searchAfter) {
+
+	    QueryStringQueryBuilder qq=CompiledQueryCache.getInstance().compile(query, sortBy);
 
 	    // we check the query to figure out wich indexes to hit
 	    String indexToHit;
@@ -1432,7 +1453,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 
             if(limit>0)
                 srb.setSize(limit);
-            if(offset>0)
+            if(offset>0 && searchAfter==null)
                 srb.setFrom(offset);
 
             if(UtilMethods.isSet(sortBy) ) {
@@ -1504,6 +1525,13 @@ public class ESContentFactoryImpl extends ContentletFactory {
                 srb.addSort("moddate", SortOrder.DESC);
             }
 
+            if(searchAfter!=null) {
+                // a unique tiebreak, so hits with the same sort values are neither repeated nor skipped between pages
+                srb.addSort(IDENTIFIER_DOTRAW, SortOrder.ASC);
+                srb.addSort(INODE_DOTRAW, SortOrder.ASC);
+                if(searchAfter.length>0)
+                    srb.searchAfter(searchAfter);
+            }
 
 
             try{
@@ -2024,7 +2052,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	     * @param query
 	     * @return
 	     */
-        private static String findAndReplaceQueryDates(String query) {
+        static String findAndReplaceQueryDates(String query) {
             query = RegEX.replaceAll(query, " ", "\\s{2,}");
 
             List<RegExMatch> matches = RegEX.find(query, "[\\+\\-\\!\\(]?" + "structureName" + ":(\\S+)\\)?");
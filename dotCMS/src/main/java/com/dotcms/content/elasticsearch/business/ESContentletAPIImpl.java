@@ -15,6 +15,7 @@ import com.dotcms.content.elasticsearch.business.event.ContentletCheckinEvent;
 import com.dotcms.content.elasticsearch.business.event.ContentletDeletedEvent;
 import com.dotcms.content.elasticsearch.business.event.ContentletPublishEvent;
 import com.dotcms.content.elasticsearch.constants.ESMappingConstants;
+import com.dotcms.content.elasticsearch.util.FullReindexProgress;
 import com.dotcms.contenttype.business.ContentTypeAPI;
 import com.dotcms.contenttype.model.field.*;
 import com.dotcms.contenttype.model.type.BaseContentType;
@@ -159,11 +160,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchResponse;
@@ -423,6 +429,20 @@ public class ESContentletAPIImpl implements ContentletAPI {
         return contentFactory.findContentlets(inodes);
     }
 
+    @Override
+    public Stream<Contentlet> findContentletsStream(final List<String> inodes) {
+        // the inodes that do not exist are skipped, so the size is unknown. The batches are loaded while the
+        // stream is consumed, a connection opened for them is closed with the stream
+        final boolean isNewConnection = !DbConnectionFactory.connectionExists();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(contentFactory.findContentletsIterator(inodes),
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    if (isNewConnection && !DbConnectionFactory.inTransaction()) {
+                        DbConnectionFactory.closeSilently();
+                    }
+                });
+    }
+
     @CloseDBIfOpened
     @Override
     public List<Contentlet> findContentletsByFolder(Folder parentFolder, User user, boolean respectFrontendRoles) throws DotDataException, DotSecurityException {
@@ -735,15 +755,8 @@ public class ESContentletAPIImpl implements ContentletAPI {
         }
 
 
-        List<Contentlet> contentlets = findContentlets(inodes);
-        Map<String, Contentlet> map = new HashMap<String, Contentlet>(contentlets.size());
-        for (Contentlet contentlet : contentlets) {
-            map.put(contentlet.getInode(), contentlet);
-        }
-        for (String inode : inodes) {
-            if(map.get(inode) != null)
-                contents.add(map.get(inode));
-        }
+        // findContentlets keeps the order of the index hits
+        contents.addAll(findContentlets(inodes));
         return contents;
 
     }
@@ -766,10 +779,14 @@ public class ESContentletAPIImpl implements ContentletAPI {
         contents.setTotalResults(list.getTotalResults());
 
         List<String> identifierList = new ArrayList<>();
+        List<String> hits = new ArrayList<>();
         for(ContentletSearch conwrap: list){
-            String ident=conwrap.getIdentifier();
-            Identifier ii=APILocator.getIdentifierAPI().find(ident);
-            if(ii!=null && UtilMethods.isSet(ii.getId()))
+            hits.add(conwrap.getIdentifier());
+        }
+        // a single lookup for all the identifiers of the hits
+        Map<String, Identifier> found = APILocator.getIdentifierAPI().find(hits);
+        for(String ident : hits){
+            if(found.containsKey(ident))
                 identifierList.add(ident);
         }
         String[] identifiers=new String[identifierList.size()];
@@ -842,23 +859,7 @@ public class ESContentletAPIImpl implements ContentletAPI {
 
     @Override
     public List <ContentletSearch> searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles)throws DotSecurityException, DotDataException {
-        boolean isAdmin = false;
-        List<Role> roles = new ArrayList<Role>();
-        if(user == null && !respectFrontendRoles){
-            throw new DotSecurityException("You must specify a user if you are not respecting frontend roles");
-        }
-        if(user != null){
-            if (!APILocator.getRoleAPI().doesUserHaveRole(user, APILocator.getRoleAPI().loadCMSAdminRole())) {
-                roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
-            }else{
-                isAdmin = true;
-            }
-        }
-        StringBuffer buffy = new StringBuffer(luceneQuery);
-
-        // Permissions in the query
-        if (!isAdmin)
-            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        final String query = addPermissionsToQuery(luceneQuery, user, respectFrontendRoles);
 
         if(UtilMethods.isSet(sortBy) && sortBy.trim().equalsIgnoreCase("random")){
             sortBy="random";
@@ -866,29 +867,157 @@ public class ESContentletAPIImpl implements ContentletAPI {
         if(limit>MAX_LIMIT || limit <=0){
             limit = MAX_LIMIT;
         }
-        SearchHits lc = contentFactory.indexSearch(buffy.toString(), limit, offset, sortBy);
+        final LiveQueryResultCache liveQueryResultCache = LiveQueryResultCache.getInstance();
+        Map<String, Long> liveQueryTokens = null;
+        if (liveQueryResultCache.isCacheable(query, sortBy)) {
+            final PaginatedArrayList<ContentletSearch> cached = liveQueryResultCache.get(query, sortBy, limit, offset);
+            if (cached != null) {
+                return cached;
+            }
+            liveQueryTokens = liveQueryResultCache.tokens(query);
+        }
+        SearchHits lc = contentFactory.indexSearch(query, limit, offset, sortBy);
         PaginatedArrayList <ContentletSearch> list=new PaginatedArrayList<>();
         list.setTotalResults(lc.getTotalHits());
 
         for (SearchHit sh : lc.getHits()) {
             try{
-                Map<String, Object> sourceMap = sh.getSourceAsMap();
-                ContentletSearch conwrapper= new ContentletSearch();
+                list.add(toContentletSearch(sh));
+            }
+            catch(Exception e){
+                Logger.error(this,e.getMessage(),e);
+            }
+
+        }
+        if (liveQueryTokens != null) {
+            liveQueryResultCache.put(query, sortBy, limit, offset, liveQueryTokens, list);
+        }
+        return list;
+    }
+
+    @Override
+    public PaginatedArrayList<ContentletSearch> searchIndexAfter(final String luceneQuery, final int limit, final String sortBy,
+            final String cursor, final User user, final boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
+        return searchIndexAfter(addPermissionsToQuery(luceneQuery, user, respectFrontendRoles), limit, sortBy,
+                UtilMethods.isSet(cursor) ? SearchCursor.decode(cursor) : null);
+    }
 
-                conwrapper.setIdentifier(sourceMap.get("identifier").toString());
-                conwrapper.setInode(sourceMap.get("inode").toString());
-                conwrapper.setScore(sh.getScore());
+    /**
+     * Returns the page after the given sort values of an already permissioned query, the next cursor is only set
+     * when the page is full
+     */
+    private PaginatedArrayList<ContentletSearch> searchIndexAfter(final String query, int limit, final String sortBy,
+            final Object[] searchAfter) {
+        if(UtilMethods.isSet(sortBy) && sortBy.trim().equalsIgnoreCase("random")){
+            throw new IllegalArgumentException("Random sorted results can not be paginated with a cursor");
+        }
+        if(limit>MAX_LIMIT || limit <=0){
+            limit = MAX_LIMIT;
+        }
+        final SearchHits hits = contentFactory.indexSearchAfter(query, limit, sortBy, searchAfter);
+        final PaginatedArrayList<ContentletSearch> list = new PaginatedArrayList<>();
+        list.setTotalResults(hits.getTotalHits());
 
-                list.add(conwrapper);
+        for (final SearchHit hit : hits.getHits()) {
+            try{
+                list.add(toContentletSearch(hit));
             }
             catch(Exception e){
                 Logger.error(this,e.getMessage(),e);
             }
-
+        }
+        if (hits.getHits().length == limit) {
+            list.setNextCursor(SearchCursor.encode(hits.getHits()[hits.getHits().length - 1].getSortValues()));
         }
         return list;
     }
 
+    @Override
+    public PaginatedArrayList<Contentlet> searchAfter(final String luceneQuery, final int limit, final String sortBy,
+            final String cursor, final User user, final boolean respectFrontendRoles) throws DotDataException, DotSecurityException {
+        final PaginatedArrayList<ContentletSearch> list = searchIndexAfter(luceneQuery, limit, sortBy, cursor, user, respectFrontendRoles);
+        final List<String> inodes = new ArrayList<>(list.size());
+        for (final ContentletSearch conwrap : list) {
+            inodes.add(conwrap.getInode());
+        }
+
+        final PaginatedArrayList<Contentlet> contents = new PaginatedArrayList<>();
+        contents.setTotalResults(list.getTotalResults());
+        contents.setNextCursor(list.getNextCursor());
+        // findContentlets keeps the order of the index hits
+        contents.addAll(findContentlets(inodes));
+        return contents;
+    }
+
+    @Override
+    public Stream<ContentletSearch> searchIndexStream(final String luceneQuery, final String sortBy, final User user,
+            final boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
+        final String query = addPermissionsToQuery(luceneQuery, user, respectFrontendRoles);
+        final int pageSize = Config.getIntProperty("SEARCH_INDEX_STREAM_PAGE_SIZE", 1000);
+
+        final Iterator<ContentletSearch> iterator = new Iterator<ContentletSearch>() {
+
+            private Iterator<ContentletSearch> page = Collections.emptyIterator();
+            private Object[] searchAfter = new Object[0];
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && searchAfter != null) {
+                    final PaginatedArrayList<ContentletSearch> list = searchIndexAfter(query, pageSize, sortBy, searchAfter);
+                    searchAfter = list.getNextCursor() != null ? SearchCursor.decode(list.getNextCursor()) : null;
+                    page = list.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public ContentletSearch next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Returns the given query restricted to the content the user can read, admins see everything
+     */
+    private String addPermissionsToQuery(final String luceneQuery, final User user, final boolean respectFrontendRoles)
+            throws DotSecurityException, DotDataException {
+        boolean isAdmin = false;
+        List<Role> roles = new ArrayList<Role>();
+        if(user == null && !respectFrontendRoles){
+            throw new DotSecurityException("You must specify a user if you are not respecting frontend roles");
+        }
+        if(user != null){
+            if (!APILocator.getRoleAPI().doesUserHaveRole(user, APILocator.getRoleAPI().loadCMSAdminRole())) {
+                roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
+            }else{
+                isAdmin = true;
+            }
+        }
+        StringBuffer buffy = new StringBuffer(luceneQuery);
+
+        // Permissions in the query
+        if (!isAdmin)
+            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+
+        return buffy.toString();
+    }
+
+    private ContentletSearch toContentletSearch(final SearchHit hit) {
+        final Map<String, Object> sourceMap = hit.getSourceAsMap();
+        final ContentletSearch conwrapper= new ContentletSearch();
+
+        conwrapper.setIdentifier(sourceMap.get("identifier").toString());
+        conwrapper.setInode(sourceMap.get("inode").toString());
+        conwrapper.setScore(hit.getScore());
+        return conwrapper;
+    }
+
     @CloseDBIfOpened
     @Override
     public void publishRelatedHtmlPages(final Contentlet contentlet) throws DotStateException, DotDataException{
@@ -2336,6 +2465,7 @@ public class ESContentletAPIImpl implements ContentletAPI {
 
             // new records to index
             distributedJournalAPI.addBuildNewIndexEntries();
+            FullReindexProgress.getInstance().started(distributedJournalAPI.recordsLeftToIndexForServer());
 
             // then we let the reindexThread start working
             ReindexThread.getInstance().unlockCluster();
@@ -3232,6 +3362,10 @@ public class ESContentletAPIImpl implements ContentletAPI {
                 // can't remove it
                 CacheLocator.getIdentifierCache().removeFromCacheByVersionable(contentlet);
 
+                if (UtilMethods.isSet(identifier.getHostId()) && !identifier.getHostId().equals(contentlet.getHost())) {
+                    // the live results of the site the content is moving out of
+                    LiveQueryResultCache.getInstance().invalidate(contentlet.getContentType().variable(), identifier.getHostId());
+                }
                 identifier.setHostId(contentlet.getHost());
                 if(contentlet.getStructure().getStructureType()==Structure.STRUCTURE_TYPE_FILEASSET){
                     try {
@@ -5,6 +5,7 @@ import com.dotcms.business.WrapInTransaction;
 import com.dotcms.content.business.DotMappingException;
 import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
 import com.dotcms.content.elasticsearch.util.ESClient;
+import com.dotcms.content.elasticsearch.util.FullReindexProgress;
 import com.dotcms.exception.ExceptionUtil;
 import com.dotcms.tika.TikaUtils;
 import com.dotcms.util.CollectionsUtils;
@@ -30,15 +31,19 @@ import com.google.gson.Gson;
 import com.liferay.util.StringPool;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequest;
 import org.elasticsearch.action.admin.indices.stats.IndexStats;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -276,16 +281,23 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
                    +info.working+","+info.live+"] and new index ["
                    +info.reindex_working+","+info.reindex_live+"]");
 
+            final long start=System.currentTimeMillis();
             final String oldw=info.working;
             final String oldl=info.live;
 
             IndiciesInfo newinfo=new IndiciesInfo();
             newinfo.working=info.reindex_working;
             newinfo.live=info.reindex_live;
-            APILocator.getIndiciesAPI().point(conn,newinfo);
 
+            // the new indices get their replicas back and every write made visible before they are read,
+            // then the pointers of both are swapped at once in the indicies table
             esIndexApi.moveIndexBackToCluster(newinfo.working);
             esIndexApi.moveIndexBackToCluster(newinfo.live);
+            new ESClient().getClient().admin().indices().prepareRefresh(newinfo.working, newinfo.live)
+                    .get(TimeValue.timeValueMillis(INDEX_OPERATIONS_TIMEOUT_IN_MS));
+            APILocator.getIndiciesAPI().point(conn,newinfo);
+            LiveQueryResultCache.getInstance().flush();
+            FullReindexProgress.getInstance().switchedOver(System.currentTimeMillis()-start);
 
             ArrayList<String> list=new ArrayList<String>();
             list.add(newinfo.working);
@@ -424,12 +436,39 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 	}
 
 	/**
-	 * Add ReindexRunnable runnable
+	 * Add ReindexRunnable runnable, when the {@link CoalescingIndexQueue} is enabled the deferred content is
+	 * queued there instead of indexed on commit
 	 */
 	private class AddReindexRunnable extends ReindexRunnable {
 
+		private final boolean queueable;
+
 		public AddReindexRunnable(final List<Contentlet> reindexIds, final Action action, final BulkRequestBuilder bulk, final boolean reindexOnly) {
 			super(reindexIds, action, bulk, reindexOnly);
+			this.queueable = null == bulk && !reindexOnly;
+		}
+
+		@Override
+		public void run() {
+
+			if (!this.queueable || !CoalescingIndexQueue.getInstance().isEnabled()) {
+				super.run();
+				return;
+			}
+
+			final List<List<Contentlet>> partitions = CollectionsUtils.partition(this.getReindexIds(),
+					(contentlet -> contentlet.getIndexPolicy() == IndexPolicy.DEFER),
+					(contentlet -> contentlet.getIndexPolicy() != IndexPolicy.DEFER));
+			// the content the queue could not hold is indexed now along with the rest
+			final List<Contentlet> contentToIndex = new ArrayList<>(partitions.get(1));
+			contentToIndex.addAll(CoalescingIndexQueue.getInstance().enqueue(partitions.get(0)));
+			if (UtilMethods.isSet(contentToIndex)) {
+				try {
+					indexContentList(contentToIndex, null, false);
+				} catch (DotDataException e) {
+					throw new RuntimeException(e);
+				}
+			}
 		}
 	}
 
@@ -477,7 +516,11 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 
 			indexContentletList(bulk, contentToIndex, reindexOnly);
 			if (bulk.numberOfActions() > 0) {
-				bulk.execute().actionGet(INDEX_OPERATIONS_TIMEOUT_IN_MS);
+				try {
+					bulk.execute().actionGet(INDEX_OPERATIONS_TIMEOUT_IN_MS);
+				} finally {
+					LiveQueryResultCache.getInstance().written(bulk.request());
+				}
 			}
 		} catch (DotStateException | DotSecurityException | DotMappingException e) {
 			throw new DotDataException(e.getMessage(), e);
@@ -498,7 +541,9 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 		// we want to wait until the content is already indexed
 		bulkRequestBuilder.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
 		bulkRequestBuilder.setTimeout(TimeValue.timeValueMillis(timeOutMillis));
-		this.runIndexBulk(contentToIndex, bulkRequestBuilder, reindexOnly);
+		// the versions a pending deferred operation of the same content stands for are indexed along with it
+		CoalescingIndexQueue.getInstance().indexNow(contentToIndex,
+				content -> this.runIndexBulk(content, bulkRequestBuilder, reindexOnly));
 	} // indexContentListNow.
 
 
@@ -515,7 +560,9 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 		// we want to wait until the content is already indexed
 		bulkRequestBuilder.setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
 		bulkRequestBuilder.setTimeout(TimeValue.timeValueMillis(timeOutMillis));
-		this.runIndexBulk(contentToIndex, bulkRequestBuilder, reindexOnly);
+		// the versions a pending deferred operation of the same content stands for are indexed along with it
+		CoalescingIndexQueue.getInstance().indexNow(contentToIndex,
+				content -> this.runIndexBulk(content, bulkRequestBuilder, reindexOnly));
 	} // indexContentListWaitFor.
 
 	@Override
@@ -548,7 +595,20 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 		try {
 			indexContentletList(req, contentToIndex, reindexOnly);
 			if(bulk==null && req.numberOfActions()>0) {
-				req.execute(listener);
+				req.execute(new ActionListener<BulkResponse>() {
+
+					@Override
+					public void onResponse(final BulkResponse response) {
+						LiveQueryResultCache.getInstance().written(req.request());
+						listener.onResponse(response);
+					}
+
+					@Override
+					public void onFailure(final Exception e) {
+						LiveQueryResultCache.getInstance().written(req.request());
+						listener.onFailure(e);
+					}
+				});
 			}
 		} catch (DotStateException | DotSecurityException | DotMappingException e) {
 			throw new DotDataException (e.getMessage(), e);
@@ -575,6 +635,22 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 		boolean alwaysRegenerateMetadata = Config
 				.getBooleanProperty("always.regenerate.metadata.on.reindex", false);
 
+		for(final Contentlet contentlet : contentToIndexSet) {
+			if (contentlet.isLive() || contentlet.isWorking()) {
+				if (alwaysRegenerateMetadata) {
+					new TikaUtils().generateMetaData(contentlet, true);
+				} else if (regenerateMissingMetadata) {
+					new TikaUtils().generateMetaData(contentlet);
+				}
+			}
+		}
+
+		// the maps of the whole list are built at once, so what they need is looked up once per list
+		final Map<String, Map<String, Object>> contentletMaps = mappingAPI.toMaps(new ArrayList<>(contentToIndexSet));
+		final IndiciesInfo info = APILocator.getIndiciesAPI().loadIndicies();
+		final Gson gson         = new Gson();
+		final Map<DocWriteRequest<?>, Contentlet> liveRequests = new HashMap<>();
+
 		for(final Contentlet contentlet : contentToIndexSet) {
 
             final String id=contentlet.getIdentifier()+"_"+contentlet.getLanguageId();
@@ -583,58 +659,46 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 			Logger.debug(this, ()->"*********-----------  " + DbConnectionFactory.getConnection());
 			Logger.debug(this, ()->"*********-----------  " + ExceptionUtil.getCurrentStackTraceAsString(Config.getIntProperty("stacktracelimit", 10)) + "\n");
 
-			final IndiciesInfo info = APILocator.getIndiciesAPI().loadIndicies();
-			final Gson gson         = new Gson(); // todo why do we create a new Gson everytime
-            String mapping          = null;
+            // the same document is written to the current and the new index, it is serialized once
+            BytesReference mapping  = null;
 
-            try {
+			if (contentlet.isWorking()) {
 
-				if (contentlet.isLive() || contentlet.isWorking()) {
-					if (alwaysRegenerateMetadata) {
-						new TikaUtils().generateMetaData(contentlet, true);
-					} else if (regenerateMissingMetadata) {
-						new TikaUtils().generateMetaData(contentlet);
-					}
+                mapping = new BytesArray(gson.toJson(contentletMaps.get(contentlet.getInode())));
+                
+                if (!reindexOnly) {
+					req.add(new IndexRequest(info.working, "content", id)
+							.source(mapping, XContentType.JSON));
 				}
 
-				if (contentlet.isWorking()) {
-
-                    mapping = gson.toJson(mappingAPI.toMap(contentlet));
-                    
-                    if (!reindexOnly) {
-						req.add(new IndexRequest(info.working, "content", id)
-								.source(mapping, XContentType.JSON));
-					}
-
-                    if (info.reindex_working!=null) {
-						req.add(new IndexRequest(info.reindex_working, "content", id)
-								.source(mapping, XContentType.JSON));
-					}
-                }
-    
-                if (contentlet.isLive()) {
-                    if(mapping==null) {
-						mapping = gson.toJson(mappingAPI.toMap(contentlet));
-					}
-                    
-                    if(!reindexOnly) {
-						req.add(new IndexRequest(info.live, "content", id)
-								.source(mapping, XContentType.JSON));
-					}
+                if (info.reindex_working!=null) {
+					req.add(new IndexRequest(info.reindex_working, "content", id)
+							.source(mapping, XContentType.JSON));
+				}
+            }
 
-                    if(info.reindex_live!=null) {
-						req.add(new IndexRequest(info.reindex_live, "content", id)
-								.source(mapping, XContentType.JSON));
-					}
-                }
+            if (contentlet.isLive()) {
+                if(mapping==null) {
+					mapping = new BytesArray(gson.toJson(contentletMaps.get(contentlet.getInode())));
+				}
+                
+                if(!reindexOnly) {
+					final IndexRequest liveRequest = new IndexRequest(info.live, "content", id)
+							.source(mapping, XContentType.JSON);
+					req.add(liveRequest);
+					liveRequests.put(liveRequest, contentlet);
+				}
 
-                contentlet.markAsReindexed();
-            } catch(DotMappingException ex) {
-				Logger.error(this, "Can't get a mapping for contentlet with id_lang:" + id + " Content data: " + contentlet.getMap(), ex);
-				throw ex;
+                if(info.reindex_live!=null) {
+					req.add(new IndexRequest(info.reindex_live, "content", id)
+							.source(mapping, XContentType.JSON));
+				}
             }
+
+            contentlet.markAsReindexed();
         }
-		
+
+		LiveQueryResultCache.getInstance().invalidateWhenWritten(liveRequests);
 	}
 
 	@CloseDBIfOpened
@@ -756,7 +820,10 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 				break;
 		}
 
-		bulk.add(client.prepareDelete(info.live, "content", id));
+		final DeleteRequest liveRequest = client.prepareDelete(info.live, "content", id).request();
+		bulk.add(liveRequest);
+		LiveQueryResultCache.getInstance().invalidateWhenWritten(
+				Collections.<DocWriteRequest<?>, Contentlet>singletonMap(liveRequest, contentlet));
 
 		if (info.reindex_live != null) {
 
@@ -779,7 +846,11 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 			}
 		}
 
-		bulk.execute().actionGet(INDEX_OPERATIONS_TIMEOUT_IN_MS);
+		try {
+			bulk.execute().actionGet(INDEX_OPERATIONS_TIMEOUT_IN_MS);
+		} finally {
+			LiveQueryResultCache.getInstance().written(bulk.request());
+		}
 	}
 
 	private void reindexDependenciesForDeletedContent(final Contentlet contentlet,
@@ -854,6 +925,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
                 .get();
 
         Logger.debug(this, "Records deleted: " + response.getDeleted());
+        LiveQueryResultCache.getInstance().flush();
     }
 
     public void fullReindexAbort() {
@@ -932,6 +1004,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
             newinfo.live=indexName;
         }
         APILocator.getIndiciesAPI().point(newinfo);
+        LiveQueryResultCache.getInstance().flush();
     }
 
     public void deactivateIndex(String indexName) throws DotDataException, IOException {
@@ -957,6 +1030,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
             newinfo.reindex_live=null;
         }
         APILocator.getIndiciesAPI().point(newinfo);
+        LiveQueryResultCache.getInstance().flush();
     }
 
 
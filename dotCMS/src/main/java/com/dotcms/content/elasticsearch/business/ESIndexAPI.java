@@ -233,6 +233,21 @@ public class ESIndexAPI {
 
 		Client client = esclient.getClient();
 
+		if (Config.getBooleanProperty("ES_INDEX_BACKUP_SLICED", true)) {
+			try {
+				final String type=index.startsWith("sitesearch_") ? SiteSearchAPI.ES_SITE_SEARCH_MAPPING : "content";
+				final int slices = Config.getIntProperty("ES_INDEX_BACKUP_SLICES",
+						Math.min(4, Runtime.getRuntime().availableProcessors()));
+				return new SlicedIndexBackup(client, JSON_RECORD_DELIMITER)
+						.backup(index, type, mappingAPI.getMapping(index, type), Math.max(1, slices), toFile);
+			} catch (Exception e) {
+				Logger.error(this.getClass(), "Can't export index",e);
+				throw new IOException(e.getMessage(),e);
+			} finally {
+				AdminLogger.log(this.getClass(), "backupIndex", "Back up for index: " + index + " done.");
+			}
+		}
+
 		BufferedWriter bw = null;
 		try (final ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(toFile.toPath()))){
 		    zipOut.setLevel(9);
@@ -343,6 +358,14 @@ public class ESIndexAPI {
 				createIndex(index);
 			}
 
+			if (SlicedIndexBackup.isSlicedBackup(backupFile)) {
+				// setting number_of_replicas=0 to improve the indexing while restoring
+				moveIndexToLocalNode(index);
+				new SlicedIndexBackup(esclient.getClient(), JSON_RECORD_DELIMITER)
+						.restore(backupFile, index, Config.getIntProperty("ES_INDEX_RESTORE_THREADS", 4));
+				return;
+			}
+
 			final ZipInputStream zipIn=new ZipInputStream(Files.newInputStream(backupFile.toPath()));
 			zipIn.getNextEntry();
 			br = new BufferedReader(new InputStreamReader(zipIn));
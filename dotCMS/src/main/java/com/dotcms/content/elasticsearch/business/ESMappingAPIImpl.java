@@ -28,12 +28,12 @@ import com.dotmarketing.business.FactoryLocator;
 import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.cache.FieldsCache;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.model.ContentletSearch;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.categories.model.Category;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
-import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
 import com.dotmarketing.portlets.folders.model.Folder;
 import com.dotmarketing.portlets.structure.business.FieldAPI;
@@ -52,6 +52,7 @@ import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.ThreadSafeSimpleDateFormat;
 import com.dotmarketing.util.UtilMethods;
+import com.google.common.collect.Lists;
 import com.liferay.util.StringPool;
 import java.io.File;
 import java.io.IOException;
@@ -59,8 +60,12 @@ import java.io.StringWriter;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -177,21 +182,94 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	@CloseDBIfOpened
 	public Map<String,Object> toMap(final Contentlet contentlet) throws DotMappingException {
 
+		return toMap(contentlet, new MappingContext());
+	}
+
+	/**
+	 * Same as {@link #toMap(Contentlet)} for a whole batch of contentlets, the map of each one is
+	 * returned by inode. The identifiers, version timestamps, categories, permissions and workflow
+	 * tasks of the batch are loaded with a query per batch, and the hosts and folders are looked up
+	 * once per batch, instead of doing all those lookups for each contentlet.
+	 *
+	 * @param contentlets {@link List}
+	 * @return Map of the contentlet inode to its map
+	 * @throws DotMappingException
+	 */
+	@CloseDBIfOpened
+	public Map<String, Map<String,Object>> toMaps(final List<Contentlet> contentlets) throws DotMappingException {
+
+		final MappingContext context;
+		try {
+			context = prefetch(contentlets);
+		} catch (Exception e) {
+			throw new DotMappingException(e.getMessage(), e);
+		}
+
+		final Map<String, Map<String,Object>> maps = new HashMap<>();
+		for (final Contentlet contentlet : contentlets) {
+			if (!maps.containsKey(contentlet.getInode())) {
+				try {
+					maps.put(contentlet.getInode(), toMap(contentlet, context));
+				} catch (DotMappingException e) {
+					Logger.error(this, "Can't get a mapping for contentlet with id_lang:" + contentlet.getIdentifier() + "_"
+							+ contentlet.getLanguageId() + " Content data: " + contentlet.getMap(), e);
+					throw e;
+				}
+			}
+		}
+		return maps;
+	}
+
+	/**
+	 * Loads what the maps of the batch need with a query per kind, the permissions and workflow tasks
+	 * are loaded into their caches
+	 */
+	private MappingContext prefetch(final List<Contentlet> contentlets) throws DotDataException, DotSecurityException {
+
+		final Map<String, Boolean> typesWithCategories = new HashMap<>();
+		final Set<String> identifiers = new LinkedHashSet<>();
+		final List<String> categorizedInodes = new ArrayList<>();
+		for (final Contentlet contentlet : contentlets) {
+			if (UtilMethods.isSet(contentlet.getIdentifier())) {
+				identifiers.add(contentlet.getIdentifier());
+			}
+			Boolean hasCategories = typesWithCategories.get(contentlet.getContentTypeId());
+			if (hasCategories == null) {
+				final ContentType type = APILocator.getContentTypeAPI(APILocator.systemUser()).find(contentlet.getContentTypeId());
+				hasCategories = !getCategoryFields(type).isEmpty();
+				typesWithCategories.put(contentlet.getContentTypeId(), hasCategories);
+			}
+			if (hasCategories) {
+				categorizedInodes.add(contentlet.getInode());
+			}
+		}
+
+		final MappingContext context = new MappingContext();
+		context.identifiers.putAll(APILocator.getIdentifierAPI().find(identifiers));
+		context.loadVersionTimestamps(identifiers);
+		context.loadCategoryVars(categorizedInodes);
+		APILocator.getPermissionAPI().preloadPermissions(contentlets);
+		APILocator.getWorkflowAPI().preloadTasksByContentlets(contentlets);
+		return context;
+	}
+
+	private Map<String,Object> toMap(final Contentlet contentlet, final MappingContext context) throws DotMappingException {
+
 		try {
 
 			final Map<String,Object> contentletMap = new HashMap();
 			final Map<String,Object> mlowered	   = new HashMap();
-			loadCategories(contentlet, contentletMap);
+			loadCategories(contentlet, contentletMap, context);
 			loadFields(contentlet, contentletMap);
 			loadPermissions(contentlet, contentletMap);
 			loadRelationshipFields(contentlet, contentletMap);
 
-			Identifier ident = APILocator.getIdentifierAPI().find(contentlet);
-			ContentletVersionInfo cvi = APILocator.getVersionableAPI().getContentletVersionInfo(ident.getId(), contentlet.getLanguageId());
+			Identifier ident = context.getIdentifier(contentlet);
+			Date versionTs = context.getVersionTs(ident.getId(), contentlet.getLanguageId());
 			Structure st=CacheLocator.getContentTypeCache().getStructureByInode(contentlet.getStructureInode());
 
-			Folder conFolder=APILocator.getFolderAPI().findFolderByPath(ident.getParentPath(), ident.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
-			Host conHost = APILocator.getHostAPI().find(ident.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
+			Folder conFolder=context.getFolder(ident.getParentPath(), ident.getHostId());
+			Host conHost = context.getHost(ident.getHostId());
 			
 			contentletMap.put(ESMappingConstants.TITLE, contentlet.getTitle());
 			contentletMap.put(ESMappingConstants.STRUCTURE_NAME, st.getVelocityVarName()); // marked for DEPRECATION
@@ -237,9 +315,9 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 				contentletMap.put(ESMappingConstants.PUBLISH_DATE + TEXT,
 						datetimeFormat.format(ident.getSysPublishDate()));
 			}else {
-				contentletMap.put(ESMappingConstants.PUBLISH_DATE, elasticSearchDateTimeFormat.format(cvi.getVersionTs()));
+				contentletMap.put(ESMappingConstants.PUBLISH_DATE, elasticSearchDateTimeFormat.format(versionTs));
 				contentletMap.put(ESMappingConstants.PUBLISH_DATE + TEXT,
-						datetimeFormat.format(cvi.getVersionTs()));
+						datetimeFormat.format(versionTs));
 			}
 
 			if(UtilMethods.isSet(ident.getSysExpireDate())) {
@@ -251,8 +329,8 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 				contentletMap.put(ESMappingConstants.EXPIRE_DATE + TEXT, "29990101000000");
 			}
 
-			contentletMap.put(ESMappingConstants.VERSION_TS, elasticSearchDateTimeFormat.format(cvi.getVersionTs()));
-			contentletMap.put(ESMappingConstants.VERSION_TS + TEXT, datetimeFormat.format(cvi.getVersionTs()));
+			contentletMap.put(ESMappingConstants.VERSION_TS, elasticSearchDateTimeFormat.format(versionTs));
+			contentletMap.put(ESMappingConstants.VERSION_TS + TEXT, datetimeFormat.format(versionTs));
 
 			String urlMap = null;
 			try{
@@ -387,23 +465,26 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 		return toJson(con);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void loadCategories(final Contentlet con, final Map<String,Object> m)
 			throws DotDataException, DotSecurityException {
+		loadCategories(con, m, new MappingContext());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void loadCategories(final Contentlet con, final Map<String,Object> m, final MappingContext context)
+			throws DotDataException, DotSecurityException {
 	    // first we check if there is a category field in the structure. We don't hit db if not needed
 
 	    final ContentType type = APILocator.getContentTypeAPI(APILocator.systemUser()).find(con.getContentTypeId());
-	    List<com.dotcms.contenttype.model.field.Field> catFields = type.fields().stream()
-				.filter(field -> field instanceof CategoryField).collect(CollectionsUtils.toImmutableList());
+	    List<com.dotcms.contenttype.model.field.Field> catFields = getCategoryFields(type);
 
         if(catFields.isEmpty()) {
         	return;
 		}
 
-	    List<Category> myCats = APILocator.getCategoryAPI().getParents(con, APILocator.systemUser(), false);
 	    final StringWriter myCatsString=new StringWriter();
-	    for(final Category me : myCats){
-	        myCatsString.append(me.getCategoryVelocityVarName()).append(" ");
+	    for(final String categoryVar : context.getCategoryVars(con)){
+	        myCatsString.append(categoryVar).append(" ");
 	    }
 
         m.put(ESMappingConstants.CATEGORIES, myCatsString.toString());
@@ -416,6 +497,11 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	    }
 	}
 
+	private List<com.dotcms.contenttype.model.field.Field> getCategoryFields(final ContentType type) {
+		return type.fields().stream()
+				.filter(field -> field instanceof CategoryField).collect(CollectionsUtils.toImmutableList());
+	}
+
 	@SuppressWarnings("unchecked")
 	protected void loadPermissions(final Contentlet con, final Map<String,Object> m) throws DotDataException {
 		PermissionAPI permissionAPI = APILocator.getPermissionAPI();
@@ -424,12 +510,13 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 		boolean ownerCanRead = false;
 		boolean ownerCanWrite = false;
 		boolean ownerCanPub = false;
+		final String cmsOwnerRoleId = APILocator.getRoleAPI().loadCMSOwnerRole().getId();
 		for (Permission permission : permissions) {
 			String str = "P" + permission.getRoleId() + "." + permission.getPermission() + "P ";
 			if (permissionsSt.toString().indexOf(str) < 0) {
 				permissionsSt.append(str);
 			}
-			if(APILocator.getRoleAPI().loadCMSOwnerRole().getId().equals(String.valueOf(permission.getRoleId()))){
+			if(cmsOwnerRoleId.equals(String.valueOf(permission.getRoleId()))){
 				if(permission.getPermission() == PERMISSION_READ){
 					ownerCanRead = true;
 				}else if(permission.getPermission() == PERMISSION_WRITE){
@@ -638,11 +725,18 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 		return mapper.writeValueAsString(map);
 	}
 
+	/**
+	 * Returns the identifiers of the related content whose index documents no longer match the relationships
+	 * of the contentlet. The {@link DependencyReindexTracker} answers with the relationship entries kept from
+	 * the last save, when it does not know them the related documents are looked up in the index
+	 */
 	@CloseDBIfOpened
 	public List<String> dependenciesLeftToReindex(Contentlet con) throws DotStateException, DotDataException, DotSecurityException {
-		List<String> dependenciesToReindex = new ArrayList<String>();
 
-		ContentletAPI conAPI=APILocator.getContentletAPI();
+		final List<Relationship> relationships = FactoryLocator.getRelationshipFactory().byContentType(con.getStructure());
+		if (relationships.isEmpty()) {
+			return new ArrayList<>();
+		}
 
 		String relatedSQL = "select tree.* from tree where parent = ? or child = ? order by tree_order";
 		DotConnect db = new DotConnect();
@@ -651,59 +745,66 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 		db.addParam(con.getIdentifier());
 		ArrayList<HashMap<String, String>> relatedContentlets = db.loadResults();
 
-		if(relatedContentlets.size()>0) {
+		final Set<String> relationTypes = new HashSet<>();
+		relationships.forEach(rel -> relationTypes.add(rel.getRelationTypeValue()));
+		final DependencyReindexTracker tracker = DependencyReindexTracker.getInstance();
+		final Set<String> entries =
+				DependencyReindexTracker.relationshipEntries(con.getIdentifier(), relationTypes, relatedContentlets);
 
-			List<Relationship> relationships = FactoryLocator.getRelationshipFactory().byContentType(con.getStructure());
+		Collection<String> dependenciesToReindex = tracker.changedDependencies(con.getIdentifier(), entries);
+		if (dependenciesToReindex == null) {
+			dependenciesToReindex = relatedContentlets.isEmpty() ? Collections.emptySet()
+					: dependenciesFromIndex(con, relationships, relatedContentlets);
+		}
+		tracker.dependenciesQueued(con.getIdentifier(), entries, dependenciesToReindex);
+		return new ArrayList<>(dependenciesToReindex);
+	}
 
-			for(Relationship rel : relationships) {
+	/**
+	 * Compares the related documents found in the index with the {@code tree} rows of the contentlet, only the
+	 * identifiers of the hits are loaded
+	 */
+	private Set<String> dependenciesFromIndex(final Contentlet con, final List<Relationship> relationships,
+			final List<HashMap<String, String>> relatedContentlets) throws DotDataException, DotSecurityException {
 
-				List<Contentlet> oldDocs;
+		final Set<String> dependenciesToReindex = new LinkedHashSet<>();
+		final ContentletAPI conAPI = APILocator.getContentletAPI();
 
-				StringBuilder q = new StringBuilder();
-				boolean isSameStructRelationship = FactoryLocator.getRelationshipFactory().sameParentAndChild(rel);
+		for(Relationship rel : relationships) {
 
-				if(isSameStructRelationship) {
-					q.append("+type:content +(").append(rel.getRelationTypeValue())
-							.append(ESMappingConstants.SUFFIX_PARENT).append(":")
-							.append(con.getIdentifier())
-							.append(" ").append(rel.getRelationTypeValue())
-							.append(ESMappingConstants.SUFFIX_CHILD).append(":")
-							.append(con.getIdentifier()).append(") ");
-				}else {
-					q.append("+type:content +").append(rel.getRelationTypeValue()).append(":")
-							.append(con.getIdentifier());
-				}
-				oldDocs = conAPI
-						.search(q.toString(), -1, 0, null, APILocator.getUserAPI().getSystemUser(),
-								false);
-
-				List<String> oldRelatedIds = new ArrayList<String>();
-				if(oldDocs.size() > 0) {
-					for(Contentlet oldDoc : oldDocs) {
-						oldRelatedIds.add(oldDoc.getIdentifier());
-					}
-				}
+			StringBuilder q = new StringBuilder();
+			boolean isSameStructRelationship = FactoryLocator.getRelationshipFactory().sameParentAndChild(rel);
 
-				List<String> newRelatedIds = new ArrayList<String>();
-				for(HashMap<String, String> relatedEntry : relatedContentlets) {
-					String childId = relatedEntry.get(ESMappingConstants.CHILD);
-					String parentId = relatedEntry.get(ESMappingConstants.PARENT);
-					if(relatedEntry.get(ESMappingConstants.RELATION_TYPE).equals(rel.getRelationTypeValue())) {
-						if(con.getIdentifier().equalsIgnoreCase(childId)) {
-							newRelatedIds.add(parentId);
-							oldRelatedIds.remove(parentId);
-						} else {
-							newRelatedIds.add(childId);
-							oldRelatedIds.remove(childId);
-						}
-					}
-				}
+			if(isSameStructRelationship) {
+				q.append("+type:content +(").append(rel.getRelationTypeValue())
+						.append(ESMappingConstants.SUFFIX_PARENT).append(":")
+						.append(con.getIdentifier())
+						.append(" ").append(rel.getRelationTypeValue())
+						.append(ESMappingConstants.SUFFIX_CHILD).append(":")
+						.append(con.getIdentifier()).append(") ");
+			}else {
+				q.append("+type:content +").append(rel.getRelationTypeValue()).append(":")
+						.append(con.getIdentifier());
+			}
+
+			final Set<String> oldRelatedIds = new LinkedHashSet<>();
+			for (final ContentletSearch oldDoc : conAPI
+					.searchIndex(q.toString(), -1, 0, null, APILocator.getUserAPI().getSystemUser(), false)) {
+				oldRelatedIds.add(oldDoc.getIdentifier());
+			}
 
-				//Taking the disjunction of both collections will give the old list of dependencies that need to be removed from the
-				//re-indexation and the list of new dependencies no re-indexed yet
-				dependenciesToReindex.addAll(
-						CollectionUtils.disjunction(oldRelatedIds, newRelatedIds));
+			final Set<String> newRelatedIds = new LinkedHashSet<>();
+			for(HashMap<String, String> relatedEntry : relatedContentlets) {
+				String childId = relatedEntry.get(ESMappingConstants.CHILD);
+				String parentId = relatedEntry.get(ESMappingConstants.PARENT);
+				if(relatedEntry.get(ESMappingConstants.RELATION_TYPE).equals(rel.getRelationTypeValue())) {
+					newRelatedIds.add(con.getIdentifier().equalsIgnoreCase(childId) ? parentId : childId);
+				}
 			}
+
+			//Taking the disjunction of both collections will give the old list of dependencies that need to be removed from the
+			//re-indexation and the list of new dependencies no re-indexed yet
+			dependenciesToReindex.addAll(CollectionUtils.disjunction(oldRelatedIds, newRelatedIds));
 		}
 		return dependenciesToReindex;
 	}
@@ -803,4 +904,98 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 			}
 		}
 	}
+
+	/**
+	 * What the maps of a batch share: the identifiers, version timestamps and categories loaded for the
+	 * whole batch, and the hosts and folders already looked up. Whatever was not loaded is looked up the
+	 * same way a single map does it
+	 */
+	private static final class MappingContext {
+
+		private static final int BATCH_SIZE = 500;
+
+		private static final String SELECT_VERSION_TIMESTAMPS =
+				"select identifier, lang, version_ts from contentlet_version_info where identifier in (%s)";
+
+		private static final String SELECT_CATEGORY_VARS =
+				"select tree.child, category.category_velocity_var_name from inode category_1_, category, tree "
+						+ "where tree.child in (%s) and tree.parent = category.inode and category_1_.inode = category.inode "
+						+ "and category_1_.type = 'category' order by sort_order asc, category_name asc";
+
+		private final Map<String, Identifier> identifiers = new HashMap<>();
+		private final Map<String, Date> versionTimestamps = new HashMap<>();
+		private final Map<String, Host> hosts = new HashMap<>();
+		private final Map<String, Folder> folders = new HashMap<>();
+		private Map<String, List<String>> categoryVars = null;
+
+		private void loadVersionTimestamps(final Collection<String> identifierIds) throws DotDataException {
+
+			for (final List<String> chunk : Lists.partition(new ArrayList<>(identifierIds), BATCH_SIZE)) {
+				final DotConnect dotConnect = new DotConnect()
+						.setSQL(String.format(SELECT_VERSION_TIMESTAMPS, DotConnect.createParametersPlaceholder(chunk.size())));
+				chunk.forEach(dotConnect::addParam);
+				for (final Map<String, Object> row : dotConnect.loadObjectResults()) {
+					versionTimestamps.put(row.get("identifier") + StringPool.UNDERLINE + ((Number) row.get("lang")).longValue(),
+							(Date) row.get("version_ts"));
+				}
+			}
+		}
+
+		private void loadCategoryVars(final List<String> inodes) throws DotDataException {
+
+			categoryVars = new HashMap<>();
+			for (final List<String> chunk : Lists.partition(inodes, BATCH_SIZE)) {
+				final DotConnect dotConnect = new DotConnect()
+						.setSQL(String.format(SELECT_CATEGORY_VARS, DotConnect.createParametersPlaceholder(chunk.size())));
+				chunk.forEach(dotConnect::addParam);
+				for (final Map<String, Object> row : dotConnect.loadObjectResults()) {
+					categoryVars.computeIfAbsent((String) row.get("child"), k -> new ArrayList<>())
+							.add((String) row.get("category_velocity_var_name"));
+				}
+			}
+		}
+
+		private Identifier getIdentifier(final Contentlet contentlet) throws DotDataException {
+
+			final Identifier identifier = identifiers.get(contentlet.getIdentifier());
+			return identifier != null ? identifier : APILocator.getIdentifierAPI().find(contentlet);
+		}
+
+		private Date getVersionTs(final String identifier, final long languageId) throws DotDataException {
+
+			final Date versionTs = versionTimestamps.get(identifier + StringPool.UNDERLINE + languageId);
+			return versionTs != null ? versionTs
+					: APILocator.getVersionableAPI().getContentletVersionInfo(identifier, languageId).getVersionTs();
+		}
+
+		private Host getHost(final String hostId) throws DotDataException, DotSecurityException {
+
+			if (!hosts.containsKey(hostId)) {
+				hosts.put(hostId, APILocator.getHostAPI().find(hostId, APILocator.getUserAPI().getSystemUser(), false));
+			}
+			return hosts.get(hostId);
+		}
+
+		private Folder getFolder(final String parentPath, final String hostId) throws DotDataException, DotSecurityException {
+
+			final String key = hostId + StringPool.COLON + parentPath;
+			if (!folders.containsKey(key)) {
+				folders.put(key, APILocator.getFolderAPI().findFolderByPath(parentPath, hostId, APILocator.getUserAPI().getSystemUser(), false));
+			}
+			return folders.get(key);
+		}
+
+		private List<String> getCategoryVars(final Contentlet contentlet) throws DotDataException, DotSecurityException {
+
+			if (categoryVars != null) {
+				return categoryVars.getOrDefault(contentlet.getInode(), Collections.emptyList());
+			}
+
+			final List<String> vars = new ArrayList<>();
+			for (final Category category : APILocator.getCategoryAPI().getParents(contentlet, APILocator.systemUser(), false)) {
+				vars.add(category.getCategoryVelocityVarName());
+			}
+			return vars;
+		}
+	}
 }
\ No newline at end of file
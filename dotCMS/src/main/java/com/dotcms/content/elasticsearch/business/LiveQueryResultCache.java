@@ -0,0 +1,405 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.common.model.ContentletSearch;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.PaginatedArrayList;
+import com.dotmarketing.util.UtilMethods;
+import com.google.common.collect.MapMaker;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+
+/**
+ * Caches the hits of the queries that go to the live index, so the same query run by many live pages only
+ * reaches elasticsearch once. Only the identifier, inode and score of the hits are kept, the contentlets are
+ * still loaded through the contentlet cache.
+ * <p>
+ * The key is the query once the permissions of the user were added to it, plus the sort, limit and offset, so
+ * users that see different content never share results. Every result depends on the content types and sites
+ * its query requires ({@code +contentType:}, {@code +structureName:} and {@code +conhost:} clauses out of any
+ * parentheses), or on any type or site when it does not require them. Each of those dependencies has a token
+ * in the cache, indexing or removing live content removes the tokens of its type and site and so every result
+ * that depended on them. The tokens are removed through the cache, so the invalidation reaches every server of
+ * the cluster, and a missing token is taken as just invalidated. The tokens are removed when the index requests
+ * are added to a bulk and again once the bulk is executed, a search could still find the old documents in between.
+ * <p>
+ * A token is only trusted once the index had time to refresh after its invalidation
+ * ({@code LIVE_QUERY_RESULT_CACHE_SETTLE_MILLIS}), until then results depending on it are not cached. When the
+ * type or site of the content is unknown, or the live index itself changes, the whole cache is flushed.
+ * <p>
+ * The cache is off unless {@code LIVE_QUERY_RESULT_CACHE_ENABLED} is set, the results are held in the
+ * {@code LiveQueryResultCache} cache region so its size bounds the memory used. Stats are exposed by the
+ * {@value #MBEAN_OBJECT_NAME} MBean.
+ *
+ * @author dotCMS
+ */
+public class LiveQueryResultCache implements LiveQueryResultCacheMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=LiveQueryResultCache";
+
+    private static final String ANY = "*";
+    private static final String SEPARATOR = "|";
+    private static final Pattern PARENTHESES = Pattern.compile("\\([^()]*\\)");
+    private static final Pattern CONTENT_TYPE_CLAUSE =
+            Pattern.compile("(?:^|\\s)\\+(?:contenttype|structurename):(\\S+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SITE_CLAUSE =
+            Pattern.compile("(?:^|\\s)\\+conhost:(\\S+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NOT_A_TERM = Pattern.compile("[*?\"\\[\\]{}()\\\\~^:]");
+
+    private static final LiveQueryResultCache INSTANCE = new LiveQueryResultCache();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+    private final LongAdder unsettled = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    // the dependencies of the live index requests, weak identity keys so the requests are dropped once sent
+    private final Map<DocWriteRequest<?>, Set<String>> pendingWrites = new MapMaker().weakKeys().makeMap();
+
+    private LiveQueryResultCache() {
+    }
+
+    public static LiveQueryResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * True when the results of the given query, already permissioned, can be cached: the cache is on, the
+     * query hits the live index and the order of its results is not random
+     */
+    public boolean isCacheable(final String query, final String sortBy) {
+        return isEnabled() && query.contains("+live:true") && !query.contains("+deleted:true")
+                && !"random".equalsIgnoreCase(sortBy);
+    }
+
+    /**
+     * Returns the cached hits of the query, or null when they are not cached or were invalidated
+     */
+    public PaginatedArrayList<ContentletSearch> get(final String query, final String sortBy, final int limit,
+            final int offset) {
+
+        final LiveQueryResult result =
+                CacheLocator.getContentletCache().getLiveQueryResult(key(query, sortBy, limit, offset));
+        if (result == null) {
+            misses.increment();
+            return null;
+        }
+        for (final Map.Entry<String, Long> token : result.tokens.entrySet()) {
+            if (!token.getValue().equals(CacheLocator.getContentletCache().getLiveQueryToken(token.getKey()))) {
+                invalidated.increment();
+                misses.increment();
+                return null;
+            }
+        }
+        hits.increment();
+        return result.toList();
+    }
+
+    /**
+     * Returns the tokens of the dependencies of the query, to be read before the query is run so results found
+     * before an invalidation are never stored under the tokens created after it. Returns null when one of the
+     * dependencies was invalidated too recently for the index to be refreshed
+     */
+    public Map<String, Long> tokens(final String query) {
+
+        final long now = System.currentTimeMillis();
+        final Map<String, Long> tokens = new HashMap<>();
+        for (final String dependency : dependencies(query)) {
+            Long token = CacheLocator.getContentletCache().getLiveQueryToken(dependency);
+            if (token == null) {
+                token = now + getSettleMillis();
+                CacheLocator.getContentletCache().addLiveQueryToken(dependency, token);
+            }
+            if (token > now) {
+                unsettled.increment();
+                return null;
+            }
+            tokens.put(dependency, token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Caches the hits of the query with the tokens read before running it, see {@link #tokens(String)}
+     */
+    public void put(final String query, final String sortBy, final int limit, final int offset,
+            final Map<String, Long> tokens, final PaginatedArrayList<ContentletSearch> list) {
+
+        CacheLocator.getContentletCache().addLiveQueryResult(key(query, sortBy, limit, offset),
+                new LiveQueryResult(list, tokens));
+    }
+
+    /**
+     * Invalidates the results that could include the contentlets of the given live index requests, right away
+     * and again once a bulk with the requests is executed (see {@link #written(BulkRequest)}), so a search run
+     * against the index before the requests are applied is not cached under the tokens created in between.
+     * Flushes the whole cache when the content type or site of one of them is unknown
+     */
+    public void invalidateWhenWritten(final Map<DocWriteRequest<?>, Contentlet> requests) {
+        if (!isEnabled() || requests.isEmpty()) {
+            return;
+        }
+        final Set<String> dependencies = new LinkedHashSet<>();
+        boolean unknown = false;
+        for (final Map.Entry<DocWriteRequest<?>, Contentlet> request : requests.entrySet()) {
+            final Set<String> requestDependencies = dependencies(request.getValue());
+            pendingWrites.put(request.getKey(), requestDependencies);
+            unknown |= requestDependencies.isEmpty();
+            dependencies.addAll(requestDependencies);
+        }
+        if (unknown) {
+            flush();
+        } else {
+            invalidate(dependencies);
+        }
+    }
+
+    /**
+     * Invalidates again the results of the live index requests of the bulk, to be called once it was executed,
+     * after the refresh for the bulks that wait for it. Called for every attempt, the requests are forgotten once
+     * they are not referenced anymore
+     */
+    public void written(final BulkRequest bulk) {
+        if (!isEnabled() || pendingWrites.isEmpty()) {
+            return;
+        }
+        final Set<String> dependencies = new LinkedHashSet<>();
+        for (final DocWriteRequest<?> request : bulk.requests()) {
+            final Set<String> requestDependencies = pendingWrites.get(request);
+            if (null != requestDependencies && requestDependencies.isEmpty()) {
+                flush();
+                return;
+            }
+            if (null != requestDependencies) {
+                dependencies.addAll(requestDependencies);
+            }
+        }
+        if (!dependencies.isEmpty()) {
+            invalidate(dependencies);
+        }
+    }
+
+    /**
+     * Returns the dependencies the results that could include the contentlet have, empty when its content type or
+     * site is unknown
+     */
+    private Set<String> dependencies(final Contentlet contentlet) {
+        String contentType = null;
+        try {
+            contentType = contentlet.getContentType().variable();
+        } catch (Exception e) {
+            Logger.debug(this, "Unable to get the content type of " + contentlet.getInode(), e);
+        }
+        final Set<String> dependencies = new LinkedHashSet<>();
+        if (UtilMethods.isSet(contentType) && UtilMethods.isSet(contentlet.getHost())) {
+            addDependencies(dependencies, contentType, contentlet.getHost());
+        }
+        return dependencies;
+    }
+
+    /**
+     * Invalidates the results that could include content of the given type in the given site, used when
+     * content is moved out of a site
+     */
+    public void invalidate(final String contentType, final String site) {
+        if (!isEnabled()) {
+            return;
+        }
+        final Set<String> dependencies = new LinkedHashSet<>();
+        addDependencies(dependencies, contentType, site);
+        invalidate(dependencies);
+    }
+
+    private void addDependencies(final Set<String> dependencies, final String contentType, final String site) {
+        final String type = contentType.toLowerCase();
+        dependencies.add(type + SEPARATOR + site.toLowerCase());
+        dependencies.add(type + SEPARATOR + ANY);
+        dependencies.add(ANY + SEPARATOR + site.toLowerCase());
+        dependencies.add(ANY + SEPARATOR + ANY);
+    }
+
+    private void invalidate(final Set<String> dependencies) {
+        invalidations.increment();
+        for (final String dependency : dependencies) {
+            CacheLocator.getContentletCache().removeLiveQueryToken(dependency);
+        }
+    }
+
+    /**
+     * Drops every cached result, used when the live index is switched or a whole content type is removed
+     */
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        flushes.increment();
+        CacheLocator.getContentletCache().clearLiveQueryCache();
+    }
+
+    private String key(final String query, final String sortBy, final int limit, final int offset) {
+        return query.trim().replaceAll("\\s+", " ") + " --- " + sortBy + " --- " + limit + " --- " + offset;
+    }
+
+    /**
+     * Returns the content type and site pairs the results of the query depend on, {@code *} standing for any
+     * type or site when the query does not require one
+     */
+    static Set<String> dependencies(final String query) {
+        String topLevel = query;
+        for (String stripped = PARENTHESES.matcher(topLevel).replaceAll(" "); !stripped.equals(topLevel);
+                stripped = PARENTHESES.matcher(topLevel).replaceAll(" ")) {
+            topLevel = stripped;
+        }
+        final Set<String> types = terms(CONTENT_TYPE_CLAUSE, topLevel);
+        final Set<String> sites = terms(SITE_CLAUSE, topLevel);
+
+        final Set<String> dependencies = new LinkedHashSet<>();
+        for (final String type : types) {
+            for (final String site : sites) {
+                dependencies.add(type + SEPARATOR + site);
+            }
+        }
+        return dependencies;
+    }
+
+    private static Set<String> terms(final Pattern clause, final String query) {
+        final Set<String> terms = new LinkedHashSet<>();
+        final Matcher matcher = clause.matcher(query);
+        while (matcher.find()) {
+            final String term = matcher.group(1);
+            if (!NOT_A_TERM.matcher(term).find()) {
+                terms.add(term.toLowerCase());
+            }
+        }
+        if (terms.isEmpty()) {
+            terms.add(ANY);
+        }
+        return terms;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Config.getBooleanProperty("LIVE_QUERY_RESULT_CACHE_ENABLED", false);
+    }
+
+    @Override
+    public long getSettleMillis() {
+        return Config.getLongProperty("LIVE_QUERY_RESULT_CACHE_SETTLE_MILLIS", 2000);
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        final long lookups = hits.sum() + misses.sum();
+        return lookups == 0 ? 0 : hits.sum() / (double) lookups;
+    }
+
+    @Override
+    public long getInvalidated() {
+        return invalidated.sum();
+    }
+
+    @Override
+    public double getInvalidationRate() {
+        final long found = hits.sum() + invalidated.sum();
+        return found == 0 ? 0 : invalidated.sum() / (double) found;
+    }
+
+    @Override
+    public long getUnsettled() {
+        return unsettled.sum();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("hits", getHits());
+        stats.put("misses", getMisses());
+        stats.put("hitRate", getHitRate());
+        stats.put("invalidated", getInvalidated());
+        stats.put("invalidationRate", getInvalidationRate());
+        stats.put("unsettled", getUnsettled());
+        stats.put("invalidations", getInvalidations());
+        stats.put("flushes", getFlushes());
+        return stats;
+    }
+
+    /**
+     * The hits of a live query and the tokens of the dependencies they were cached with
+     */
+    public static class LiveQueryResult implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long totalHits;
+        private final String[] identifiers;
+        private final String[] inodes;
+        private final float[] scores;
+        private final Map<String, Long> tokens;
+
+        LiveQueryResult(final PaginatedArrayList<ContentletSearch> list, final Map<String, Long> tokens) {
+            this.totalHits = list.getTotalResults();
+            this.identifiers = new String[list.size()];
+            this.inodes = new String[list.size()];
+            this.scores = new float[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                identifiers[i] = list.get(i).getIdentifier();
+                inodes[i] = list.get(i).getInode();
+                scores[i] = list.get(i).getScore();
+            }
+            this.tokens = tokens;
+        }
+
+        PaginatedArrayList<ContentletSearch> toList() {
+            final PaginatedArrayList<ContentletSearch> list = new PaginatedArrayList<>();
+            list.setTotalResults(totalHits);
+            for (int i = 0; i < inodes.length; i++) {
+                final ContentletSearch conwrapper = new ContentletSearch();
+                conwrapper.setIdentifier(identifiers[i]);
+                conwrapper.setInode(inodes[i]);
+                conwrapper.setScore(scores[i]);
+                list.add(conwrapper);
+            }
+            return list;
+        }
+    }
+
+} // E:O:F:LiveQueryResultCache.
@@ -0,0 +1,77 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link LiveQueryResultCache}, the stats of the cached live query results
+ */
+public interface LiveQueryResultCacheMBean extends DotMBean {
+
+    /**
+     * True when the results of the live queries are cached
+     * @return boolean
+     */
+    public boolean isEnabled();
+
+    /**
+     * Millis after an invalidation before the results depending on it are cached again
+     * @return long
+     */
+    public long getSettleMillis();
+
+    /**
+     * Number of queries answered from the cache
+     * @return long
+     */
+    public long getHits();
+
+    /**
+     * Number of cacheable queries that had to go to the index
+     * @return long
+     */
+    public long getMisses();
+
+    /**
+     * Hits over all the lookups, from 0 to 1
+     * @return double
+     */
+    public double getHitRate();
+
+    /**
+     * Number of cached results found invalidated by content changes
+     * @return long
+     */
+    public long getInvalidated();
+
+    /**
+     * Invalidated results over all the cached results found, from 0 to 1
+     * @return double
+     */
+    public double getInvalidationRate();
+
+    /**
+     * Number of results not cached because the index was not refreshed yet after an invalidation
+     * @return long
+     */
+    public long getUnsettled();
+
+    /**
+     * Number of content changes that invalidated cached results
+     * @return long
+     */
+    public long getInvalidations();
+
+    /**
+     * Number of times the whole cache was flushed
+     * @return long
+     */
+    public long getFlushes();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:LiveQueryResultCacheMBean.
@@ -0,0 +1,109 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Turns the sort values of the last hit of a page into an opaque, URL safe cursor and back. The cursor is handed
+ * to REST and Velocity callers so they can ask for the next page with a search_after query
+ */
+final class SearchCursor {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final int MAX_SORT_VALUES = 64;
+
+    private SearchCursor() {}
+
+    /**
+     * Returns the cursor of the given sort values
+     */
+    static String encode(final Object[] sortValues) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(sortValues.length);
+            for (final Object value : sortValues) {
+                if (value == null) {
+                    out.writeByte(NULL);
+                } else if (value instanceof Long) {
+                    out.writeByte(LONG);
+                    out.writeLong((Long) value);
+                } else if (value instanceof Integer) {
+                    out.writeByte(INTEGER);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof Double) {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble((Double) value);
+                } else if (value instanceof Float) {
+                    out.writeByte(FLOAT);
+                    out.writeFloat((Float) value);
+                } else if (value instanceof Boolean) {
+                    out.writeByte(BOOLEAN);
+                    out.writeBoolean((Boolean) value);
+                } else {
+                    out.writeByte(STRING);
+                    out.writeUTF(value.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write the search cursor", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Returns the sort values of the given cursor
+     * @throws IllegalArgumentException if the cursor was not created by {@link #encode(Object[])}
+     */
+    static Object[] decode(final String cursor) {
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            final int size = in.readInt();
+            if (size < 0 || size > MAX_SORT_VALUES) {
+                throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+            }
+            final Object[] sortValues = new Object[size];
+            for (int i = 0; i < sortValues.length; i++) {
+                final byte type = in.readByte();
+                switch (type) {
+                    case NULL:
+                        sortValues[i] = null;
+                        break;
+                    case STRING:
+                        sortValues[i] = in.readUTF();
+                        break;
+                    case LONG:
+                        sortValues[i] = in.readLong();
+                        break;
+                    case INTEGER:
+                        sortValues[i] = in.readInt();
+                        break;
+                    case DOUBLE:
+                        sortValues[i] = in.readDouble();
+                        break;
+                    case FLOAT:
+                        sortValues[i] = in.readFloat();
+                        break;
+                    case BOOLEAN:
+                        sortValues[i] = in.readBoolean();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+                }
+            }
+            return sortValues;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid search cursor: " + cursor, e);
+        }
+    }
+
+}
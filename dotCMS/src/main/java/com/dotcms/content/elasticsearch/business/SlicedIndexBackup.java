@@ -0,0 +1,371 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.repackage.com.fasterxml.jackson.databind.ObjectMapper;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import static com.dotcms.content.elasticsearch.business.ESIndexAPI.INDEX_OPERATIONS_TIMEOUT_IN_MS;
+
+/**
+ * Backs up an index reading it with a sliced scroll, every slice on its own thread writing its own gzip chunk,
+ * and restores it feeding the bulk requests of every chunk from a bounded pool of threads.
+ * <p>
+ * The backup is still a single zip file: a {@value #MANIFEST} entry with the index, type, mapping and the
+ * chunks, followed by the chunks stored as they were compressed. The lines of a chunk are the same
+ * {@code id + delimiter + source} lines of the single entry backups, which {@link ESIndexAPI} still restores.
+ * Both operations log their progress and throughput every {@value #PROGRESS_LOG_MILLIS} millis.
+ */
+class SlicedIndexBackup {
+
+    static final String MANIFEST = "manifest.json";
+    private static final int VERSION = 2;
+    private static final long PROGRESS_LOG_MILLIS = 10000;
+
+    private final Client client;
+    private final String delimiter;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    SlicedIndexBackup(final Client client, final String delimiter) {
+        this.client = client;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * True if the file is a backup written by this class
+     */
+    static boolean isSlicedBackup(final File file) {
+        try (ZipFile zip = new ZipFile(file)) {
+            return zip.getEntry(MANIFEST) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the documents of the index to the given file, reading {@code slices} slices in parallel
+     */
+    File backup(final String index, final String type, final String mapping, final int slices, final File toFile)
+            throws IOException {
+
+        final int scrollSize = Config.getIntProperty("ES_INDEX_BACKUP_SCROLL_SIZE", 1000);
+        final int level = Config.getIntProperty("ES_INDEX_BACKUP_COMPRESSION_LEVEL", 1);
+        final Progress progress = new Progress("Backing up index " + index);
+        final File[] chunks = new File[slices];
+        final List<Future<Long>> futures = new ArrayList<>(slices);
+
+        final ExecutorService executor = newExecutor("SlicedIndexBackup-" + index, slices);
+        try {
+            for (int i = 0; i < slices; i++) {
+                final int slice = i;
+                chunks[slice] = new File(toFile.getParentFile(), toFile.getName() + ".slice" + slice + ".gz");
+                futures.add(executor.submit(() -> backupSlice(index, slice, slices, scrollSize, level, chunks[slice],
+                        progress)));
+            }
+            final List<Map<String, Object>> chunkList = new ArrayList<>(slices);
+            long documents = 0;
+            for (int i = 0; i < slices; i++) {
+                final long sliceDocuments = await(futures.get(i));
+                final Map<String, Object> chunk = new LinkedHashMap<>();
+                chunk.put("name", chunks[i].getName());
+                chunk.put("documents", sliceDocuments);
+                chunkList.add(chunk);
+                documents += sliceDocuments;
+            }
+
+            final Map<String, Object> manifest = new LinkedHashMap<>();
+            manifest.put("version", VERSION);
+            manifest.put("index", index);
+            manifest.put("type", type);
+            manifest.put("mapping", mapping);
+            manifest.put("documents", documents);
+            manifest.put("chunks", chunkList);
+            writeZip(toFile, manifest, chunks);
+            progress.done();
+            return toFile;
+        } finally {
+            executor.shutdownNow();
+            // when a slice failed the others may still be writing their chunks, they are deleted once they stop
+            awaitTermination(executor);
+            for (final File chunk : chunks) {
+                if (chunk != null) {
+                    Files.deleteIfExists(chunk.toPath());
+                }
+            }
+        }
+    }
+
+    private long backupSlice(final String index, final int slice, final int slices, final int scrollSize,
+            final int level, final File chunk, final Progress progress) throws IOException {
+
+        long documents = 0;
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new LeveledGZIPOutputStream(Files.newOutputStream(chunk.toPath()), level), StandardCharsets.UTF_8),
+                500000)) {
+
+            final SearchRequestBuilder request = client.prepareSearch(index)
+                    .setQuery(QueryBuilders.matchAllQuery())
+                    .setSize(scrollSize)
+                    .setScroll(TimeValue.timeValueMinutes(2))
+                    //_doc has no real use-case besides being the most efficient sort order.
+                    .addSort("_doc", SortOrder.ASC);
+            if (slices > 1) {
+                request.slice(new SliceBuilder(slice, slices));
+            }
+            SearchResponse response = request.execute().actionGet(INDEX_OPERATIONS_TIMEOUT_IN_MS);
+            progress.addTotal(response.getHits().getTotalHits());
+            try {
+                while (response.getHits().getHits().length > 0) {
+                    for (final SearchHit hit : response.getHits()) {
+                        writer.write(hit.getId());
+                        writer.write(delimiter);
+                        writer.write(hit.getSourceAsString());
+                        writer.newLine();
+                    }
+                    documents += response.getHits().getHits().length;
+                    progress.add(response.getHits().getHits().length);
+                    response = client.prepareSearchScroll(response.getScrollId())
+                            .setScroll(TimeValue.timeValueMinutes(2)).execute()
+                            .actionGet(INDEX_OPERATIONS_TIMEOUT_IN_MS);
+                }
+            } finally {
+                client.prepareClearScroll().addScrollId(response.getScrollId()).execute();
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Writes the manifest and then the chunks, stored as they are since they are compressed already
+     */
+    private void writeZip(final File toFile, final Map<String, Object> manifest, final File[] chunks)
+            throws IOException {
+
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(toFile.toPath()))) {
+            zipOut.putNextEntry(new ZipEntry(MANIFEST));
+            zipOut.write(mapper.writeValueAsBytes(manifest));
+            zipOut.closeEntry();
+
+            final byte[] buffer = new byte[64 * 1024];
+            for (final File chunk : chunks) {
+                final CRC32 crc = new CRC32();
+                try (InputStream in = Files.newInputStream(chunk.toPath())) {
+                    for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                        crc.update(buffer, 0, read);
+                    }
+                }
+                final ZipEntry entry = new ZipEntry(chunk.getName());
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(chunk.length());
+                entry.setCompressedSize(chunk.length());
+                entry.setCrc(crc.getValue());
+                zipOut.putNextEntry(entry);
+                Files.copy(chunk.toPath(), zipOut);
+                zipOut.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Indexes the documents of every chunk of the backup into the given index, at most {@code threads} bulk
+     * requests at a time
+     */
+    @SuppressWarnings("unchecked")
+    void restore(final File backupFile, final String index, final int threads) throws IOException {
+
+        final int bulkSize = Config.getIntProperty("ES_INDEX_RESTORE_BULK_SIZE", 1000);
+        try (ZipFile zip = new ZipFile(backupFile)) {
+            final Map<String, Object> manifest;
+            try (InputStream in = zip.getInputStream(zip.getEntry(MANIFEST))) {
+                manifest = mapper.readValue(in, HashMap.class);
+            }
+            final String type = (String) manifest.get("type");
+            final List<Map<String, Object>> chunks = (List<Map<String, Object>>) manifest.get("chunks");
+            final Progress progress = new Progress("Restoring index " + index);
+            progress.addTotal(((Number) manifest.get("documents")).longValue());
+
+            final ExecutorService executor = newExecutor("SlicedIndexRestore-" + index, threads);
+            try {
+                final List<Future<Long>> futures = new ArrayList<>(chunks.size());
+                for (final Map<String, Object> chunk : chunks) {
+                    final ZipEntry entry = zip.getEntry((String) chunk.get("name"));
+                    if (entry == null) {
+                        throw new IOException("Chunk " + chunk.get("name") + " missing from " + backupFile.getName());
+                    }
+                    futures.add(executor.submit(() -> restoreChunk(zip, entry, index, type, bulkSize, progress)));
+                }
+                for (final Future<Long> future : futures) {
+                    await(future);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            progress.done();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long restoreChunk(final ZipFile zip, final ZipEntry entry, final String index, final String type,
+            final int bulkSize, final Progress progress) throws IOException {
+
+        long documents = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(zip.getInputStream(entry), 64 * 1024), StandardCharsets.UTF_8))) {
+
+            BulkRequestBuilder bulk = client.prepareBulk();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final int delimiterIndex = line.indexOf(delimiter);
+                if (delimiterIndex <= 0) {
+                    continue;
+                }
+                final String id = line.substring(0, delimiterIndex);
+                final Map<String, Object> source =
+                        mapper.readValue(line.substring(delimiterIndex + delimiter.length()), HashMap.class);
+                // empty values are left out, as the single entry restore does
+                source.values().removeIf(value -> value == null || !UtilMethods.isSet(value.toString()));
+                bulk.add(new IndexRequest(index, type, id).source(source));
+
+                if (bulk.numberOfActions() >= bulkSize) {
+                    documents += execute(bulk, progress);
+                    bulk = client.prepareBulk();
+                }
+            }
+            if (bulk.numberOfActions() > 0) {
+                documents += execute(bulk, progress);
+            }
+        }
+        return documents;
+    }
+
+    private int execute(final BulkRequestBuilder bulk, final Progress progress) throws IOException {
+        final BulkResponse response = bulk.execute().actionGet(INDEX_OPERATIONS_TIMEOUT_IN_MS);
+        if (response.hasFailures()) {
+            throw new IOException(response.buildFailureMessage());
+        }
+        progress.add(bulk.numberOfActions());
+        return bulk.numberOfActions();
+    }
+
+    private static ExecutorService newExecutor(final String name, final int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void awaitTermination(final ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(INDEX_OPERATIONS_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS)) {
+                Logger.warn(SlicedIndexBackup.class, "The slices of the backup did not stop in "
+                        + INDEX_OPERATIONS_TIMEOUT_IN_MS + " millis, some chunks may be left behind");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> T await(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException
+                    ? (IOException) e.getCause() : new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Documents done out of the total, logged with the throughput at most every {@value #PROGRESS_LOG_MILLIS}
+     * millis
+     */
+    private static class Progress {
+
+        private final String operation;
+        private final long start = System.currentTimeMillis();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong documents = new AtomicLong();
+        private final AtomicLong lastLog = new AtomicLong(start);
+
+        Progress(final String operation) {
+            this.operation = operation;
+        }
+
+        void addTotal(final long documents) {
+            total.addAndGet(documents);
+        }
+
+        void add(final long count) {
+            documents.addAndGet(count);
+            final long now = System.currentTimeMillis();
+            final long last = lastLog.get();
+            if (now - last >= PROGRESS_LOG_MILLIS && lastLog.compareAndSet(last, now)) {
+                log();
+            }
+        }
+
+        void done() {
+            log();
+        }
+
+        private void log() {
+            final long millis = Math.max(1, System.currentTimeMillis() - start);
+            Logger.info(SlicedIndexBackup.class, operation + ": " + documents.get() + " of " + total.get()
+                    + " documents in " + (millis / 1000) + "s, " + (documents.get() * 1000 / millis) + " documents/s");
+        }
+    }
+
+    /**
+     * A gzip stream that deflates at the given level, {@link java.util.zip.Deflater#BEST_SPEED} by default
+     */
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+        LeveledGZIPOutputStream(final OutputStream out, final int level) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(level);
+        }
+    }
+
+}
@@ -10,6 +10,7 @@ import com.dotcms.content.elasticsearch.business.ESContentletIndexAPI;
 import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.reindex.ReindexThread;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -63,6 +64,10 @@ public class ESReindexationProcessStatus implements Serializable {
             theMap.put("lastIndexationProgress", getLastIndexationProgress());
             theMap.put("currentIndexPath", currentIndexPath());
             theMap.put("newIndexPath", getNewIndexPath());
+            // progress of the reindex pipeline of this server, if in use
+            theMap.putAll(ReindexThread.getPipelineStats());
+            // lag of the new index behind the journal, throughput and ETA
+            theMap.putAll(FullReindexProgress.getInstance().getStats());
         }
         return theMap;
     }
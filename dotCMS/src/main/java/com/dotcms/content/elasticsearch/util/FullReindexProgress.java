@@ -0,0 +1,170 @@
+package com.dotcms.content.elasticsearch.util;
+
+import com.dotcms.business.CloseDBIfOpened;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks how far the new index of a full reindex lags behind the reindex journal, the records left in the
+ * journal are the lag. The throughput is how fast the lag went down over the last
+ * {@code reindex.progress.window.seconds}, measured on the journal so it counts the work of every server of
+ * the cluster, and the ETA is the lag at that throughput.
+ * <p>
+ * The journal is counted at most once a second, whoever asks first. Stats are exposed by the
+ * {@value #MBEAN_OBJECT_NAME} MBean and in the reindex status of the index admin portlet.
+ *
+ * @author dotCMS
+ */
+public class FullReindexProgress implements FullReindexProgressMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=FullReindexProgress";
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 1000;
+
+    private static final FullReindexProgress INSTANCE = new FullReindexProgress();
+
+    private final Deque<long[]> samples = new ArrayDeque<>();
+    private long startedAt;
+    private long recordsAtStart;
+    private long lastSwitchoverMillis;
+    private long switchovers;
+
+    private FullReindexProgress() {
+    }
+
+    public static FullReindexProgress getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * Starts tracking a full reindex that queued the given records in the journal
+     */
+    public synchronized void started(final long records) {
+        samples.clear();
+        startedAt = System.currentTimeMillis();
+        recordsAtStart = records;
+        samples.addLast(new long[]{startedAt, records});
+    }
+
+    /**
+     * Records the records left in the journal, counted by the caller
+     */
+    public synchronized void sample(final long recordsLeft) {
+        final long now = System.currentTimeMillis();
+        if (startedAt == 0) {
+            // the reindex was started by another server of the cluster
+            startedAt = now;
+            recordsAtStart = recordsLeft;
+        }
+        if (!samples.isEmpty() && now - samples.peekLast()[0] < SAMPLE_INTERVAL_MILLIS) {
+            samples.peekLast()[1] = recordsLeft;
+            return;
+        }
+        samples.addLast(new long[]{now, recordsLeft});
+        final long windowMillis = Config.getLongProperty("reindex.progress.window.seconds", 60) * 1000;
+        while (samples.size() > 2 && now - samples.peekFirst()[0] > windowMillis) {
+            samples.removeFirst();
+        }
+    }
+
+    /**
+     * Records how long the switchover to the new index took and stops tracking the reindex
+     */
+    public synchronized void switchedOver(final long millis) {
+        lastSwitchoverMillis = millis;
+        switchovers++;
+        samples.clear();
+        startedAt = 0;
+        recordsAtStart = 0;
+    }
+
+    @CloseDBIfOpened
+    private synchronized void sampleIfStale() {
+        if (samples.isEmpty() || System.currentTimeMillis() - samples.peekLast()[0] >= SAMPLE_INTERVAL_MILLIS) {
+            try {
+                if (ESReindexationProcessStatus.inFullReindexation()) {
+                    sample(APILocator.getDistributedJournalAPI().recordsLeftToIndexForServer());
+                } else if (startedAt != 0) {
+                    // aborted or switched over by another server
+                    samples.clear();
+                    startedAt = 0;
+                    recordsAtStart = 0;
+                }
+            } catch (DotDataException e) {
+                Logger.warn(this, "Unable to count the records left to reindex: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized long getLag() {
+        sampleIfStale();
+        return samples.isEmpty() ? 0 : samples.peekLast()[1];
+    }
+
+    @Override
+    public synchronized long getRecordsAtStart() {
+        sampleIfStale();
+        return recordsAtStart;
+    }
+
+    @Override
+    public synchronized long getElapsedSeconds() {
+        sampleIfStale();
+        return startedAt == 0 ? 0 : (System.currentTimeMillis() - startedAt) / 1000;
+    }
+
+    @Override
+    public synchronized double getThroughput() {
+        sampleIfStale();
+        if (samples.size() < 2) {
+            return 0;
+        }
+        final long[] first = samples.peekFirst();
+        final long[] last = samples.peekLast();
+        final long millis = last[0] - first[0];
+        return millis <= 0 ? 0 : Math.max(0, first[1] - last[1]) * 1000d / millis;
+    }
+
+    @Override
+    public synchronized long getEtaSeconds() {
+        final long lag = getLag();
+        final double throughput = getThroughput();
+        return lag == 0 ? 0 : throughput <= 0 ? -1 : (long) Math.ceil(lag / throughput);
+    }
+
+    @Override
+    public synchronized long getLastSwitchoverMillis() {
+        return lastSwitchoverMillis;
+    }
+
+    @Override
+    public synchronized long getSwitchovers() {
+        return switchovers;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reindexLag", getLag());
+        stats.put("reindexRecordsAtStart", getRecordsAtStart());
+        stats.put("reindexElapsedSeconds", getElapsedSeconds());
+        stats.put("reindexThroughput", getThroughput());
+        stats.put("reindexEtaSeconds", getEtaSeconds());
+        stats.put("reindexLastSwitchoverMillis", getLastSwitchoverMillis());
+        stats.put("reindexSwitchovers", getSwitchovers());
+        return stats;
+    }
+
+} // E:O:F:FullReindexProgress.
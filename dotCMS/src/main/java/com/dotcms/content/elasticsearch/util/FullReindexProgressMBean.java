@@ -0,0 +1,59 @@
+package com.dotcms.content.elasticsearch.util;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link FullReindexProgress}, the progress of a full reindex
+ */
+public interface FullReindexProgressMBean extends DotMBean {
+
+    /**
+     * Records left in the reindex journal, 0 when there is no full reindex running
+     * @return long
+     */
+    public long getLag();
+
+    /**
+     * Records in the reindex journal when the full reindex started
+     * @return long
+     */
+    public long getRecordsAtStart();
+
+    /**
+     * Seconds since the full reindex started
+     * @return long
+     */
+    public long getElapsedSeconds();
+
+    /**
+     * Records reindexed per second over the last sampling window
+     * @return double
+     */
+    public double getThroughput();
+
+    /**
+     * Seconds left for the lag to reach zero at the current throughput, -1 when there is no throughput yet
+     * @return long
+     */
+    public long getEtaSeconds();
+
+    /**
+     * Millis the last switchover to a new index took
+     * @return long
+     */
+    public long getLastSwitchoverMillis();
+
+    /**
+     * Number of switchovers to a new index done by this server
+     * @return long
+     */
+    public long getSwitchovers();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:FullReindexProgressMBean.
@@ -1,5 +1,6 @@
 package com.dotcms.journal.business;
 
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI.DateType;
@@ -21,7 +22,9 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -208,6 +211,8 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
             sql.append("'" + idx.getIdentToIndex() + "'");
         }
         sql.append(')');
+        // the held records stay until their holder deletes or releases them
+        sql.append(" AND (serverid IS NULL OR serverid NOT LIKE '" + REINDEX_JOURNAL_HOLDER_PREFIX + "%')");
 
         dotConnect.setSQL(sql.toString());
         dotConnect.loadResult();
@@ -309,9 +314,20 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
             	priorityLevel = REINDEX_JOURNAL_PRIORITY_FAILED_FIRST_ATTEMPT + (RETRY_FAILED_INDEX_TIMES);
             }
 
+            final ReindexJournalLeases leases = ReindexJournalLeases.getInstance();
+            if (leases.isEnabled()) {
+                leases.refreshPartition(serverId);
+            }
+
             con = DbConnectionFactory.getConnection();
             con.setAutoCommit(false);
-            if(DbConnectionFactory.isOracle()) {
+            if (leases.isEnabled()) {
+                if (DbConnectionFactory.isMsSql()) {
+                    dc.setSQL("SET TRANSACTION ISOLATION LEVEL READ COMMITTED;");
+                    dc.loadResult();
+                }
+                results = leases.claim(con, serverId, recordsToFetch, priorityLevel);
+            } else if(DbConnectionFactory.isOracle()) {
                 CallableStatement call = con.prepareCall("{ ? = call load_records_to_index(?,?,?) }");
                 call.registerOutParameter(1, OracleTypes.CURSOR);
                 call.setString(2, serverId);
@@ -389,6 +405,12 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
 
     @Override
     protected void processJournalEntries() throws DotDataException {
+        final ReindexJournalLeases leases = ReindexJournalLeases.getInstance();
+        if (leases.isEnabled() && leases.canSkipLockedRows()) {
+            processJournalEntriesWithRowLocks(leases);
+            return;
+        }
+
         DotConnect dc = new DotConnect();
         Connection con = null;
         ClusterMutex mutex = null;
@@ -440,6 +462,77 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
         }
     }
 
+    /**
+     * Moves the records of the dist_process table to the dist_journal table locking only the rows it
+     * moves, the rows locked by another server are skipped instead of waiting for a lock of the table
+     */
+    private void processJournalEntriesWithRowLocks(final ReindexJournalLeases leases) throws DotDataException {
+        final int batchSize = Config.getIntProperty("REINDEX_JOURNAL_PROCESS_BATCH_SIZE", 500);
+        Connection con = null;
+        try {
+            con = DbConnectionFactory.getConnection();
+            con.setAutoCommit(false);
+            List<Long> ids;
+            do {
+                ids = leases.lockProcessRecords(con, batchSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                moveProcessRecords(con, ids);
+                con.commit();
+            } while (ids.size() == batchSize);
+        } catch (SQLException | DotDataException e1) {
+            try {
+                con.rollback();
+            } catch (Exception e) {
+                Logger.error(this, e.getMessage(), e);
+            }
+            throw new DotDataException(e1.getMessage(), e1);
+        } finally {
+            try {
+                con.commit();
+            } catch (Exception e) {
+                Logger.error(this, e.getMessage(), e);
+            } finally {
+                try {
+                    con.close();
+                } catch (Exception e) {
+                    Logger.error(this, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the given dist_process rows to the dist_journal table in the transaction of the given connection.
+     * Two servers can move rows of the same object at the same time and neither sees the row inserted by the
+     * other until it commits, so the rows already in the unique key (object_to_index, serverid, journal_type)
+     * of dist_journal are skipped instead of failing the whole batch
+     */
+    @VisibleForTesting
+    void moveProcessRecords(final Connection con, final List<Long> ids) throws DotDataException {
+        final String idsPlaceholder = DotConnect.createParametersPlaceholder(ids.size());
+        final DotConnect dc = new DotConnect();
+
+        // sql server has no insert ignore, the range lock taken on dist_journal makes the second insert wait
+        // for the first one to commit and see its row
+        dc.setSQL((DbConnectionFactory.isMySql() ? "INSERT IGNORE" : "INSERT") +
+                " INTO dist_journal (object_to_index, time_entered, serverid, journal_type) " +
+                " SELECT object_to_index, min(time_entered),  serverid, journal_type FROM dist_process p1 " +
+                " WHERE NOT EXISTS (SELECT j.id FROM dist_journal j " +
+                                  (DbConnectionFactory.isMsSql() ? "WITH (UPDLOCK, HOLDLOCK) " : "") +
+                                  " WHERE p1.object_to_index = j.object_to_index AND  p1.serverid=j.serverid AND " +
+                                  " p1.journal_type=j.journal_type) " +
+                       " AND id IN (" + idsPlaceholder + ") GROUP BY object_to_index, serverid, journal_type" +
+                (DbConnectionFactory.isPostgres() ? " ON CONFLICT DO NOTHING" : ""));
+        ids.forEach(dc::addParam);
+        dc.loadResult(con);
+
+        dc.setSQL("DELETE FROM dist_process WHERE id IN (" + idsPlaceholder + ")");
+        ids.forEach(dc::addParam);
+        dc.loadResult(con);
+    }
+
     protected long recordsLeftToIndexForServer() throws DotDataException {
         return recordsLeftToIndexForServer(DbConnectionFactory.getConnection());
     }
@@ -561,6 +654,64 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
     }
 
 
+    @Override
+    protected void addHeldReindexEntry(final String identifier, final String holder) throws DotDataException {
+
+        if (!holder.startsWith(REINDEX_JOURNAL_HOLDER_PREFIX)) {
+            throw new DotDataException("The holder of a reindex entry has to start with " + REINDEX_JOURNAL_HOLDER_PREFIX);
+        }
+        new DotConnect().setSQL("insert into dist_reindex_journal(inode_to_index,ident_to_index,priority,dist_action,"
+                        + " time_entered, serverid, claimed_at) values (?, ?, ?, ?, ?, ?, ?)")
+                .addParam(identifier)
+                .addParam(identifier)
+                .addParam(REINDEX_JOURNAL_PRIORITY_CONTENT_REINDEX)
+                .addParam(REINDEX_ACTION_REINDEX_OBJECT)
+                .addParam(DbConnectionFactory.now())
+                .addParam(holder)
+                .addParam(new Timestamp(System.currentTimeMillis()))
+                .loadResult();
+    }
+
+    @Override
+    protected void deleteHeldReindexEntries(final Collection<String> holders) throws DotDataException {
+
+        if (holders.isEmpty()) {
+            return;
+        }
+        final String holdersPlaceholder = DotConnect.createParametersPlaceholder(holders.size());
+        final DotConnect dotConnect = new DotConnect()
+                .setSQL("DELETE FROM dist_reindex_journal WHERE serverid IN (" + holdersPlaceholder + ")");
+        holders.forEach(dotConnect::addParam);
+        dotConnect.loadResult();
+    }
+
+    @Override
+    protected void releaseHeldReindexEntries(final Collection<String> holders) throws DotDataException {
+
+        if (holders.isEmpty()) {
+            return;
+        }
+        final String holdersPlaceholder = DotConnect.createParametersPlaceholder(holders.size());
+        final DotConnect dotConnect = new DotConnect().setSQL("UPDATE dist_reindex_journal SET serverid=NULL,"
+                + " claimed_at=NULL WHERE serverid IN (" + holdersPlaceholder + ")");
+        holders.forEach(dotConnect::addParam);
+        dotConnect.loadResult();
+    }
+
+    @Override
+    protected int releaseHeldReindexEntries(final String holderPrefix, final Date heldBefore) throws DotDataException {
+
+        if (!holderPrefix.startsWith(REINDEX_JOURNAL_HOLDER_PREFIX)) {
+            throw new DotDataException("The holder of a reindex entry has to start with " + REINDEX_JOURNAL_HOLDER_PREFIX);
+        }
+        return heldBefore == null
+                ? new DotConnect().executeUpdate("UPDATE dist_reindex_journal SET serverid=NULL, claimed_at=NULL"
+                        + " WHERE serverid LIKE ?", holderPrefix + "%")
+                : new DotConnect().executeUpdate("UPDATE dist_reindex_journal SET serverid=NULL, claimed_at=NULL"
+                        + " WHERE serverid LIKE ? AND claimed_at < ?", holderPrefix + "%",
+                        new Timestamp(heldBefore.getTime()));
+    }
+
     @Override
     protected void refreshContentUnderHost(Host host) throws DotDataException {
         String sql = " INSERT INTO dist_reindex_journal(inode_to_index,ident_to_index,priority,dist_action) "+
@@ -0,0 +1,453 @@
+package com.dotcms.journal.business;
+
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Claims the records of the {@code dist_reindex_journal} table with row level leases instead of the
+ * {@code load_records_to_index} procedure, so the servers of a cluster pull their batches in parallel.
+ * <p>
+ * A claimed record keeps the id of the server and the time it was claimed ({@code claimed_at}), when a
+ * server does not finish a record before the lease expires any other server can claim it again. The rows
+ * are claimed with {@code FOR UPDATE SKIP LOCKED} on PostgreSQL 9.5+ and MySQL 8+ and with
+ * {@code UPDLOCK, READPAST} on SQL Server, on the other databases the candidates are read without locks
+ * and claimed one by one with a conditional update, keeping the ones this server won.
+ * <p>
+ * The records can be partitioned by the last character of the identifier, so every server claims first
+ * the records of its own partitions and only takes records of other partitions (steals) when its own are
+ * not enough to fill a batch. By default there is a partition per alive server.
+ *
+ * @author dotCMS
+ */
+public class ReindexJournalLeases implements ReindexJournalLeasesMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=ReindexJournal";
+
+    private static final String HEX_DIGITS = "0123456789abcdef";
+    private static final int MAX_PARTITIONS = HEX_DIGITS.length();
+    private static final long PARTITION_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String SKIP_LOCKED = "SKIP LOCKED";
+    private static final String READPAST = "UPDLOCK READPAST";
+    private static final String OPTIMISTIC = "OPTIMISTIC";
+
+    private static final ReindexJournalLeases INSTANCE = new ReindexJournalLeases();
+
+    private volatile String mode;
+    private volatile int partitions = 1;
+    private volatile int partition = 0;
+    private volatile long partitionRefreshedAt = 0;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder emptyClaims = new LongAdder();
+    private final LongAdder claimedRecords = new LongAdder();
+    private final LongAdder reclaimedRecords = new LongAdder();
+    private final LongAdder stolenRecords = new LongAdder();
+    private final LongAdder lostRecords = new LongAdder();
+    private final LongAdder renewedRecords = new LongAdder();
+    private final LongAdder claimNanos = new LongAdder();
+
+    private ReindexJournalLeases() {
+    }
+
+    public static ReindexJournalLeases getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * True when the records of the journal are claimed with leases
+     */
+    @Override
+    public boolean isEnabled() {
+        return Config.getBooleanProperty("REINDEX_JOURNAL_LEASE_ENABLED", false);
+    }
+
+    @Override
+    public int getLeaseSeconds() {
+        return Config.getIntProperty("REINDEX_JOURNAL_LEASE_SECONDS", 300);
+    }
+
+    /**
+     * True when the database can lock rows skipping the ones locked by other transactions
+     */
+    public boolean canSkipLockedRows() {
+        return !OPTIMISTIC.equals(getMode());
+    }
+
+    /**
+     * Works out the partitions of this server, from the config or from the position of the server in the
+     * list of alive servers. Has to be called before taking the connection used to claim, the list of
+     * servers is read from the db.
+     */
+    public void refreshPartition(final String serverId) {
+
+        if (System.currentTimeMillis() - partitionRefreshedAt < PARTITION_REFRESH_MILLIS) {
+            return;
+        }
+        partitionRefreshedAt = System.currentTimeMillis();
+
+        int configuredPartitions = Config.getIntProperty("REINDEX_JOURNAL_PARTITIONS", 0);
+        int configuredPartition = Config.getIntProperty("REINDEX_JOURNAL_PARTITION", -1);
+        try {
+            if (configuredPartitions <= 0 || configuredPartition < 0) {
+                final String[] aliveServers = APILocator.getServerAPI().getAliveServersIds();
+                Arrays.sort(aliveServers);
+                if (configuredPartitions <= 0) {
+                    configuredPartitions = aliveServers.length;
+                }
+                if (configuredPartition < 0) {
+                    configuredPartition = Math.max(0, Arrays.asList(aliveServers).indexOf(serverId));
+                }
+            }
+        } catch (Exception e) {
+            Logger.warn(this, "Unable to read the alive servers, the reindex journal is not partitioned: " + e.getMessage());
+            configuredPartitions = 1;
+        }
+
+        partitions = Math.max(1, Math.min(MAX_PARTITIONS, configuredPartitions));
+        partition = configuredPartition % partitions;
+    }
+
+    /**
+     * Claims up to the given number of records with a priority up to the given level, the records of the
+     * partitions of this server first. Runs in the transaction of the given connection, the claim is
+     * released to the other servers when it is committed.
+     *
+     * @return the claimed records (id, inode_to_index, ident_to_index and priority)
+     */
+    public List<Map<String, Object>> claim(final Connection con, final String serverId, final int recordsToFetch,
+            final int priorityLevel) throws SQLException {
+
+        final long start = System.nanoTime();
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        final Timestamp expired = new Timestamp(now.getTime() - TimeUnit.SECONDS.toMillis(getLeaseSeconds()));
+
+        final List<Map<String, Object>> records = new ArrayList<>();
+        if (partitions > 1) {
+            records.addAll(claim(con, serverId, recordsToFetch, priorityLevel, now, expired, ownDigits()));
+        }
+        if (records.size() < recordsToFetch) {
+            final List<Map<String, Object>> others = claim(con, serverId, recordsToFetch - records.size(),
+                    priorityLevel, now, expired, null);
+            if (partitions > 1) {
+                stolenRecords.add(others.size());
+            }
+            records.addAll(others);
+        }
+
+        claims.increment();
+        if (records.isEmpty()) {
+            emptyClaims.increment();
+        }
+        claimedRecords.add(records.size());
+        claimNanos.add(System.nanoTime() - start);
+        return records;
+    }
+
+    private List<Map<String, Object>> claim(final Connection con, final String serverId, final int recordsToFetch,
+            final int priorityLevel, final Timestamp now, final Timestamp expired, final String digits)
+            throws SQLException {
+
+        final String mode = getMode();
+        final StringBuilder where = new StringBuilder(" WHERE (serverid IS NULL OR (claimed_at IS NOT NULL AND claimed_at < ?))"
+                + " AND priority <= ?");
+        if (digits != null) {
+            where.append(" AND ").append(lastChar("ident_to_index")).append(" IN (").append(digits).append(')');
+        }
+
+        final String select;
+        if (SKIP_LOCKED.equals(mode)) {
+            select = "SELECT id, inode_to_index, ident_to_index, priority, serverid FROM dist_reindex_journal" + where
+                    + " ORDER BY priority ASC LIMIT " + recordsToFetch + " FOR UPDATE SKIP LOCKED";
+        } else if (READPAST.equals(mode)) {
+            select = "SELECT TOP (" + recordsToFetch + ") id, inode_to_index, ident_to_index, priority, serverid"
+                    + " FROM dist_reindex_journal WITH (ROWLOCK, READPAST, UPDLOCK)" + where + " ORDER BY priority ASC";
+        } else {
+            select = "SELECT id, inode_to_index, ident_to_index, priority, serverid FROM dist_reindex_journal" + where
+                    + " ORDER BY priority ASC";
+        }
+
+        final List<Map<String, Object>> candidates = new ArrayList<>();
+        try (PreparedStatement statement = con.prepareStatement(select)) {
+            statement.setMaxRows(recordsToFetch);
+            statement.setTimestamp(1, expired);
+            statement.setInt(2, priorityLevel);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    final Map<String, Object> record = new HashMap<>();
+                    record.put("id", rs.getLong("id"));
+                    record.put("inode_to_index", rs.getString("inode_to_index"));
+                    record.put("ident_to_index", rs.getString("ident_to_index"));
+                    record.put("priority", rs.getInt("priority"));
+                    record.put("serverid", rs.getString("serverid"));
+                    candidates.add(record);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        final List<Map<String, Object>> claimed = OPTIMISTIC.equals(mode)
+                ? claimOneByOne(con, serverId, candidates, now, expired)
+                : claimLocked(con, serverId, candidates, now);
+
+        for (final Map<String, Object> record : claimed) {
+            if (record.remove("serverid") != null) {
+                reclaimedRecords.increment();
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * The rows are already locked by this transaction, they are all ours
+     */
+    private List<Map<String, Object>> claimLocked(final Connection con, final String serverId,
+            final List<Map<String, Object>> candidates, final Timestamp now) throws SQLException {
+
+        final StringBuilder update = new StringBuilder("UPDATE dist_reindex_journal SET serverid=?, claimed_at=? WHERE id IN (");
+        for (int i = 0; i < candidates.size(); i++) {
+            update.append(i == 0 ? "?" : ",?");
+        }
+        update.append(')');
+
+        try (PreparedStatement statement = con.prepareStatement(update.toString())) {
+            statement.setString(1, serverId);
+            statement.setTimestamp(2, now);
+            int index = 3;
+            for (final Map<String, Object> record : candidates) {
+                statement.setLong(index++, (Long) record.get("id"));
+            }
+            statement.executeUpdate();
+        }
+        return candidates;
+    }
+
+    /**
+     * The rows were read without locks, each one is claimed only if nobody claimed it in between
+     */
+    private List<Map<String, Object>> claimOneByOne(final Connection con, final String serverId,
+            final List<Map<String, Object>> candidates, final Timestamp now, final Timestamp expired)
+            throws SQLException {
+
+        final List<Map<String, Object>> claimed = new ArrayList<>(candidates.size());
+        try (PreparedStatement statement = con.prepareStatement("UPDATE dist_reindex_journal SET serverid=?, claimed_at=?"
+                + " WHERE id=? AND (serverid IS NULL OR (claimed_at IS NOT NULL AND claimed_at < ?))")) {
+            for (final Map<String, Object> record : candidates) {
+                statement.setString(1, serverId);
+                statement.setTimestamp(2, now);
+                statement.setLong(3, (Long) record.get("id"));
+                statement.setTimestamp(4, expired);
+                if (statement.executeUpdate() == 1) {
+                    claimed.add(record);
+                } else {
+                    lostRecords.increment();
+                }
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Starts the lease of the given records again, for the records this server is still working on after
+     * a long wait (e.g. a bulk request sent again after a backoff), so no other server claims them in the
+     * meantime. The records another server claimed already are left alone.
+     *
+     * @return the number of records renewed
+     */
+    public int renew(final String serverId, final Collection<Long> ids) throws SQLException {
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        final StringBuilder update = new StringBuilder("UPDATE dist_reindex_journal SET claimed_at=? WHERE serverid=? AND id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            update.append(i == 0 ? "?" : ",?");
+        }
+        update.append(')');
+
+        try (Connection con = DbConnectionFactory.getDataSource().getConnection();
+                PreparedStatement statement = con.prepareStatement(update.toString())) {
+            statement.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            statement.setString(2, serverId);
+            int index = 3;
+            for (final Long id : ids) {
+                statement.setLong(index++, id);
+            }
+            final int renewed = statement.executeUpdate();
+            renewedRecords.add(renewed);
+            return renewed;
+        }
+    }
+
+    /**
+     * Locks up to the given number of rows of the {@code dist_process} table skipping the ones locked by
+     * other servers, only available when {@link #canSkipLockedRows()}
+     *
+     * @return the ids of the locked rows
+     */
+    public List<Long> lockProcessRecords(final Connection con, final int max) throws SQLException {
+
+        final String select = SKIP_LOCKED.equals(getMode())
+                ? "SELECT id FROM dist_process ORDER BY id LIMIT " + max + " FOR UPDATE SKIP LOCKED"
+                : "SELECT TOP (" + max + ") id FROM dist_process WITH (ROWLOCK, READPAST, UPDLOCK) ORDER BY id";
+
+        final List<Long> ids = new ArrayList<>();
+        try (PreparedStatement statement = con.prepareStatement(select);
+                ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getLong("id"));
+            }
+        }
+        return ids;
+    }
+
+    private String ownDigits() {
+        final StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < HEX_DIGITS.length(); i++) {
+            if (i % partitions == partition) {
+                final char digit = HEX_DIGITS.charAt(i);
+                digits.append(digits.length() == 0 ? "" : ",").append('\'').append(digit).append('\'');
+                if (Character.isLetter(digit)) {
+                    digits.append(",'").append(Character.toUpperCase(digit)).append('\'');
+                }
+            }
+        }
+        return digits.toString();
+    }
+
+    private static String lastChar(final String column) {
+        return DbConnectionFactory.isOracle() ? "SUBSTR(" + column + ",-1)" : "RIGHT(" + column + ",1)";
+    }
+
+    /**
+     * How the rows are claimed, depends on the database and its version
+     */
+    @Override
+    public String getMode() {
+
+        if (mode == null) {
+            String detected = OPTIMISTIC;
+            if (DbConnectionFactory.isMsSql()) {
+                detected = READPAST;
+            } else if (DbConnectionFactory.isPostgres() || DbConnectionFactory.isMySql()) {
+                try (Connection con = DbConnectionFactory.getDataSource().getConnection()) {
+                    final DatabaseMetaData meta = con.getMetaData();
+                    final int major = meta.getDatabaseMajorVersion();
+                    final int minor = meta.getDatabaseMinorVersion();
+                    final boolean mariaDB = meta.getDatabaseProductVersion().toLowerCase().contains("mariadb");
+                    if (DbConnectionFactory.isPostgres() ? (major > 9 || (major == 9 && minor >= 5)) : (major >= 8 && !mariaDB)) {
+                        detected = SKIP_LOCKED;
+                    }
+                } catch (SQLException e) {
+                    Logger.warn(this, "Unable to read the db version, claiming the reindex records optimistically: " + e.getMessage());
+                }
+            }
+            Logger.info(this, "Reindex journal records are claimed using " + detected);
+            mode = detected;
+        }
+        return mode;
+    }
+
+    @Override
+    public int getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public int getPartition() {
+        return partition;
+    }
+
+    @Override
+    public long getClaims() {
+        return claims.sum();
+    }
+
+    @Override
+    public long getEmptyClaims() {
+        return emptyClaims.sum();
+    }
+
+    @Override
+    public long getClaimedRecords() {
+        return claimedRecords.sum();
+    }
+
+    @Override
+    public long getReclaimedRecords() {
+        return reclaimedRecords.sum();
+    }
+
+    @Override
+    public long getStolenRecords() {
+        return stolenRecords.sum();
+    }
+
+    @Override
+    public long getLostRecords() {
+        return lostRecords.sum();
+    }
+
+    @Override
+    public long getRenewedRecords() {
+        return renewedRecords.sum();
+    }
+
+    @Override
+    public double getAverageClaimMillis() {
+        final long count = claims.sum();
+        return count == 0 ? 0 : claimNanos.sum() / (count * 1_000_000d);
+    }
+
+    @Override
+    public double getClaimedRecordsPerSecond() {
+        final long seconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - startedAt);
+        return seconds == 0 ? 0 : claimedRecords.sum() / (double) seconds;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("mode", mode);
+        stats.put("leaseSeconds", getLeaseSeconds());
+        stats.put("partitions", getPartitions());
+        stats.put("partition", getPartition());
+        stats.put("claims", getClaims());
+        stats.put("emptyClaims", getEmptyClaims());
+        stats.put("claimedRecords", getClaimedRecords());
+        stats.put("reclaimedRecords", getReclaimedRecords());
+        stats.put("stolenRecords", getStolenRecords());
+        stats.put("lostRecords", getLostRecords());
+        stats.put("renewedRecords", getRenewedRecords());
+        stats.put("averageClaimMillis", getAverageClaimMillis());
+        stats.put("claimedRecordsPerSecond", getClaimedRecordsPerSecond());
+        return stats;
+    }
+
+} // E:O:F:ReindexJournalLeases.
@@ -0,0 +1,101 @@
+package com.dotcms.journal.business;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link ReindexJournalLeases}, the claim stats of this server
+ */
+public interface ReindexJournalLeasesMBean extends DotMBean {
+
+    /**
+     * True when the records of the reindex journal are claimed with leases
+     * @return boolean
+     */
+    public boolean isEnabled();
+
+    /**
+     * Seconds a claimed record is kept by a server before the others can claim it again
+     * @return int
+     */
+    public int getLeaseSeconds();
+
+    /**
+     * How the records are claimed: SKIP LOCKED, UPDLOCK READPAST or OPTIMISTIC
+     * @return String
+     */
+    public String getMode();
+
+    /**
+     * Number of partitions the records are split in
+     * @return int
+     */
+    public int getPartitions();
+
+    /**
+     * Partition of this server
+     * @return int
+     */
+    public int getPartition();
+
+    /**
+     * Number of batches claimed by this server
+     * @return long
+     */
+    public long getClaims();
+
+    /**
+     * Number of claims that found no records
+     * @return long
+     */
+    public long getEmptyClaims();
+
+    /**
+     * Number of records claimed by this server
+     * @return long
+     */
+    public long getClaimedRecords();
+
+    /**
+     * Number of claimed records whose lease had expired on another server
+     * @return long
+     */
+    public long getReclaimedRecords();
+
+    /**
+     * Number of records claimed from the partitions of other servers
+     * @return long
+     */
+    public long getStolenRecords();
+
+    /**
+     * Number of records another server claimed first, only when claiming optimistically
+     * @return long
+     */
+    public long getLostRecords();
+
+    /**
+     * Number of leases renewed because their records were still being indexed, e.g. sent again after a backoff
+     * @return long
+     */
+    public long getRenewedRecords();
+
+    /**
+     * Average time in millis to claim a batch
+     * @return double
+     */
+    public double getAverageClaimMillis();
+
+    /**
+     * Records claimed per second since the server started
+     * @return double
+     */
+    public double getClaimedRecordsPerSecond();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:ReindexJournalLeasesMBean.
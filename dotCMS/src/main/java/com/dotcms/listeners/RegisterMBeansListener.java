@@ -1,7 +1,17 @@
 package com.dotcms.listeners;
 
+import com.dotcms.cache.DotCacheStats;
 import com.dotcms.concurrent.DotConcurrentFactory;
+import com.dotcms.content.elasticsearch.business.CoalescingIndexQueue;
+import com.dotcms.content.elasticsearch.business.CompiledQueryCache;
+import com.dotcms.content.elasticsearch.business.DependencyReindexTracker;
+import com.dotcms.content.elasticsearch.business.LiveQueryResultCache;
+import com.dotcms.content.elasticsearch.util.FullReindexProgress;
 import com.dotcms.jmx.DotMBean;
+import com.dotcms.journal.business.ReindexJournalLeases;
+import com.dotcms.rendering.velocity.servlet.PageRenderStats;
+import com.dotmarketing.business.PermissionReferenceRecomputer;
+import com.dotmarketing.business.cache.CacheSingleFlightStats;
 import com.dotmarketing.util.Logger;
 
 import javax.management.*;
@@ -67,6 +77,16 @@ public class RegisterMBeansListener implements ServletContextListener,
         final Set<DotMBean> mbeans = new HashSet<>();
 
         mbeans.add(DotConcurrentFactory.getInstance());
+        mbeans.add(DotCacheStats.getInstance());
+        mbeans.add(CacheSingleFlightStats.getInstance());
+        mbeans.add(ReindexJournalLeases.getInstance());
+        mbeans.add(CompiledQueryCache.getInstance());
+        mbeans.add(LiveQueryResultCache.getInstance());
+        mbeans.add(FullReindexProgress.getInstance());
+        mbeans.add(CoalescingIndexQueue.getInstance());
+        mbeans.add(DependencyReindexTracker.getInstance());
+        mbeans.add(PermissionReferenceRecomputer.getInstance());
+        mbeans.add(PageRenderStats.getInstance());
 
         return mbeans;
     }
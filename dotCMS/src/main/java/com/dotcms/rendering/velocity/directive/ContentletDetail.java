@@ -2,11 +2,13 @@ package com.dotcms.rendering.velocity.directive;
 
 import com.dotcms.contenttype.model.type.BaseContentType;
 import com.dotcms.contenttype.model.type.ContentType;
+import com.dotcms.rendering.velocity.services.FragmentDependencies;
 import com.dotcms.rendering.velocity.services.VelocityType;
 
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.PageMode;
 
 import java.io.File;
@@ -72,6 +74,9 @@ public class ContentletDetail extends DotDirective {
     String resolveTemplatePath(final Context context, final Writer writer, final RenderParams params, final String[] arguments) {
 
         final String identifier = arguments[0];
+        // recorded before the content is loaded, so a change made while it renders invalidates the fragment
+        FragmentDependencies.recordContent(identifier);
+        recordContentType(identifier);
         long lang = resolveLang(identifier, params);
 
 
@@ -91,5 +96,22 @@ public class ContentletDetail extends DotDirective {
 
         return path.toString();
     }
+
+    /**
+     * Records the content type of the content, the content is looked up only while a fragment is recorded
+     */
+    private void recordContentType(final String identifier) {
+        if (!FragmentDependencies.isRecording()) {
+            return;
+        }
+        try {
+            final Contentlet contentlet = APILocator.getContentletAPI().findContentletByIdentifierAnyLanguage(identifier);
+            if (null != contentlet && null != contentlet.getContentType()) {
+                FragmentDependencies.recordContentType(contentlet.getContentType().variable());
+            }
+        } catch (Exception e) {
+            Logger.debug(this, "cannot find the content type of " + identifier, e);
+        }
+    }
 }
 
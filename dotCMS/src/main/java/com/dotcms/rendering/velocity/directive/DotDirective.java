@@ -1,7 +1,14 @@
 package com.dotcms.rendering.velocity.directive;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -19,9 +26,12 @@ import org.apache.velocity.runtime.parser.node.Node;
 import org.apache.velocity.runtime.parser.node.SimpleNode;
 
 import com.dotcms.rendering.velocity.directive.RenderParams;
+import com.dotcms.rendering.velocity.services.FragmentDependencies;
 import com.dotcms.rendering.velocity.services.VelocityType;
 import com.dotcms.rendering.velocity.util.VelocityUtil;
 
+import com.dotmarketing.business.BlockFragmentCache;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.util.Logger;
 
 
@@ -41,6 +51,14 @@ abstract class DotDirective extends InputBase {
 
   abstract String resolveTemplatePath(Context context, Writer writer, RenderParams params, String[] arguments);
 
+  /**
+   * Returns the key the output of the directive is kept with in the {@link BlockFragmentCache}, null when it is not
+   * cached, which is the default
+   */
+  String fragmentKey(InternalContextAdapter context, RenderParams params, String templatePath, String[] arguments) {
+    return null;
+  }
+
   final Template loadTemplate(InternalContextAdapter context,  String templatePath){
     
     try {
@@ -97,6 +115,10 @@ abstract class DotDirective extends InputBase {
       if(null ==templatePath) {
           throw new ResourceNotFoundException("null template");
       }
+      final String fragmentKey = this.fragmentKey(context, params, templatePath, arguments);
+      if (null != fragmentKey) {
+        return this.renderFragment(context, writer, templatePath, fragmentKey);
+      }
       Template t = loadTemplate(context, templatePath);
       return this.renderTemplate(context, writer, t, templatePath);
     } catch(ParseErrorException|ResourceNotFoundException rnfe){
@@ -109,6 +131,120 @@ abstract class DotDirective extends InputBase {
 
 
 
+  /**
+   * Writes the cached fragment and sets again the variables it left in the context, or renders the template
+   * recording its dependencies and caches the output. A fragment that left in the context a value that can not be
+   * kept with it is not cached, the page could read that value after the fragment
+   */
+  final boolean renderFragment(final InternalContextAdapter context, final Writer writer, final String templatePath,
+      final String fragmentKey) throws IOException {
+
+    final BlockFragmentCache cache = CacheLocator.getBlockFragmentCache();
+    final BlockFragmentCache.Fragment cached = cache.get(fragmentKey);
+    if (null != cached) {
+      restoreVariables(context, cached.getVariables());
+      writer.write(cached.getValue());
+      return true;
+    }
+
+    final Map<String, Object> before = snapshot(context);
+    final StringWriter fragment = new StringWriter();
+    final boolean rendered;
+    final Map<String, String> dependencies;
+    FragmentDependencies.start();
+    try {
+      rendered = this.renderTemplate(context, fragment, loadTemplate(context, templatePath), templatePath);
+    } finally {
+      dependencies = FragmentDependencies.end();
+    }
+
+    writer.write(fragment.toString());
+    if (rendered) {
+      final Map<String, Serializable> variables = changedVariables(before, context);
+      if (null != variables) {
+        cache.add(fragmentKey, fragment.toString(), variables, dependencies, FragmentDependencies.getTtl());
+      } else {
+        Logger.debug(this, () -> "Not caching " + templatePath + ", it left objects in the context");
+      }
+    }
+    return rendered;
+  }
+
+  /**
+   * Returns the variables of the context, by name
+   */
+  static Map<String, Object> snapshot(final InternalContextAdapter context) {
+    final Map<String, Object> variables = new HashMap<>();
+    for (final Object name : context.getKeys()) {
+      variables.put(String.valueOf(name), context.get(String.valueOf(name)));
+    }
+    return variables;
+  }
+
+  /**
+   * Returns the variables set or removed since the snapshot was taken, a null value for the removed ones. Returns
+   * null when one of them holds something else than strings, numbers, booleans, dates or collections of those
+   */
+  static Map<String, Serializable> changedVariables(final Map<String, Object> before,
+      final InternalContextAdapter context) {
+
+    final Map<String, Serializable> changed = new HashMap<>();
+    final Map<String, Object> after = snapshot(context);
+    for (final Map.Entry<String, Object> variable : after.entrySet()) {
+      if (!before.containsKey(variable.getKey()) || before.get(variable.getKey()) != variable.getValue()) {
+        final Serializable value = toSerializable(variable.getValue());
+        if (null == value && null != variable.getValue()) {
+          return null;
+        }
+        changed.put(variable.getKey(), value);
+      }
+    }
+    for (final String name : before.keySet()) {
+      if (!after.containsKey(name)) {
+        changed.put(name, null);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Sets the variables kept with a fragment in the context, copies of them so the page can not change the cached ones
+   */
+  static void restoreVariables(final InternalContextAdapter context, final Map<String, Serializable> variables) {
+    for (final Map.Entry<String, Serializable> variable : variables.entrySet()) {
+      if (null == variable.getValue()) {
+        context.remove(variable.getKey());
+      } else {
+        context.put(variable.getKey(), toSerializable(variable.getValue()));
+      }
+    }
+  }
+
+  /**
+   * Returns a copy of the value that can be kept with a fragment, null when it can not
+   */
+  private static Serializable toSerializable(final Object value) {
+    if (value instanceof String || value instanceof Number || value instanceof Boolean
+        || value instanceof Character) {
+      return (Serializable) value;
+    }
+    if (value instanceof Date) {
+      return new Date(((Date) value).getTime());
+    }
+    if (value instanceof Collection) {
+      final ArrayList<Serializable> list = new ArrayList<>();
+      for (final Object element : (Collection<?>) value) {
+        final Serializable copy = toSerializable(element);
+        if (null == copy && null != element) {
+          return null;
+        }
+        list.add(copy);
+      }
+      return list;
+    }
+    return null;
+  }
+
   final boolean renderTemplate(InternalContextAdapter context, final Writer writer, final Template t, final String templatePath)
       throws IOException, ResourceNotFoundException, ParseErrorException, MethodInvocationException {
 
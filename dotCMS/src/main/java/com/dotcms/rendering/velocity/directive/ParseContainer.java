@@ -1,12 +1,16 @@
 package com.dotcms.rendering.velocity.directive;
 
+import com.dotcms.rendering.velocity.services.FragmentDependencies;
 import com.dotmarketing.beans.MultiTree;
+import com.dotmarketing.util.PageMode;
+import com.dotmarketing.util.UtilMethods;
 import org.apache.velocity.context.Context;
 import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.exception.TemplateInitException;
 import org.apache.velocity.runtime.RuntimeServices;
 import org.apache.velocity.runtime.parser.node.Node;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.Writer;
 import java.util.Optional;
 /**
@@ -39,5 +43,42 @@ public class ParseContainer extends DotDirective {
 				templatePathResolver.getDefaultStrategy().apply(context, params, arguments);
 	}
 
+	/**
+	 * Containers of live pages that can be cached are kept as fragments, keyed by the page, the container and the
+	 * contents the page placed in it
+	 */
+	@Override
+	String fragmentKey(final InternalContextAdapter context, final RenderParams params, final String templatePath,
+			final String[] arguments) {
+
+		if (params.mode != PageMode.LIVE || !FragmentDependencies.isEnabled() || FragmentDependencies.isRecording()) {
+			return null;
+		}
+		final HttpServletRequest request = (HttpServletRequest) context.get("request");
+		final Object pageKey = null != request ? request.getAttribute(FragmentDependencies.PAGE_KEY_ATTRIBUTE) : null;
+		if (null == pageKey) {
+			return null;
+		}
+
+		final String uuid = (arguments.length > 1 && UtilMethods.isSet(arguments[1])) ? arguments[1] : DEFAULT_UUID_VALUE;
+		final StringBuilder key = new StringBuilder().append(pageKey).append('_').append(templatePath);
+		for (final Object name : context.getKeys()) {
+			final String variable = String.valueOf(name);
+			if (variable.startsWith("contentletList") && variable.endsWith(uuid)) {
+				key.append('_').append(variable).append('=').append(context.get(variable));
+			}
+		}
+		return key.toString();
+	}
+
+	@Override
+	protected void postRender(final InternalContextAdapter context) {
+		final Object container = context.get("CONTAINER_IDENTIFIER_INODE");
+		if (null != container) {
+			FragmentDependencies.recordContainer(container.toString());
+		}
+		super.postRender(context);
+	}
+
 
 }
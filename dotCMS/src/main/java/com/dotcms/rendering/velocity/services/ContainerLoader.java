@@ -79,11 +79,13 @@ public class ContainerLoader implements DotLoader {
                 CacheLocator.getVeloctyResourceCache();
 
         veloctyResourceCache.remove(key);
+        FragmentDependencies.containerChanged(container.getIdentifier());
     }
 
     public void invalidate(final FileAssetContainer fileAssetContainer, final Folder containerFolder, final String fileAssetName) throws DotDataException, DotSecurityException{
         final String cacheKeyMask = "%d%s";
         final DotResourceCache velocityResourceCache = CacheLocator.getVeloctyResourceCache();
+        FragmentDependencies.containerChanged(fileAssetContainer.getIdentifier());
         for(final PageMode mode:PageMode.values()){
         final VelocityResourceKey key = new VelocityResourceKey(fileAssetContainer, fileAssetContainer.getIdentifier(), mode);
 
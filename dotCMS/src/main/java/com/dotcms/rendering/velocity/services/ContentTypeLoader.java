@@ -299,6 +299,7 @@ public class ContentTypeLoader implements DotLoader {
         }
 
         if(contentType==null)return;
+        FragmentDependencies.contentTypeChanged(contentType.variable());
         String folderPath =  mode.name() + File.separator;
         String filePath = folderPath + contentType.inode() + "." + VelocityType.CONTENT_TYPE.fileExtension;
 
@@ -606,6 +606,7 @@ public class ContentletLoader implements DotLoader {
         VelocityResourceKey key = new VelocityResourceKey(asset, mode, asset.getLanguageId());
         DotResourceCache vc = CacheLocator.getVeloctyResourceCache();
         vc.remove(key);
+        FragmentDependencies.contentChanged(asset);
 
         List<Field> fields;
 
@@ -5,8 +5,12 @@ package com.dotcms.rendering.velocity.services;
 
 import com.dotcms.repackage.com.google.common.collect.ImmutableSet;
 import com.dotmarketing.business.Cachable;
+import com.dotmarketing.business.CacheLoader;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.util.Logger;
 import java.util.HashSet;
 import java.util.Map;
@@ -95,6 +99,38 @@ public class DotResourceCache implements ResourceCache, Cachable {
 
     }
 
+    /**
+     * Returns the cached resource, loading and caching it on a miss. Concurrent misses of the same
+     * resource wait for a single load, except for containers as all the paths of a container share
+     * the same cache entry
+     */
+    public Resource get(final Object resourceKey, final CacheLoader<Resource> loader) {
+
+        final VelocityResourceKey key = new VelocityResourceKey(resourceKey);
+
+        try {
+            if (key.type == VelocityType.CONTAINER) {
+                Resource resource = get(resourceKey);
+                if (resource == null) {
+                    resource = loader.load();
+                    put(resourceKey, resource);
+                }
+                return resource;
+            }
+
+            return cache.load(key.cacheKey, primaryGroup, () -> {
+                Resource resource = get(resourceKey);
+                if (resource == null) {
+                    resource = loader.load();
+                    put(resourceKey, resource);
+                }
+                return resource;
+            });
+        } catch (DotDataException | DotSecurityException e) {
+            throw new DotRuntimeException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public void initialize(RuntimeServices rs) {
         cache = CacheLocator.getCacheAdministrator();
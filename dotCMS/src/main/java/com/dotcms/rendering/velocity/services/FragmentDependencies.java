@@ -0,0 +1,176 @@
+package com.dotcms.rendering.velocity.services;
+
+import com.dotmarketing.business.BlockFragmentCache;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.UtilMethods;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records what a page fragment depends on while it is rendered, so the {@link BlockFragmentCache} only drops the
+ * fragments a change affects. A fragment depends on:
+ * <ul>
+ *     <li>{@code content:<identifier>}: every content rendered by {@code #contentDetail} or found by
+ *     {@code $dotcontent.find}</li>
+ *     <li>{@code type:<variable>}: the content type of every content rendered</li>
+ *     <li>{@code container:<identifier>}: the container parsed</li>
+ *     <li>{@code query:<variable>}: every {@code $dotcontent} query on a content type, or {@code query:*} for
+ *     the queries on any type</li>
+ * </ul>
+ * Saving, publishing or deleting a content invalidates the content, the queries on its type and the queries on
+ * any type, a content type change invalidates the type and the queries on it, and a container change the
+ * container. Only the outermost fragment being rendered is recorded and cached, so the dependencies of the
+ * fragments it includes end up in its own.
+ * <p>
+ * Fragment caching is off unless {@code VELOCITY_FRAGMENT_CACHE_ENABLED} is turned on, since the code of a
+ * container can read anything from the request, and only applies to pages cached by the
+ * {@link com.dotmarketing.business.BlockPageCache}, whose cache parameters become part of the fragment key.
+ * Fragments are kept at most {@code VELOCITY_FRAGMENT_CACHE_TTL_SECONDS}, anything not recorded here (navigation,
+ * other tools) is picked up after that.
+ * <p>
+ * The variables a fragment sets or removes in the Velocity context are kept with it and set again when it is
+ * served, so the rest of the page reads the same values on a hit and on a miss. Only strings, numbers, booleans,
+ * dates and collections of those can be kept, a fragment that leaves any other object in the context (a
+ * {@code #set} of a content map or a file, for instance) is rendered every time. Changes made to a collection or
+ * an object that was already in the context are not seen and not replayed.
+ *
+ * @author dotCMS
+ */
+public final class FragmentDependencies {
+
+    /**
+     * Request attribute holding the key of the page being rendered, set only when the page can be cached
+     */
+    public static final String PAGE_KEY_ATTRIBUTE = "com.dotcms.fragment.pagekey";
+
+    public static final String CONTENT   = "content:";
+    public static final String TYPE      = "type:";
+    public static final String CONTAINER = "container:";
+    public static final String QUERY     = "query:";
+    public static final String ANY_QUERY = QUERY + "*";
+
+    private static final Pattern QUERY_TYPE =
+            Pattern.compile("(?i)(?:contentType|structureName)\\s*:\\s*\"?([\\w-]+)");
+
+    private static final ThreadLocal<Map<String, String>> RECORDING = new ThreadLocal<>();
+
+    private FragmentDependencies() {
+    }
+
+    public static boolean isEnabled() {
+        return Config.getBooleanProperty("VELOCITY_FRAGMENT_CACHE_ENABLED", false);
+    }
+
+    public static int getTtl() {
+        return Config.getIntProperty("VELOCITY_FRAGMENT_CACHE_TTL_SECONDS", 3600);
+    }
+
+    /**
+     * True when a fragment is being rendered on the current thread
+     */
+    public static boolean isRecording() {
+        return RECORDING.get() != null;
+    }
+
+    /**
+     * Starts recording the dependencies of a fragment on the current thread
+     */
+    public static void start() {
+        RECORDING.set(new HashMap<>());
+    }
+
+    /**
+     * Stops recording and returns the stamps of the dependencies recorded, by dependency
+     */
+    public static Map<String, String> end() {
+        final Map<String, String> dependencies = RECORDING.get();
+        RECORDING.remove();
+        return dependencies;
+    }
+
+    public static void recordContent(final String identifier) {
+        if (UtilMethods.isSet(identifier)) {
+            record(CONTENT + identifier);
+        }
+    }
+
+    public static void recordContentType(final String variable) {
+        if (UtilMethods.isSet(variable)) {
+            record(TYPE + variable.toLowerCase());
+        }
+    }
+
+    public static void recordContainer(final String identifier) {
+        if (UtilMethods.isSet(identifier)) {
+            record(CONTAINER + identifier);
+        }
+    }
+
+    public static void recordQuery(final String query) {
+        if (!isRecording()) {
+            return;
+        }
+        boolean typed = false;
+        if (query != null) {
+            final Matcher matcher = QUERY_TYPE.matcher(query);
+            while (matcher.find()) {
+                record(QUERY + matcher.group(1).toLowerCase());
+                typed = true;
+            }
+        }
+        if (!typed) {
+            record(ANY_QUERY);
+        }
+    }
+
+    private static void record(final String dependency) {
+        final Map<String, String> dependencies = RECORDING.get();
+        if (dependencies != null && !dependencies.containsKey(dependency)) {
+            dependencies.put(dependency, CacheLocator.getBlockFragmentCache().stamp(dependency));
+        }
+    }
+
+    /**
+     * Invalidates the fragments that rendered the content or ran a query its change can affect
+     */
+    public static void contentChanged(final Contentlet contentlet) {
+        if (!isEnabled() || contentlet == null) {
+            return;
+        }
+        final BlockFragmentCache cache = CacheLocator.getBlockFragmentCache();
+        if (UtilMethods.isSet(contentlet.getIdentifier())) {
+            cache.invalidate(CONTENT + contentlet.getIdentifier());
+        }
+        if (contentlet.getContentType() != null) {
+            cache.invalidate(QUERY + contentlet.getContentType().variable().toLowerCase());
+        }
+        cache.invalidate(ANY_QUERY);
+    }
+
+    /**
+     * Invalidates the fragments that rendered content of the type or ran a query on it
+     */
+    public static void contentTypeChanged(final String variable) {
+        if (!isEnabled() || !UtilMethods.isSet(variable)) {
+            return;
+        }
+        final BlockFragmentCache cache = CacheLocator.getBlockFragmentCache();
+        cache.invalidate(TYPE + variable.toLowerCase());
+        cache.invalidate(QUERY + variable.toLowerCase());
+    }
+
+    /**
+     * Invalidates the fragments that parsed the container
+     */
+    public static void containerChanged(final String identifier) {
+        if (isEnabled() && UtilMethods.isSet(identifier)) {
+            CacheLocator.getBlockFragmentCache().invalidate(CONTAINER + identifier);
+        }
+    }
+
+}
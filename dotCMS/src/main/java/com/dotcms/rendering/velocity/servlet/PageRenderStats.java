@@ -0,0 +1,99 @@
+package com.dotcms.rendering.velocity.servlet;
+
+import com.dotmarketing.util.Logger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Render time and size of the live pages. Every page rendered is logged at debug level with its render time and
+ * bytes, and the totals are exposed by the {@value #MBEAN_OBJECT_NAME} MBean.
+ *
+ * @author dotCMS
+ */
+public class PageRenderStats implements PageRenderStatsMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=PageRenderStats";
+
+    private static final PageRenderStats INSTANCE = new PageRenderStats();
+
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder bytesRendered = new LongAdder();
+    private final LongAdder renderMillis = new LongAdder();
+    private final LongAccumulator maxRenderMillis = new LongAccumulator(Math::max, 0);
+
+    private PageRenderStats() {
+    }
+
+    public static PageRenderStats getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * Records a page rendered
+     *
+     * @param uri the uri of the page
+     * @param bytes bytes written to the response
+     * @param nanos time spent rendering
+     */
+    void rendered(final String uri, final long bytes, final long nanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        rendered.increment();
+        bytesRendered.add(bytes);
+        renderMillis.add(millis);
+        maxRenderMillis.accumulate(millis);
+        Logger.debug(this, () -> "Rendered " + uri + " in " + millis + "ms, " + bytes + " bytes");
+    }
+
+    /**
+     * Records a page served from the page cache
+     */
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    @Override
+    public long getRendered() {
+        return rendered.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getBytesRendered() {
+        return bytesRendered.sum();
+    }
+
+    @Override
+    public long getRenderMillis() {
+        return renderMillis.sum();
+    }
+
+    @Override
+    public long getMaxRenderMillis() {
+        return maxRenderMillis.get();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rendered", getRendered());
+        stats.put("cacheHits", getCacheHits());
+        stats.put("bytesRendered", getBytesRendered());
+        stats.put("renderMillis", getRenderMillis());
+        stats.put("maxRenderMillis", getMaxRenderMillis());
+        return stats;
+    }
+
+} // E:O:F:PageRenderStats.
@@ -0,0 +1,47 @@
+package com.dotcms.rendering.velocity.servlet;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link PageRenderStats}, the live pages rendered and served
+ */
+public interface PageRenderStatsMBean extends DotMBean {
+
+    /**
+     * Live pages rendered
+     * @return long
+     */
+    public long getRendered();
+
+    /**
+     * Live pages served from the page cache
+     * @return long
+     */
+    public long getCacheHits();
+
+    /**
+     * Bytes written by the rendered pages
+     * @return long
+     */
+    public long getBytesRendered();
+
+    /**
+     * Millis spent rendering pages
+     * @return long
+     */
+    public long getRenderMillis();
+
+    /**
+     * Millis of the slowest page rendered
+     * @return long
+     */
+    public long getMaxRenderMillis();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:PageRenderStatsMBean.
@@ -0,0 +1,182 @@
+package com.dotcms.rendering.velocity.servlet;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writer the live pages are rendered to. It streams the page to the response through a char buffer that is reused
+ * by the next page rendered on the same thread, instead of rendering the whole page into a String first, and only
+ * keeps a copy of the page when it has to go to the page cache.
+ * <p>
+ * A page that is kept is trimmed on the fly, as the cached pages always were: leading whitespace is dropped and
+ * whitespace is held back until something else follows it, so the trailing whitespace is never written. When
+ * {@code flushAfterHead} is on the response is flushed as soon as the {@code </head>} tag is written, so the
+ * browser can start loading the resources of the page while the body is rendered. That commits the response,
+ * the headers, cookies, redirects and status the body sets after it are lost.
+ *
+ * @author dotCMS
+ */
+final class StreamingPageWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEAD_END = "</head>".toCharArray();
+    private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<>();
+
+    private final CountingOutputStream bytes;
+    private final Writer out;
+    private final StringBuilder page;
+    private final boolean flushAfterHead;
+    private final StringBuilder whitespace = new StringBuilder();
+
+    private char[] buffer;
+    private int count;
+    private boolean started;
+    private int headMatched;
+    private boolean headFlushed;
+
+    /**
+     * @param out the output stream of the response
+     * @param keepPage true to keep a copy of the page, trimmed, to add it to the page cache
+     * @param flushAfterHead true to flush the response once the head of the page is written
+     */
+    StreamingPageWriter(final OutputStream out, final boolean keepPage, final boolean flushAfterHead) {
+        this.bytes = new CountingOutputStream(out);
+        this.out = new OutputStreamWriter(bytes);
+        this.page = keepPage ? new StringBuilder(BUFFER_SIZE) : null;
+        this.flushAfterHead = flushAfterHead;
+
+        // the buffer is taken from the thread while in use, so a page rendered inside another gets its own
+        final char[] pooled = BUFFERS.get();
+        if (pooled != null) {
+            BUFFERS.remove();
+            this.buffer = pooled;
+        } else {
+            this.buffer = new char[BUFFER_SIZE];
+        }
+    }
+
+    @Override
+    public void write(final char[] chars, final int offset, final int length) throws IOException {
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            final char c = chars[i];
+            if (c <= ' ' && page != null) {
+                if (started) {
+                    whitespace.append(c);
+                }
+                headMatched = 0;
+                continue;
+            }
+
+            started = true;
+            if (whitespace.length() > 0) {
+                for (int j = 0; j < whitespace.length(); j++) {
+                    put(whitespace.charAt(j));
+                }
+                whitespace.setLength(0);
+            }
+            put(c);
+
+            if (flushAfterHead && !headFlushed) {
+                matchHead(c);
+            }
+        }
+    }
+
+    private void matchHead(final char c) throws IOException {
+        final char lower = Character.toLowerCase(c);
+        if (lower == HEAD_END[headMatched]) {
+            if (++headMatched == HEAD_END.length) {
+                headFlushed = true;
+                drain();
+                out.flush();
+            }
+        } else {
+            headMatched = lower == HEAD_END[0] ? 1 : 0;
+        }
+    }
+
+    private void put(final char c) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = c;
+    }
+
+    private void drain() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            if (page != null) {
+                page.append(buffer, 0, count);
+            }
+            count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes what is left and gives the buffer back to the thread, the response stream is left open. The trailing
+     * whitespace of a kept page is dropped
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            BUFFERS.set(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * The page written, trimmed, only kept when the writer was asked to
+     */
+    String getPage() {
+        return page == null ? null : page.toString();
+    }
+
+    /**
+     * Bytes written to the response so far
+     */
+    long getBytes() {
+        return bytes.count;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.dotcms.rendering.velocity.servlet;
 
 import com.dotcms.enterprise.LicenseUtil;
+import com.dotcms.rendering.velocity.services.FragmentDependencies;
 import com.dotcms.rendering.velocity.util.VelocityUtil;
 import com.dotcms.visitor.domain.Visitor;
 import com.dotmarketing.beans.Host;
@@ -148,21 +149,28 @@ public class VelocityLiveMode extends VelocityModeHandler {
                 if (cachedPage != null) {
                     // have cached response and are not refreshing, send it
                     out.write(cachedPage.getBytes());
+                    PageRenderStats.getInstance().cacheHit();
                     return;
                 }
+                // the containers of a page that can be cached are cached as fragments with the same parameters
+                request.setAttribute(FragmentDependencies.PAGE_KEY_ATTRIBUTE, key + "_" + cacheParameters.getKey());
             }
 
 
-            try (Writer tmpOut = (key != null) ? new StringWriter(4096) : new BufferedWriter(new OutputStreamWriter(out))) {
-
-                this.getTemplate(htmlPage, mode).merge(context, tmpOut);
+            // the page is streamed to the response, a copy is only kept when it goes to the page cache
+            final long renderStart = System.nanoTime();
+            final StreamingPageWriter pageWriter = new StreamingPageWriter(out, key != null,
+                    Config.getBooleanProperty("VELOCITY_LIVE_FLUSH_AFTER_HEAD", false));
+            // an exception closing the writer is added to the one of the render instead of replacing it
+            try (StreamingPageWriter writer = pageWriter) {
+                this.getTemplate(htmlPage, mode).merge(context, writer);
+            } finally {
+                PageRenderStats.getInstance().rendered(uri, pageWriter.getBytes(), System.nanoTime() - renderStart);
+            }
 
-                if (key != null) {
-                    String trimmedPage = tmpOut.toString().trim();
-                    out.write(trimmedPage.getBytes());
-                    synchronized (key.intern()) {
-                        CacheLocator.getBlockPageCache().add(htmlPage, trimmedPage, cacheParameters);
-                    }
+            if (key != null) {
+                synchronized (key.intern()) {
+                    CacheLocator.getBlockPageCache().add(htmlPage, pageWriter.getPage(), cacheParameters);
                 }
             }
         } finally {
@@ -34,6 +34,7 @@ import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.PageMode;
 import com.dotmarketing.util.PaginatedArrayList;
 import com.dotmarketing.util.UtilMethods;
+import com.dotcms.rendering.velocity.services.FragmentDependencies;
 import com.dotcms.rendering.velocity.viewtools.content.util.ContentUtils;
 import com.liferay.portal.model.User;
 
@@ -97,10 +98,14 @@ public class ContentTool implements ViewTool {
 		long sessionLang=WebAPILocator.getLanguageWebAPI().getLanguage(req).getId();
 		
 	    try {
+    		// recorded before the load, so a change made while the content is loaded invalidates the fragment
+    		FragmentDependencies.recordContent(inodeOrIdentifier);
     		Contentlet c = ContentUtils.find(inodeOrIdentifier, user, EDIT_OR_PREVIEW_MODE, sessionLang);
     		if(c== null || !InodeUtils.isSet(c.getInode())){
     			return null;
     		}
+    		// found by inode (or a recurrence id): that version does not change, only its deletion has to be caught
+    		FragmentDependencies.recordContent(c.getIdentifier());
     		return new ContentMap(c, user, EDIT_OR_PREVIEW_MODE,currentHost,context);
 	    }
 	    catch(Throwable ex) {
@@ -152,6 +157,43 @@ public class ContentTool implements ViewTool {
 	    return pull(query,-1,limit,sort);
 	}
 	
+	/**
+	 * Works like {@link #pull(String, int, int, String)} but pages with a cursor instead of an offset, deep pages are as
+	 * fast as the first one.<br />
+	 * EXAMPLE:<br />
+	 * #set($page = $dotcontent.pullAfter('+structureName:newsItem', 20, 'modDate desc', $request.getParameter('cursor')))<br />
+	 * #foreach($con in $page)<br />
+	 * 		$con.headline<br />
+	 * #end<br />
+	 * #if($page.nextCursor)<a href="?cursor=$page.nextCursor">Next</a>#end<br />
+	 * Returns empty List if no results are found
+	 * @param query - Lucene Query used to search for content - Will append live, working, deleted, and language if not passed
+	 * @param limit the size of the page
+	 * @param sort - Velocity variable name to sort by.  this is a string and can contain multiple values "sort1 acs, sort2 desc"
+	 * @param cursor - the nextCursor of the previous page, null or empty for the first page
+	 * @return Returns empty List if no results are found
+	 */
+	public PaginatedArrayList<ContentMap> pullAfter(String query, int limit, String sort, String cursor){
+	    try {
+    	    PaginatedArrayList<ContentMap> ret = new PaginatedArrayList<ContentMap>();
+
+    	    PaginatedArrayList<Contentlet> cons = ContentUtils.pullAfter(addDefaultsToQuery(query), limit, sort, cursor, user, false);
+    	    for(Contentlet cc : cons) {
+    	    	ret.add(new ContentMap(cc,user,EDIT_OR_PREVIEW_MODE,currentHost,context));
+    	    }
+    	    ret.setQuery(cons.getQuery());
+    	    ret.setTotalResults(cons.getTotalResults());
+    	    ret.setNextCursor(cons.getNextCursor());
+    		return ret;
+	    }
+	    catch(Throwable ex) {
+            if(Config.getBooleanProperty("ENABLE_FRONTEND_STACKTRACE", false)) {
+                Logger.error(this,"error in ContentTool.pullAfter. URL: "+req.getRequestURL().toString(),ex);
+            }
+            throw new RuntimeException(ex);
+        }
+	}
+
 	public PaginatedArrayList<ContentMap> pull(String query, int offset,int limit, String sort){
 	    try {
     	    PaginatedArrayList<ContentMap> ret = new PaginatedArrayList<ContentMap>();
@@ -297,6 +339,7 @@ public class ContentTool implements ViewTool {
 	 */
 	public long count(String query) {
 	    try {
+	        FragmentDependencies.recordQuery(query);
 	        return ContentUtils.count(query, user, tmDate);
 	    }
 	    catch(Throwable ex) {
@@ -526,6 +569,7 @@ public class ContentTool implements ViewTool {
 	}
 	
 	private String addDefaultsToQuery(String query){
+		FragmentDependencies.recordQuery(query);
 		String q = "";
 		
 		if(query != null)
@@ -165,6 +165,35 @@ public class ContentUtils {
 		    return pull(query,-1,limit,sort, user, tmDate);
 		}
 		
+		/**
+		 * Returns a page of the content that matches a query using a cursor instead of an offset, so deep pages are as
+		 * fast as the first one. The cursor of the next page is in {@link PaginatedArrayList#getNextCursor()} of the
+		 * returned list, null on the last page. Time machine dates are not applied to cursor paginated queries
+		 * @param query - Lucene Query used to search for content
+		 * @param limit the size of the page
+		 * @param sort - Velocity variable name to sort by.  this is a string and can contain multiple values "sort1 acs, sort2 desc"
+		 * @param cursor - the cursor returned with the previous page, null or empty for the first page
+		 * @return Returns empty List if no results are found
+		 */
+		public static PaginatedArrayList<Contentlet> pullAfter(String query, int limit, String sort, String cursor, User user, boolean respectFrontendRoles){
+		    PaginatedArrayList<Contentlet> ret = new PaginatedArrayList<Contentlet>();
+		    try {
+		        PaginatedArrayList<Contentlet> conts = conAPI.searchAfter(query, limit, sort, cursor, user, respectFrontendRoles);
+		        ret.addAll(conts);
+		        ret.setTotalResults(conts.getTotalResults());
+		        ret.setNextCursor(conts.getNextCursor());
+		        ret.setQuery(query);
+		    }
+		    catch (IllegalArgumentException e) {
+		        throw e;
+		    }
+		    catch (Throwable e) {
+		        Logger.warn(ContentUtils.class, e.getMessage());
+		        Logger.debug(ContentUtils.class, e.getMessage(), e);
+		    }
+		    return ret;
+		}
+
 		public static PaginatedArrayList<Contentlet> pull(String query, int offset,int limit, String sort, User user, String tmDate){
 			return pull(query, offset, limit, sort, user, tmDate, false);
 		}
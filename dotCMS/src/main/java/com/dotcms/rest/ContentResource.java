@@ -57,6 +57,7 @@ import com.dotmarketing.portlets.workflows.model.WorkflowAction;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.PaginatedArrayList;
 import com.dotmarketing.util.SecurityLogger;
 import com.dotmarketing.util.UUIDUtil;
 import com.dotmarketing.util.UtilMethods;
@@ -105,6 +106,7 @@ public class ContentResource {
     private static final String REFERER = "referer";
     private static final String REQUEST_METHOD = "requestMethod";
     private static final String ACCEPT_LANGUAGE = "acceptLanguage";
+    private static final String FIRST_PAGE_CURSOR = "start";
 
     private final WebResource webResource = new WebResource();
     private final ContentHelper contentHelper = ContentHelper.getInstance();
@@ -430,6 +432,9 @@ public class ContentResource {
      *         2 --> The contentlet object will contain the related contentlets, which in turn will contain the identifiers of their related contentlets
      *         3 --> The contentlet object will contain the related contentlets, which in turn will contain a list of their related contentlets
      *         null --> Relationships will not be sent in the response
+     *         When a `cursor` param is sent with a query the results are paginated with a cursor instead of the offset,
+     *         `start` asks for the first page and the json response has the `cursor` of the next page, missing on the last one.
+     *         i.e. curl -XGET http://localhost:8080/api/content/query/+structurename:webpagecontent/limit/20/cursor/start
      */
     @GET
     @Path("/{params:.*}")
@@ -449,6 +454,7 @@ public class ContentResource {
         final String limitStr = paramsMap.get(RESTParams.LIMIT.getValue());
         final String offsetStr = paramsMap.get(RESTParams.OFFSET.getValue());
         final String inode = paramsMap.get(RESTParams.INODE.getValue());
+        final String cursor = paramsMap.get(RESTParams.CURSOR.getValue());
         final String respectFrontEndRolesKey = RESTParams.RESPECT_FRONT_END_ROLES.getValue().toLowerCase();
         final boolean respectFrontendRoles = UtilMethods.isSet(paramsMap.get(respectFrontEndRolesKey))
                 ? Boolean.valueOf(paramsMap.get(respectFrontEndRolesKey))
@@ -499,9 +505,18 @@ public class ContentResource {
             } else if (queryPassed = UtilMethods.isSet(query)) {
                 String tmDate = (String) request.getSession().getAttribute("tm_date");
                 String luceneQuery = processQuery(query);
-                contentlets = ContentUtils.pull(luceneQuery, offset, limit, orderBy, user, tmDate);
+                if (UtilMethods.isSet(cursor)) {
+                    contentlets = ContentUtils.pullAfter(luceneQuery, limit, orderBy,
+                            FIRST_PAGE_CURSOR.equals(cursor) ? null : cursor, user, respectFrontendRoles);
+                } else {
+                    contentlets = ContentUtils.pull(luceneQuery, offset, limit, orderBy, user, tmDate);
+                }
             }
 
+        } catch (IllegalArgumentException e) {
+
+            Logger.debug(this, "Invalid query: " + e.getMessage(), e);
+            return ExceptionMapperUtil.createResponse(null, e.getMessage());
         } catch (DotSecurityException e) {
 
             Logger.debug(this, "Permission error: " + e.getMessage(), e);
@@ -804,6 +819,9 @@ public class ContentResource {
 
         try {
             json.put("contentlets", jsonCons);
+            if (cons instanceof PaginatedArrayList && ((PaginatedArrayList) cons).getNextCursor() != null) {
+                json.put(RESTParams.CURSOR.getValue(), ((PaginatedArrayList) cons).getNextCursor());
+            }
         } catch (JSONException e) {
             Logger.warn(this.getClass(), "unable to create JSONObject");
             Logger.debug(this.getClass(), "unable to create JSONObject", e);
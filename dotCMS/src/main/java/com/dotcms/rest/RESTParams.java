@@ -15,7 +15,8 @@ public enum RESTParams {
     CALLBACK ("callback"),
 	INODE ("inode"),
 	RESPECT_FRONT_END_ROLES ("respectFrontendRoles"),
-	DEPTH ("depth");
+	DEPTH ("depth"),
+	CURSOR ("cursor");
 
 	private final String  value;
 
@@ -0,0 +1,78 @@
+package com.dotcms.rest.api.v1.system.cache;
+
+import com.dotcms.cache.DotCacheStats;
+import com.dotcms.repackage.javax.ws.rs.GET;
+import com.dotcms.repackage.javax.ws.rs.Path;
+import com.dotcms.repackage.javax.ws.rs.PathParam;
+import com.dotcms.repackage.javax.ws.rs.Produces;
+import com.dotcms.repackage.javax.ws.rs.core.Context;
+import com.dotcms.repackage.javax.ws.rs.core.MediaType;
+import com.dotcms.repackage.javax.ws.rs.core.Response;
+import com.dotcms.repackage.org.glassfish.jersey.server.JSONP;
+import com.dotcms.rest.InitDataObject;
+import com.dotcms.rest.ResponseEntityView;
+import com.dotcms.rest.WebResource;
+import com.dotcms.rest.annotation.NoCache;
+import com.dotcms.rest.exception.mapper.ExceptionMapperUtil;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.util.SecurityLogger;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Cache stats endpoint for REST calls version 1, returns for every cache provider the stats of its
+ * regions (size, weight and budget, hit ratio, evictions...), same as the {@link DotCacheStats} MBean
+ */
+@Path("/v1/cache")
+public class CacheStatsResource {
+
+	private final WebResource webResource;
+
+	public CacheStatsResource() {
+		this.webResource = new WebResource();
+	}
+
+	protected InitDataObject auth(final HttpServletRequest request) throws DotSecurityException, DotDataException {
+		final InitDataObject init = webResource.init(null, true, request, true, null);
+		if (!APILocator.getLayoutAPI().doesUserHaveAccessToPortlet("maintenance", init.getUser())) {
+			throw new DotSecurityException("unauthorized");
+		}
+		return init;
+	}
+
+	@GET
+	@JSONP
+	@NoCache
+	@Path("/stats")
+	@Produces({ MediaType.APPLICATION_JSON, "application/javascript" })
+	public Response stats(@Context final HttpServletRequest request) {
+		try {
+			auth(request);
+			return Response.ok(new ResponseEntityView(DotCacheStats.getInstance().getStats())).build();
+		} catch (DotSecurityException e) {
+			SecurityLogger.logInfo(this.getClass(), "Access denied on cache stats from " + request.getRemoteAddr());
+			return ExceptionMapperUtil.createResponse(e, Response.Status.UNAUTHORIZED);
+		} catch (Exception e) {
+			return ExceptionMapperUtil.createResponse(e, Response.Status.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	@GET
+	@JSONP
+	@NoCache
+	@Path("/stats/{provider}")
+	@Produces({ MediaType.APPLICATION_JSON, "application/javascript" })
+	public Response providerStats(@Context final HttpServletRequest request, @PathParam("provider") final String provider) {
+		try {
+			auth(request);
+			return Response.ok(new ResponseEntityView(DotCacheStats.getInstance().getRegionStats(provider))).build();
+		} catch (DotSecurityException e) {
+			SecurityLogger.logInfo(this.getClass(), "Access denied on cache stats from " + request.getRemoteAddr());
+			return ExceptionMapperUtil.createResponse(e, Response.Status.UNAUTHORIZED);
+		} catch (Exception e) {
+			return ExceptionMapperUtil.createResponse(e, Response.Status.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+}
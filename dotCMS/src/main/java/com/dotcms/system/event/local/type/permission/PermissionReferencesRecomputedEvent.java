@@ -0,0 +1,46 @@
+package com.dotcms.system.event.local.type.permission;
+
+/**
+ * Object used to represent the progress of the background recomputation of the permission references under a
+ * permissionable that got new inheritable permissions, one event is triggered for every chunk of assets warmed
+ *
+ * @author dotCMS
+ */
+public class PermissionReferencesRecomputedEvent {
+
+    private final String permissionId;
+    private final int warmed;
+    private final int total;
+
+    public PermissionReferencesRecomputedEvent(final String permissionId, final int warmed, final int total) {
+        this.permissionId = permissionId;
+        this.warmed = warmed;
+        this.total = total;
+    }
+
+    /**
+     * Permission id of the permissionable whose children got their references recomputed
+     */
+    public String getPermissionId() {
+        return permissionId;
+    }
+
+    /**
+     * Assets whose permissions are back in the cache so far
+     */
+    public int getWarmed() {
+        return warmed;
+    }
+
+    /**
+     * Assets affected by the change
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean isDone() {
+        return warmed >= total;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.dotmarketing.business;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This cache keeps the rendered output of page fragments, the containers parsed by a page, along with the
+ * dependencies they had while being rendered: the contents, content types, containers and content queries they
+ * used. Every dependency has a stamp that changes whenever it is invalidated, a fragment is only served while the
+ * stamps of all its dependencies are the ones it was rendered with, so a change only re-renders the fragments that
+ * depended on it. The variables a fragment left in the Velocity context are kept with it, so they can be set again
+ * when it is served.
+ *
+ * @author dotCMS
+ */
+public abstract class BlockFragmentCache implements Cachable {
+
+	@Override
+	public abstract String getPrimaryGroup();
+
+	@Override
+	public abstract String[] getGroups();
+
+	@Override
+	public abstract void clearCache();
+
+	/**
+	 * Adds a rendered fragment to the cache.
+	 *
+	 * @param key
+	 *            - The key of the fragment.
+	 * @param value
+	 *            - The rendered output.
+	 * @param variables
+	 *            - The variables the fragment set in the context, by name, a null value for the ones it removed.
+	 * @param stamps
+	 *            - The stamps of the dependencies of the fragment, by dependency.
+	 * @param ttl
+	 *            - Seconds the fragment is kept at most.
+	 */
+	abstract public void add(String key, String value, Map<String, Serializable> variables, Map<String, String> stamps,
+			int ttl);
+
+	/**
+	 * Retrieves a fragment, null when it is not cached, expired or any of its dependencies changed.
+	 *
+	 * @param key
+	 *            - The key of the fragment.
+	 * @return
+	 */
+	abstract public Fragment get(String key);
+
+	/**
+	 * Returns the current stamp of a dependency, a new one is created when it has none.
+	 *
+	 * @param dependency
+	 *            - The dependency, e.g. {@code content:<identifier>}.
+	 * @return
+	 */
+	abstract public String stamp(String dependency);
+
+	/**
+	 * Invalidates the fragments that depend on the given dependency, in every server of the cluster.
+	 *
+	 * @param dependency
+	 *            - The dependency that changed.
+	 */
+	abstract public void invalidate(String dependency);
+
+	/**
+	 * A rendered fragment, the variables it left in the context and the stamps of its dependencies
+	 */
+	public static final class Fragment implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String value;
+		private final HashMap<String, Serializable> variables;
+		final HashMap<String, String> stamps;
+		final int ttl;
+		final long created = System.currentTimeMillis();
+
+		Fragment(final String value, final Map<String, Serializable> variables, final Map<String, String> stamps,
+				final int ttl) {
+			this.value = value;
+			this.variables = new HashMap<>(variables);
+			this.stamps = new HashMap<>(stamps);
+			this.ttl = ttl;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		/**
+		 * The variables to set in the context when the fragment is served, a null value for the ones to remove
+		 */
+		public Map<String, Serializable> getVariables() {
+			return variables;
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.dotmarketing.business;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+
+import com.dotcms.enterprise.LicenseUtil;
+import com.dotcms.enterprise.license.LicenseLevel;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Provides the caching implementation for page fragments. The fragments are kept in the
+ * {@code BlockFragmentCache} group and the stamps of their dependencies in the
+ * {@code BlockFragmentDependencyCache} group. Invalidating a dependency removes its stamp, a removal reaches every
+ * server of the cluster, and the next fragment that records it gets a new one, so every fragment rendered before
+ * the change no longer matches.
+ *
+ * @author dotCMS
+ */
+public class BlockFragmentCacheImpl extends BlockFragmentCache {
+
+	private final boolean canCache;
+	private final DotCacheAdministrator cache;
+	private static final String primaryCacheGroup = "BlockFragmentCache";
+	private static final String dependencyCacheGroup = "BlockFragmentDependencyCache";
+
+	/**
+	 * Default constructor. Initializes the internal caching structures.
+	 */
+	public BlockFragmentCacheImpl() {
+		this.cache = CacheLocator.getCacheAdministrator();
+		this.canCache = LicenseUtil.getLevel() >= LicenseLevel.COMMUNITY.level;
+	}
+
+	@Override
+	public String getPrimaryGroup() {
+		return primaryCacheGroup;
+	}
+
+	@Override
+	public String[] getGroups() {
+		return new String[] { primaryCacheGroup, dependencyCacheGroup };
+	}
+
+	@Override
+	public void clearCache() {
+		cache.flushGroup(primaryCacheGroup);
+		cache.flushGroup(dependencyCacheGroup);
+	}
+
+	@Override
+	public void add(final String key, final String value, final Map<String, Serializable> variables,
+			final Map<String, String> stamps, final int ttl) {
+		if (key == null || value == null || variables == null || stamps == null) {
+			return;
+		}
+		cache.put(key, new Fragment(value, variables, stamps, ttl), primaryCacheGroup);
+	}
+
+	@Override
+	public Fragment get(final String key) {
+		if (!canCache || key == null) {
+			return null;
+		}
+		try {
+			final Fragment fragment = (Fragment) cache.get(key, primaryCacheGroup);
+			if (fragment == null) {
+				return null;
+			}
+			if (fragment.created + (fragment.ttl * 1000L) > System.currentTimeMillis() && isCurrent(fragment)) {
+				return fragment;
+			}
+			cache.remove(key, primaryCacheGroup);
+		} catch (DotCacheException e) {
+			Logger.debug(this.getClass(), "cache entry :" + key + " not found");
+		}
+		return null;
+	}
+
+	private boolean isCurrent(final Fragment fragment) throws DotCacheException {
+		for (final Map.Entry<String, String> dependency : fragment.stamps.entrySet()) {
+			if (!dependency.getValue().equals(cache.get(dependency.getKey(), dependencyCacheGroup))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String stamp(final String dependency) {
+		try {
+			final String stamp = (String) cache.get(dependency, dependencyCacheGroup);
+			if (stamp != null) {
+				return stamp;
+			}
+		} catch (DotCacheException e) {
+			Logger.debug(this.getClass(), "cache entry :" + dependency + " not found");
+		}
+		final String stamp = UUID.randomUUID().toString();
+		cache.put(dependency, stamp, dependencyCacheGroup);
+		return stamp;
+	}
+
+	@Override
+	public void invalidate(final String dependency) {
+		try {
+			cache.remove(dependency, dependencyCacheGroup);
+		} catch (Exception e) {
+			Logger.debug(this, "Cache not able to be removed", e);
+		}
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.dotmarketing.business;
+
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+
+/**
+ * Loads the value of a cache entry on a miss, see {@link DotCacheAdministrator#get(String, String, CacheLoader)}
+ *
+ * @param <T> type of the cached value
+ */
+@FunctionalInterface
+public interface CacheLoader<T> {
+
+	/**
+	 * Loads the value, null if there is nothing to cache
+	 */
+	T load () throws DotDataException, DotSecurityException;
+
+}
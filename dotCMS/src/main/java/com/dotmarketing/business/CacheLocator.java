@@ -28,7 +28,9 @@ import com.dotmarketing.cache.MultiTreeCache;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.FlushCacheRunnable;
 import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.logConsole.model.LogMapperCache;
 import com.dotmarketing.logConsole.model.LogMapperCacheImpl;
 import com.dotmarketing.plugin.business.PluginCache;
@@ -68,7 +70,9 @@ import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.WebKeys;
 
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -95,6 +99,11 @@ public class CacheLocator extends Locator<CacheIndex>{
         public void flushAlLocalOnly(boolean ignoreDistributed) { dotcache.flushAlLocalOnly(ignoreDistributed); }
         public void flushGroupLocalOnly(String group, boolean ignoreDistributed) { dotcache.flushGroupLocalOnly(group, ignoreDistributed); }
         public Object get(String key, String group) throws DotCacheException { return dotcache.get(key, group); }
+        public Map<String, Object> getAll(Collection<String> keys, String group) { return dotcache.getAll(keys, group); }
+        public <T> T load(String key, String group, CacheLoader<T> loader) throws DotDataException, DotSecurityException {
+            // a value loaded inside a transaction can't be shared with other threads, it is loaded and put through this wrapper
+            return DbConnectionFactory.inTransaction() ? DotCacheAdministrator.super.load(key, group, loader) : dotcache.load(key, group, loader);
+        }
         public void remove(String key, String group) { dotcache.remove(key,group); }
         public void removeLocalOnly(String key, String group, boolean ignoreDistributed) { dotcache.removeLocalOnly(key, group, ignoreDistributed); }
         public void shutdown() { dotcache.shutdown(); }
@@ -257,6 +266,10 @@ public class CacheLocator extends Locator<CacheIndex>{
 		return (BlockPageCache) getInstance(CacheIndex.Block_Page);
 	}
 
+	public static BlockFragmentCache getBlockFragmentCache() {
+		return (BlockFragmentCache) getInstance(CacheIndex.Block_Fragment);
+	}
+
 	public static VersionableCache getVersionableCache() {
 		return (VersionableCache)getInstance(CacheIndex.Versionable);
 	}
@@ -409,6 +422,7 @@ enum CacheIndex
 	HostVariables("Host Variables"),
 	Block_Directive("Block Directive"),
 	Block_Page("Block Page"),
+	Block_Fragment("Block Fragment"),
 	Indicies("Indicies"),
 	NavTool("Navigation Tool"),
 	PublishingEndPoint("PublishingEndPoint Cache"),
@@ -452,6 +466,7 @@ enum CacheIndex
 	      	case HostVariables : return new HostVariablesCacheImpl();
 	      	case Block_Directive : return new BlockDirectiveCacheImpl();
 	      	case Block_Page : return new BlockPageCacheImpl();
+	      	case Block_Fragment : return new BlockFragmentCacheImpl();
 	      	case Versionable : return new VersionableCacheImpl();
 	      	case FolderCache : return new FolderCacheImpl();
 	      	case WorkflowCache : return new WorkflowCacheImpl();
@@ -12,7 +12,11 @@ import com.dotcms.enterprise.cache.provider.CacheProviderAPI;
 import com.dotcms.enterprise.cluster.ClusterFactory;
 import com.dotcms.repackage.com.google.common.cache.RemovalListener;
 import com.dotcms.repackage.com.google.common.cache.RemovalNotification;
+import com.dotmarketing.business.cache.CacheSingleFlight;
+import com.dotmarketing.business.cache.CacheVersionTracker;
+import com.dotmarketing.business.cache.provider.CacheProvider;
 import com.dotmarketing.business.cache.provider.CacheProviderStats;
+import com.dotmarketing.business.cache.transport.CacheInvalidationBatcher;
 import com.dotmarketing.business.cache.transport.CacheTransport;
 import com.dotmarketing.business.cache.transport.CacheTransportException;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
@@ -21,6 +25,7 @@ import com.dotmarketing.db.FlushCacheRunnable;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
@@ -44,6 +49,9 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 	private DistributedJournalAPI journalAPI;
 	private CacheProviderAPI cacheProviderAPI;
 	private boolean useTransportChannel = false;
+	private final CacheInvalidationBatcher invalidationBatcher;
+	private final CacheVersionTracker versionTracker;
+	private final CacheSingleFlight singleFlight;
 
 	public static final String TEST_MESSAGE = "HELLO CLUSTER!";
 	public static final String TEST_MESSAGE_NODE = "TESTNODE";
@@ -59,6 +67,9 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 	public void setTransport ( CacheTransport transport ) {
 
 		if ( getTransport() != null ) {
+			if ( invalidationBatcher != null ) {
+				invalidationBatcher.flush();
+			}
 			getTransport().shutdown();
 		}
 
@@ -79,6 +90,50 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		}
 
 		journalAPI = APILocator.getDistributedJournalAPI();
+
+		//Invalidations sent to the cluster are collected for a few milliseconds and sent as a single frame
+		if ( Config.getBooleanProperty("CACHE_INVALIDATION_BATCH_ENABLED", true) ) {
+			invalidationBatcher = new CacheInvalidationBatcher(this::getTransport,
+					Config.getLongProperty("CACHE_INVALIDATION_BATCH_WINDOW_MILLIS", 5),
+					Config.getIntProperty("CACHE_INVALIDATION_BATCH_MAX_KEYS", 5000));
+		} else {
+			invalidationBatcher = null;
+		}
+
+		//Groups whose entries and invalidations are version stamped, see CacheVersionTracker
+		Set<String> versionedGroups = new HashSet<>();
+		for ( String group : Config.getStringArrayProperty("CACHE_VERSIONED_GROUPS") ) {
+			if ( UtilMethods.isSet(group) ) {
+				versionedGroups.add(group.trim().toLowerCase());
+			}
+		}
+		versionTracker = versionedGroups.isEmpty() ? null
+				: new CacheVersionTracker(versionedGroups, Config.getIntProperty("CACHE_VERSIONED_GROUPS_MAX_KEYS", 100000));
+
+		//Concurrent misses of the same key wait for a single load, see load(String, String, CacheLoader)
+		singleFlight = Config.getBooleanProperty("CACHE_SINGLE_FLIGHT_ENABLED", true)
+				? new CacheSingleFlight(Config.getLongProperty("CACHE_SINGLE_FLIGHT_TIMEOUT_MILLIS", 5000)) : null;
+	}
+
+	/**
+	 * Returns the single flight used to collapse concurrent loads, null if disabled
+	 */
+	public CacheSingleFlight getSingleFlight () {
+		return singleFlight;
+	}
+
+	/**
+	 * Returns the version tracker of the versioned groups, null if no group is versioned
+	 */
+	public CacheVersionTracker getVersionTracker () {
+		return versionTracker;
+	}
+
+	/**
+	 * Returns the batcher used to send the invalidations to the cluster, null if batching is disabled
+	 */
+	public CacheInvalidationBatcher getInvalidationBatcher () {
+		return invalidationBatcher;
 	}
 
 	public void initProviders () {
@@ -235,7 +290,9 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		if ( useTransportChannel ) {
 
 			if (! cacheProviderAPI.isDistributed()) {
-				if ( getTransport() != null ) {
+				if ( invalidationBatcher != null ) {
+					invalidationBatcher.flushAll();
+				} else if ( getTransport() != null ) {
 					try {
 						getTransport().send("0:" + ROOT_GOUP);
 					} catch ( Exception e ) {
@@ -268,6 +325,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 		if ( useTransportChannel ) {
 			if (! cacheProviderAPI.isGroupDistributed( group )) {
+				if ( invalidationBatcher != null ) {
+					invalidationBatcher.flushGroup(group);
+					return;
+				}
 				try {
 					cacheTransport.send("0:" + group);
 				} catch (Exception e) {
@@ -279,6 +340,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 	public void flushAlLocalOnly (boolean ignoreDistributed) {
 
+		if ( versionTracker != null ) {
+			versionTracker.flushAll();
+		}
+
 		//Invalidates all the Cache
 		cacheProviderAPI.removeAll(ignoreDistributed);
 	}
@@ -291,6 +356,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 		group = group.toLowerCase();
 
+		if ( versionTracker != null ) {
+			versionTracker.flush(group);
+		}
+
 		//Invalidates the Cache for the given group
 		cacheProviderAPI.remove(group, ignoreDistributed);
 	}
@@ -305,7 +374,139 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		group = group.toLowerCase();
 
 		//Find the Object for a given key in a given group
-		return cacheProviderAPI.get(group, key);
+		Object value = cacheProviderAPI.get(group, key);
+		if ( value == null && versionTracker != null ) {
+			versionTracker.loadStarted(group, key);
+		}
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.dotmarketing.business.DotCacheAdministrator#getAll(java.util.Collection,
+	 * java.lang.String)
+	 */
+	@Override
+	public Map<String, Object> getAll ( Collection<String> keys, String group ) {
+
+		if ( keys == null || keys.isEmpty() || group == null ) {
+			return new HashMap<>();
+		}
+
+		final String g = group.toLowerCase();
+		final List<CacheProvider> chain = getChain(g);
+		if ( chain == null ) {
+			return DotCacheAdministrator.super.getAll(keys, group);
+		}
+
+		//The keys not found yet, lower cased as they are cached, with the keys they were asked with
+		final Map<String, String> missing = new LinkedHashMap<>();
+		for ( String key : keys ) {
+			if ( key != null ) {
+				missing.putIfAbsent(key.toLowerCase(), key);
+			}
+		}
+
+		//Each provider is asked for the keys the previous ones did not have, its hits are put in those previous ones
+		final Map<String, Object> found = new HashMap<>();
+		final List<CacheProvider> previous = new ArrayList<>();
+		for ( CacheProvider provider : chain ) {
+			if ( missing.isEmpty() ) {
+				break;
+			}
+			final Map<String, Object> hits;
+			//A hit read before its key was invalidated is stale and is not put in the previous providers
+			final long token = versionTracker != null ? versionTracker.getVersion() : 0;
+			try {
+				hits = provider.getAll(g, new ArrayList<>(missing.keySet()));
+			} catch ( Exception e ) {
+				Logger.debug(this, "Error getting " + missing.size() + " keys from " + provider.getName(), e);
+				previous.add(provider);
+				continue;
+			}
+			for ( Map.Entry<String, Object> hit : hits.entrySet() ) {
+				final String key = missing.remove(hit.getKey());
+				if ( key == null || hit.getValue() == null ) {
+					continue;
+				}
+				found.put(key, hit.getValue());
+				if ( versionTracker != null && !previous.isEmpty() && !versionTracker.canPut(g, hit.getKey(), token) ) {
+					continue;
+				}
+				for ( CacheProvider upper : previous ) {
+					upper.put(g, hit.getKey(), hit.getValue());
+				}
+			}
+			previous.add(provider);
+		}
+
+		if ( versionTracker != null ) {
+			for ( String key : missing.keySet() ) {
+				versionTracker.loadStarted(g, key);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the initialized providers of the chain configured for the given group, in order, or null when
+	 * any of them is not available to this administrator, in which case the chain can only be walked through
+	 * the CacheProviderAPI
+	 */
+	private List<CacheProvider> getChain ( final String group ) {
+
+		String[] classes = Config.getStringArrayProperty("cache." + group + ".chain");
+		if ( classes == null || classes.length == 0 ) {
+			classes = Config.getStringArrayProperty("cache." + CacheProviderAPI.DEFAULT_CACHE + ".chain");
+		}
+		if ( classes == null || classes.length == 0 ) {
+			return null;
+		}
+
+		final List<CacheProvider> chain = new ArrayList<>(classes.length);
+		for ( String className : classes ) {
+			final CacheProvider provider = CacheProvider.getInstance(className.trim());
+			try {
+				if ( provider == null || !provider.isInitialized() ) {
+					return null;
+				}
+			} catch ( Exception e ) {
+				return null;
+			}
+			chain.add(provider);
+		}
+		return chain;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.dotmarketing.business.DotCacheAdministrator#load(java.lang.String,
+	 * java.lang.String, com.dotmarketing.business.CacheLoader)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T load ( String key, String group, CacheLoader<T> loader ) throws DotDataException, DotSecurityException {
+
+		if ( key == null || group == null ) {
+			return loader.load();
+		}
+
+		final String k = key.toLowerCase();
+		final String g = group.toLowerCase();
+
+		T value = (T) getNoThrow(k, g);
+		if ( value != null || singleFlight == null ) {
+			return ( value != null ) ? value : loader.load();
+		}
+
+		//The whole chain is checked again by the thread that loads, a previous load may have just finished
+		return singleFlight.load(g, k, () -> {
+			T cached = (T) getNoThrow(k, g);
+			return ( cached != null ) ? cached : loader.load();
+		});
 	}
 
 	/*
@@ -324,6 +525,11 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		key = key.toLowerCase();
 		group = group.toLowerCase();
 
+		//A value loaded before the key was invalidated is stale, drop it
+		if ( versionTracker != null && !versionTracker.canPut(group, key) ) {
+			return;
+		}
+
 		//Adds a given object gor a given group to a given key
 		cacheProviderAPI.put(group, key, content);
 	}
@@ -349,7 +555,9 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 				if ( useTransportChannel ) {
 					if (! cacheProviderAPI.isGroupDistributed( group )) {
-						if ( getTransport() != null) {
+						if ( invalidationBatcher != null ) {
+							invalidationBatcher.invalidate(k, g);
+						} else if ( getTransport() != null) {
 							try {
 								getTransport().send(k + ":" + g);
 							} catch ( Exception e ) {
@@ -380,6 +588,11 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 			return;
 		}
 
+		//Skips the invalidations from the cluster for keys this node does not have
+		if ( versionTracker != null && !versionTracker.invalidate(group, key, ignoreDistributed) ) {
+			return;
+		}
+
 		Runnable cacheRemoveRunnable = new Runnable() {
 			public void run () {
 				//Invalidates from Cache a key from a given group
@@ -406,6 +619,9 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 	public void shutdownChannel () {
 
 		if ( getTransport() != null ) {
+			if ( invalidationBatcher != null ) {
+				invalidationBatcher.shutdown();
+			}
 			getTransport().shutdown();
 			useTransportChannel = false;
 		} else {
@@ -484,6 +700,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 	public void invalidateCacheMesageFromCluster ( String message ) {
 		if(message==null){return;};
+		if ( CacheInvalidationBatcher.isFrame(message) ) {
+			invalidateCacheFrameFromCluster(message);
+			return;
+		}
 		int i = message.lastIndexOf(":");
 		if ( i > 0 ) {
 
@@ -508,6 +728,35 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		}
 	}
 
+	/**
+	 * Applies in a single pass all the invalidations of a frame sent by a {@link CacheInvalidationBatcher}
+	 */
+	private void invalidateCacheFrameFromCluster ( String message ) {
+
+		final CacheInvalidationBatcher.Frame frame;
+		try {
+			frame = ( invalidationBatcher != null )
+					? invalidationBatcher.receive(message)
+					: CacheInvalidationBatcher.decode(message);
+		} catch ( Exception e ) {
+			Logger.error(this, "Unable to read the invalidation frame received from the cluster: " + e.getMessage(), e);
+			return;
+		}
+
+		if ( frame.isFlushAll() ) {
+			flushAlLocalOnly(true);
+			return;
+		}
+		for ( String group : frame.getGroups() ) {
+			flushGroupLocalOnly(group, true);
+		}
+		for ( Map.Entry<String, Set<String>> entry : frame.getKeys().entrySet() ) {
+			for ( String key : entry.getValue() ) {
+				removeLocalOnly(key, entry.getKey(), true);
+			}
+		}
+	}
+
     @Override
     public Class getImplementationClass() {
         return ChainableCacheAdministratorImpl.class;
@@ -5,8 +5,13 @@ package com.dotmarketing.business;
 
 import com.dotmarketing.business.cache.provider.CacheProviderStats;
 import com.dotmarketing.business.cache.transport.CacheTransport;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -76,6 +81,59 @@ public interface DotCacheAdministrator  {
         }
         
     };
+
+	/**
+	 * Get the objects of the given keys from the cache, the keys that are not found are not in the
+	 * returned map. Meant for the callers that look up many keys at once (listings, search hits) so the
+	 * cache providers that support it can find them with a single call
+	 * @param keys
+	 * @param group
+	 * @return
+	 */
+	default Map<String, Object> getAll ( Collection<String> keys, String group ) {
+		final Map<String, Object> found = new HashMap<>();
+		for ( String key : keys ) {
+			Object value = getNoThrow(key, group);
+			if ( value != null ) {
+				found.put(key, value);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Get an object from the cache, loading and putting it in the cache if it is not there.
+	 * Concurrent misses of the same key wait for a single load when the implementation supports it
+	 * @param key
+	 * @param group
+	 * @param loader loads the object on a miss, nothing is put if it returns null
+	 * @return
+	 */
+	default <T> T get ( String key, String group, CacheLoader<T> loader ) throws DotDataException, DotSecurityException {
+		return load(key, group, () -> {
+			T value = loader.load();
+			if ( value != null ) {
+				put(key, value, group);
+			}
+			return value;
+		});
+	}
+
+	/**
+	 * Get an object from the cache, running the loader if it is not there. Unlike
+	 * {@link #get(String, String, CacheLoader)} the loader is responsible of caching what it loads,
+	 * for the caches that store an object under several keys or groups.
+	 * Concurrent misses of the same key wait for a single load when the implementation supports it
+	 * @param key
+	 * @param group
+	 * @param loader
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	default <T> T load ( String key, String group, CacheLoader<T> loader ) throws DotDataException, DotSecurityException {
+		T value = (T) getNoThrow(key, group);
+		return ( value != null ) ? value : loader.load();
+	}
 	/**
 	 * Puts an object in a cache
 	 * This will create journal entries for other servers in a clustered environment. 
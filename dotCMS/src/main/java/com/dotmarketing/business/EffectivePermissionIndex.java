@@ -0,0 +1,218 @@
+package com.dotmarketing.business;
+
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.exception.DotDataException;
+import com.liferay.portal.model.User;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index of the effective permissions of the permission sources, the asset the permissions of a permissionable are
+ * defined on: the permissionable itself when it has individual permissions, or the parent it inherits from through
+ * its permission reference. Every role gets a bit, and each source keeps, for every permission bit, the set of roles
+ * granted it, so checking many permissionables that share a source is a bitwise AND of the roles of the user
+ * against the roles of the source.
+ * <p>
+ * The index is built by a single check of a collection, see {@link #sources()}: the first permissionable of a source
+ * builds its entry and the rest of the permissionables of that source reuse it by the source inode, without
+ * comparing their permissions again. It is never cached, so a change to the permissions or to the permission
+ * references is seen by the next check without having to keep it current, and the role bits, given in the order
+ * this JVM sees the roles, never leave the JVM.
+ *
+ * @author dotCMS
+ */
+public class EffectivePermissionIndex {
+
+    private static final EffectivePermissionIndex INSTANCE = new EffectivePermissionIndex();
+
+    private final Map<String, Integer> roleBits = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRoleBit = new AtomicInteger();
+
+    private EffectivePermissionIndex() {
+    }
+
+    public static EffectivePermissionIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the bit of the role, roles get their bit the first time they are seen and keep it
+     */
+    int roleBit(final String roleId) {
+        return roleBits.computeIfAbsent(roleId, id -> nextRoleBit.getAndIncrement());
+    }
+
+    /**
+     * Returns an empty index of sources, to be used by a single check of a collection
+     */
+    Map<String, EffectivePermissions> sources() {
+        return new HashMap<>();
+    }
+
+    /**
+     * Returns the effective permissions of the given permissions, as returned by
+     * {@link PermissionAPI#getPermissions(Permissionable, boolean)} for bit permissions, building them the first
+     * time their source is seen. Null when they come from more than one source or are not bit permissions, those
+     * have to be checked one by one
+     */
+    EffectivePermissions effectivePermissions(final List<Permission> permissions,
+            final Map<String, EffectivePermissions> sources) {
+
+        if (permissions.isEmpty()) {
+            return EffectivePermissions.NONE;
+        }
+        final Permission first = permissions.get(0);
+        final String source = first.getInode() + ":" + first.getType();
+        final EffectivePermissions known = sources.get(source);
+        if (known != null && known.size() == permissions.size()) {
+            return known;
+        }
+
+        for (final Permission permission : permissions) {
+            if (!permission.isBitPermission() || !first.getInode().equals(permission.getInode())
+                    || !first.getType().equals(permission.getType())) {
+                return null;
+            }
+        }
+        final EffectivePermissions effective = new EffectivePermissions(permissions, this);
+        sources.put(source, effective);
+        return effective;
+    }
+
+    /**
+     * Loads the roles of the user once, to check many permissionables against them
+     */
+    UserRoles userRoles(final User user, final boolean respectFrontendRoles) throws DotDataException {
+        return new UserRoles(user, respectFrontendRoles, this);
+    }
+
+    /**
+     * The permissions of a permission source, with the roles granted each permission bit as role bits
+     */
+    static final class EffectivePermissions {
+
+        static final EffectivePermissions NONE = new EffectivePermissions();
+
+        private final int size;
+        private final BitSet[] rolesByBit = new BitSet[Integer.SIZE];
+
+        private EffectivePermissions() {
+            this.size = 0;
+        }
+
+        EffectivePermissions(final List<Permission> permissions, final EffectivePermissionIndex index) {
+            this.size = permissions.size();
+            for (final Permission permission : permissions) {
+                final int roleBit = index.roleBit(permission.getRoleId());
+                for (int bit = 0; bit < Integer.SIZE; bit++) {
+                    if ((permission.getPermission() & (1 << bit)) != 0) {
+                        if (rolesByBit[bit] == null) {
+                            rolesByBit[bit] = new BitSet();
+                        }
+                        rolesByBit[bit].set(roleBit);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Number of permissions the entry was built from
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * True when the role is granted any bit of the permission type
+         */
+        boolean grants(final int permissionType, final int roleBit) {
+            for (int bit = 0; bit < Integer.SIZE; bit++) {
+                if ((permissionType & (1 << bit)) != 0 && rolesByBit[bit] != null && rolesByBit[bit].get(roleBit)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * True when any of the roles is granted any bit of the permission type
+         */
+        boolean grantsAny(final int permissionType, final BitSet roles) {
+            for (int bit = 0; bit < Integer.SIZE; bit++) {
+                if ((permissionType & (1 << bit)) != 0 && rolesByBit[bit] != null && rolesByBit[bit].intersects(roles)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The roles of a user as bits, with the system roles the permission checks look at
+     */
+    static final class UserRoles {
+
+        private final User user;
+        private final boolean respectFrontendRoles;
+        private final BitSet roles = new BitSet();
+        private final int anonymousRole;
+        private final int loggedInSiteRole;
+        private final int ownerRole;
+        private final boolean admin;
+        private final boolean onlyFrontEndRoles;
+
+        private UserRoles(final User user, final boolean respectFrontendRoles, final EffectivePermissionIndex index)
+                throws DotDataException {
+
+            final ResolvedPrincipal principal = ResolvedPrincipal.resolve(user);
+            this.user = user;
+            this.respectFrontendRoles = respectFrontendRoles;
+            this.anonymousRole = index.roleBit(principal.getAnonymousRoleId());
+            this.loggedInSiteRole = index.roleBit(principal.getLoggedInSiteRoleId());
+            this.ownerRole = index.roleBit(principal.getOwnerRoleId());
+            principal.getRoleIds().forEach(roleId -> roles.set(index.roleBit(roleId)));
+            this.admin = principal.isAdmin();
+            this.onlyFrontEndRoles = !respectFrontendRoles && principal.hasOnlyFrontEndRoles();
+        }
+
+        boolean isAdmin() {
+            return admin;
+        }
+
+        User getUser() {
+            return user;
+        }
+
+        boolean isRespectFrontendRoles() {
+            return respectFrontendRoles;
+        }
+
+        /**
+         * True when the owner role is granted the permission type, the caller still has to check the user owns
+         * the permissionable
+         */
+        boolean ownerGranted(final EffectivePermissions effective, final int permissionType) {
+            return user != null && effective.grants(permissionType, ownerRole);
+        }
+
+        /**
+         * Same answer as {@link PermissionAPI#doesUserHavePermission(Permissionable, int, User, boolean)} for a
+         * user that is neither the system user, a CMS admin nor the owner
+         */
+        boolean granted(final EffectivePermissions effective, final int permissionType) {
+            if (respectFrontendRoles && (effective.grants(permissionType, anonymousRole)
+                    || user != null && effective.grants(permissionType, loggedInSiteRole))) {
+                return true;
+            }
+            if (user == null || onlyFrontEndRoles) {
+                return false;
+            }
+            return effective.grantsAny(permissionType, roles);
+        }
+    }
+
+} // E:O:F:EffectivePermissionIndex.
@@ -1,6 +1,8 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
@@ -43,6 +45,15 @@ public interface IdentifierAPI {
 	 */
 	public Identifier find(String id) throws DotDataException;
 
+	/**
+	 * Will take the ids of many identifiers and return them from cache or db, the ones that are not
+	 * cached are loaded with a single query. Meant to hydrate lists like search hits
+	 * @param ids
+	 * @return the identifiers by id, the ids that can not be found are not in the map
+	 * @throws DotDataException
+	 */
+	public Map<String, Identifier> find(Collection<String> ids) throws DotDataException;
+
 	/**
 	 * Will take a Versionable and return its identifier from cache or db. If cache miss
 	 * this will always hit the db
@@ -1,6 +1,8 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import com.dotcms.business.CloseDBIfOpened;
 import com.dotcms.business.WrapInTransaction;
@@ -83,6 +85,11 @@ public class IdentifierAPIImpl implements IdentifierAPI {
 
 	}
 
+	@CloseDBIfOpened
+	public Map<String, Identifier> find(final Collection<String> ids) throws DotDataException {
+		return identifierFactory.find(ids);
+	}
+
 	@CloseDBIfOpened
 	public Identifier find(final Versionable versionable) throws DotDataException {
 
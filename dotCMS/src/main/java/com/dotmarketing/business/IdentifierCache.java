@@ -3,7 +3,10 @@ package com.dotmarketing.business;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
+import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+import java.util.Collection;
+import java.util.Map;
 
 public abstract class IdentifierCache implements Cachable {
 
@@ -19,6 +22,24 @@ public abstract class IdentifierCache implements Cachable {
 
 	abstract protected Identifier getIdentifier(String hostId, String URI);
 
+	/**
+	 * Returns the cached identifiers (404s included) of the given ids with a single cache lookup per
+	 * group, the ids that are not cached are not in the returned map
+	 */
+	abstract protected Map<String, Identifier> getIdentifiers(Collection<String> identIds);
+
+	/**
+	 * Returns the cached identifier, loading and caching it on a miss. Concurrent misses of the same
+	 * identifier wait for a single load
+	 */
+	abstract protected Identifier getIdentifier(String identId, CacheLoader<Identifier> loader) throws DotDataException;
+
+	/**
+	 * Returns the cached identifier of the given URI, loading and caching it on a miss. Concurrent
+	 * misses of the same URI wait for a single load
+	 */
+	abstract protected Identifier getIdentifier(String hostId, String URI, CacheLoader<Identifier> loader) throws DotDataException;
+
 	abstract protected String getIdentifierFromInode(Versionable versionable);
 	
 	abstract protected String getIdentifierFromInode(String inode);
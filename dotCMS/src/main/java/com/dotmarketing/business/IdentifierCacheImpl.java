@@ -6,11 +6,17 @@
  */
 package com.dotmarketing.business;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
@@ -118,6 +124,81 @@ public class IdentifierCacheImpl extends IdentifierCache {
 		return value;
 	}
 
+	@Override
+	protected Map<String, Identifier> getIdentifiers(final Collection<String> identIds) {
+
+		final Map<String, Identifier> found = new HashMap<>();
+		final List<String> keys = new ArrayList<>(identIds.size());
+		for (final String identId : identIds) {
+			keys.add(getPrimaryGroup() + identId);
+		}
+
+		// the ids that are not in the primary group may be cached as 404s
+		final Map<String, Object> cached = cache.getAll(keys, getPrimaryGroup());
+		final List<String> missing = new ArrayList<>();
+		for (final String key : keys) {
+			if (!cached.containsKey(key)) {
+				missing.add(key);
+			}
+		}
+		if (!missing.isEmpty()) {
+			cached.putAll(cache.getAll(missing, get404Group()));
+		}
+
+		for (final String identId : identIds) {
+			final Object value = cached.get(getPrimaryGroup() + identId);
+			if (value != null) {
+				found.put(identId, (Identifier) value);
+			}
+		}
+		return found;
+	}
+
+	@Override
+	protected Identifier getIdentifier(final String identId, final CacheLoader<Identifier> loader) throws DotDataException {
+
+		final Identifier value = getIdentifier(identId);
+		if (value != null) {
+			return value;
+		}
+		return load(getPrimaryGroup() + identId, () -> {
+			Identifier id = getIdentifier(identId);
+			if (id == null) {
+				id = loader.load();
+				addIdentifierToCache(id);
+			}
+			return id;
+		});
+	}
+
+	@Override
+	protected Identifier getIdentifier(final String hostId, final String URI, final CacheLoader<Identifier> loader) throws DotDataException {
+
+		final Identifier value = getIdentifier(hostId, URI);
+		if (value != null) {
+			return value;
+		}
+		return load(getPrimaryGroup() + hostId + "-" + URI, () -> {
+			Identifier id = getIdentifier(hostId, URI);
+			if (id == null) {
+				id = loader.load();
+				addIdentifierToCache(id);
+			}
+			return id;
+		});
+	}
+
+	/**
+	 * Identifiers are cached under several keys and groups (404s), so the loaders put them
+	 */
+	private Identifier load(final String key, final CacheLoader<Identifier> loader) throws DotDataException {
+		try {
+			return cache.load(key, getPrimaryGroup(), loader);
+		} catch (DotSecurityException e) {
+			throw new DotDataException(e.getMessage(), e);
+		}
+	}
+
 	protected String getIdentifierFromInode(Versionable versionable)  {
 
 		if(versionable ==null || !InodeUtils.isSet(versionable.getInode())){
@@ -4,7 +4,9 @@ import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.portlets.folders.model.Folder;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides data source level access to information related to Identifiers in
@@ -134,6 +136,15 @@ public abstract class IdentifierFactory {
 	 */
 	abstract protected Identifier find(final String identifier) throws DotStateException, DotDataException;
 
+	/**
+	 * Retrieves the identifiers of the given ids looking in cache first, all the ids that are not
+	 * cached are loaded with a single query. It will load the cache for future use.
+	 *
+	 * @param identifiers
+	 * @return the identifiers found by id, the ids that do not exist are not in the map
+	 */
+	abstract protected Map<String, Identifier> find(final Collection<String> identifiers) throws DotDataException;
+
 	/**
 	 * Creates a new Identifier for a given versionable asset under a given
 	 * folder. The ID value will be randomly generated.
@@ -30,6 +30,9 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -142,10 +145,12 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 
 	@Override
 	protected Identifier findByURI(final String siteId, String uri) throws DotDataException {
-		Identifier identifier = ic.getIdentifier(siteId, uri);
-		if (identifier != null) {
-			return check404(identifier);
-		}
+		// concurrent finds of the same URI wait for a single load
+		return check404(ic.getIdentifier(siteId, uri, () -> loadByURIFromDb(siteId, uri)));
+	}
+
+	private Identifier loadByURIFromDb(final String siteId, final String uri) throws DotDataException {
+		Identifier identifier = null;
 
 		DotConnect dc = new DotConnect();
 		String parentPath = uri.substring(0, uri.lastIndexOf("/") + 1).toLowerCase();
@@ -171,8 +176,7 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 		    identifier = build404(siteId,uri);
 		}
 
-		ic.addIdentifierToCache(identifier);
-		return check404(identifier);
+		return identifier;
 	}
 
 	@Override
@@ -430,16 +434,54 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 
 	@Override
 	protected Identifier find(final String identifier) throws DotStateException, DotDataException {
-		Identifier id = ic.getIdentifier(identifier);
-		if (id != null && UtilMethods.isSet(id.getId())) {
-			return check404(id);
+		// concurrent finds of the same identifier wait for a single load
+		final Identifier id = ic.getIdentifier(identifier, () -> {
+			final Identifier loaded = loadFromDb(identifier);
+			return (loaded == null || !InodeUtils.isSet(loaded.getId())) ? build404(identifier) : loaded;
+		});
+		return check404(id);
+	}
+
+	@Override
+	protected Map<String, Identifier> find(final Collection<String> identifiers) throws DotDataException {
+
+		final Map<String, Identifier> cached = ic.getIdentifiers(identifiers);
+		final List<String> missing = new ArrayList<>();
+		for (final String identifier : new LinkedHashSet<>(identifiers)) {
+			if (UtilMethods.isSet(identifier) && !cached.containsKey(identifier)) {
+				missing.add(identifier);
+			}
 		}
-		id = loadFromDb(identifier);
-		if(id==null || !InodeUtils.isSet(id.getId())) {
-		    id = build404(identifier);
+
+		for (int from = 0; from < missing.size(); from += 500) {
+			final List<String> chunk = missing.subList(from, Math.min(from + 500, missing.size()));
+			final DotConnect dc = new DotConnect();
+			dc.setSQL("select * from identifier where id in (" + DotConnect.createParametersPlaceholder(chunk.size()) + ")");
+			for (final String identifier : chunk) {
+				dc.addParam(identifier);
+			}
+			for (final Identifier loaded : TransformerLocator.createIdentifierTransformer(dc.loadObjectResults()).asList()) {
+				ic.addIdentifierToCache(loaded);
+				cached.put(loaded.getId(), loaded);
+			}
+			// the ones that do not exist are cached as 404s, same as find(String)
+			for (final String identifier : chunk) {
+				if (!cached.containsKey(identifier)) {
+					final Identifier notFound = build404(identifier);
+					ic.addIdentifierToCache(notFound);
+					cached.put(identifier, notFound);
+				}
+			}
 		}
-		ic.addIdentifierToCache(id);
-		return check404(id);
+
+		final Map<String, Identifier> found = new HashMap<>(cached.size());
+		for (final Map.Entry<String, Identifier> entry : cached.entrySet()) {
+			final Identifier identifier = check404(entry.getValue());
+			if (identifier != null && InodeUtils.isSet(identifier.getId())) {
+				found.put(entry.getKey(), identifier);
+			}
+		}
+		return found;
 	}
 
 	@Override
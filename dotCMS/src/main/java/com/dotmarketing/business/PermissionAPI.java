@@ -255,6 +255,16 @@ public interface PermissionAPI {
 	 */
 	List<Permission> getPermissions(Permissionable permissionable, boolean bitPermissions, boolean onlyIndividualPermissions, boolean forceLoadFromDB) throws DotDataException;
 
+	/**
+	 * Loads into the cache the permissions of all the given permissionables with a query per batch,
+	 * so the following {@link #getPermissions(Permissionable)} calls do not hit the db for each one
+	 * of them. Used when a whole batch of contentlets is indexed
+	 *
+	 * @param permissionables
+	 * @throws DotDataException
+	 */
+	void preloadPermissions(List<? extends Permissionable> permissionables) throws DotDataException;
+
     /**
      * For new Permissionables adds its permissions to cache.
      *
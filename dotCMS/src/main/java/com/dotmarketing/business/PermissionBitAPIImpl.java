@@ -155,7 +155,7 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 	 * @param requiredPermissionType
 	 * @return If the user has the required permission for the collection of permissions passed in
 	 */
-	private boolean doRolesHavePermission(List<String> userRoleIDs, List<Permission> permissions, int requiredPermissionType){
+	private boolean doRolesHavePermission(Collection<String> userRoleIDs, List<Permission> permissions, int requiredPermissionType){
 		
 		for (Permission permission : permissions) {
 			if(permission.matchesPermission(requiredPermissionType)
@@ -319,21 +319,16 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			permissionType=PERMISSION_EDIT;
 		}
 
-		Role adminRole;
-		Role anonRole;
-		Role frontEndUserRole;
-		Role cmsOwnerRole;
+		// the roles of the user are resolved once per request
+		final ResolvedPrincipal principal;
 		try {
-			adminRole = APILocator.getRoleAPI().loadCMSAdminRole();
-			anonRole = APILocator.getRoleAPI().loadCMSAnonymousRole();
-			frontEndUserRole = APILocator.getRoleAPI().loadLoggedinSiteRole();
-			cmsOwnerRole = APILocator.getRoleAPI().loadCMSOwnerRole();
+			principal = ResolvedPrincipal.resolve(user);
 		} catch (DotDataException e1) {
 			Logger.error(this, e1.getMessage(), e1);
 			throw new DotRuntimeException(e1.getMessage(), e1);
 		}
 
-		if(user != null && APILocator.getRoleAPI().doesUserHaveRole(user, adminRole))
+		if(user != null && principal.isAdmin())
 			return true;
 
 		List<RelatedPermissionableGroup> permissionDependencies = permissionable.permissionDependencies(permissionType);
@@ -345,16 +340,16 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			if(p.matchesPermission(permissionType)){
 				if(respectFrontendRoles){
 					// if we are anonymous
-					if(p.getRoleId().equals(anonRole.getId())){
+					if(p.getRoleId().equals(principal.getAnonymousRoleId())){
 						return true;
 						//if logged in site user has permission
-					}else if(user != null && p.getRoleId().equals(frontEndUserRole.getId())){
+					}else if(user != null && p.getRoleId().equals(principal.getLoggedInSiteRoleId())){
 						return true;
 					}
 				} 
 				// if owner and owner has required permission return true
 				try {
-					if(p.getRoleId().equals(cmsOwnerRole.getId()) && user != null &&
+					if(p.getRoleId().equals(principal.getOwnerRoleId()) && user != null &&
 							permissionable.getOwner() != null && permissionable.getOwner().equals(user.getUserId()) &&
 							checkRelatedPermissions(permissionDependencies, user)){
 						return true;
@@ -372,45 +367,12 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			return false;
 		} 
 
-		List<Role> roles;
-		try {
-			roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
-		} catch (DotDataException e1) {
-			Logger.error(this, e1.getMessage(), e1);
-			throw new DotRuntimeException(e1.getMessage(), e1);
-		}
-		List<String> userRoleIds= new ArrayList<String>();
-		for (Role role : roles) {
-			try{
-				String roleID = role.getId();
-				userRoleIds.add(roleID);
-				if(roleID.equals(adminRole.getId())){
-					// if CMS Admin return true
-					return true;
-				}
-			}catch (Exception e) {
-				Logger.error(this, "Roleid should be a long : ",e);
-			}
-		}
-        
-        if(!respectFrontendRoles) {
-			List<String> frontEndRoles = new ArrayList<String>(3);
-	
-			try {
-				frontEndRoles.add(APILocator.getRoleAPI().loadCMSAnonymousRole().getId());
-				frontEndRoles.add(APILocator.getRoleAPI().loadLoggedinSiteRole().getId());
-				frontEndRoles.add(APILocator.getRoleAPI().loadRoleByKey("anonymous").getId());
-			} catch (DotDataException e1) {
-				Logger.error(this, e1.getMessage(), e1);
-				throw new DotRuntimeException(e1.getMessage(), e1);
-			}
-			
-			if(frontEndRoles.containsAll(userRoleIds)) {
-				return false; // The user roles are ALL frontEnd roles AND respectFrontEndRoles is false, so return false
-			}
+		// the user roles are ALL frontEnd roles AND respectFrontEndRoles is false, so return false
+		if(!respectFrontendRoles && principal.hasOnlyFrontEndRoles()) {
+			return false;
 		}
-        
-		return doRolesHavePermission(userRoleIds,getPermissions(permissionable, true),permissionType);
+
+		return doRolesHavePermission(principal.getRoleIds(),getPermissions(permissionable, true),permissionType);
 	}
 
 	@WrapInTransaction
@@ -558,6 +520,12 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 		return permissionFactory.getPermissions(permissionable, bitPermissions, onlyIndividualPermissions, forceLoadFromDB);
 	}
 
+	@CloseDBIfOpened
+	@Override
+	public void preloadPermissions(final List<? extends Permissionable> permissionables) throws DotDataException {
+		permissionFactory.preloadPermissions(permissionables);
+	}
+
 	@CloseDBIfOpened
 	@Override
     public void addPermissionsToCache ( Permissionable permissionable ) throws DotDataException {
@@ -1113,19 +1081,61 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			return permissionables;
 		}
 
-		Permissionable permissionable;
-		int i = 0;
+		if (user != null && user.getUserId().equals(APILocator.getUserAPI().getSystemUser().getUserId())) {
+			return permissionables;
+		}
+
+		// the roles of the user are loaded once and checked as bits against the effective permissions of the
+		// asset each permissionable gets its permissions from
+		final EffectivePermissionIndex.UserRoles userRoles =
+				EffectivePermissionIndex.getInstance().userRoles(user, respectFrontendRoles);
+		if (userRoles.isAdmin()) {
+			return permissionables;
+		}
 
-		while (i < permissionables.size()) {
-			permissionable = permissionables.get(i);
-			if(!doesUserHavePermission(permissionable, requiredTypePermission, user, respectFrontendRoles)){
-				permissionables.remove(i);
-			} else {
-				++i;
+		final Map<String, EffectivePermissionIndex.EffectivePermissions> sources =
+				EffectivePermissionIndex.getInstance().sources();
+		final List<P> filtered = new ArrayList<P>(permissionables.size());
+		for (final P permissionable : permissionables) {
+			if (hasPermission(permissionable, requiredTypePermission, userRoles, sources)) {
+				filtered.add(permissionable);
 			}
 		}
 
-		return permissionables;
+		return filtered;
+	}
+
+	/**
+	 * Same answer as {@link #doesUserHavePermission(Permissionable, int, User, boolean)}, for the roles loaded once
+	 * by {@link #filterCollection(List, int, boolean, User)} and the sources it has already seen
+	 */
+	private boolean hasPermission(final Permissionable permissionable, int permissionType,
+			final EffectivePermissionIndex.UserRoles userRoles,
+			final Map<String, EffectivePermissionIndex.EffectivePermissions> sources) throws DotDataException {
+
+		if (permissionable == null || !InodeUtils.isSet(permissionable.getPermissionId())) {
+			return doesUserHavePermission(permissionable, permissionType, userRoles.getUser(), userRoles.isRespectFrontendRoles());
+		}
+
+		// Folders do not have PUBLISH, use EDIT instead
+		if(PermissionableType.FOLDERS.getCanonicalName().equals(permissionable.getPermissionType()) && permissionType == PERMISSION_PUBLISH){
+			permissionType=PERMISSION_EDIT;
+		}
+
+		final EffectivePermissionIndex.EffectivePermissions effective =
+				EffectivePermissionIndex.getInstance().effectivePermissions(getPermissions(permissionable, true), sources);
+		if (effective == null) {
+			return doesUserHavePermission(permissionable, permissionType, userRoles.getUser(), userRoles.isRespectFrontendRoles());
+		}
+
+		final User user = userRoles.getUser();
+		if (userRoles.ownerGranted(effective, permissionType) && permissionable.getOwner() != null
+				&& permissionable.getOwner().equals(user.getUserId())
+				&& checkRelatedPermissions(permissionable.permissionDependencies(permissionType), user)) {
+			return true;
+		}
+
+		return userRoles.granted(effective, permissionType);
 	}
 
 	@CloseDBIfOpened
@@ -22,6 +22,7 @@ import com.dotmarketing.beans.Inode;
 import com.dotmarketing.beans.Permission;
 import com.dotmarketing.beans.PermissionReference;
 import com.dotmarketing.beans.PermissionType;
+import com.dotmarketing.business.PermissionReferenceRecomputer.Statement;
 import com.dotmarketing.cms.factories.PublicCompanyFactory;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.db.DbConnectionFactory;
@@ -56,10 +57,12 @@ import com.dotmarketing.util.Config;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
+import com.google.common.collect.Lists;
 
 import com.liferay.portal.model.User;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -109,6 +112,22 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
         "    on (inode_id = reference_id and permission.permission_type = permission_reference.permission_type) "+
         "    where asset_id = ?";
 
+	/*
+	 * Same as LOAD_PERMISSION_SQL for a batch of permissionables, the asset_id column tells which one each permission belongs to
+	 * Parameters
+	 * 1. The permisionable ids
+	 * 2. The permisionable ids
+	 */
+	private static final String LOAD_PERMISSIONS_BY_ASSETS_SQL =
+		" select inode_id as asset_id, id, permission_type, inode_id, roleid, permission from permission where inode_id in (%s) "+
+		" union all "+
+		" select asset_id, permission.id, permission.permission_type, permission.inode_id, permission.roleid, permission.permission "+
+		"    from permission join permission_reference "+
+		"    on (inode_id = reference_id and permission.permission_type = permission_reference.permission_type) "+
+		"    where asset_id in (%s)";
+
+	private static final int PRELOAD_PERMISSIONS_BATCH_SIZE = 500;
+
 	/*
 	 * To load permission references objects based on the reference they are pointing to
 	 * Parameters
@@ -1013,33 +1032,14 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 		List<Permission> bitPermissionsList = null;
 
-		if(!forceLoadFromDB) {
-			bitPermissionsList = permissionCache
-					.getPermissionsFromCache(permissionable.getPermissionId());
-		}
-
-		//No permissions in cache have to look for individual permissions or inherited permissions
-		if (bitPermissionsList == null) {
-			try {
-				bitPermissionsList = lockManager.tryLock(permissionable.getPermissionId(),
-						() -> {
-							List<Permission> permissionsList = null;
-							if (!forceLoadFromDB) {
-								permissionsList = permissionCache.getPermissionsFromCache(permissionable.getPermissionId());
-							}
-							//Checking individual permissions
-							if (permissionsList == null) {
-								permissionsList = loadPermissions(permissionable);
-								permissionCache.addToPermissionCache(permissionable.getPermissionId(), permissionsList);
-							}
-							return permissionsList;
-						});
-			} catch (final Throwable throwable) {
-				if (throwable instanceof DotDataException) {
-					throw (DotDataException) throwable;
-				}
-				throw new DotDataException(throwable);
-			}
+		if(forceLoadFromDB) {
+			bitPermissionsList = loadPermissions(permissionable);
+			permissionCache.addToPermissionCache(permissionable.getPermissionId(), bitPermissionsList);
+		} else {
+			//No permissions in cache have to look for individual permissions or inherited permissions,
+			//concurrent misses of the same permissionable wait for a single load
+			bitPermissionsList = permissionCache.getPermissionsFromCache(permissionable.getPermissionId(),
+					() -> loadPermissions(permissionable));
 		}
 		bitPermissionsList = filterOnlyNonInheritablePermissions(bitPermissionsList, permissionable.getPermissionId());
 
@@ -1108,6 +1108,7 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		        ran06=false,ran07=false,ran08=false,ran09=false,ran10=false;
 
 		final List<Map<String, Object>> idsToClear = new ArrayList<>();
+		final List<Statement> statements = new ArrayList<>();
 		final List<Permission> permissions = filterOnlyInheritablePermissions(loadPermissions(permissionable), parentPermissionableId);
 		for(final Permission p : permissions) {
 
@@ -1132,19 +1133,12 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					if (isHost && p.getType().equals(Template.class.getCanonicalName()) && !ran01) {
 						// Find all host templates pointing to the system host
 						// and update their references
-
-						// Removing all references to the system host
-						dc.setSQL(this.deleteTemplateReferencesSQL);
-						dc.addParam(permissionable.getPermissionId());
-						dc.loadResult();
-
-						if (shouldInsertPermissionReferencesEagerly()) {
-							// Adding new references to the new host
-							dc.setSQL(this.insertTemplateReferencesToAHostSQL);
-							dc.addParam(permissionable.getPermissionId());
-							dc.addParam(permissionable.getPermissionId());
-							dc.loadResult();
-						}
+						updateReferences(dc, statements, p,
+								new Statement(this.deleteTemplateReferencesSQL,
+									permissionable.getPermissionId()),
+								new Statement(this.insertTemplateReferencesToAHostSQL,
+									permissionable.getPermissionId(),
+									permissionable.getPermissionId()));
 
 						// Retrieving the list of templates changed to clear
 						// their caches
@@ -1156,19 +1150,12 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					} else if (isHost && p.getType().equals(Container.class.getCanonicalName()) && !ran02) {
 						// Find all host containers pointing to the system host
 						// and update their references
-
-						// Removing all references to the system host
-						dc.setSQL(this.deleteContainerReferencesSQL);
-						dc.addParam(permissionable.getPermissionId());
-						dc.loadResult();
-
-						if (shouldInsertPermissionReferencesEagerly()) {
-							// Adding new references to the new host
-							dc.setSQL(this.insertContainerReferencesToAHostSQL);
-							dc.addParam(permissionable.getPermissionId());
-							dc.addParam(permissionable.getPermissionId());
-							dc.loadResult();
-						}
+						updateReferences(dc, statements, p,
+								new Statement(this.deleteContainerReferencesSQL,
+									permissionable.getPermissionId()),
+								new Statement(this.insertContainerReferencesToAHostSQL,
+									permissionable.getPermissionId(),
+									permissionable.getPermissionId()));
 
 						// Retrieving the list of container changed to clear
 						// their caches
@@ -1180,26 +1167,20 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 					}else if (p.getType().equals(Folder.class.getCanonicalName()) && !ran03) {
 						// Find all subfolders
-						// Removing all references to the system host
-						dc.setSQL(this.deleteSubfolderReferencesSQLOnAdd);
-						dc.addParam(parentHost.getPermissionId());
-						dc.addParam(path + "%");
-						dc.addParam(isHost ? " " : path);
-						dc.addParam(parentHost.getPermissionId());
-						dc.addParam(path + "%");
-						dc.addParam(path);
-						dc.loadResult();
-
-						if (shouldInsertPermissionReferencesEagerly()) {
-							// Adding new references to the new host
-							dc.setSQL(this.insertSubfolderReferencesSQL);
-							dc.addParam(permissionable.getPermissionId());
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(path + "%");
-							dc.addParam(isHost ? " " : path);
-							dc.addParam(path + "%");
-							dc.loadResult();
-						}
+						updateReferences(dc, statements, p,
+								new Statement(this.deleteSubfolderReferencesSQLOnAdd,
+									parentHost.getPermissionId(),
+									path + "%",
+									isHost ? " " : path,
+									parentHost.getPermissionId(),
+									path + "%",
+									path),
+								new Statement(this.insertSubfolderReferencesSQL,
+									permissionable.getPermissionId(),
+									parentHost.getPermissionId(),
+									path + "%",
+									isHost ? " " : path,
+									path + "%"));
 
 						// Retrieving the list of container changed to clear
 						// their caches
@@ -1213,34 +1194,22 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					} else if (p.getType().equals(IHTMLPage.class.getCanonicalName()) && !ran04) {
 
 						// Update html page references
-
-						// Removing all references to the system host
-						dc.setSQL(this.deleteHTMLPageReferencesOnAddSQL);
-						// All the pages that belongs to the host
-						dc.addParam(parentHost.getPermissionId());
-						// Under any folder
-						dc.addParam(path + "%");
-                        dc.addParam(parentHost.getPermissionId());
-                        dc.addParam(path + "%");
-						dc.addParam(parentHost.getPermissionId());
-						dc.addParam( path + "%" );
-						dc.addParam(path);
-						dc.loadResult();
-
-						if (shouldInsertPermissionReferencesEagerly()) {
-							// Adding new references to the new host
-							dc.setSQL( this.insertHTMLPageReferencesSQL );
-							// Insert new references pointing to the host
-							dc.addParam(permissionable.getPermissionId());
-							// Under the same host
-							dc.addParam(parentHost.getPermissionId());
-							// Under any folder
-							dc.addParam(path + "%");
-	                        dc.addParam(parentHost.getPermissionId());
-	                        dc.addParam(path + "%");
-							dc.addParam(path + "%");
-							dc.loadResult();
-						}
+						updateReferences(dc, statements, p,
+								new Statement(this.deleteHTMLPageReferencesOnAddSQL,
+									parentHost.getPermissionId(),
+									path + "%",
+									parentHost.getPermissionId(),
+									path + "%",
+									parentHost.getPermissionId(),
+									path + "%",
+									path),
+								new Statement(this.insertHTMLPageReferencesSQL,
+									permissionable.getPermissionId(),
+									parentHost.getPermissionId(),
+									path + "%",
+									parentHost.getPermissionId(),
+									path + "%",
+									path + "%"));
 
 						// Retrieving the list of pages changed to clear their
 						// caches
@@ -1254,30 +1223,18 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 						ran04=true;
 					} else if (p.getType().equals(Link.class.getCanonicalName()) && !ran06) {
 						// Find all files to update their references
-
-						// Removing all references to the system host
-						dc.setSQL(this.deleteLinkReferencesOnAddSQL);
-						// All the links that belongs to the host
-						dc.addParam(parentHost.getPermissionId());
-						// Under any folder
-						dc.addParam(path + "%");
-						dc.addParam(parentHost.getPermissionId());
-						dc.addParam(path + "%");
-						dc.addParam(path);
-						dc.loadResult();
-
-						if (shouldInsertPermissionReferencesEagerly()) {
-							// Adding new references to the new host
-							dc.setSQL(this.insertLinkReferencesSQL);
-							// Insert new references pointing to the host
-							dc.addParam(permissionable.getPermissionId());
-							// For all the pages that belong to the host
-							dc.addParam(parentHost.getPermissionId());
-							// Under any folder
-							dc.addParam(path + "%");
-							dc.addParam(path + "%");
-							dc.loadResult();
-						}
+						updateReferences(dc, statements, p,
+								new Statement(this.deleteLinkReferencesOnAddSQL,
+									parentHost.getPermissionId(),
+									path + "%",
+									parentHost.getPermissionId(),
+									path + "%",
+									path),
+								new Statement(this.insertLinkReferencesSQL,
+									permissionable.getPermissionId(),
+									parentHost.getPermissionId(),
+									path + "%",
+									path + "%"));
 
 						// Retrieving the list of links changed to clear their
 						// caches
@@ -1290,30 +1247,18 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 					} else if (p.getType().equals(Contentlet.class.getCanonicalName()) && !ran07) {
 						// Find all content
-
-						// Removing all references to the system host
-						dc.setSQL(this.deleteContentReferencesByPathOnAddSQL);
-						// All the content that belongs to the host
-						dc.addParam(parentHost.getPermissionId());
-						// Under any folder
-						dc.addParam(path + "%");
-						dc.addParam(parentHost.getPermissionId());
-						dc.addParam(path + "%");
-						dc.addParam(path);
-						dc.loadResult();
-
-						if (shouldInsertPermissionReferencesEagerly()) {
-							// Adding new references to the new host
-							dc.setSQL(this.insertContentReferencesByPathSQL);
-							// Insert new references pointing to the host
-							dc.addParam(permissionable.getPermissionId());
-							// For all the content that belong to the host
-							dc.addParam(parentHost.getPermissionId());
-							// Under any folder
-							dc.addParam(path + "%");
-							dc.addParam(path + "%");
-							dc.loadResult();
-						}
+						updateReferences(dc, statements, p,
+								new Statement(this.deleteContentReferencesByPathOnAddSQL,
+									parentHost.getPermissionId(),
+									path + "%",
+									parentHost.getPermissionId(),
+									path + "%",
+									path),
+								new Statement(this.insertContentReferencesByPathSQL,
+									permissionable.getPermissionId(),
+									parentHost.getPermissionId(),
+									path + "%",
+									path + "%"));
 
 						// Retrieving the list of links changed to clear their
 						// caches
@@ -1327,28 +1272,22 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 					} else if (p.getType().equals(Structure.class.getCanonicalName()) && !ran08) {
 
 						if(isHost){
-							dc.setSQL(DELETE_CONTENTTYPE_REFERENCES_BY_PATH_ON_ADD_SQL);
-							dc.addParam(path + "%");
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(path + "%");
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(path + "%");
-							dc.addParam(path);
-							dc.loadResult();
-
-							if (shouldInsertPermissionReferencesEagerly()) {
-								// Adding new references to the new host
-								// Insert new references pointing to the host
-								dc.setSQL(INSERT_CONTENTTYPE_REFERENCES_BY_PATH_SQL);
-								dc.addParam(permissionable.getPermissionId());
-								dc.addParam(path + "%");
-								dc.addParam(parentHost.getPermissionId());
-								dc.addParam(parentHost.getPermissionId());
-								dc.addParam(path + "%");
-								dc.loadResult();
-							}
+							updateReferences(dc, statements, p,
+									new Statement(DELETE_CONTENTTYPE_REFERENCES_BY_PATH_ON_ADD_SQL,
+										path + "%",
+										parentHost.getPermissionId(),
+										parentHost.getPermissionId(),
+										parentHost.getPermissionId(),
+										path + "%",
+										parentHost.getPermissionId(),
+										path + "%",
+										path),
+									new Statement(INSERT_CONTENTTYPE_REFERENCES_BY_PATH_SQL,
+										permissionable.getPermissionId(),
+										path + "%",
+										parentHost.getPermissionId(),
+										parentHost.getPermissionId(),
+										path + "%"));
 
 							// Retrieving the list of structures changed to clear
 							// their caches
@@ -1360,26 +1299,20 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 							idsToClear.addAll(dc.loadResults());
 
 						}else{
-							dc.setSQL(this.deleteStructureReferencesByPathOnAddSQLFolder);
-							dc.addParam(path + "%");
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(path + "%");
-							dc.addParam(parentHost.getPermissionId());
-							dc.addParam(path + "%");
-							dc.addParam(path);
-							dc.loadResult();
-
-							if (shouldInsertPermissionReferencesEagerly()) {
-								// Adding new references to the new host
-								// Insert new references pointing to the host
-								dc.setSQL(this.insertStructureReferencesByPathSQLFolder);
-								dc.addParam(permissionable.getPermissionId());
-								dc.addParam(path + "%");
-								dc.addParam(parentHost.getPermissionId());
-								dc.addParam(path + "%");
-								dc.loadResult();
-							}
+							updateReferences(dc, statements, p,
+									new Statement(this.deleteStructureReferencesByPathOnAddSQLFolder,
+										path + "%",
+										parentHost.getPermissionId(),
+										parentHost.getPermissionId(),
+										path + "%",
+										parentHost.getPermissionId(),
+										path + "%",
+										path),
+									new Statement(this.insertStructureReferencesByPathSQLFolder,
+										permissionable.getPermissionId(),
+										path + "%",
+										parentHost.getPermissionId(),
+										path + "%"));
 
 							// Retrieving the list of structures changed to clear
 							// their caches
@@ -1445,10 +1378,17 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		}
 
 		//Clearing the caches
+		final Set<String> clearedIds = new LinkedHashSet<>();
 		for(Map<String, Object> idToClear: idsToClear) {
 		    String inode = (String)(idToClear.get("inode") != null?idToClear.get("inode"):idToClear.get("asset_id"));
 		    if(inode==null) inode=(String)idToClear.get("id");
 		    permissionCache.remove(inode);
+		    clearedIds.add(inode);
+		}
+
+		// the references were only deleted, they are rebuilt and the cache warmed in the background
+		if (!statements.isEmpty()) {
+			PermissionReferenceRecomputer.getInstance().submit(parentPermissionableId, statements, clearedIds, this);
 		}
 
         if(isFolder) {
@@ -1457,6 +1397,27 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
         }
 	}
 
+	/*
+	 * deletes the references of the children that pointed to an upper permissionable (the system host or a parent)
+	 * for the type of the new inheritable permissions. The references to the new permissionable are only inserted
+	 * here when PERMISSIONS_REFERENCES_INSERT_LAZILY is off; by default the delete and insert statements are kept
+	 * for the PermissionReferenceRecomputer, which runs them again in the background once the transaction commits,
+	 * or, when it is off, the references are left to be resolved on read. The background insert only runs if the
+	 * permissionable still has the inheritable permissions of the type by then, a later removal or reset of them
+	 * is not undone
+	 */
+	private void updateReferences(final DotConnect dc, final List<Statement> statements, final Permission permission,
+			final Statement delete, final Statement insert) throws DotDataException {
+
+		delete.execute(dc);
+		if (shouldInsertPermissionReferencesEagerly()) {
+			insert.execute(dc);
+		} else if (PermissionReferenceRecomputer.getInstance().isEnabled()) {
+			statements.add(delete);
+			statements.add(insert.onlyIfInheritable(permission.getInode(), permission.getType()));
+		}
+	}
+
 	/*
 	 * updates all permission references that are pointing to the given permissionable if this
 	 * permissionable no longer provides the inheritable permissions that the children require
@@ -1906,6 +1867,55 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 	}
 
+	@Override
+	protected void preloadPermissions(final List<? extends Permissionable> permissionables) throws DotDataException {
+
+		final List<String> permissionIds = new ArrayList<>();
+		for (final Permissionable permissionable : permissionables) {
+			permissionIds.add(permissionable.getPermissionId());
+		}
+		preloadPermissionsById(permissionIds);
+	}
+
+	/*
+	 * loads into the cache, a batch at a time, the permissions of the given permission ids that are not cached yet
+	 */
+	void preloadPermissionsById(final Collection<String> ids) throws DotDataException {
+
+		final Set<String> notCached = new LinkedHashSet<>();
+		for (final String permissionId : ids) {
+			if (InodeUtils.isSet(permissionId) && permissionCache.getPermissionsFromCache(permissionId) == null) {
+				notCached.add(permissionId);
+			}
+		}
+
+		for (final List<String> permissionIds : Lists.partition(new ArrayList<>(notCached), PRELOAD_PERMISSIONS_BATCH_SIZE)) {
+
+			final String placeholders = DotConnect.createParametersPlaceholder(permissionIds.size());
+			final DotConnect dotConnect = new DotConnect()
+					.setSQL(String.format(LOAD_PERMISSIONS_BY_ASSETS_SQL, placeholders, placeholders));
+			permissionIds.forEach(dotConnect::addParam);
+			permissionIds.forEach(dotConnect::addParam);
+
+			final Map<String, List<Permission>> permissionsByAsset = new HashMap<>();
+			for (final Map<String, Object> row : dotConnect.loadObjectResults()) {
+				final Permission permission = new Permission();
+				permission.setId(((Number) row.get("id")).longValue());
+				permission.setType((String) row.get("permission_type"));
+				permission.setInode((String) row.get("inode_id"));
+				permission.setRoleId((String) row.get("roleid"));
+				permission.setPermission(((Number) row.get("permission")).intValue());
+				permission.setBitPermission(true);
+				permissionsByAsset.computeIfAbsent((String) row.get("asset_id"), k -> new ArrayList<>()).add(permission);
+			}
+
+			// the ones without permissions need their reference resolved, the regular load takes care of it
+			for (final Map.Entry<String, List<Permission>> entry : permissionsByAsset.entrySet()) {
+				permissionCache.addToPermissionCache(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
 	@Override
 	public void removePermissionsByRole(String roleId) {
 
@@ -3,6 +3,7 @@ package com.dotmarketing.business;
 import java.util.List;
 
 import com.dotmarketing.beans.Permission;
+import com.dotmarketing.exception.DotDataException;
 
 //This interface should have default package access
 public abstract class PermissionCache implements Cachable{
@@ -12,6 +13,12 @@ public abstract class PermissionCache implements Cachable{
 
 	abstract protected List<Permission> getPermissionsFromCache(String key);
 
+	/**
+	 * Returns the cached permissions, loading and caching them on a miss. Concurrent misses of the same
+	 * key wait for a single load
+	 */
+	abstract protected List<Permission> getPermissionsFromCache(String key, CacheLoader<List<Permission>> loader) throws DotDataException;
+
 	abstract public void clearCache();
 
 	abstract protected void remove(String key);
@@ -9,6 +9,8 @@ package com.dotmarketing.business;
 import java.util.List;
 
 import com.dotmarketing.beans.Permission;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.util.Logger;
 
 /**
@@ -57,6 +59,19 @@ public class PermissionCacheImpl extends PermissionCache {
         return perms;
     }
 
+    /* (non-Javadoc)
+	 * @see com.dotmarketing.business.PermissionCache#getPermissionsFromCache(java.lang.String, com.dotmarketing.business.CacheLoader)
+	 */
+    @Override
+    protected List<Permission> getPermissionsFromCache(String key, CacheLoader<List<Permission>> loader) throws DotDataException {
+    	key = primaryGroup + key;
+    	try {
+    		return cache.get(key, primaryGroup, loader);
+    	} catch (DotSecurityException e) {
+    		throw new DotDataException(e.getMessage(), e);
+    	}
+    }
+
     /* (non-Javadoc)
 	 * @see com.dotmarketing.business.PermissionCache#clearCache()
 	 */
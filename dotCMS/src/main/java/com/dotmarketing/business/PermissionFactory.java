@@ -158,6 +158,16 @@ public abstract class PermissionFactory {
 	abstract protected Map<Permissionable, List<Permission>> getPermissions(List<Permissionable> permissionables, boolean bitPermission) 
 		throws DotDataException, DotSecurityException;
 
+	/**
+	 * Loads into the cache the permissions of the permissionables that are not cached yet, with a
+	 * query per batch of permissionables. The ones that do not have individual permissions nor a
+	 * permission reference are left to the regular load, which resolves their reference
+	 *
+	 * @param permissionables
+	 * @throws DotDataException
+	 */
+	abstract protected void preloadPermissions(List<? extends Permissionable> permissionables) throws DotDataException;
+
 	/**
 	 * This method returns a list of all the permission the permissionable have associated, this
 	 * method looks for permission associated directly to the asset if none then it looks
@@ -0,0 +1,241 @@
+package com.dotmarketing.business;
+
+import com.dotcms.system.event.local.type.permission.PermissionReferencesRecomputedEvent;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.db.LocalTransaction;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rebuilds in the background the permission references {@link PermissionBitFactoryImpl} deletes when a host,
+ * folder or content type gets new inheritable permissions. With {@code PERMISSIONS_REFERENCES_INSERT_LAZILY} on,
+ * the default, those references used to be rebuilt one asset at a time by the first read of each asset, so a
+ * permission change on a big host turned into thousands of single row upserts, each one under a lock, right when
+ * the site was being browsed.
+ * <p>
+ * Instead, the delete and set-wise insert of every permission type affected by the change are kept and, once the
+ * transaction commits, run again in their own transaction by a single thread, so changes are applied in the
+ * order they were committed and a change on a host never overwrites the references a later change on one of its
+ * folders set. The inserts only run if the permissionable still has the inheritable permissions of their type,
+ * so a removal or reset of them committed in between, which updates the references right away, is not undone.
+ * Then the permissions of the affected assets are warmed into the {@link PermissionCache} in chunks of
+ * {@code PERMISSION_REFERENCES_RECOMPUTE_CHUNK_SIZE}, triggering a {@link PermissionReferencesRecomputedEvent}
+ * after each one. Reads that come before the recomputation are still resolved lazily, as before, so nothing
+ * depends on it finishing; a failure just leaves the remaining assets to be resolved on read.
+ * <p>
+ * The recomputation is on unless {@code PERMISSION_REFERENCES_BACKGROUND_RECOMPUTE} is turned off. Stats are
+ * exposed by the {@value #MBEAN_OBJECT_NAME} MBean.
+ *
+ * @author dotCMS
+ */
+public class PermissionReferenceRecomputer implements PermissionReferenceRecomputerMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=PermissionReferenceRecomputer";
+
+    private static final PermissionReferenceRecomputer INSTANCE = new PermissionReferenceRecomputer();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "PermissionReferenceRecomputer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder stepsRun = new LongAdder();
+    private final LongAdder stepsSkipped = new LongAdder();
+    private final LongAdder warmed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private PermissionReferenceRecomputer() {
+    }
+
+    public static PermissionReferenceRecomputer getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    /**
+     * A statement on the {@code permission_reference} table and its parameters, optionally run only while a
+     * permissionable has inheritable permissions of a type
+     */
+    static final class Statement {
+
+        static final String HAS_INHERITABLE_PERMISSIONS_SQL =
+                "select count(*) as total from permission where inode_id = ? and permission_type = ?";
+
+        private final String sql;
+        private final Object[] params;
+        private final String permissionId;
+        private final String permissionType;
+
+        Statement(final String sql, final Object... params) {
+            this(sql, params, null, null);
+        }
+
+        private Statement(final String sql, final Object[] params, final String permissionId,
+                final String permissionType) {
+            this.sql = sql;
+            this.params = params;
+            this.permissionId = permissionId;
+            this.permissionType = permissionType;
+        }
+
+        /**
+         * The same statement, skipped when it runs if the permissionable no longer has inheritable permissions of
+         * the given type, so it does not point references to a permissionable that stopped providing them
+         */
+        Statement onlyIfInheritable(final String permissionId, final String permissionType) {
+            return new Statement(sql, params, permissionId, permissionType);
+        }
+
+        /**
+         * Runs the statement, returns false if it was skipped
+         */
+        boolean execute(final DotConnect dc) throws DotDataException {
+            if (permissionId != null) {
+                dc.setSQL(HAS_INHERITABLE_PERMISSIONS_SQL);
+                dc.addParam(permissionId);
+                dc.addParam(permissionType);
+                if (dc.getInt("total") == 0) {
+                    return false;
+                }
+            }
+            dc.setSQL(sql);
+            for (final Object param : params) {
+                dc.addParam(param);
+            }
+            dc.loadResult();
+            return true;
+        }
+    }
+
+    /**
+     * Recomputes the references of the assets under the permissionable once the current transaction commits
+     *
+     * @param permissionId the permissionable that got new inheritable permissions
+     * @param statements the deletes and inserts of the references, in the order they have to run
+     * @param assetIds the assets whose references were deleted, to warm their permissions
+     * @param factory the factory to load the permissions with
+     */
+    void submit(final String permissionId, final List<Statement> statements, final Collection<String> assetIds,
+            final PermissionBitFactoryImpl factory) throws DotHibernateException {
+
+        final List<Statement> toRun = new ArrayList<>(statements);
+        final List<String> toWarm = new ArrayList<>(assetIds);
+        HibernateUtil.addCommitListener(permissionId + "PermissionReferenceRecomputer", () -> {
+            submitted.increment();
+            pending.incrementAndGet();
+            executor.submit(() -> recompute(permissionId, toRun, toWarm, factory));
+        });
+    }
+
+    private void recompute(final String permissionId, final List<Statement> statements, final List<String> assetIds,
+            final PermissionBitFactoryImpl factory) {
+
+        int done = 0;
+        try {
+            LocalTransaction.wrap(() -> {
+                final DotConnect dc = new DotConnect();
+                for (final Statement statement : statements) {
+                    if (statement.execute(dc)) {
+                        stepsRun.increment();
+                    } else {
+                        stepsSkipped.increment();
+                    }
+                }
+            });
+
+            for (final List<String> chunk : Lists.partition(assetIds, getChunkSize())) {
+                factory.preloadPermissionsById(chunk);
+                done += chunk.size();
+                warmed.add(chunk.size());
+                APILocator.getLocalSystemEventsAPI()
+                        .notify(new PermissionReferencesRecomputedEvent(permissionId, done, assetIds.size()));
+            }
+            Logger.debug(this, () -> "Recomputed the permission references of " + assetIds.size()
+                    + " assets under " + permissionId);
+        } catch (Throwable e) {
+            failed.increment();
+            Logger.warn(this, "Unable to recompute the permission references under " + permissionId + ", "
+                    + (assetIds.size() - done) + " assets will be resolved on read: " + e.getMessage(), e);
+            assetIds.subList(done, assetIds.size()).forEach(CacheLocator.getPermissionCache()::remove);
+        } finally {
+            pending.decrementAndGet();
+            DbConnectionFactory.closeSilently();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Config.getBooleanProperty("PERMISSION_REFERENCES_BACKGROUND_RECOMPUTE", true);
+    }
+
+    @Override
+    public int getChunkSize() {
+        return Math.max(1, Config.getIntProperty("PERMISSION_REFERENCES_RECOMPUTE_CHUNK_SIZE", 500));
+    }
+
+    @Override
+    public int getPending() {
+        return pending.get();
+    }
+
+    @Override
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getStepsRun() {
+        return stepsRun.sum();
+    }
+
+    @Override
+    public long getStepsSkipped() {
+        return stepsSkipped.sum();
+    }
+
+    @Override
+    public long getWarmed() {
+        return warmed.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("chunkSize", getChunkSize());
+        stats.put("pending", getPending());
+        stats.put("submitted", getSubmitted());
+        stats.put("stepsRun", getStepsRun());
+        stats.put("stepsSkipped", getStepsSkipped());
+        stats.put("warmed", getWarmed());
+        stats.put("failed", getFailed());
+        return stats;
+    }
+
+} // E:O:F:PermissionReferenceRecomputer.
@@ -0,0 +1,66 @@
+package com.dotmarketing.business;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link PermissionReferenceRecomputer}, the permission references
+ * rebuilt in the background after inheritable permissions are added
+ */
+public interface PermissionReferenceRecomputerMBean extends DotMBean {
+
+    /**
+     * True when the references removed by a permission change are rebuilt in the background
+     * @return boolean
+     */
+    public boolean isEnabled();
+
+    /**
+     * Assets warmed into the permission cache per query
+     * @return int
+     */
+    public int getChunkSize();
+
+    /**
+     * Recomputations waiting or running
+     * @return int
+     */
+    public int getPending();
+
+    /**
+     * Recomputations submitted on commit
+     * @return long
+     */
+    public long getSubmitted();
+
+    /**
+     * Reference statements run, one per permission type rebuilt
+     * @return long
+     */
+    public long getStepsRun();
+
+    /**
+     * Reference inserts skipped because the permissionable no longer had the inheritable permissions of their type
+     * @return long
+     */
+    public long getStepsSkipped();
+
+    /**
+     * Assets whose permissions were warmed into the cache
+     * @return long
+     */
+    public long getWarmed();
+
+    /**
+     * Recomputations that failed, their assets are left to be resolved on read
+     * @return long
+     */
+    public long getFailed();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:PermissionReferenceRecomputerMBean.
@@ -0,0 +1,145 @@
+package com.dotmarketing.business;
+
+import com.dotcms.api.web.HttpServletRequestThreadLocal;
+import com.dotmarketing.exception.DotDataException;
+import com.liferay.portal.model.User;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The roles of a user as the permission checks look at them: the ids of all the roles of the user, implicit ones
+ * included, whether one of them is the CMS Administrator and whether they are all front end roles, along with the
+ * ids of the system roles the checks compare against (CMS Anonymous, Logged-in Site User and CMS Owner).
+ * <p>
+ * A page render can check hundreds of permissions for the same user, so a principal is resolved once per request
+ * and kept as an attribute of it, for every user checked during the request. It is only reused while the
+ * {@link RoleCache} has not changed since it was resolved, any role or user role removed from the cache resolves
+ * it again. Outside of a request it is resolved on every check, as before.
+ * <p>
+ * The generation of the {@link RoleCache} only changes with the removals and flushes made through it on this
+ * server. The invalidations sent by the other servers of the cluster are applied to the cache groups directly and
+ * do not change it, so a role granted or revoked on another server is only seen by the requests started after it
+ * reached this one: a request already running keeps the principal it resolved until it ends.
+ *
+ * @author dotCMS
+ */
+public final class ResolvedPrincipal {
+
+    private static final String REQUEST_ATTRIBUTE = ResolvedPrincipal.class.getName();
+    private static final String ANONYMOUS_KEY = "";
+
+    private final String userId;
+    private final Set<String> roleIds;
+    private final boolean admin;
+    private final boolean onlyFrontEndRoles;
+    private final String anonymousRoleId;
+    private final String loggedInSiteRoleId;
+    private final String ownerRoleId;
+    private final long generation;
+
+    private ResolvedPrincipal(final User user, final long generation) throws DotDataException {
+
+        final RoleAPI roleAPI = APILocator.getRoleAPI();
+        final String adminRoleId = roleAPI.loadCMSAdminRole().getId();
+        this.userId = user == null ? null : user.getUserId();
+        this.anonymousRoleId = roleAPI.loadCMSAnonymousRole().getId();
+        this.loggedInSiteRoleId = roleAPI.loadLoggedinSiteRole().getId();
+        this.ownerRoleId = roleAPI.loadCMSOwnerRole().getId();
+        this.generation = generation;
+
+        final Set<String> ids = new HashSet<>();
+        if (user != null) {
+            for (final Role role : roleAPI.loadRolesForUser(user.getUserId())) {
+                ids.add(role.getId());
+            }
+        }
+        this.roleIds = Collections.unmodifiableSet(ids);
+        this.admin = ids.contains(adminRoleId);
+
+        final Set<String> frontEndRoles = new HashSet<>();
+        frontEndRoles.add(anonymousRoleId);
+        frontEndRoles.add(loggedInSiteRoleId);
+        final Role anonymous = roleAPI.loadRoleByKey("anonymous");
+        if (anonymous != null) {
+            frontEndRoles.add(anonymous.getId());
+        }
+        this.onlyFrontEndRoles = frontEndRoles.containsAll(ids);
+    }
+
+    /**
+     * Returns the principal of the user, the one resolved earlier in the current request when the roles did not
+     * change since then
+     *
+     * @param user the user, null for anonymous
+     */
+    public static ResolvedPrincipal resolve(final User user) throws DotDataException {
+
+        final long generation = CacheLocator.getRoleCache().getGeneration();
+        final HttpServletRequest request = HttpServletRequestThreadLocal.INSTANCE.getRequest();
+        if (request == null) {
+            return new ResolvedPrincipal(user, generation);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, ResolvedPrincipal> principals =
+                (Map<String, ResolvedPrincipal>) request.getAttribute(REQUEST_ATTRIBUTE);
+        if (principals == null) {
+            principals = new ConcurrentHashMap<>();
+            request.setAttribute(REQUEST_ATTRIBUTE, principals);
+        }
+
+        final String key = user == null ? ANONYMOUS_KEY : user.getUserId();
+        ResolvedPrincipal principal = principals.get(key);
+        if (principal == null || principal.generation != generation) {
+            principal = new ResolvedPrincipal(user, generation);
+            principals.put(key, principal);
+        }
+        return principal;
+    }
+
+    /**
+     * Id of the user, null for anonymous
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Ids of all the roles of the user, implicit roles included
+     */
+    public Set<String> getRoleIds() {
+        return roleIds;
+    }
+
+    /**
+     * True when the user has the CMS Administrator role
+     */
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * True when every role of the user is a front end role, those are not taken into account when the front end
+     * roles are not respected
+     */
+    public boolean hasOnlyFrontEndRoles() {
+        return onlyFrontEndRoles;
+    }
+
+    public String getAnonymousRoleId() {
+        return anonymousRoleId;
+    }
+
+    public String getLoggedInSiteRoleId() {
+        return loggedInSiteRoleId;
+    }
+
+    public String getOwnerRoleId() {
+        return ownerRoleId;
+    }
+
+}
@@ -46,6 +46,14 @@ public abstract class RoleCache implements Cachable{
 
 	abstract protected void removeLayoutsOnRole(String roleId);
 
+	/**
+	 * Changes every time roles or the roles of a user are removed from the cache on this server, a
+	 * {@link ResolvedPrincipal} resolved before a change is not used after it. The invalidations received from
+	 * the other servers of the cluster do not change it.
+	 * @return
+	 */
+	abstract protected long getGeneration();
+
 	protected static class UserRoleCacheHelper implements Serializable {
         private static final long serialVersionUID = 6600085101661951648L;
         private String roleId;
@@ -2,6 +2,7 @@ package com.dotmarketing.business;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
@@ -22,6 +23,8 @@ public class RoleCacheImpl extends RoleCache {
 	
 	private final String rootRoleKey = "ROOT";
 
+	private final AtomicLong generation = new AtomicLong();
+
 	// region's name for the cache
 	private String[] groupNames = {primaryGroup,userGroup,layoutGroup, rootRolesGroup};
 
@@ -90,6 +93,7 @@ public class RoleCacheImpl extends RoleCache {
 	 * @see com.dotmarketing.business.PermissionCache#clearCache()
 	 */
 	public void clearCache() {
+		generation.incrementAndGet();
 		// clear the cache
 		cache.flushGroup(primaryGroup);
 		cache.flushGroup(userGroup);
@@ -102,6 +106,7 @@ public class RoleCacheImpl extends RoleCache {
 	 * @see com.dotmarketing.business.PermissionCache#remove(java.lang.String)
 	 */
 	protected void remove(String key){
+		generation.incrementAndGet();
 		try{
 			cache.remove(primaryGroup + key,primaryGroup);
 			cache.remove(userGroup + key,userGroup);
@@ -120,6 +125,7 @@ public class RoleCacheImpl extends RoleCache {
 
 	@Override
 	protected void clearRoleCache() {
+		generation.incrementAndGet();
 		cache.flushGroup(primaryGroup);
 		cache.flushGroup(keyGroup);
 	}
@@ -131,9 +137,15 @@ public class RoleCacheImpl extends RoleCache {
 	
 	@Override
 	protected void clearUserRoleCache() {
+		generation.incrementAndGet();
 		cache.flushGroup(userGroup);
 	}
 
+	@Override
+	protected long getGeneration() {
+		return generation.get();
+	}
+
 	@Override
 	protected List<UserRoleCacheHelper> getRoleIdsForUser(String userId) {
 		String key = userGroup + userId;
@@ -0,0 +1,136 @@
+package com.dotmarketing.business.cache;
+
+import com.dotmarketing.business.CacheLoader;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.util.Logger;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses the concurrent loads of the same cache key into a single one.
+ * <p>
+ * The first thread that misses a key runs the loader, the threads that miss the same key while it is
+ * loading wait for its result instead of hitting the database. A waiting thread that times out (or is
+ * interrupted) runs the loader itself, and a thread that misses a key it is already loading (a loader
+ * calling itself) does not wait for itself.
+ *
+ * @author dotCMS
+ */
+public class CacheSingleFlight {
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder collapsedLoads = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * @param timeoutMillis max time a thread waits for the load of another thread
+     */
+    public CacheSingleFlight(final long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Runs the loader for the given key unless it is already being loaded, in which case it waits for
+     * that load and returns its result (or rethrows its exception)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(final String group, final String key, final CacheLoader<T> loader)
+            throws DotDataException, DotSecurityException {
+
+        final String flightKey = group + ":" + key;
+        final Flight flight = new Flight();
+        final Flight running = flights.putIfAbsent(flightKey, flight);
+
+        if (running == null) {
+            loads.increment();
+            try {
+                final T value = loader.load();
+                flight.complete(value);
+                return value;
+            } catch (Throwable t) {
+                flight.completeExceptionally(t);
+                throw t;
+            } finally {
+                flights.remove(flightKey, flight);
+            }
+        }
+
+        if (running.owner == Thread.currentThread()) {
+            return loader.load();
+        }
+
+        collapsedLoads.increment();
+        try {
+            return (T) running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            Logger.warn(CacheSingleFlight.class, "Timed out after " + timeoutMillis + "ms waiting for the load of "
+                    + flightKey + ", loading it");
+            return loader.load();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return loader.load();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof DotDataException) {
+                throw (DotDataException) cause;
+            } else if (cause instanceof DotSecurityException) {
+                throw (DotSecurityException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DotDataException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Loads run by this node
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Misses that waited for the load of another thread instead of loading
+     */
+    public long getCollapsedLoads() {
+        return collapsedLoads.sum();
+    }
+
+    /**
+     * Misses that gave up waiting for the load of another thread
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Keys being loaded right now
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheSingleFlight{loads=" + getLoads() + ", collapsedLoads=" + getCollapsedLoads()
+                + ", timeouts=" + getTimeouts() + ", inFlight=" + getInFlight() + "}";
+    }
+
+    private static class Flight extends CompletableFuture<Object> {
+
+        private final Thread owner = Thread.currentThread();
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.dotmarketing.business.cache;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.ChainableCacheAdministratorImpl;
+import com.dotmarketing.business.DotCacheAdministrator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JMX view of the {@link CacheSingleFlight} used by the {@link ChainableCacheAdministratorImpl}, all the
+ * counters are 0 when it is disabled or another cache administrator is in use
+ */
+public class CacheSingleFlightStats implements CacheSingleFlightStatsMBean {
+
+    public static final String MBEAN_OBJECT_NAME = "org.dotcms:type=CacheSingleFlight";
+
+    private static final CacheSingleFlightStats INSTANCE = new CacheSingleFlightStats();
+
+    private CacheSingleFlightStats() {
+    }
+
+    public static CacheSingleFlightStats getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getObjectName() {
+        return MBEAN_OBJECT_NAME;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return singleFlight() != null;
+    }
+
+    @Override
+    public long getLoads() {
+        final CacheSingleFlight singleFlight = singleFlight();
+        return singleFlight != null ? singleFlight.getLoads() : 0;
+    }
+
+    @Override
+    public long getCollapsedLoads() {
+        final CacheSingleFlight singleFlight = singleFlight();
+        return singleFlight != null ? singleFlight.getCollapsedLoads() : 0;
+    }
+
+    @Override
+    public long getTimeouts() {
+        final CacheSingleFlight singleFlight = singleFlight();
+        return singleFlight != null ? singleFlight.getTimeouts() : 0;
+    }
+
+    @Override
+    public int getInFlight() {
+        final CacheSingleFlight singleFlight = singleFlight();
+        return singleFlight != null ? singleFlight.getInFlight() : 0;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("loads", getLoads());
+        stats.put("collapsedLoads", getCollapsedLoads());
+        stats.put("timeouts", getTimeouts());
+        stats.put("inFlight", getInFlight());
+        return stats;
+    }
+
+    private CacheSingleFlight singleFlight() {
+        final DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
+        if (cache == null) {
+            return null;
+        }
+        final DotCacheAdministrator implementation = cache.getImplementationObject();
+        return implementation instanceof ChainableCacheAdministratorImpl
+                ? ((ChainableCacheAdministratorImpl) implementation).getSingleFlight() : null;
+    }
+
+} // E:O:F:CacheSingleFlightStats.
@@ -0,0 +1,48 @@
+package com.dotmarketing.business.cache;
+
+import com.dotcms.jmx.DotMBean;
+import java.util.Map;
+
+/**
+ * Encapsulates the MBean interfaces for the {@link CacheSingleFlightStats}, the loads collapsed by the
+ * {@link CacheSingleFlight} of the cache administrator
+ */
+public interface CacheSingleFlightStatsMBean extends DotMBean {
+
+    /**
+     * True when the concurrent misses of the same key wait for a single load
+     * @return boolean
+     */
+    public boolean isEnabled();
+
+    /**
+     * Number of loads run by this node
+     * @return long
+     */
+    public long getLoads();
+
+    /**
+     * Number of misses that waited for the load of another thread instead of loading
+     * @return long
+     */
+    public long getCollapsedLoads();
+
+    /**
+     * Number of misses that gave up waiting for the load of another thread
+     * @return long
+     */
+    public long getTimeouts();
+
+    /**
+     * Number of keys being loaded right now
+     * @return int
+     */
+    public int getInFlight();
+
+    /**
+     * All the stats above by name
+     * @return Map
+     */
+    public Map<String, Object> getStats();
+
+} // E:O:F:CacheSingleFlightStatsMBean.
@@ -0,0 +1,222 @@
+package com.dotmarketing.business.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a version stamp for the keys of the cache groups that have versioning enabled.
+ * <p>
+ * Every put, remove and flush of a versioned group takes a new version from a node wide clock. With it
+ * the cache administrator can:
+ * <ul>
+ * <li>Drop a put whose value was loaded before the key was invalidated, a get that misses gives the
+ * loader a token with the version its load started at and the put of that loader is rejected if the key
+ * (or its group) was invalidated later. The token is kept for the thread that missed, so concurrent
+ * loaders of the same key don't take each other's token.</li>
+ * <li>Skip an invalidation received from the cluster for a key this node never cached. That is only
+ * known once the group has been flushed on this node, before that (i.e. entries recovered by a disk
+ * provider after a restart) every invalidation is applied.</li>
+ * </ul>
+ * The number of keys tracked per group is bounded, when a group goes over the limit its stamps are
+ * dropped and the group is handled as just started: ongoing loads are rejected and every invalidation is
+ * applied until the group is flushed again.
+ *
+ * @author dotCMS
+ */
+public class CacheVersionTracker {
+
+    private static final int MAX_LOADS_PER_THREAD = 256;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, GroupVersions> groups = new ConcurrentHashMap<>();
+    private final int maxKeys;
+
+    // group and key -> token of the loads started by a thread, the oldest are dropped and their puts accepted
+    private final ThreadLocal<Map<String, Long>> loads = ThreadLocal.withInitial(() -> new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+            return size() > MAX_LOADS_PER_THREAD;
+        }
+    });
+
+    private final LongAdder stalePuts = new LongAdder();
+    private final LongAdder skippedRemoves = new LongAdder();
+
+    /**
+     * @param versionedGroups groups to track, lower cased
+     * @param maxKeys         max number of keys tracked per group
+     */
+    public CacheVersionTracker(final Set<String> versionedGroups, final int maxKeys) {
+        this.maxKeys = Math.max(1, maxKeys);
+        for (final String group : versionedGroups) {
+            groups.put(group, new GroupVersions());
+        }
+    }
+
+    /**
+     * Returns true if the given group is versioned
+     */
+    public boolean isVersioned(final String group) {
+        return groups.containsKey(group);
+    }
+
+    /**
+     * Returns the versioned groups
+     */
+    public Set<String> getGroups() {
+        return Collections.unmodifiableSet(new HashSet<>(groups.keySet()));
+    }
+
+    /**
+     * To be called when a get misses, the value the calling thread loads for the key will be accepted by
+     * {@link #canPut(String, String)} only if the key is not invalidated in between
+     *
+     * @return the token of the load, see {@link #canPut(String, String, long)}
+     */
+    public long loadStarted(final String group, final String key) {
+        final long token = clock.get();
+        if (groups.containsKey(group)) {
+            loads.get().put(loadKey(group, key), token);
+        }
+        return token;
+    }
+
+    /**
+     * Returns true and stamps the key if a value can be put for the key, false if the value the calling
+     * thread is putting was loaded before the last invalidation of the key
+     */
+    public boolean canPut(final String group, final String key) {
+        if (!groups.containsKey(group)) {
+            return true;
+        }
+        final Long token = loads.get().remove(loadKey(group, key));
+        return canPut(group, key, token != null ? token : Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns true and stamps the key if a value can be put for the key, false if the value was loaded
+     * before the last invalidation of the key
+     *
+     * @param token returned by {@link #loadStarted(String, String)} when the load of the value started
+     */
+    public boolean canPut(final String group, final String key, final long token) {
+        final GroupVersions versions = groups.get(group);
+        if (versions == null) {
+            return true;
+        }
+
+        if (versions.lastInvalidation(key) > token) {
+            stalePuts.increment();
+            return false;
+        }
+        versions.stamps.put(key, clock.incrementAndGet());
+        versions.prune(this);
+        return true;
+    }
+
+    /**
+     * Stamps the invalidation of a key. Returns false if the invalidation came from the cluster and this
+     * node does not have the key, so it can be skipped
+     */
+    public boolean invalidate(final String group, final String key, final boolean fromCluster) {
+        final GroupVersions versions = groups.get(group);
+        if (versions == null) {
+            return true;
+        }
+
+        final long version = clock.incrementAndGet();
+        versions.invalidations.put(key, version);
+        final Long previous = versions.stamps.put(key, -version);
+        versions.prune(this);
+        if (fromCluster && versions.complete && (previous == null || previous < 0)) {
+            skippedRemoves.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stamps the flush of a group, from here on the stamps of the group know every key it has
+     */
+    public void flush(final String group) {
+        final GroupVersions versions = groups.get(group);
+        if (versions != null) {
+            versions.flush(clock.incrementAndGet());
+        }
+    }
+
+    /**
+     * Stamps the flush of all the groups
+     */
+    public void flushAll() {
+        final long version = clock.incrementAndGet();
+        for (final GroupVersions versions : groups.values()) {
+            versions.flush(version);
+        }
+    }
+
+    /**
+     * Current version of the node clock
+     */
+    public long getVersion() {
+        return clock.get();
+    }
+
+    /**
+     * Puts dropped because the value was loaded before the key was invalidated
+     */
+    public long getStalePuts() {
+        return stalePuts.sum();
+    }
+
+    /**
+     * Cluster invalidations skipped because this node did not have the key
+     */
+    public long getSkippedRemoves() {
+        return skippedRemoves.sum();
+    }
+
+    private String loadKey(final String group, final String key) {
+        return group + ':' + key;
+    }
+
+    private class GroupVersions {
+
+        // key -> version it was put (positive) or invalidated (negative)
+        private final Map<String, Long> stamps = new ConcurrentHashMap<>();
+        // key -> version it was last invalidated, kept after a new put so a slower loader is still rejected
+        private final Map<String, Long> invalidations = new ConcurrentHashMap<>();
+        // invalidation version for the keys without a stamp
+        private volatile long flushedAt = 0;
+        // true when stamps holds every key this node cached since the last flush
+        private volatile boolean complete = false;
+
+        long lastInvalidation(final String key) {
+            final Long invalidation = invalidations.get(key);
+            return (invalidation != null) ? Math.max(invalidation, flushedAt) : flushedAt;
+        }
+
+        void flush(final long version) {
+            stamps.clear();
+            invalidations.clear();
+            flushedAt = version;
+            complete = true;
+        }
+
+        void prune(final CacheVersionTracker tracker) {
+            if (stamps.size() > tracker.maxKeys || invalidations.size() > tracker.maxKeys) {
+                stamps.clear();
+                invalidations.clear();
+                flushedAt = tracker.clock.incrementAndGet();
+                complete = false;
+            }
+        }
+    }
+
+}
@@ -1,7 +1,20 @@
 package com.dotmarketing.business.cache.provider;
 
+import com.dotmarketing.business.cache.serializer.BinaryCacheSerializer;
+import com.dotmarketing.business.cache.serializer.CacheSerializer;
+import com.dotmarketing.business.cache.serializer.CacheSerializerStats;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import java.io.IOException;
 import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class will be extended by any Cache implementation that needs/want to belong to the Cache Providers execution chain.
@@ -25,6 +38,10 @@ import java.util.Set;
  * <li>cache.velocitymemoryonlycache.chain=com.dotmarketing.business.cache.provider.guava.GuavaCache</li>
  * <li>cache.velocityuservtlcache.chain=com.dotmarketing.business.cache.provider.redis.RedisProvider,com.dotmarketing.business.cache.provider.h2.H2CacheLoader</li>
  * </ul>
+ * <p/>
+ * Providers that store their values outside of the java heap should convert them using {@link #serialize(String, Object)}
+ * and {@link #deserialize(String, byte[])}, those use the {@link CacheSerializer} configured for the provider and keep
+ * per group serialization stats.
  *
  * @author Jonathan Gamba
  *         Date: 8/31/15
@@ -34,6 +51,26 @@ public abstract class CacheProvider implements Serializable {
     protected static final String ONLY_MEMORY_GROUP = "VelocityMemoryOnlyCache".toLowerCase();
     protected static final String USER_VTLS_GROUP = "VelocityUserVTLCache".toLowerCase();
 
+    private static final Map<String, CacheProvider> instances = new ConcurrentHashMap<>();
+
+    private transient volatile CacheSerializer serializer;
+    private final ConcurrentHashMap<String, CacheSerializerStats> serializerStats = new ConcurrentHashMap<>();
+
+    protected CacheProvider () {
+        instances.put(getClass().getName(), this);
+    }
+
+    /**
+     * Returns the last created instance of the given CacheProvider class, the one the Cache Providers
+     * execution chain uses, or null when the class was never instantiated
+     *
+     * @param className
+     * @return
+     */
+    public static CacheProvider getInstance ( final String className ) {
+        return instances.get(className);
+    }
+
     /**
      * Returns the human readable name for this Cache Provider
      *
@@ -85,6 +122,27 @@ public abstract class CacheProvider implements Serializable {
      */
     public abstract Object get ( String group, String key );
 
+    /**
+     * Searches and returns the contents of the given keys in a given region, the keys that are not found
+     * are not in the returned map. Providers that can look up many keys in a single call (a single query,
+     * a single round trip) should override it, by default every key is looked up by itself
+     *
+     * @param group
+     * @param keys
+     * @return
+     */
+    public Map<String, Object> getAll ( final String group, final Collection<String> keys ) {
+
+        final Map<String, Object> found = new HashMap<>();
+        for ( final String key : keys ) {
+            final Object value = get(group, key);
+            if ( value != null ) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
     /**
      * Invalidates a given key for a given region
      *
@@ -132,4 +190,122 @@ public abstract class CacheProvider implements Serializable {
      */
     public abstract void shutdown ();
 
+    /**
+     * Checks if the write-behind of this provider is enabled with the given property. It never is for a
+     * distributed provider, the store is shared with the other servers and a remove sent by one of them
+     * can not cancel a put queued on this server
+     *
+     * @param property
+     * @return
+     */
+    protected boolean isWriteBehindEnabled ( final String property ) {
+
+        if ( !Config.getBooleanProperty(property, false) ) {
+            return false;
+        }
+        if ( isDistributed() ) {
+            Logger.warn(this, "Write-behind is not available for [" + getName() + "], its store is shared by"
+                    + " the cluster. Ignoring " + property + ".");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the serializer used to convert the values of this provider to bytes, configured with the
+     * <strong>cache.[provider key].serializer</strong> or <strong>cache.serializer</strong> properties and
+     * defaulting to the {@link BinaryCacheSerializer}
+     *
+     * @return
+     */
+    public CacheSerializer getSerializer () {
+
+        if ( serializer == null ) {
+            final String className = Config.getStringProperty("cache." + getKey().toLowerCase() + ".serializer",
+                    Config.getStringProperty("cache.serializer", BinaryCacheSerializer.class.getName()));
+            CacheSerializer configured = null;
+            try {
+                configured = (CacheSerializer) Class.forName(className).newInstance();
+            } catch ( Exception e ) {
+                Logger.error(this, "Unable to create the cache serializer [" + className + "] for [" + getName()
+                        + "], using the default one.", e);
+                configured = new BinaryCacheSerializer();
+            }
+            serializer = configured;
+        }
+
+        return serializer;
+    }
+
+    /**
+     * Overrides the serializer used by this provider
+     *
+     * @param serializer
+     */
+    public void setSerializer ( final CacheSerializer serializer ) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Converts the given content to bytes using the provider serializer
+     *
+     * @param group
+     * @param content
+     * @return
+     * @throws IOException
+     */
+    protected byte[] serialize ( final String group, final Object content ) throws IOException {
+
+        final long start = System.nanoTime();
+        final byte[] data = getSerializer().serialize(content);
+        getSerializerStats(group).serialized(data.length, System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * Rebuilds content written with {@link #serialize(String, Object)}
+     *
+     * @param group
+     * @param data
+     * @return
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    protected Object deserialize ( final String group, final byte[] data ) throws IOException, ClassNotFoundException {
+
+        final long start = System.nanoTime();
+        final Object content = getSerializer().deserialize(data);
+        getSerializerStats(group).deserialized(data.length, System.nanoTime() - start);
+        return content;
+    }
+
+    /**
+     * Returns the serialization stats of the given region
+     *
+     * @param group
+     * @return
+     */
+    public CacheSerializerStats getSerializerStats ( final String group ) {
+        return serializerStats.computeIfAbsent(group.toLowerCase(), k -> new CacheSerializerStats());
+    }
+
+    /**
+     * Adds the serialization stats of the given region to a stats record
+     *
+     * @param group
+     * @param stats
+     */
+    protected void addSerializerStats ( final String group, final CacheStats stats ) {
+
+        final CacheSerializerStats groupStats = serializerStats.get(group.toLowerCase());
+        if ( groupStats == null ) {
+            return;
+        }
+
+        final NumberFormat nf = DecimalFormat.getInstance();
+        stats.addStat(CacheStats.REGION_BYTES_WRITTEN, UtilMethods.prettyByteify(groupStats.getBytesWritten()));
+        stats.addStat(CacheStats.REGION_AVG_SERIALIZE_TIME, nf.format(groupStats.getAvgSerializeTime() / 1000) + " \u00b5s");
+        stats.addStat(CacheStats.REGION_AVG_DESERIALIZE_TIME, nf.format(groupStats.getAvgDeserializeTime() / 1000) + " \u00b5s");
+    }
+
 }
\ No newline at end of file
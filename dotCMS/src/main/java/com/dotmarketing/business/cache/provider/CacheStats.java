@@ -22,6 +22,12 @@ public class CacheStats {
   public final static String REGION_MEM_PER_OBJECT_PRETTY="cache.stats.region.mem.per.object";
   public final static String REGION_AVG_LOAD_TIME="cache.stats.region.load.time.avg";
   public final static String REGION_EVICTIONS="cache.stats.region.evictions";
+  public final static String REGION_BYTES_WRITTEN="cache.stats.region.bytes.written";
+  public final static String REGION_AVG_SERIALIZE_TIME="cache.stats.region.serialize.time.avg";
+  public final static String REGION_AVG_DESERIALIZE_TIME="cache.stats.region.deserialize.time.avg";
+  public final static String REGION_MEM_BUDGET="cache.stats.region.mem.budget";
+  public final static String REGION_AVG_MISS_COST="cache.stats.region.miss.cost.avg";
+  public final static String REGION_WRITE_BEHIND_PENDING="cache.stats.region.writebehind.pending";
   
   
     Map<String, String> stats = new LinkedHashMap<>();
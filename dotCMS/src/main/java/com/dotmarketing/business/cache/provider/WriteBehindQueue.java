@@ -0,0 +1,357 @@
+package com.dotmarketing.business.cache.provider;
+
+import com.dotmarketing.util.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer used by the providers of the second tier of the cache chain (the ones that are
+ * not in memory), so the request thread does not pay for a write it does not need. Only the local
+ * providers (H22) use it: the store of a distributed provider is shared by the cluster and a remove
+ * sent by another server can not cancel a put queued on this one.
+ * <p>
+ * Puts are kept in a bounded queue, a put to a key that is already queued replaces the queued value,
+ * and a single thread drains the queue in batches. A remove of a queued key cancels its put, and when
+ * the key is already being written the remove is applied again after the batch so the write does not
+ * resurrect it. When the queue is full {@link #offer(String, String, Object)} returns false and the
+ * provider writes on the calling thread, that is the backpressure. A put to a key that is being written
+ * is queued even then, so it is written after the older value and not before it.
+ *
+ * @author dotCMS
+ */
+public class WriteBehindQueue {
+
+    /**
+     * Writes the batches of the queue to the provider
+     */
+    public interface Writer {
+
+        void write(List<Entry> entries) throws Exception;
+
+        void delete(Entry entry) throws Exception;
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final int batchSize;
+    private final long flushMillis;
+    private final Writer writer;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> pending = new LinkedHashMap<>();
+    private Map<String, Entry> flushing = Collections.emptyMap();
+    private final Map<String, Entry> cancelledWhileFlushing = new LinkedHashMap<>();
+    private volatile boolean running = true;
+    private final Thread drainer;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long lastRejectedLog = 0;
+
+    /**
+     * @param name        used to name the drain thread and in the logs
+     * @param maxEntries  max number of puts waiting to be written
+     * @param batchSize   max number of puts written per batch
+     * @param flushMillis max time a put waits before it is written
+     * @param writer      writes the batches
+     */
+    public WriteBehindQueue(final String name, final int maxEntries, final int batchSize, final long flushMillis,
+            final Writer writer) {
+        this.name = name;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMillis = Math.max(1, flushMillis);
+        this.writer = writer;
+        this.drainer = new Thread(this::drainLoop, "WriteBehindQueue-" + name);
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Queues a put, returns false if the queue is full (or stopped) and the put has to be written by the
+     * caller. The put of a key that is being written is always queued
+     */
+    public boolean offer(final String group, final String key, final Object value) {
+
+        final String id = id(group, key);
+        synchronized (lock) {
+            // a key being written is always queued, written by the caller it could land before the older value
+            final boolean inFlight = flushing.containsKey(id);
+            if (!running && !inFlight) {
+                return false;
+            }
+            final Entry previous = pending.put(id, new Entry(group, key, value));
+            if (previous != null) {
+                coalesced.increment();
+                return true;
+            }
+            if (pending.size() > maxEntries && !inFlight) {
+                pending.remove(id);
+                rejected.increment();
+                logRejected();
+                return false;
+            }
+            queued.increment();
+            if (pending.size() >= batchSize) {
+                lock.notifyAll();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Value of a put that was not written yet, null if there is none or if it was cancelled while it
+     * is being written
+     */
+    public Entry peek(final String group, final String key) {
+        final String id = id(group, key);
+        synchronized (lock) {
+            final Entry entry = pending.get(id);
+            if (entry != null) {
+                return entry;
+            }
+            return cancelledWhileFlushing.containsKey(id) ? null : flushing.get(id);
+        }
+    }
+
+    /**
+     * Cancels the put of a key, returns true if the put is being written right now, in which case the
+     * remove is applied again once the batch is written
+     */
+    public boolean cancel(final String group, final String key) {
+        final String id = id(group, key);
+        synchronized (lock) {
+            if (pending.remove(id) != null) {
+                cancelled.increment();
+            }
+            final Entry inFlight = flushing.get(id);
+            if (inFlight != null) {
+                cancelledWhileFlushing.put(id, inFlight);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Cancels the puts of a group
+     */
+    public void cancelGroup(final String group) {
+        synchronized (lock) {
+            for (final Iterator<Entry> it = pending.values().iterator(); it.hasNext(); ) {
+                if (it.next().group.equals(group)) {
+                    it.remove();
+                    cancelled.increment();
+                }
+            }
+            for (final Map.Entry<String, Entry> inFlight : flushing.entrySet()) {
+                if (inFlight.getValue().group.equals(group)) {
+                    cancelledWhileFlushing.put(inFlight.getKey(), inFlight.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancels all the puts
+     */
+    public void cancelAll() {
+        synchronized (lock) {
+            cancelled.add(pending.size());
+            pending.clear();
+            cancelledWhileFlushing.putAll(flushing);
+        }
+    }
+
+    /**
+     * Puts waiting to be written for the given group
+     */
+    public int getPending(final String group) {
+        int count = 0;
+        synchronized (lock) {
+            for (final Entry entry : pending.values()) {
+                if (entry.group.equals(group)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes all the queued puts and stops the drain thread
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            final List<Entry> batch;
+            synchronized (lock) {
+                if (running && pending.size() < batchSize) {
+                    try {
+                        lock.wait(flushMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        running = false;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = take();
+            }
+            drain(batch);
+        }
+    }
+
+    private List<Entry> take() {
+        final List<Entry> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        final Map<String, Entry> inFlight = new LinkedHashMap<>();
+        for (final Iterator<Map.Entry<String, Entry>> it = pending.entrySet().iterator(); it.hasNext() && batch.size() < batchSize; ) {
+            final Map.Entry<String, Entry> next = it.next();
+            batch.add(next.getValue());
+            inFlight.put(next.getKey(), next.getValue());
+            it.remove();
+        }
+        flushing = inFlight;
+        return batch;
+    }
+
+    private void drain(final List<Entry> batch) {
+
+        try {
+            writer.write(batch);
+            written.add(batch.size());
+        } catch (Throwable e) {
+            failed.add(batch.size());
+            Logger.warn(WriteBehindQueue.class, "Unable to write " + batch.size() + " entries to " + name + ": " + e.getMessage(), e);
+        }
+        batches.increment();
+
+        final List<Entry> deletes;
+        synchronized (lock) {
+            flushing = Collections.emptyMap();
+            deletes = new ArrayList<>(cancelledWhileFlushing.values());
+            cancelledWhileFlushing.clear();
+        }
+        for (final Entry entry : deletes) {
+            try {
+                writer.delete(entry);
+            } catch (Throwable e) {
+                Logger.warn(WriteBehindQueue.class, "Unable to remove " + entry + " from " + name + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void logRejected() {
+        final long now = System.currentTimeMillis();
+        if (now - lastRejectedLog > TimeUnit.MINUTES.toMillis(1)) {
+            lastRejectedLog = now;
+            Logger.warn(WriteBehindQueue.class, "Write-behind queue of " + name + " is full (" + maxEntries
+                    + " entries), writing on the request thread. " + this);
+        }
+    }
+
+    private static String id(final String group, final String key) {
+        return group + ":" + key;
+    }
+
+    /**
+     * Puts added to the queue, not counting the coalesced ones
+     */
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    /**
+     * Puts that replaced a put of the same key before it was written
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Puts cancelled by a remove before they were written
+     */
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Puts written by the caller because the queue was full
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getPending() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindQueue{name=" + name + ", pending=" + getPending() + ", queued=" + getQueued()
+                + ", coalesced=" + getCoalesced() + ", cancelled=" + getCancelled() + ", rejected=" + getRejected()
+                + ", written=" + getWritten() + ", batches=" + getBatches() + ", failed=" + getFailed() + "}";
+    }
+
+    /**
+     * A queued put
+     */
+    public static class Entry {
+
+        public final String group;
+        public final String key;
+        public final Object value;
+
+        Entry(final String group, final String key, final Object value) {
+            this.group = group;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return group + ":" + key;
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.dotmarketing.business.cache.provider.caffine;
+
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A memory budget shared by the regions of the {@link CaffineCache}.
+ * <p>
+ * Each region is bounded by weight (see {@link ObjectWeigher}) and every few seconds the budget is
+ * split again between them: the regions that are not using their share give back what they don't use
+ * and the regions that are evicting get the rest, weighted by the number of misses they had in the last
+ * interval and by how long, on average, it took to load the value of a miss (the time between a miss and
+ * the put of the same key, sampled). The changes are damped so the regions don't oscillate, and every
+ * region keeps a minimum share.
+ *
+ * @author dotCMS
+ */
+public class AdaptiveCacheBudget {
+
+    private static final long DEFAULT_MISS_COST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MISS_SAMPLE_MASK = 0x7;
+    private static final int MAX_PENDING_MISSES = 1024;
+    private static final double FULL_RATIO = 0.9;
+    private static final double GROWTH_MARGIN = 1.25;
+    private static final double DAMPING = 0.5;
+
+    private final long budget;
+    private final long minimum;
+    private final int expectedRegions;
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param budget          bytes shared by all the regions
+     * @param minShare        min share of the budget kept by every region
+     * @param expectedRegions number of regions configured, used to size a region before the first rebalance
+     */
+    public AdaptiveCacheBudget(final long budget, final double minShare, final int expectedRegions) {
+        this.budget = budget;
+        this.minimum = Math.max(1, (long) (budget * minShare));
+        this.expectedRegions = Math.max(1, expectedRegions);
+    }
+
+    /**
+     * Starts rebalancing the budget every given seconds
+     */
+    public void start(final long intervalSeconds) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "AdaptiveCacheBudget");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebalance();
+            } catch (Exception e) {
+                Logger.warn(AdaptiveCacheBudget.class, "Unable to rebalance the cache budget: " + e.getMessage(), e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Max weight of a region until the next rebalance
+     */
+    public long initialMaximum() {
+        return Math.max(minimum, budget / Math.max(expectedRegions, regions.size() + 1));
+    }
+
+    public void register(final String name, final Cache<String, Object> cache) {
+        regions.put(name, new Region(cache));
+    }
+
+    public void unregister(final String name) {
+        regions.remove(name);
+    }
+
+    /**
+     * Records a miss, a sample of them is used to measure the miss cost of the region
+     */
+    public void missed(final String name, final String key) {
+        final Region region = regions.get(name);
+        if (region != null && (key.hashCode() & MISS_SAMPLE_MASK) == 0 && region.pendingMisses.size() < MAX_PENDING_MISSES) {
+            region.pendingMisses.putIfAbsent(key, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records a put, if the key missed before the time in between is the cost of the miss
+     */
+    public void loaded(final String name, final String key) {
+        final Region region = regions.get(name);
+        if (region != null && !region.pendingMisses.isEmpty()) {
+            final Long missedAt = region.pendingMisses.remove(key);
+            if (missedAt != null) {
+                region.missCostNanos.add(System.nanoTime() - missedAt);
+                region.missCostSamples.increment();
+            }
+        }
+    }
+
+    /**
+     * Splits the budget again between the regions using the stats of the last interval
+     */
+    public synchronized void rebalance() {
+
+        final List<Region> current = new ArrayList<>(regions.values());
+        if (current.isEmpty()) {
+            return;
+        }
+
+        long reserved = 0;
+        double demand = 0;
+        final List<Region> full = new ArrayList<>();
+        for (final Region region : current) {
+            region.snapshot();
+            if (region.evictions > 0 || region.weight() >= region.maximum() * FULL_RATIO) {
+                full.add(region);
+                region.demand = 1 + region.misses * (region.averageMissCostNanos() / (double) DEFAULT_MISS_COST_NANOS);
+                demand += region.demand;
+                reserved += minimum;
+            } else {
+                // not using its share, keep what it has plus some room to grow
+                region.target = Math.max(minimum, (long) (region.weight() * GROWTH_MARGIN));
+                reserved += region.target;
+            }
+        }
+
+        final long free = Math.max(0, budget - reserved);
+        for (final Region region : full) {
+            region.target = minimum + (long) (free * (region.demand / demand));
+        }
+
+        // when the regions that are not full already take more than the budget everybody shrinks
+        final double scale = reserved > budget ? budget / (double) reserved : 1;
+        for (final Region region : current) {
+            final long target = Math.max(minimum, (long) (region.target * scale));
+            final long maximum = region.maximum();
+            region.setMaximum(Math.max(minimum, maximum + (long) ((target - maximum) * DAMPING)));
+        }
+
+        if (Logger.isDebugEnabled(AdaptiveCacheBudget.class)) {
+            for (final Map.Entry<String, Region> entry : regions.entrySet()) {
+                Logger.debug(AdaptiveCacheBudget.class, "Cache region " + entry.getKey() + " weight: "
+                        + UtilMethods.prettyByteify(entry.getValue().weight()) + ", max: "
+                        + UtilMethods.prettyByteify(entry.getValue().maximum()));
+            }
+        }
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Current weight of a region, -1 if the region is not in the budget
+     */
+    public long getWeight(final String name) {
+        final Region region = regions.get(name);
+        return region == null ? -1 : region.weight();
+    }
+
+    /**
+     * Current max weight of a region, -1 if the region is not in the budget
+     */
+    public long getMaximum(final String name) {
+        final Region region = regions.get(name);
+        return region == null ? -1 : region.maximum();
+    }
+
+    /**
+     * Average time in nanos to load the value of a miss of the region, -1 if not measured yet
+     */
+    public long getAverageMissCost(final String name) {
+        final Region region = regions.get(name);
+        return (region == null || region.missCostSamples.sum() == 0) ? -1 : region.averageMissCostNanos();
+    }
+
+    private static class Region {
+
+        private final Cache<String, Object> cache;
+        private final Map<String, Long> pendingMisses = new ConcurrentHashMap<>();
+        private final LongAdder missCostNanos = new LongAdder();
+        private final LongAdder missCostSamples = new LongAdder();
+
+        // stats of the last interval, only touched while rebalancing
+        private long lastMisses;
+        private long lastEvictions;
+        private long misses;
+        private long evictions;
+        private double demand;
+        private long target;
+
+        Region(final Cache<String, Object> cache) {
+            this.cache = cache;
+        }
+
+        void snapshot() {
+            final com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+            misses = stats.missCount() - lastMisses;
+            evictions = stats.evictionCount() - lastEvictions;
+            lastMisses = stats.missCount();
+            lastEvictions = stats.evictionCount();
+
+            // misses that never got a put don't say anything about the cost
+            final long expired = System.nanoTime() - TimeUnit.MINUTES.toNanos(1);
+            pendingMisses.values().removeIf(missedAt -> missedAt < expired);
+        }
+
+        long averageMissCostNanos() {
+            final long samples = missCostSamples.sum();
+            return samples == 0 ? DEFAULT_MISS_COST_NANOS : missCostNanos.sum() / samples;
+        }
+
+        long weight() {
+            return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+        }
+
+        long maximum() {
+            return cache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(0L);
+        }
+
+        void setMaximum(final long maximum) {
+            cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maximum));
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package com.dotmarketing.business.cache.provider.caffine;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -15,6 +16,7 @@ import com.dotmarketing.business.cache.provider.CacheProviderStats;
 import com.dotmarketing.business.cache.provider.CacheStats;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.ImmutableSet;
@@ -32,6 +34,10 @@ public class CaffineCache extends CacheProvider {
             new ConcurrentHashMap<>();
     private Set<String> availableCaches;
 
+    // only set when the regions share a memory budget, see AdaptiveCacheBudget
+    private transient AdaptiveCacheBudget budget;
+    private transient ObjectWeigher weigher;
+
 
     @Override
     public String getName() {
@@ -74,6 +80,19 @@ public class CaffineCache extends CacheProvider {
             }
         }
         this.availableCaches = ImmutableSet.copyOf(_availableCaches);
+
+        if (Config.getBooleanProperty("cache.caffine.adaptive.enabled", false)) {
+            long budgetBytes = Config.getLongProperty("cache.caffine.adaptive.budget.mb", 0) * 1024 * 1024;
+            if (budgetBytes <= 0) {
+                budgetBytes = Runtime.getRuntime().maxMemory() / 4;
+            }
+            Logger.info(this.getClass(), "***\t Cache Memory Budget : " + UtilMethods.prettyByteify(budgetBytes)
+                    + " shared by all the regions");
+            weigher = new ObjectWeigher(getSerializer());
+            budget = new AdaptiveCacheBudget(budgetBytes,
+                    Config.getFloatProperty("cache.caffine.adaptive.min.share", 0.01f), availableCaches.size());
+            budget.start(Config.getIntProperty("cache.caffine.adaptive.rebalance.seconds", 30));
+        }
         isInitialized = true;
     }
 
@@ -90,6 +109,10 @@ public class CaffineCache extends CacheProvider {
 
         // Add the given content to the group and for a given key
         cache.put(key, content);
+
+        if (budget != null) {
+            budget.loaded(group, key);
+        }
     }
 
     @Override
@@ -101,9 +124,31 @@ public class CaffineCache extends CacheProvider {
 
 
         // Get the content from the group and for a given key
-        return cache.getIfPresent(key);
+        Object content = cache.getIfPresent(key);
+
+        if (content == null && budget != null) {
+            budget.missed(group, key);
+        }
+        return content;
+
+
+    }
+
+    @Override
+    public Map<String, Object> getAll(String group, Collection<String> keys) {
 
+        // Get the cache for the given group
+        Cache<String, Object> cache = getCache(group);
 
+        final Map<String, Object> found = cache.getAllPresent(keys);
+        if (budget != null && found.size() < keys.size()) {
+            for (String key : keys) {
+                if (!found.containsKey(key)) {
+                    budget.missed(group, key);
+                }
+            }
+        }
+        return found;
     }
 
     @Override
@@ -117,6 +162,10 @@ public class CaffineCache extends CacheProvider {
 
         // Remove this group from the global list of cache groups
         groups.remove(group);
+
+        if (budget != null) {
+            budget.unregister(group.toLowerCase());
+        }
     }
 
     @Override
@@ -198,6 +247,12 @@ public class CaffineCache extends CacheProvider {
             stats.addStat(CacheStats.REGION_HIT_RATE, pf.format(cstats.hitRate()));
             stats.addStat(CacheStats.REGION_AVG_LOAD_TIME, nf.format(cstats.averageLoadPenalty()/1000000) + " ms");
             stats.addStat(CacheStats.REGION_EVICTIONS, nf.format(cstats.evictionCount()));
+            if (budget != null && budget.getMaximum(group) >= 0) {
+                long missCost = budget.getAverageMissCost(group);
+                stats.addStat(CacheStats.REGION_MEM_TOTAL_PRETTY, UtilMethods.prettyByteify(budget.getWeight(group)));
+                stats.addStat(CacheStats.REGION_MEM_BUDGET, UtilMethods.prettyByteify(budget.getMaximum(group)));
+                stats.addStat(CacheStats.REGION_AVG_MISS_COST, missCost < 0 ? "-" : nf.format(missCost / 1000000) + " ms");
+            }
             
 
             ret.addStatRecord(stats);
@@ -210,6 +265,10 @@ public class CaffineCache extends CacheProvider {
     public void shutdown() {
         Logger.info(this.getClass(), "===== Calling shutdown [" + getName() + "].");
         isInitialized = false;
+
+        if (budget != null) {
+            budget.stop();
+        }
     }
 
     private Cache<String, Object> getCache(String cacheName) {
@@ -243,11 +302,21 @@ public class CaffineCache extends CacheProvider {
                                 "***\t Building Cache : " + cacheName + ", size:" + size
                                         + ",Concurrency:"
                                         + Config.getIntProperty("cache.concurrencylevel", 32));
-                        cache = Caffeine.newBuilder()
-                                .maximumSize(size)
-                                .recordStats()
-                                //.softValues()
-                                .build();
+                        if (budget != null) {
+                            // sized by weight, the size is ignored and the budget moves memory between regions
+                            cache = Caffeine.newBuilder()
+                                    .maximumWeight(budget.initialMaximum())
+                                    .weigher((String k, Object v) -> weigher.weigh(k, v))
+                                    .recordStats()
+                                    .build();
+                            budget.register(cacheName, cache);
+                        } else {
+                            cache = Caffeine.newBuilder()
+                                    .maximumSize(size)
+                                    .recordStats()
+                                    //.softValues()
+                                    .build();
+                        }
 
 
                         groups.put(cacheName, cache);
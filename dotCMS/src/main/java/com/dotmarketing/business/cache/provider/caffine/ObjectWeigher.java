@@ -0,0 +1,159 @@
+package com.dotmarketing.business.cache.provider.caffine;
+
+import com.dotmarketing.business.cache.serializer.CacheSerializer;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates the heap taken by the objects put in the cache, used as the weight of the entries when the
+ * {@link CaffineCache} sizes its regions by memory.
+ * <p>
+ * Strings, boxed values, arrays, collections, maps and contentlets are walked (sampling the big
+ * collections), any other class is measured by serializing its first instances and reusing the average
+ * for the rest, so the estimation is cheap enough for the put path.
+ *
+ * @author dotCMS
+ */
+public class ObjectWeigher {
+
+    static final int OBJECT_HEADER = 16;
+    static final int REFERENCE = 8;
+    static final int ENTRY_OVERHEAD = 32;
+
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_SAMPLED_ELEMENTS = 32;
+    private static final int SAMPLES_PER_CLASS = 8;
+    private static final int DEFAULT_WEIGHT = 256;
+    // the binary form of an object is smaller than its heap form (headers, references, UTF-16 strings)
+    private static final int SERIALIZED_TO_HEAP_RATIO = 3;
+
+    private final CacheSerializer serializer;
+    private final Map<Class<?>, ClassWeight> classWeights = new ConcurrentHashMap<>();
+
+    public ObjectWeigher(final CacheSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Estimated weight in bytes of a cache entry
+     */
+    public int weigh(final String key, final Object value) {
+        final long weight = ENTRY_OVERHEAD + weigh(key, 0) + weigh(value, 0);
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    long weigh(final Object value, final int depth) {
+
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return OBJECT_HEADER + 24 + 2L * ((String) value).length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return OBJECT_HEADER + 8;
+        }
+        if (value instanceof Date) {
+            return OBJECT_HEADER + 16;
+        }
+        if (value instanceof byte[]) {
+            return OBJECT_HEADER + ((byte[]) value).length;
+        }
+        if (value instanceof char[]) {
+            return OBJECT_HEADER + 2L * ((char[]) value).length;
+        }
+        if (depth >= MAX_DEPTH) {
+            return DEFAULT_WEIGHT;
+        }
+        if (value instanceof Contentlet) {
+            return OBJECT_HEADER + 64 + weigh(((Contentlet) value).getMap(), depth + 1);
+        }
+        if (value instanceof Map) {
+            return weighMap((Map<?, ?>) value, depth);
+        }
+        if (value instanceof Collection) {
+            return weighCollection((Collection<?>) value, depth);
+        }
+        if (value.getClass().isArray()) {
+            return weighArray(value, depth);
+        }
+        return classWeight(value);
+    }
+
+    private long weighMap(final Map<?, ?> map, final int depth) {
+        final int size = map.size();
+        long sampled = 0;
+        int count = 0;
+        for (final Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator(); it.hasNext() && count < MAX_SAMPLED_ELEMENTS; count++) {
+            final Map.Entry<?, ?> entry = it.next();
+            sampled += ENTRY_OVERHEAD + weigh(entry.getKey(), depth + 1) + weigh(entry.getValue(), depth + 1);
+        }
+        return OBJECT_HEADER + 48 + (long) size * REFERENCE + extrapolate(sampled, count, size);
+    }
+
+    private long weighCollection(final Collection<?> collection, final int depth) {
+        final int size = collection.size();
+        long sampled = 0;
+        int count = 0;
+        for (final Iterator<?> it = collection.iterator(); it.hasNext() && count < MAX_SAMPLED_ELEMENTS; count++) {
+            sampled += weigh(it.next(), depth + 1);
+        }
+        return OBJECT_HEADER + 24 + (long) size * REFERENCE + extrapolate(sampled, count, size);
+    }
+
+    private long weighArray(final Object array, final int depth) {
+        final int size = Array.getLength(array);
+        if (array.getClass().getComponentType().isPrimitive()) {
+            return OBJECT_HEADER + 8L * size;
+        }
+        long sampled = 0;
+        final int count = Math.min(size, MAX_SAMPLED_ELEMENTS);
+        for (int i = 0; i < count; i++) {
+            sampled += weigh(Array.get(array, i), depth + 1);
+        }
+        return OBJECT_HEADER + (long) size * REFERENCE + extrapolate(sampled, count, size);
+    }
+
+    private static long extrapolate(final long sampled, final int count, final int size) {
+        return (count == 0 || count == size) ? sampled : sampled * size / count;
+    }
+
+    /**
+     * Measures the first instances of a class serializing them, after that the average is used
+     */
+    private long classWeight(final Object value) {
+
+        final ClassWeight classWeight = classWeights.computeIfAbsent(value.getClass(), c -> new ClassWeight());
+        if (classWeight.samples.get() >= SAMPLES_PER_CLASS || serializer == null) {
+            return classWeight.average();
+        }
+
+        long weight;
+        try {
+            weight = OBJECT_HEADER + (long) serializer.serialize(value).length * SERIALIZED_TO_HEAP_RATIO;
+        } catch (Exception e) {
+            weight = DEFAULT_WEIGHT;
+        }
+        classWeight.total.addAndGet(weight);
+        classWeight.samples.incrementAndGet();
+        return weight;
+    }
+
+    private static class ClassWeight {
+
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong samples = new AtomicLong();
+
+        long average() {
+            final long count = samples.get();
+            return count == 0 ? DEFAULT_WEIGHT : total.get() / count;
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.dotmarketing.business.cache.provider.h22;
 
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotcms.repackage.com.zaxxer.hikari.pool.HikariPool.PoolInitializationException;
 import com.dotcms.repackage.org.apache.commons.io.comparator.LastModifiedFileComparator;
 import com.dotcms.repackage.org.apache.commons.io.filefilter.DirectoryFileFilter;
@@ -7,21 +8,13 @@ import com.dotcms.util.CloseUtils;
 import com.dotmarketing.business.cache.provider.CacheProvider;
 import com.dotmarketing.business.cache.provider.CacheProviderStats;
 import com.dotmarketing.business.cache.provider.CacheStats;
+import com.dotmarketing.business.cache.provider.WriteBehindQueue;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.ConfigUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -31,8 +24,12 @@ import java.sql.Statement;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -71,6 +68,9 @@ public class H22Cache extends CacheProvider {
 	private final H22HikariPool[] pools = new H22HikariPool[numberOfDbs];
 	private int failedFlushAlls=0;
 
+	// puts are written in batches by a background thread when enabled
+	private transient WriteBehindQueue writeBehind;
+
 	final String dbRoot;
 	final private H2GroupStatsList stats = new H2GroupStatsList();
 
@@ -103,10 +103,32 @@ public class H22Cache extends CacheProvider {
 		for (int i = 0; i < numberOfDbs; i++) {
 			getPool(i, true);
 		}
+		if (isWriteBehindEnabled("cache.h22.writebehind.enabled")) {
+			writeBehind = new WriteBehindQueue(getKey(),
+					Config.getIntProperty("cache.h22.writebehind.max.entries", 10000),
+					Config.getIntProperty("cache.h22.writebehind.batch.size", 500),
+					Config.getLongProperty("cache.h22.writebehind.flush.millis", 50),
+					new WriteBehindQueue.Writer() {
+						@Override
+						public void write(final List<WriteBehindQueue.Entry> entries) throws Exception {
+							doUpsertBatch(entries);
+						}
+
+						@Override
+						public void delete(final WriteBehindQueue.Entry entry) throws Exception {
+							doDelete(new Fqn(entry.group, entry.key));
+						}
+					});
+		}
 		isInitialized = true;
 
 	}
 
+	@VisibleForTesting
+	public void setWriteBehind(final WriteBehindQueue writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
 	@Override
 	public boolean isInitialized() throws Exception {
 		return isInitialized;
@@ -118,6 +140,10 @@ public class H22Cache extends CacheProvider {
 		// Building the key
 		Fqn fqn = new Fqn(group, key);
 
+		if (writeBehind != null && !exclude(fqn) && writeBehind.offer(fqn.group, fqn.key, content)) {
+			return;
+		}
+
 		try {
 			// Add the given content to the group and for a given key
 
@@ -139,6 +165,15 @@ public class H22Cache extends CacheProvider {
 		Object foundObject = null;
 		long start = System.nanoTime();
 		Fqn fqn = new Fqn(group, key);
+
+		if (writeBehind != null) {
+			// a put that was not written yet
+			final WriteBehindQueue.Entry queued = writeBehind.peek(fqn.group, fqn.key);
+			if (queued != null) {
+				stats.group(fqn.group).hitOrMiss(queued.value);
+				return queued.value;
+			}
+		}
 		
 		try {
 			// Get the content from the group and for a given key;
@@ -155,6 +190,61 @@ public class H22Cache extends CacheProvider {
 		return foundObject;
 	}
 
+	/**
+	 * Reads the given keys with a single IN query per table
+	 */
+	@Override
+	public Map<String, Object> getAll(final String group, final Collection<String> keys) {
+
+		final Map<String, Object> found = new HashMap<>();
+		final Map<Integer, Map<Integer, Map<String, String>>> idsByTable = new HashMap<>();
+		for (final String key : keys) {
+			final Fqn fqn = new Fqn(group, key);
+			if (writeBehind != null) {
+				final WriteBehindQueue.Entry queued = writeBehind.peek(fqn.group, fqn.key);
+				if (queued != null) {
+					found.put(key, queued.value);
+					continue;
+				}
+			}
+			if (exclude(fqn)) {
+				continue;
+			}
+			idsByTable.computeIfAbsent(db(fqn), db -> new HashMap<>())
+					.computeIfAbsent(table(fqn), table -> new HashMap<>()).put(fqn.id, key);
+		}
+
+		final long start = System.nanoTime();
+		final String groupName = new Fqn(group).group;
+		for (final Map.Entry<Integer, Map<Integer, Map<String, String>>> dbEntry : idsByTable.entrySet()) {
+			try {
+				final Optional<Connection> opt = createConnection(true, dbEntry.getKey());
+				if (!opt.isPresent()) {
+					continue;
+				}
+				final Connection c = opt.get();
+				try {
+					for (final Map.Entry<Integer, Map<String, String>> tableEntry : dbEntry.getValue().entrySet()) {
+						doSelectAll(c, groupName, tableEntry.getKey(), tableEntry.getValue(), found);
+					}
+				} finally {
+					c.close();
+				}
+			} catch (Exception e) {
+				handleError(e, new Fqn(group));
+			}
+		}
+
+		final H22GroupStats groupStats = stats.group(groupName);
+		for (final String key : keys) {
+			groupStats.hitOrMiss(found.get(key));
+		}
+		if (!keys.isEmpty()) {
+			groupStats.readTime((System.nanoTime() - start) / keys.size());
+		}
+		return found;
+	}
+
 	@Override
 	public void remove(String groupName) {
 
@@ -162,6 +252,10 @@ public class H22Cache extends CacheProvider {
 
 		Logger.info(this.getClass(), "Flushing H22 cache group:" + fqn + " Note: this can be an expensive operation");
 
+		if (writeBehind != null) {
+			writeBehind.cancelGroup(fqn.group);
+		}
+
 		try {
 			for (int db = 0; db < numberOfDbs; db++) {
 				
@@ -204,6 +298,10 @@ public class H22Cache extends CacheProvider {
 				Logger.warn(this, "Empty key passed in, clearing group " + group + " by mistake");
 			}
 
+			if (writeBehind != null) {
+				writeBehind.cancel(fqn.group, fqn.key);
+			}
+
 			// Invalidates from Cache a key from a given group
 			doDelete(fqn);
 		} catch (Exception e) {
@@ -243,6 +341,9 @@ public class H22Cache extends CacheProvider {
 	public void removeAll() {
 
 		Logger.info(this, "Start Full Cache Flush in h22");
+		if (writeBehind != null) {
+			writeBehind.cancelAll();
+		}
 		long start = System.nanoTime();
 		int failedThreshold = Config.getIntProperty("cache.h22.rebuild.on.removeAll.failure.threshhold", 1);
 		failedThreshold = (failedThreshold<1) ? 1: failedThreshold;
@@ -319,6 +420,10 @@ public class H22Cache extends CacheProvider {
             stats.addStat(CacheStats.REGION, group);
             stats.addStat(CacheStats.REGION_MEM_TOTAL_PRETTY, UtilMethods.prettyByteify(groupStats.totalSize ));
             stats.addStat(CacheStats.REGION_MEM_PER_OBJECT, UtilMethods.prettyByteify(perObject ));
+            addSerializerStats(group, stats);
+            if (writeBehind != null) {
+                stats.addStat(CacheStats.REGION_WRITE_BEHIND_PENDING, nf.format(writeBehind.getPending(group)));
+            }
             
             try {
               stats.addStat(CacheStats.REGION_SIZE,  _getGroupCount(group));
@@ -333,6 +438,10 @@ public class H22Cache extends CacheProvider {
 	@Override
 	public void shutdown() {
 		isInitialized = false;
+		if (writeBehind != null) {
+			// writes what is still queued before closing the pools
+			writeBehind.shutdown();
+		}
 		// don't trash on shutdown
 		dispose(false);
 	}
@@ -476,15 +585,7 @@ public class H22Cache extends CacheProvider {
 			upsertStmt = c.prepareStatement(upsertSQL);
 			upsertStmt.setString(1, fqn.id);
 			upsertStmt.setString(2, fqn.group);
-			ObjectOutputStream output = null;
-			OutputStream bout;
-			ByteArrayOutputStream os = new ByteArrayOutputStream();
-			bout = new BufferedOutputStream(os, 8192);
-
-			output = new ObjectOutputStream(bout);
-			output.writeObject(obj);
-			output.flush();
-			byte[] data = os.toByteArray();
+			byte[] data = serialize(fqn.group, obj);
 			bytes = data.length;
 			upsertStmt.setBytes(3, data);
 
@@ -502,14 +603,78 @@ public class H22Cache extends CacheProvider {
 		return worked;
 	}
 
+	/**
+	 * Writes a batch of the write-behind queue, one transaction per db with a batched MERGE per table
+	 */
+	private void doUpsertBatch(final List<WriteBehindQueue.Entry> entries) throws Exception {
+
+		final Map<Integer, List<Fqn>> fqnsByDb = new HashMap<>();
+		final Map<String, byte[]> data = new HashMap<>();
+		for (final WriteBehindQueue.Entry entry : entries) {
+			final Fqn fqn = new Fqn(entry.group, entry.key);
+			if (exclude(fqn)) {
+				continue;
+			}
+			try {
+				data.put(fqn.id, serialize(fqn.group, (Serializable) entry.value));
+			} catch (Exception e) {
+				DONT_CACHE_ME.put(fqn.id, fqn.toString());
+				handleError(e, fqn);
+				continue;
+			}
+			fqnsByDb.computeIfAbsent(db(fqn), db -> new ArrayList<>()).add(fqn);
+		}
+
+		for (final Map.Entry<Integer, List<Fqn>> dbEntry : fqnsByDb.entrySet()) {
+			final long start = System.nanoTime();
+			final Optional<Connection> opt = createConnection(false, dbEntry.getKey());
+			if (!opt.isPresent()) {
+				continue;
+			}
+			final Connection c = opt.get();
+			final Map<Integer, PreparedStatement> statements = new HashMap<>();
+			try {
+				for (final Fqn fqn : dbEntry.getValue()) {
+					final int table = table(fqn);
+					PreparedStatement upsertStmt = statements.get(table);
+					if (upsertStmt == null) {
+						upsertStmt = c.prepareStatement("MERGE INTO `" + TABLE_PREFIX + table + "` key(cache_id) VALUES (?,?, ?)");
+						statements.put(table, upsertStmt);
+					}
+					final byte[] bytes = data.get(fqn.id);
+					upsertStmt.setString(1, fqn.id);
+					upsertStmt.setString(2, fqn.group);
+					upsertStmt.setBytes(3, bytes);
+					upsertStmt.addBatch();
+					stats.group(fqn.group).writes++;
+					stats.group(fqn.group).writeSize(bytes.length * 8);
+				}
+				for (final PreparedStatement upsertStmt : statements.values()) {
+					upsertStmt.executeBatch();
+				}
+				c.commit();
+			} catch (SQLException e) {
+				c.rollback();
+				handleError(e, dbEntry.getValue().get(0));
+			} finally {
+				for (final PreparedStatement upsertStmt : statements.values()) {
+					CloseUtils.closeQuietly(upsertStmt);
+				}
+				c.setAutoCommit(true);
+				c.close();
+			}
+			final long perEntry = (System.nanoTime() - start) / dbEntry.getValue().size();
+			for (final Fqn fqn : dbEntry.getValue()) {
+				stats.group(fqn.group).writeTime(perEntry);
+			}
+		}
+	}
+
 	private Object doSelect(Fqn fqn) throws Exception {
 		if (fqn == null || exclude(fqn)) {
 			return null;
 		}
 
-		ObjectInputStream input=null;
-		InputStream bin=null;
-		InputStream is=null;
 		Optional<Connection> opt = createConnection(true, db(fqn));
 		if (!opt.isPresent()) {
 			return null;
@@ -525,37 +690,46 @@ public class H22Cache extends CacheProvider {
 			if (!rs.next()) {
 				return null;
 			}
-			is = new ByteArrayInputStream(rs.getBytes(1));
-			bin = new BufferedInputStream(is, 8192);
-
-			input = new ObjectInputStream(bin);
-			return input.readObject();
+			return deserialize(fqn.group, rs.getBytes(1));
 
 		} finally {
 
 			if (stmt != null) stmt.close();
 			c.close();
-			if (input != null){
-				try {
-					input.close();
-				} catch (IOException e) {
-					Logger.warn(getClass(), "should not be here:" + e.getMessage(),e);
-				}
+		}
+	}
+
+	/**
+	 * Selects the given ids of a table, in chunks so the IN list stays small
+	 */
+	private void doSelectAll(final Connection c, final String group, final int table, final Map<String, String> keysById,
+			final Map<String, Object> found) throws Exception {
+
+		final List<String> ids = new ArrayList<>(keysById.keySet());
+		for (int from = 0; from < ids.size(); from += 500) {
+			final List<String> chunk = ids.subList(from, Math.min(from + 500, ids.size()));
+			final StringBuilder sql = new StringBuilder("select cache_id, CACHE_DATA from `" + TABLE_PREFIX + table + "` WHERE cache_id in (");
+			for (int i = 0; i < chunk.size(); i++) {
+				sql.append(i == 0 ? "?" : ",?");
 			}
-			if (bin != null){
-				try {
-					bin.close();
-				} catch (IOException e) {
-					Logger.warn(getClass(), "should not be here:" + e.getMessage(),e);
+			sql.append(")");
+
+			PreparedStatement stmt = null;
+			try {
+				stmt = c.prepareStatement(sql.toString());
+				for (int i = 0; i < chunk.size(); i++) {
+					stmt.setString(i + 1, chunk.get(i));
 				}
-			}
-			
-			if (is != null){
-				try {
-					is.close();
-				} catch (IOException e) {
-					Logger.warn(getClass(), "should not be here:" + e.getMessage(),e);
+				final ResultSet rs = stmt.executeQuery();
+				while (rs.next()) {
+					final String key = keysById.get(rs.getString(1));
+					final Object value = deserialize(group, rs.getBytes(2));
+					if (key != null && value != null) {
+						found.put(key, value);
+					}
 				}
+			} finally {
+				if (stmt != null) stmt.close();
 			}
 		}
 	}
@@ -1,7 +1,10 @@
 package com.dotmarketing.business.cache.provider.hazelcast;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.dotcms.cluster.business.HazelcastUtil;
@@ -89,13 +92,17 @@ public abstract class AbstractHazelcastCacheProvider extends CacheProvider {
             return;
         }
         try{
+            // store the bytes of our own serializer so hazelcast does not fall back to java serialization
+            final byte[] data = serialize(group, content);
             if(ASYNC_PUT){
-                getHazelcastInstance().getMap(group).setAsync(key, content);
+                getHazelcastInstance().getMap(group).setAsync(key, data);
             }else{
-                getHazelcastInstance().getMap(group).set(key, content);
+                getHazelcastInstance().getMap(group).set(key, data);
             }
         } catch (HazelcastInstanceNotActiveException hce){
             reInitialize();
+        } catch (IOException e){
+            Logger.warn(this, "Unable to serialize [" + group + ":" + key + "] for Hazelcast: " + e.getMessage());
         }
     }
 
@@ -105,11 +112,44 @@ public abstract class AbstractHazelcastCacheProvider extends CacheProvider {
             return null;
         }
         try {
-            return getHazelcastInstance().getMap(group).get(key);
+            final Object value = getHazelcastInstance().getMap(group).get(key);
+            // values put by nodes that do not use a serializer are returned as they are
+            return (value instanceof byte[]) ? deserialize(group, (byte[]) value) : value;
         } catch (HazelcastInstanceNotActiveException hce){
             reInitialize();
             return null;
+        } catch (IOException | ClassNotFoundException e){
+            Logger.warn(this, "Unable to deserialize [" + group + ":" + key + "] from Hazelcast: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the given keys with a single getAll on the map of the group
+     */
+    @Override
+    public Map<String, Object> getAll(final String group, final Collection<String> keys) {
+        final Map<String, Object> found = new HashMap<>();
+        if(isRecovering() || keys.isEmpty()){
+            return found;
+        }
+        try {
+            final Map<Object, Object> values = getHazelcastInstance().getMap(group).getAll(new HashSet<Object>(keys));
+            for (final Map.Entry<Object, Object> entry : values.entrySet()) {
+                final Object value = entry.getValue();
+                if (value == null) {
+                    continue;
+                }
+                try {
+                    found.put((String) entry.getKey(), (value instanceof byte[]) ? deserialize(group, (byte[]) value) : value);
+                } catch (IOException | ClassNotFoundException e){
+                    Logger.warn(this, "Unable to deserialize [" + group + ":" + entry.getKey() + "] from Hazelcast: " + e.getMessage());
+                }
+            }
+        } catch (HazelcastInstanceNotActiveException hce){
+            reInitialize();
         }
+        return found;
     }
 
     @Override
@@ -190,7 +230,9 @@ public abstract class AbstractHazelcastCacheProvider extends CacheProvider {
         }
         for (String group : getGroups()) {
 
-            ret.addStatRecord(getStats(group));
+            final CacheStats stats = getStats(group);
+            addSerializerStats(group, stats);
+            ret.addStatRecord(stats);
         }
 
         return ret;
@@ -0,0 +1,653 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import com.dotmarketing.business.cache.provider.CacheProvider;
+import com.dotmarketing.business.cache.provider.CacheProviderStats;
+import com.dotmarketing.business.cache.provider.CacheStats;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.commons.collections.map.LRUMap;
+
+/**
+ * L2 Cache Provider backed by memory mapped segment files, meant as a faster alternative to the
+ * {@link com.dotmarketing.business.cache.provider.h22.H22Cache} for the regions with a high read/write rate.
+ * <p/>
+ * Entries are appended to fixed size segment files and located through an off-heap open-addressed
+ * index ({@link MappedIndex}), a get is a hash probe plus a copy out of the mapped file, no JDBC
+ * round-trip is involved. Segments that are mostly garbage are compacted in background and every
+ * group is capped by a byte budget, when a group goes over its budget its oldest entries are evicted.
+ * <p/>
+ * Removals are written to the segments as well, so the cache can be rebuilt from the segment files
+ * after a restart (see <strong>cache.mapped.recover.if.restarted.in.milliseconds</strong>). Every record
+ * carries the sequence it was written with and the rebuild follows it rather than the position of the
+ * records, which the compaction changes.
+ * <p/>
+ * <strong>Configuration:</strong>
+ * <ul>
+ * <li>cache.mapped.segment.size.mb: size of each segment file, default 64</li>
+ * <li>cache.mapped.default.max.bytes: byte budget for groups without a specific one, default 256MB</li>
+ * <li>cache.[region].mapped.max.bytes: byte budget for a specific region</li>
+ * <li>cache.mapped.compaction.live.ratio: a sealed segment with less live data than this ratio is compacted, default 0.5</li>
+ * <li>cache.mapped.compaction.interval.seconds: how often the compaction runs, default 30</li>
+ * </ul>
+ */
+public class MappedCache extends CacheProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    @SuppressWarnings("unchecked")
+    private final static Map<Object, Object> DONT_CACHE_ME = Collections.synchronizedMap(new LRUMap(1000));
+
+    private final int segmentSize = Config.getIntProperty("cache.mapped.segment.size.mb", 64) * 1024 * 1024;
+    private final long defaultMaxBytes = Config.getLongProperty("cache.mapped.default.max.bytes", 256L * 1024 * 1024);
+    private final float compactionRatio = Config.getFloatProperty("cache.mapped.compaction.live.ratio", 0.5f);
+    private final int compactionInterval = Config.getIntProperty("cache.mapped.compaction.interval.seconds", 30);
+    // try to recover the segments if within this time (30m default)
+    private final long recoverOnRestart = Config.getLongProperty("cache.mapped.recover.if.restarted.in.milliseconds", 1000 * 60 * 30);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, MappedSegment> segments = new TreeMap<>();
+    private final ConcurrentHashMap<String, MappedGroupStats> groups = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, MappedGroupStats> groupsById = new ConcurrentHashMap<>();
+    private final AtomicInteger groupSequence = new AtomicInteger(0);
+
+    private final String root;
+    private transient MappedIndex index;
+    private transient MappedSegment active;
+    private transient ScheduledExecutorService compactor;
+    // sequence of the last record written, guarded by the write lock
+    private long sequence = 0;
+    private volatile boolean isInitialized = false;
+
+    public MappedCache(final String root) {
+        this.root = root;
+    }
+
+    public MappedCache() {
+        this(ConfigUtils.getDynamicContentPath() + File.separator + "mappedcache");
+    }
+
+    @Override
+    public String getName() {
+        return "Memory Mapped Cache";
+    }
+
+    @Override
+    public String getKey() {
+        return "MappedCache";
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return false;
+    }
+
+    @Override
+    public void init() throws Exception {
+
+        final File rootFolder = new File(root);
+        rootFolder.mkdirs();
+
+        lock.writeLock().lock();
+        try {
+            index = new MappedIndex(Config.getIntProperty("cache.mapped.index.initial.capacity", 1 << 16));
+            recover(rootFolder);
+            if (active == null) {
+                roll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "MappedCacheCompactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compact, compactionInterval, compactionInterval, TimeUnit.SECONDS);
+
+        isInitialized = true;
+        Logger.info(this.getClass(), "*** Initialized Cache Provider [" + getName() + "] on " + root + " with "
+                + segments.size() + " segments and " + index.size() + " entries.");
+    }
+
+    @Override
+    public boolean isInitialized() throws Exception {
+        return isInitialized;
+    }
+
+    @Override
+    public void put(final String group, final String key, final Object content) {
+
+        if (!isInitialized || group == null || key == null || exclude(group, key)) {
+            return;
+        }
+
+        final String groupName = group.toLowerCase();
+        final String keyName = key.toLowerCase();
+        final long hash = hash(groupName, keyName);
+
+        final byte[] record;
+        try {
+            record = MappedSegment.encode(MappedSegment.TYPE_VALUE, hash, groupName, keyName,
+                    serialize(groupName, (Serializable) content));
+        } catch (ClassCastException | IOException e) {
+            DONT_CACHE_ME.put(hash, groupName + " | " + keyName);
+            Logger.debug(this.getClass(), "Unable to serialize " + groupName + " | " + keyName + ": " + e.getMessage());
+            return;
+        }
+
+        if (record.length > segmentSize) {
+            DONT_CACHE_ME.put(hash, groupName + " | " + keyName);
+            Logger.warn(this.getClass(), "Object too large for the mapped cache: " + groupName + " | " + keyName
+                    + " (" + UtilMethods.prettyByteify(record.length) + ")");
+            return;
+        }
+
+        final MappedGroupStats stats = groupStats(groupName);
+        lock.writeLock().lock();
+        try {
+            index(hash, stats, record);
+            stats.writes.increment();
+        } catch (IOException e) {
+            Logger.warn(this.getClass(), "Unable to write to the mapped cache: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Object get(final String group, final String key) {
+
+        if (!isInitialized || group == null || key == null) {
+            return null;
+        }
+
+        final long start = System.nanoTime();
+        final String groupName = group.toLowerCase();
+        final String keyName = key.toLowerCase();
+        final long hash = hash(groupName, keyName);
+        final MappedGroupStats stats = groupStats(groupName);
+
+        byte[] raw = null;
+        lock.readLock().lock();
+        try {
+            final int slot = index.find(hash);
+            if (slot >= 0) {
+                raw = segments.get(index.segment(slot)).read(index.offset(slot), index.length(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Object foundObject = null;
+        if (raw != null) {
+            final MappedSegment.Record record = new MappedSegment.Record(raw);
+            // the hash is only 64 bits, make sure we are returning the right entry
+            if (groupName.equals(record.group) && keyName.equals(record.key)) {
+                try {
+                    foundObject = deserialize(groupName, record.data);
+                } catch (Exception e) {
+                    Logger.warn(this.getClass(), "Unable to read " + groupName + " | " + keyName + ": " + e.getMessage());
+                    remove(groupName, keyName);
+                }
+            }
+        }
+
+        stats.hitOrMiss(foundObject);
+        stats.readTime.add(System.nanoTime() - start);
+        return foundObject;
+    }
+
+    @Override
+    public void remove(final String group, final String key) {
+
+        if (!isInitialized || group == null || key == null) {
+            return;
+        }
+
+        final String groupName = group.toLowerCase();
+        final String keyName = key.toLowerCase();
+        final long hash = hash(groupName, keyName);
+        DONT_CACHE_ME.remove(hash);
+
+        lock.writeLock().lock();
+        try {
+            final int slot = index.find(hash);
+            if (slot >= 0) {
+                release(slot);
+                index.remove(slot);
+            }
+            // written even when the key is not indexed, an evicted entry keeps its record in the segments
+            // and the rebuild would bring it back otherwise
+            append(MappedSegment.encode(MappedSegment.TYPE_REMOVE, hash, groupName, keyName, null));
+        } catch (IOException e) {
+            Logger.warn(this.getClass(), "Unable to write to the mapped cache: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final String group) {
+
+        if (!isInitialized || group == null) {
+            return;
+        }
+
+        final MappedGroupStats stats = groupStats(group.toLowerCase());
+        lock.writeLock().lock();
+        try {
+            removeFromIndex(stats);
+            append(MappedSegment.encode(MappedSegment.TYPE_FLUSH_GROUP, 0, stats.group, "", null));
+        } catch (IOException e) {
+            Logger.warn(this.getClass(), "Unable to write to the mapped cache: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+
+        Logger.info(this, "Start Full Cache Flush in the mapped cache");
+        lock.writeLock().lock();
+        try {
+            for (final MappedSegment segment : segments.values()) {
+                segment.delete();
+            }
+            segments.clear();
+            index.clear();
+            for (final MappedGroupStats stats : groups.values()) {
+                stats.reset();
+            }
+            roll();
+        } catch (IOException e) {
+            Logger.error(this.getClass(), "Unable to flush the mapped cache: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        DONT_CACHE_ME.clear();
+    }
+
+    @Override
+    public Set<String> getKeys(final String group) {
+
+        final Set<String> keys = new HashSet<>();
+        if (!isInitialized || group == null) {
+            return keys;
+        }
+
+        final MappedGroupStats stats = groupStats(group.toLowerCase());
+        lock.readLock().lock();
+        try {
+            for (int slot = index.first(stats.id); slot >= 0; slot = index.next(slot)) {
+                final byte[] raw = segments.get(index.segment(slot)).read(index.offset(slot), index.length(slot));
+                keys.add(new MappedSegment.Record(raw).key);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<String> getGroups() {
+
+        final Set<String> currentGroups = new HashSet<>();
+        for (final MappedGroupStats stats : groups.values()) {
+            if (stats.entries > 0) {
+                currentGroups.add(stats.group);
+            }
+        }
+        return currentGroups;
+    }
+
+    @Override
+    public CacheProviderStats getStats() {
+
+        final CacheStats providerStats = new CacheStats();
+        final CacheProviderStats ret = new CacheProviderStats(providerStats, getName());
+        final NumberFormat nf = DecimalFormat.getInstance();
+        final DecimalFormat pf = new DecimalFormat("##.##%");
+
+        for (final MappedGroupStats groupStats : groups.values()) {
+
+            final long hits = groupStats.hits.sum();
+            final long loads = hits + groupStats.misses.sum();
+            final long perObject = (groupStats.entries == 0) ? 0 : groupStats.liveBytes / groupStats.entries;
+
+            final CacheStats stats = new CacheStats();
+            stats.addStat(CacheStats.REGION, groupStats.group);
+            stats.addStat(CacheStats.REGION_CONFIGURED_SIZE, UtilMethods.prettyByteify(groupStats.maxBytes));
+            stats.addStat(CacheStats.REGION_SIZE, nf.format(groupStats.entries));
+            stats.addStat(CacheStats.REGION_LOAD, nf.format(loads));
+            stats.addStat(CacheStats.REGION_HITS, nf.format(hits));
+            stats.addStat(CacheStats.REGION_HIT_RATE, pf.format(loads == 0 ? 0 : (double) hits / loads));
+            stats.addStat(CacheStats.REGION_MEM_TOTAL_PRETTY, UtilMethods.prettyByteify(groupStats.liveBytes));
+            stats.addStat(CacheStats.REGION_MEM_PER_OBJECT, UtilMethods.prettyByteify(perObject));
+            stats.addStat(CacheStats.REGION_AVG_LOAD_TIME,
+                    nf.format(loads == 0 ? 0 : groupStats.readTime.sum() / loads / 1000000) + " ms");
+            stats.addStat(CacheStats.REGION_EVICTIONS, nf.format(groupStats.evictions.sum()));
+            addSerializerStats(groupStats.group, stats);
+            ret.addStatRecord(stats);
+        }
+        return ret;
+    }
+
+    @Override
+    public void shutdown() {
+
+        Logger.info(this.getClass(), "===== Calling shutdown [" + getName() + "].");
+        isInitialized = false;
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (final MappedSegment segment : segments.values()) {
+                segment.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live records of the oldest sealed segment that went under the configured live
+     * ratio into the active segment and deletes it. The lock is taken per record so readers and
+     * writers are never blocked for the whole pass.
+     */
+    void compact() {
+
+        MappedSegment candidate = null;
+        boolean oldest = false;
+        lock.readLock().lock();
+        try {
+            for (final MappedSegment segment : segments.values()) {
+                if (segment != active && segment.liveBytes < segment.position() * compactionRatio) {
+                    candidate = segment;
+                    oldest = segment.id == segments.firstKey();
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (candidate == null) {
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+        int moved = 0;
+        int offset = 0;
+        try {
+            while (offset < candidate.position()) {
+
+                final byte type;
+                final int length;
+                lock.writeLock().lock();
+                try {
+                    if (segments.get(candidate.id) != candidate) {
+                        // flushed while compacting, the segment is unmapped already
+                        return;
+                    }
+                    type = candidate.type(offset);
+                    length = candidate.recordLength(offset);
+
+                    if (type == MappedSegment.TYPE_VALUE) {
+                        final int slot = index.find(candidate.hash(offset));
+                        if (slot >= 0 && index.segment(slot) == candidate.id && index.offset(slot) == offset) {
+                            final byte[] raw = candidate.read(offset, length);
+                            final MappedSegment target = reserve(length);
+                            index.relocate(slot, target.id, target.append(raw));
+                            candidate.liveBytes -= length;
+                            target.liveBytes += length;
+                            moved++;
+                        }
+                    } else if (!oldest) {
+                        // removals must survive until no older segment can bring the entry back, they keep
+                        // their sequence so the rebuild does not apply them to the entries written after them
+                        reserve(length).append(candidate.read(offset, length));
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                offset += length;
+            }
+
+            lock.writeLock().lock();
+            try {
+                segments.remove(candidate.id);
+                candidate.delete();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Logger.debug(this.getClass(), "Compacted mapped cache segment " + candidate.id + ", moved " + moved
+                    + " records in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            Logger.warn(this.getClass(), "Unable to compact mapped cache segment " + candidate.id + ": " + e.getMessage(), e);
+        }
+    }
+
+    int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index replaying the segment files left by a previous run. The removals are read first,
+     * a value is only indexed when it was written after the last removal of its key and the last flush of
+     * its group, and after the value already indexed for its key.
+     */
+    private void recover(final File rootFolder) throws IOException {
+
+        final File[] files = rootFolder.listFiles((dir, name) -> name.startsWith(MappedSegment.FILE_PREFIX)
+                && name.endsWith(MappedSegment.FILE_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingInt(file -> MappedSegment.parseId(file.getName())));
+
+        long lastModified = 0;
+        for (final File file : files) {
+            lastModified = Math.max(lastModified, file.lastModified());
+        }
+        if (lastModified + recoverOnRestart < System.currentTimeMillis()) {
+            Logger.info(this, "Mapped cache segments are too old, starting with an empty cache");
+            for (final File file : files) {
+                file.delete();
+            }
+            return;
+        }
+
+        final Map<Long, Long> removedAt = new HashMap<>();
+        final Map<String, Long> flushedAt = new HashMap<>();
+        for (final File file : files) {
+
+            final MappedSegment segment = MappedSegment.open(rootFolder, MappedSegment.parseId(file.getName()), segmentSize);
+            segment.recoverPosition();
+            segments.put(segment.id, segment);
+            active = segment;
+
+            int offset = 0;
+            while (offset < segment.position()) {
+                final int length = segment.recordLength(offset);
+                final long recordSequence = segment.sequence(offset);
+                sequence = Math.max(sequence, recordSequence);
+                if (segment.type(offset) == MappedSegment.TYPE_REMOVE) {
+                    removedAt.merge(segment.hash(offset), recordSequence, Math::max);
+                } else if (segment.type(offset) == MappedSegment.TYPE_FLUSH_GROUP) {
+                    flushedAt.merge(new MappedSegment.Record(segment.read(offset, length)).group, recordSequence, Math::max);
+                }
+                offset += length;
+            }
+        }
+
+        for (final MappedSegment segment : segments.values()) {
+
+            int offset = 0;
+            while (offset < segment.position()) {
+                final int length = segment.recordLength(offset);
+                if (segment.type(offset) == MappedSegment.TYPE_VALUE) {
+                    final MappedSegment.Record record = new MappedSegment.Record(segment.read(offset, length));
+                    if (record.sequence > removedAt.getOrDefault(record.hash, 0L)
+                            && record.sequence > flushedAt.getOrDefault(record.group, 0L)) {
+                        final MappedGroupStats stats = groupStats(record.group);
+                        final int slot = index.find(record.hash);
+                        if (slot < 0 || segments.get(index.segment(slot)).sequence(index.offset(slot)) < record.sequence) {
+                            if (slot >= 0) {
+                                release(slot);
+                            }
+                            index.put(record.hash, segment.id, offset, stats.id, length);
+                            segment.liveBytes += length;
+                            stats.liveBytes += length;
+                            stats.entries++;
+                            enforceBudget(stats);
+                        }
+                    }
+                }
+                offset += length;
+            }
+            Logger.info(this, "Recovered mapped cache segment " + segment.id);
+        }
+    }
+
+    /**
+     * Appends a value record and points the index to it, must be called holding the write lock
+     */
+    private void index(final long hash, final MappedGroupStats stats, final byte[] record) throws IOException {
+
+        MappedSegment.stamp(record, ++sequence);
+        final MappedSegment segment = reserve(record.length);
+        final int offset = segment.append(record);
+
+        final int slot = index.find(hash);
+        if (slot >= 0) {
+            release(slot);
+        }
+        index.put(hash, segment.id, offset, stats.id, record.length);
+        segment.liveBytes += record.length;
+        stats.liveBytes += record.length;
+        stats.entries++;
+
+        enforceBudget(stats);
+    }
+
+    private void append(final byte[] record) throws IOException {
+        MappedSegment.stamp(record, ++sequence);
+        reserve(record.length).append(record);
+    }
+
+    /**
+     * Returns the segment the next record of the given size must be written to, rolling a new
+     * segment when the active one is full
+     */
+    private MappedSegment reserve(final int length) throws IOException {
+        if (active.remaining() < length) {
+            roll();
+        }
+        return active;
+    }
+
+    private void roll() throws IOException {
+        final int id = (active == null) ? 0 : active.id + 1;
+        active = MappedSegment.open(new File(root), id, segmentSize);
+        segments.put(id, active);
+    }
+
+    /**
+     * Subtracts the record referenced by the given slot from the segment and group accounting
+     */
+    private void release(final int slot) {
+
+        final int length = index.length(slot);
+        final MappedSegment segment = segments.get(index.segment(slot));
+        if (segment != null) {
+            segment.liveBytes -= length;
+        }
+        final MappedGroupStats stats = groupsById.get(index.groupId(slot));
+        if (stats != null) {
+            stats.liveBytes -= length;
+            stats.entries--;
+        }
+    }
+
+    private void removeFromIndex(final MappedGroupStats stats) {
+
+        for (int slot = index.first(stats.id); slot >= 0; slot = index.first(stats.id)) {
+            release(slot);
+            index.remove(slot);
+        }
+        stats.reset();
+    }
+
+    /**
+     * Evicts the least recently written entries of a group that went over its byte budget until it uses
+     * 90% of it
+     */
+    private void enforceBudget(final MappedGroupStats stats) {
+
+        if (stats.liveBytes <= stats.maxBytes) {
+            return;
+        }
+
+        final long target = (long) (stats.maxBytes * 0.9);
+        for (int slot = index.first(stats.id); slot >= 0 && stats.liveBytes > target; slot = index.first(stats.id)) {
+            release(slot);
+            index.remove(slot);
+            stats.evictions.increment();
+        }
+    }
+
+    private MappedGroupStats groupStats(final String group) {
+        return groups.computeIfAbsent(group, name -> {
+            final MappedGroupStats stats = new MappedGroupStats(groupSequence.incrementAndGet(), name,
+                    Config.getLongProperty("cache." + name + ".mapped.max.bytes", defaultMaxBytes));
+            groupsById.put(stats.id, stats);
+            return stats;
+        });
+    }
+
+    private boolean exclude(final String group, final String key) {
+        return ONLY_MEMORY_GROUP.equals(group.toLowerCase())
+                || DONT_CACHE_ME.containsKey(hash(group.toLowerCase(), key.toLowerCase()));
+    }
+
+    static long hash(final String group, final String key) {
+        long h = 1125899906842597L; // prime
+        final String s = group + " | " + key;
+        final int len = s.length();
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per group counters and byte budget of the {@link MappedCache}
+ */
+final class MappedGroupStats {
+
+    final int id;
+    final String group;
+    final long maxBytes;
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder writes = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder readTime = new LongAdder();
+
+    // mutated only while holding the cache write lock
+    volatile long liveBytes = 0;
+    volatile long entries = 0;
+
+    MappedGroupStats(final int id, final String group, final long maxBytes) {
+        this.id = id;
+        this.group = group;
+        this.maxBytes = maxBytes;
+    }
+
+    void hitOrMiss(final Object obj) {
+        if (obj == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+    }
+
+    void reset() {
+        liveBytes = 0;
+        entries = 0;
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Open-addressed hash index kept in a direct (off-heap) buffer. Every slot holds the 64 bit hash of
+ * a cache entry plus the location of the record inside the segment files, so the index itself does
+ * not create any per-entry object on the java heap.
+ * <p/>
+ * Slot layout (32 bytes): <code>long hash | int segment+1 | int offset | int groupId | int length | int previous | int next</code>.
+ * A segment value of <code>0</code> marks an empty slot and <code>-1</code> a deleted one.
+ * <p/>
+ * The live slots of every group are linked from the least to the most recently written one, so a
+ * group is walked, flushed or evicted without scanning the whole table.
+ * <p/>
+ * This class is not thread safe, {@link MappedCache} guards it with its read/write lock.
+ */
+final class MappedIndex {
+
+    static final int SLOT_SIZE = 32;
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    private static final int NONE = -1;
+    private static final float MAX_LOAD = 0.7f;
+
+    // groupId -> {first slot, last slot} of the group list
+    private final Map<Integer, int[]> groups = new HashMap<>();
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int mask;
+    private int size = 0;
+    private int used = 0;
+
+    MappedIndex(final int initialCapacity) {
+        allocate(tableSizeFor(Math.max(initialCapacity, 16)));
+    }
+
+    /**
+     * Returns the slot holding the given hash or -1 if the hash is not indexed
+     */
+    int find(final long hash) {
+
+        int slot = (int) (spread(hash) & mask);
+        for (int probes = 0; probes < capacity; probes++) {
+
+            final int segment = segmentField(slot);
+            if (segment == EMPTY) {
+                return -1;
+            }
+            if (segment != DELETED && slots.getLong(slot * SLOT_SIZE) == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds or replaces the location for the given hash, returns the slot used
+     */
+    int put(final long hash, final int segment, final int offset, final int groupId, final int length) {
+
+        if (used + 1 > capacity * MAX_LOAD) {
+            rehash(size + 1 > capacity * MAX_LOAD / 2 ? capacity << 1 : capacity);
+        }
+
+        int slot = (int) (spread(hash) & mask);
+        int firstDeleted = -1;
+        for (int probes = 0; probes < capacity; probes++) {
+
+            final int current = segmentField(slot);
+            if (current == EMPTY) {
+                break;
+            }
+            if (current == DELETED) {
+                if (firstDeleted == -1) {
+                    firstDeleted = slot;
+                }
+            } else if (slots.getLong(slot * SLOT_SIZE) == hash) {
+                // a new version of the entry, it becomes the most recent of its group
+                unlink(slot);
+                write(slot, hash, segment, offset, groupId, length);
+                link(slot);
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (firstDeleted != -1) {
+            slot = firstDeleted;
+        } else {
+            used++;
+        }
+        size++;
+        write(slot, hash, segment, offset, groupId, length);
+        link(slot);
+        return slot;
+    }
+
+    /**
+     * Marks the given slot as deleted
+     */
+    void remove(final int slot) {
+        if (isLive(slot)) {
+            unlink(slot);
+            slots.putInt(slot * SLOT_SIZE + 8, DELETED);
+            size--;
+        }
+    }
+
+    /**
+     * Moves the record referenced by the given slot to a new location
+     */
+    void relocate(final int slot, final int segment, final int offset) {
+        slots.putInt(slot * SLOT_SIZE + 8, segment + 1);
+        slots.putInt(slot * SLOT_SIZE + 12, offset);
+    }
+
+    void clear() {
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the least recently written slot of the group or -1 when the group has no entries
+     */
+    int first(final int groupId) {
+        final int[] ends = groups.get(groupId);
+        return ends == null ? NONE : ends[0];
+    }
+
+    /**
+     * Returns the slot of the group written after the given one or -1 when it is the most recent
+     */
+    int next(final int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 28);
+    }
+
+    boolean isLive(final int slot) {
+        final int segment = segmentField(slot);
+        return segment != EMPTY && segment != DELETED;
+    }
+
+    long hash(final int slot) {
+        return slots.getLong(slot * SLOT_SIZE);
+    }
+
+    int segment(final int slot) {
+        return segmentField(slot) - 1;
+    }
+
+    int offset(final int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 12);
+    }
+
+    int groupId(final int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 16);
+    }
+
+    int length(final int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 20);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Off-heap bytes reserved by this index
+     */
+    long memory() {
+        return (long) capacity * SLOT_SIZE;
+    }
+
+    private int segmentField(final int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 8);
+    }
+
+    private void write(final int slot, final long hash, final int segment, final int offset, final int groupId,
+            final int length) {
+        final int base = slot * SLOT_SIZE;
+        slots.putLong(base, hash);
+        slots.putInt(base + 8, segment + 1);
+        slots.putInt(base + 12, offset);
+        slots.putInt(base + 16, groupId);
+        slots.putInt(base + 20, length);
+    }
+
+    /**
+     * Appends the slot to the end of the list of its group
+     */
+    private void link(final int slot) {
+
+        final int base = slot * SLOT_SIZE;
+        final int[] ends = groups.computeIfAbsent(groupId(slot), id -> new int[]{NONE, NONE});
+        slots.putInt(base + 24, ends[1]);
+        slots.putInt(base + 28, NONE);
+        if (ends[1] == NONE) {
+            ends[0] = slot;
+        } else {
+            slots.putInt(ends[1] * SLOT_SIZE + 28, slot);
+        }
+        ends[1] = slot;
+    }
+
+    private void unlink(final int slot) {
+
+        final int base = slot * SLOT_SIZE;
+        final int previous = slots.getInt(base + 24);
+        final int next = slots.getInt(base + 28);
+        final int[] ends = groups.get(groupId(slot));
+        if (previous == NONE) {
+            ends[0] = next;
+        } else {
+            slots.putInt(previous * SLOT_SIZE + 28, next);
+        }
+        if (next == NONE) {
+            ends[1] = previous;
+        } else {
+            slots.putInt(next * SLOT_SIZE + 24, previous);
+        }
+        if (ends[0] == NONE) {
+            groups.remove(groupId(slot));
+        }
+    }
+
+    private void rehash(final int newCapacity) {
+
+        final ByteBuffer oldSlots = slots;
+        final Map<Integer, int[]> oldGroups = new HashMap<>(groups);
+        allocate(newCapacity);
+
+        // walked group by group so every list keeps its order
+        for (final int[] ends : oldGroups.values()) {
+            for (int slot = ends[0]; slot != NONE; slot = oldSlots.getInt(slot * SLOT_SIZE + 28)) {
+                final int base = slot * SLOT_SIZE;
+                final long hash = oldSlots.getLong(base);
+                int target = (int) (spread(hash) & mask);
+                while (segmentField(target) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                write(target, hash, oldSlots.getInt(base + 8) - 1, oldSlots.getInt(base + 12),
+                        oldSlots.getInt(base + 16), oldSlots.getInt(base + 20));
+                link(target);
+                size++;
+                used++;
+            }
+        }
+    }
+
+    private void allocate(final int newCapacity) {
+        this.capacity = newCapacity;
+        this.mask = newCapacity - 1;
+        this.slots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+        this.size = 0;
+        this.used = 0;
+        this.groups.clear();
+    }
+
+    private static long spread(long hash) {
+        // murmur3 finalizer, the keys hashes are poorly distributed in the low bits
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static int tableSizeFor(final int cap) {
+        int n = Integer.highestOneBit(cap - 1) << 1;
+        return n <= 0 ? 1 << 30 : n;
+    }
+
+}
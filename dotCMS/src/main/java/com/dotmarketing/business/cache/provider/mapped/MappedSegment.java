@@ -0,0 +1,252 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import com.dotmarketing.util.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only segment file mapped into memory. Records are never updated in place, a new version
+ * of an entry is appended to the active segment and the old one becomes garbage that the
+ * compaction reclaims once the segment is mostly dead.
+ * <p/>
+ * Record layout:
+ * <code>byte type | int recordLength | long hash | long sequence | short groupLength | group | short keyLength | key | int dataLength | data</code>
+ * <p/>
+ * The sequence orders the writes across all the segments, a record copied forward by the compaction
+ * keeps the sequence it was written with.
+ * <p/>
+ * The type byte is written last, a record with a type of <code>0</code> is a torn write and
+ * marks the end of the readable segment.
+ * <p/>
+ * A deleted segment is unmapped right away instead of waiting for the GC to collect the buffer, so
+ * the disk and address space of the file are released. It must not be read after that, the cache
+ * only reads the segments it still holds and under its lock.
+ */
+final class MappedSegment {
+
+    static final byte TYPE_NONE = 0;
+    static final byte TYPE_VALUE = 1;
+    static final byte TYPE_REMOVE = 2;
+    static final byte TYPE_FLUSH_GROUP = 3;
+
+    static final String FILE_PREFIX = "segment-";
+    static final String FILE_SUFFIX = ".seg";
+
+    private static final int HEADER_SIZE = 1 + 4 + 8 + 8;
+
+    final int id;
+    final File file;
+    final int capacity;
+
+    private final MappedByteBuffer buffer;
+    private int position = 0;
+    private boolean unmapped = false;
+
+    // bytes of the records the index still points to
+    long liveBytes = 0;
+
+    private MappedSegment(final int id, final File file, final int capacity, final MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.capacity = capacity;
+        this.buffer = buffer;
+    }
+
+    static MappedSegment open(final File root, final int id, final int capacity) throws IOException {
+
+        final File file = new File(root, fileName(id));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            final int size = (int) Math.max(raf.length(), capacity);
+            raf.setLength(size);
+            final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new MappedSegment(id, file, size, buffer);
+        }
+    }
+
+    static String fileName(final int id) {
+        return FILE_PREFIX + String.format("%08d", id) + FILE_SUFFIX;
+    }
+
+    static int parseId(final String fileName) {
+        return Integer.parseInt(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+    }
+
+    /**
+     * Encodes a record ready to be appended to a segment, its sequence is set with {@link #stamp(byte[], long)}
+     */
+    static byte[] encode(final byte type, final long hash, final String group, final String key, final byte[] data) {
+
+        final byte[] groupBytes = group.getBytes(StandardCharsets.UTF_8);
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final int dataLength = data == null ? 0 : data.length;
+        final int length = HEADER_SIZE + 2 + groupBytes.length + 2 + keyBytes.length + 4 + dataLength;
+
+        final ByteBuffer record = ByteBuffer.allocate(length);
+        record.put(type);
+        record.putInt(length);
+        record.putLong(hash);
+        record.putLong(0);
+        record.putShort((short) groupBytes.length);
+        record.put(groupBytes);
+        record.putShort((short) keyBytes.length);
+        record.put(keyBytes);
+        record.putInt(dataLength);
+        if (dataLength > 0) {
+            record.put(data);
+        }
+        return record.array();
+    }
+
+    /**
+     * Sets the sequence of an encoded record
+     */
+    static void stamp(final byte[] record, final long sequence) {
+        ByteBuffer.wrap(record).putLong(13, sequence);
+    }
+
+    int remaining() {
+        return unmapped ? 0 : capacity - position;
+    }
+
+    int position() {
+        return position;
+    }
+
+    /**
+     * Appends an encoded record and returns the offset it was written at. The record type is
+     * published after the body so a crash in the middle of the write is detected on recovery.
+     */
+    int append(final byte[] record) {
+
+        final int offset = position;
+        final ByteBuffer target = buffer.duplicate();
+        target.position(offset + 1);
+        target.put(record, 1, record.length - 1);
+        buffer.put(offset, record[0]);
+        position += record.length;
+        return offset;
+    }
+
+    /**
+     * Returns a copy of the raw record stored at the given offset
+     */
+    byte[] read(final int offset, final int length) {
+        final byte[] record = new byte[length];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(record);
+        return record;
+    }
+
+    byte type(final int offset) {
+        return buffer.get(offset);
+    }
+
+    int recordLength(final int offset) {
+        return buffer.getInt(offset + 1);
+    }
+
+    long hash(final int offset) {
+        return buffer.getLong(offset + 5);
+    }
+
+    long sequence(final int offset) {
+        return buffer.getLong(offset + 13);
+    }
+
+    /**
+     * Finds the end of the readable records, used when an existing segment is reopened after a restart
+     */
+    void recoverPosition() {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= capacity && type(offset) != TYPE_NONE) {
+            final int length = recordLength(offset);
+            if (length < HEADER_SIZE || offset + length > capacity) {
+                break;
+            }
+            offset += length;
+        }
+        position = offset;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() {
+        unmap();
+        file.delete();
+    }
+
+    private void unmap() {
+        if (unmapped) {
+            return;
+        }
+        unmapped = true;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                invokeCleaner = null;
+            }
+            if (invokeCleaner != null) {
+                // java 9+
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } else {
+                // java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            Logger.debug(MappedSegment.class, "Unable to unmap " + file.getName() + ", it is released by the GC: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Decoded view over a record
+     */
+    static final class Record {
+
+        final byte type;
+        final long hash;
+        final long sequence;
+        final String group;
+        final String key;
+        final byte[] data;
+
+        Record(final byte[] raw) {
+            final ByteBuffer source = ByteBuffer.wrap(raw);
+            type = source.get();
+            source.getInt();
+            hash = source.getLong();
+            sequence = source.getLong();
+            group = readString(source);
+            key = readString(source);
+            data = new byte[source.getInt()];
+            source.get(data);
+        }
+
+        private static String readString(final ByteBuffer source) {
+            final byte[] bytes = new byte[source.getShort() & 0xFFFF];
+            source.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+}
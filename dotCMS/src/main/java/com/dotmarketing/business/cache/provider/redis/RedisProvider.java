@@ -6,33 +6,42 @@ import com.dotmarketing.business.cache.provider.CacheStats;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.io.NotSerializableException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
-import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import org.apache.commons.collections.map.LRUMap;
 import redis.clients.jedis.Client;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 /**
+ * Redis cache provider, the values are stored with the serializer of the provider under binary keys
+ * made of the group and the key.
+ * <p>
+ * The keys of every group are kept in a Redis set (and the groups in another one) so a group can be
+ * flushed or counted without scanning the keys of the server, and the commands of a single operation
+ * (the value and its index entry) are pipelined so they cost a single round trip. A group flush renames
+ * the set of the group before deleting its keys, so a key put during the flush is never left out of
+ * the index.
+ * <p>
+ * There is no write-behind for this provider, every put is written on the calling thread. The store is
+ * shared by the cluster and a remove sent by another server could not cancel a put queued on this one.
+ *
  * @author Jonathan Gamba
  *         Date: 10/9/15
  */
@@ -49,6 +58,15 @@ public class RedisProvider extends CacheProvider {
     private JedisPool readPool;//Slave
     private final char delimit = ';';
 
+    //Keys used to index the entries of each group and the list of groups, group names never start with #
+    private static final String GROUP_INDEX_PREFIX = "#group;";
+    private static final byte[] GROUPS_KEY = "#groups".getBytes(StandardCharsets.UTF_8);
+    //Index of a group while it is being flushed
+    private static final String FLUSHING_INDEX_PREFIX = "#flushing;";
+
+    //Max number of keys sent in a single command when removing or reading many keys
+    private final int chunkSize = Config.getIntProperty("redis.pipeline.chunk.size", 1000);
+
     @Override
     public String getName () {
         return "Redis Provider";
@@ -134,12 +152,9 @@ public class RedisProvider extends CacheProvider {
         key = key.toLowerCase();
 
         //Building the key
-        StringWriter compoundKey = new StringWriter();
-        compoundKey.append(group);
-        compoundKey.append(delimit);
-        compoundKey.append(key);
+        final String compoundKey = group + delimit + key;
 
-        if ( cannotCacheCache.get(compoundKey.toString()) != null ) {
+        if ( cannotCacheCache.get(compoundKey) != null ) {
             Logger.debug(this, "Returning because object is in cannot cache cache - Redis: group [" + group + "] - key [" + key + "].");
             return;
         }
@@ -149,41 +164,25 @@ public class RedisProvider extends CacheProvider {
             return;
         }
 
-        ObjectOutputStream output = null;
-        OutputStream outputStream;
-
         try ( Jedis jedis = writePool.getResource() ) {
 
             //Prepare the object to be store
-            ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream();
-            outputStream = new BufferedOutputStream(arrayOutputStream, 8192);
-
-            output = new ObjectOutputStream(outputStream);
-            output.writeObject(content);
-            output.flush();
-
-            byte[] data = arrayOutputStream.toByteArray();
+            byte[] data = serialize(group, content);
             if ( data == null || data.length == 0 ) {
                 return;
             }
 
-            //Add the object to redis master
-            jedis.set(compoundKey.toString().getBytes(), data);
+            //Add the object and index it in its group, a single round trip to the master
+            Pipeline pipeline = jedis.pipelined();
+            set(pipeline, group, key, data);
+            pipeline.sync();
 
         } catch ( NotSerializableException ex ) {
             remove(group, key);
-            cannotCacheCache.put(compoundKey.toString(), compoundKey.toString());
+            cannotCacheCache.put(compoundKey, compoundKey);
             Logger.error(this, "Error Adding to Redis [NotSerializableException]: group [" + group + "] - key [" + key + "].", ex);
         } catch ( Exception e ) {
             Logger.error(this, "Error Adding to Redis: group [" + group + "] - key [" + key + "].", e);
-        } finally {
-            try {
-                if ( output != null ) {
-                    output.close();
-                }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
-            }
         }
     }
 
@@ -194,61 +193,63 @@ public class RedisProvider extends CacheProvider {
             return null;
         }
 
-        //Building the key
-        StringWriter compoundKey = new StringWriter();
-        compoundKey.append(group.toLowerCase());
-        compoundKey.append(delimit);
-        compoundKey.append(key.toLowerCase());
+        group = group.toLowerCase();
+        key = key.toLowerCase();
 
         //Reading the record from the Redis slave
         byte[] data = null;
         try ( Jedis jedis = readPool.getResource() ) {
-            data = jedis.get(compoundKey.toString().getBytes());
+            data = jedis.get(key(group, key));
         } catch ( Exception e ) {
             Logger.error(this, "Error retrieving from Redis: group [" + group + "] - key [" + key + "].", e);
         }
 
-        if ( data == null ) {
-            return null;
+        return toObject(group, key, data);
+    }
+
+    /**
+     * Reads the given keys with MGET, a single round trip for every {@link #chunkSize} keys
+     */
+    @Override
+    public Map<String, Object> getAll ( String group, final Collection<String> keys ) {
+
+        final Map<String, Object> found = new HashMap<>();
+        if ( group == null || keys == null || keys.isEmpty() ) {
+            return found;
         }
 
-        //Reconstructing the object to send it back
-        ObjectInputStream input = null;
-        InputStream bin = null;
-        InputStream is = null;
+        group = group.toLowerCase();
 
-        try {
-            is = new ByteArrayInputStream(data);
-            bin = new BufferedInputStream(is, 8192);
-            input = new ObjectInputStream(bin);
-            return input.readObject();
-        } catch ( Exception e ) {
-            Logger.error(this, "Error retrieving from Redis: group [" + group + "] - key [" + key + "].", e);
-        } finally {
-            try {
-                if ( input != null ) {
-                    input.close();
-                }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
+        final List<String> toRead = new ArrayList<>(keys.size());
+        for ( String key : keys ) {
+            if ( key != null ) {
+                toRead.add(key);
             }
-            try {
-                if ( bin != null ) {
-                    bin.close();
+        }
+
+        try ( Jedis jedis = readPool.getResource() ) {
+
+            for ( int from = 0; from < toRead.size(); from += chunkSize ) {
+
+                final List<String> chunk = toRead.subList(from, Math.min(from + chunkSize, toRead.size()));
+                final byte[][] compoundKeys = new byte[chunk.size()][];
+                for ( int i = 0; i < chunk.size(); i++ ) {
+                    compoundKeys[i] = key(group, chunk.get(i).toLowerCase());
                 }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
-            }
-            try {
-                if ( is != null ) {
-                    is.close();
+
+                final List<byte[]> values = jedis.mget(compoundKeys);
+                for ( int i = 0; i < chunk.size(); i++ ) {
+                    final Object value = toObject(group, chunk.get(i), values.get(i));
+                    if ( value != null ) {
+                        found.put(chunk.get(i), value);
+                    }
                 }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
             }
+        } catch ( Exception e ) {
+            Logger.error(this, "Error retrieving from Redis: group [" + group + "] - " + toRead.size() + " keys.", e);
         }
 
-        return null;
+        return found;
     }
 
     @Override
@@ -258,15 +259,15 @@ public class RedisProvider extends CacheProvider {
             return;
         }
 
-        //Building the key
-        StringWriter compoundKey = new StringWriter();
-        compoundKey.append(group.toLowerCase());
-        compoundKey.append(delimit);
-        compoundKey.append(key.toLowerCase());
+        final String lowerGroup = group.toLowerCase();
+        final String lowerKey = key.toLowerCase();
 
-        //Deleting the record from the Redis master
+        //Deleting the record and its index entry from the Redis master
         try ( Jedis jedis = writePool.getResource() ) {
-            jedis.del(compoundKey.toString());
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.del(key(lowerGroup, lowerKey));
+            pipeline.srem(indexKey(lowerGroup), bytes(lowerKey));
+            pipeline.sync();
         } catch ( Exception e ) {
             Logger.error(this, "Error removing from Redis: group [" + group + "] - key [" + key + "].", e);
         }
@@ -281,40 +282,35 @@ public class RedisProvider extends CacheProvider {
 
         group = group.toLowerCase();
 
-        //Getting all the keys for the given groups
-        Set<String> keys = getKeys(group);
-
-        Iterator<String> keysIterator = keys.iterator();
-
         try ( Jedis jedis = writePool.getResource() ) {
 
-            boolean go = keysIterator.hasNext();
-
-            //The list of keys we want to remove
-            List<String> keysToDelete = new ArrayList<>();
-
-            while ( go ) {
-
-                while ( keysIterator.hasNext() ) {
-
-                    keysToDelete.add(keysIterator.next());
+            //The index is swapped out first, the puts that come while the group is flushed go to a new index
+            //that a later flush will find, and the keys of the group come from the swapped index, no need to
+            //scan the server
+            final byte[] flushingKey = bytes(FLUSHING_INDEX_PREFIX + group + delimit + UUID.randomUUID());
+            try {
+                jedis.rename(indexKey(group), flushingKey);
+            } catch ( JedisDataException e ) {
+                //The group has no index, nothing was put since the last flush
+                jedis.srem(GROUPS_KEY, bytes(group));
+                return;
+            }
 
-                    //Deleting groups of 100
-                    if ( keysToDelete.size() > 100 ) {
-                        jedis.del(keysToDelete.toArray(new String[keysToDelete.size()]));
-                        keysToDelete = new ArrayList<>();
-                        break;
-                    }
+            final List<byte[]> keys = new ArrayList<>(jedis.smembers(flushingKey));
 
-                }
+            Pipeline pipeline = jedis.pipelined();
+            for ( int from = 0; from < keys.size(); from += chunkSize ) {
 
-                if ( keysToDelete.size() > 0 ) {
-                    String[] groupKeys = keysToDelete.toArray(new String[keysToDelete.size()]);
-                    //If something missing to be delete it
-                    jedis.del(groupKeys);
+                final List<byte[]> chunk = keys.subList(from, Math.min(from + chunkSize, keys.size()));
+                final byte[][] compoundKeys = new byte[chunk.size()][];
+                for ( int i = 0; i < chunk.size(); i++ ) {
+                    compoundKeys[i] = key(group, new String(chunk.get(i), StandardCharsets.UTF_8));
                 }
-                break;
+                pipeline.del(compoundKeys);
             }
+            pipeline.del(flushingKey);
+            pipeline.srem(GROUPS_KEY, bytes(group));
+            pipeline.sync();
 
         } catch ( Exception e ) {
             Logger.error(this, "Error removing from Redis: group [" + group + "].", e);
@@ -341,21 +337,18 @@ public class RedisProvider extends CacheProvider {
             return null;
         }
 
-        //Reading the keys from the redis slave
-        try ( Jedis jedis = readPool.getResource() ) {
+        final Set<String> keys = new HashSet<>();
 
-            //Building the key
-            StringWriter compoundKey = new StringWriter();
-            compoundKey.append(group.toLowerCase());
-            compoundKey.append(delimit);
-            compoundKey.append("*");
-
-            return jedis.keys(compoundKey.toString());
+        //Reading the keys from the index of the group in the redis slave
+        try ( Jedis jedis = readPool.getResource() ) {
+            for ( byte[] key : jedis.smembers(indexKey(group.toLowerCase())) ) {
+                keys.add(new String(key, StandardCharsets.UTF_8));
+            }
         } catch ( Exception e ) {
             Logger.error(this, "Error retrieving Redis keys", e);
         }
 
-        return new HashSet<String>();
+        return keys;
     }
 
     @Override
@@ -364,15 +357,9 @@ public class RedisProvider extends CacheProvider {
         Set<String> currentGroups = new HashSet<>();
 
         try ( Jedis jedis = readPool.getResource() ) {
-
-            //Get the complete list of keys
-            Set<String> keys = jedis.keys("*");
-            for ( String key : keys ) {
-
-                //Read each key in order to get the groups
-                currentGroups.add(key.split(String.valueOf(delimit))[0]);
+            for ( byte[] group : jedis.smembers(GROUPS_KEY) ) {
+                currentGroups.add(new String(group, StandardCharsets.UTF_8));
             }
-
         } catch ( Exception e ) {
             Logger.error(this, "Error retrieving Redis groups list", e);
         }
@@ -392,20 +379,30 @@ public class RedisProvider extends CacheProvider {
             String memoryStats = client.getBulkReply();
 
             //Read the total memory usage
-            int memoryUsage = -1;
+            long memoryUsage = -1;
             String memoryUsageString = getRedisProperty(memoryStats, "used_memory");
             if ( memoryUsageString != null ) {
-                memoryUsage = Integer.valueOf(memoryUsageString);
+                memoryUsage = Long.valueOf(memoryUsageString);
             }
             NumberFormat nf = DecimalFormat.getInstance();
             //Getting the list of groups
-            Set<String> currentGroups = getGroups();
+            List<String> currentGroups = new ArrayList<>(getGroups());
 
+            //The size of every group in a single round trip
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Long>> sizes = new ArrayList<>(currentGroups.size());
             for ( String group : currentGroups ) {
+                sizes.add(pipeline.scard(indexKey(group)));
+            }
+            pipeline.sync();
+
+            for ( int i = 0; i < currentGroups.size(); i++ ) {
+                String group = currentGroups.get(i);
                 CacheStats stats = new CacheStats();
                 stats.addStat(CacheStats.REGION, group);
-                stats.addStat(CacheStats.REGION_SIZE, nf.format(getKeys(group).size()));
+                stats.addStat(CacheStats.REGION_SIZE, nf.format(sizes.get(i).get()));
                 stats.addStat(CacheStats.REGION_CONFIGURED_SIZE, nf.format(memoryUsage));
+                addSerializerStats(group, stats);
                 /*
                 Show the complete memory usage just one time,
                 the cache stats page needs improvements (html/portlet/ext/cmsmaintenance/cachestats_guava.jsp), that page was not
@@ -430,6 +427,49 @@ public class RedisProvider extends CacheProvider {
         isInitialized = false;
     }
 
+    /**
+     * Adds to the pipeline the commands to store a value and index it in its group
+     */
+    private void set ( final Pipeline pipeline, final String group, final String key, final byte[] data ) {
+        pipeline.set(key(group, key), data);
+        pipeline.sadd(indexKey(group), bytes(key));
+        pipeline.sadd(GROUPS_KEY, bytes(group));
+    }
+
+    private Object toObject ( final String group, final String key, final byte[] data ) {
+
+        if ( data == null ) {
+            return null;
+        }
+
+        //Reconstructing the object to send it back
+        try {
+            return deserialize(group, data);
+        } catch ( Exception e ) {
+            Logger.error(this, "Error retrieving from Redis: group [" + group + "] - key [" + key + "].", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Binary key of a value, the group and the key are expected in lower case
+     */
+    private byte[] key ( final String group, final String key ) {
+        return bytes(group + delimit + key);
+    }
+
+    /**
+     * Binary key of the set with the keys of a group
+     */
+    private byte[] indexKey ( final String group ) {
+        return bytes(GROUP_INDEX_PREFIX + group);
+    }
+
+    private static byte[] bytes ( final String value ) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
      * Reads and parses the string report generated for the INFO Redis command in order
      * to return any specific required property.
@@ -490,12 +530,8 @@ public class RedisProvider extends CacheProvider {
         if ( exclude ) {
 
             //Building the key
-            StringWriter compoundKey = new StringWriter();
-            compoundKey.append(group);
-            compoundKey.append(delimit);
-            compoundKey.append(key);
-
-            cannotCacheCache.put(compoundKey.toString(), compoundKey.toString());
+            String compoundKey = group + delimit + key;
+            cannotCacheCache.put(compoundKey, compoundKey);
         }
 
         return exclude;
@@ -0,0 +1,399 @@
+package com.dotmarketing.business.cache.serializer;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary codec that knows how to write the value types dotCMS caches the most (contentlets,
+ * identifiers, version info and the maps, lists and scalars they are made of) without the class
+ * descriptors and reflection of java serialization.
+ * <br/>
+ * Only exact classes are encoded natively, subclasses and any other type are written with java
+ * serialization inside the binary stream so nothing is lost. Data written with plain java
+ * serialization (e.g. an H22 database recovered after an upgrade) is still readable.
+ */
+public class BinaryCacheSerializer implements CacheSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte MAGIC = (byte) 0xDC;
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN_TRUE = 4;
+    private static final byte BOOLEAN_FALSE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DATE = 8;
+    private static final byte TIMESTAMP = 9;
+    private static final byte BYTES = 10;
+    private static final byte STRING_ARRAY = 11;
+    private static final byte HASH_MAP = 12;
+    private static final byte LINKED_HASH_MAP = 13;
+    private static final byte CONCURRENT_HASH_MAP = 14;
+    private static final byte ARRAY_LIST = 15;
+    private static final byte HASH_SET = 16;
+    private static final byte LINKED_HASH_SET = 17;
+    private static final byte CONCURRENT_KEY_SET = 18;
+    private static final byte CONTENTLET = 19;
+    private static final byte IDENTIFIER = 20;
+    private static final byte CONTENTLET_VERSION_INFO = 21;
+    private static final byte JAVA = 127;
+
+    private final JavaCacheSerializer javaSerializer = new JavaCacheSerializer();
+
+    @Override
+    public String getName() {
+        return "dotCMS Binary";
+    }
+
+    @Override
+    public byte[] serialize(final Object object) throws IOException {
+
+        final ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream(256);
+        final DataOutputStream output = new DataOutputStream(arrayOutputStream);
+        output.writeByte(MAGIC);
+        output.writeByte(VERSION);
+        write(output, object);
+        output.flush();
+        return arrayOutputStream.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(final byte[] data) throws IOException, ClassNotFoundException {
+
+        if (JavaCacheSerializer.isJavaSerialized(data)) {
+            return javaSerializer.deserialize(data);
+        }
+
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        if (input.readByte() != MAGIC || input.readByte() != VERSION) {
+            throw new IOException("Unknown cache serialization format");
+        }
+        return read(input);
+    }
+
+    private void write(final DataOutputStream output, final Object object) throws IOException {
+
+        if (object == null) {
+            output.writeByte(NULL);
+            return;
+        }
+
+        final Class<?> clazz = object.getClass();
+        if (clazz == String.class) {
+            output.writeByte(STRING);
+            writeString(output, (String) object);
+        } else if (clazz == Integer.class) {
+            output.writeByte(INTEGER);
+            writeVarLong(output, (Integer) object);
+        } else if (clazz == Long.class) {
+            output.writeByte(LONG);
+            writeVarLong(output, (Long) object);
+        } else if (clazz == Boolean.class) {
+            output.writeByte((Boolean) object ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+        } else if (clazz == Double.class) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) object);
+        } else if (clazz == Float.class) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) object);
+        } else if (clazz == Date.class) {
+            output.writeByte(DATE);
+            output.writeLong(((Date) object).getTime());
+        } else if (clazz == Timestamp.class) {
+            output.writeByte(TIMESTAMP);
+            output.writeLong(((Timestamp) object).getTime());
+            output.writeInt(((Timestamp) object).getNanos());
+        } else if (clazz == byte[].class) {
+            output.writeByte(BYTES);
+            writeVarLong(output, ((byte[]) object).length);
+            output.write((byte[]) object);
+        } else if (clazz == String[].class) {
+            output.writeByte(STRING_ARRAY);
+            final String[] array = (String[]) object;
+            writeVarLong(output, array.length);
+            for (final String value : array) {
+                writeNullableString(output, value);
+            }
+        } else if (clazz == HashMap.class) {
+            output.writeByte(HASH_MAP);
+            writeMap(output, (Map<?, ?>) object);
+        } else if (clazz == LinkedHashMap.class) {
+            output.writeByte(LINKED_HASH_MAP);
+            writeMap(output, (Map<?, ?>) object);
+        } else if (clazz == ConcurrentHashMap.class) {
+            output.writeByte(CONCURRENT_HASH_MAP);
+            writeMap(output, (Map<?, ?>) object);
+        } else if (clazz == ArrayList.class) {
+            output.writeByte(ARRAY_LIST);
+            writeCollection(output, (Collection<?>) object);
+        } else if (clazz == HashSet.class) {
+            output.writeByte(HASH_SET);
+            writeCollection(output, (Collection<?>) object);
+        } else if (clazz == LinkedHashSet.class) {
+            output.writeByte(LINKED_HASH_SET);
+            writeCollection(output, (Collection<?>) object);
+        } else if (clazz == ConcurrentHashMap.KeySetView.class) {
+            output.writeByte(CONCURRENT_KEY_SET);
+            writeCollection(output, (Collection<?>) object);
+        } else if (clazz == Contentlet.class) {
+            output.writeByte(CONTENTLET);
+            final Contentlet contentlet = (Contentlet) object;
+            output.writeBoolean(contentlet.isLowIndexPriority());
+            writeMap(output, contentlet.getMap());
+        } else if (clazz == Identifier.class) {
+            output.writeByte(IDENTIFIER);
+            writeIdentifier(output, (Identifier) object);
+        } else if (clazz == ContentletVersionInfo.class) {
+            output.writeByte(CONTENTLET_VERSION_INFO);
+            writeVersionInfo(output, (ContentletVersionInfo) object);
+        } else {
+            output.writeByte(JAVA);
+            final byte[] data = javaSerializer.serialize(object);
+            writeVarLong(output, data.length);
+            output.write(data);
+        }
+    }
+
+    private Object read(final DataInputStream input) throws IOException, ClassNotFoundException {
+
+        final byte type = input.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(input);
+            case INTEGER:
+                return (int) readVarLong(input);
+            case LONG:
+                return readVarLong(input);
+            case BOOLEAN_TRUE:
+                return Boolean.TRUE;
+            case BOOLEAN_FALSE:
+                return Boolean.FALSE;
+            case DOUBLE:
+                return input.readDouble();
+            case FLOAT:
+                return input.readFloat();
+            case DATE:
+                return new Date(input.readLong());
+            case TIMESTAMP:
+                final Timestamp timestamp = new Timestamp(input.readLong());
+                timestamp.setNanos(input.readInt());
+                return timestamp;
+            case BYTES:
+                final byte[] bytes = new byte[(int) readVarLong(input)];
+                input.readFully(bytes);
+                return bytes;
+            case STRING_ARRAY:
+                final String[] array = new String[(int) readVarLong(input)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readNullableString(input);
+                }
+                return array;
+            case HASH_MAP:
+                return readMap(input, new HashMap<>());
+            case LINKED_HASH_MAP:
+                return readMap(input, new LinkedHashMap<>());
+            case CONCURRENT_HASH_MAP:
+                return readMap(input, new ConcurrentHashMap<>());
+            case ARRAY_LIST:
+                return readCollection(input, new ArrayList<>());
+            case HASH_SET:
+                return readCollection(input, new HashSet<>());
+            case LINKED_HASH_SET:
+                return readCollection(input, new LinkedHashSet<>());
+            case CONCURRENT_KEY_SET:
+                return readCollection(input, ConcurrentHashMap.newKeySet());
+            case CONTENTLET:
+                final boolean lowIndexPriority = input.readBoolean();
+                final Contentlet contentlet = new Contentlet(readMap(input, new HashMap<>()));
+                contentlet.setLowIndexPriority(lowIndexPriority);
+                // rebuilding the map marks the contentlet as dirty
+                contentlet.markAsReindexed();
+                return contentlet;
+            case IDENTIFIER:
+                return readIdentifier(input);
+            case CONTENTLET_VERSION_INFO:
+                return readVersionInfo(input);
+            case JAVA:
+                final byte[] data = new byte[(int) readVarLong(input)];
+                input.readFully(data);
+                return javaSerializer.deserialize(data);
+            default:
+                throw new IOException("Unknown cache serialization type: " + type);
+        }
+    }
+
+    private void writeIdentifier(final DataOutputStream output, final Identifier identifier) throws IOException {
+        writeNullableString(output, identifier.getId());
+        writeNullableString(output, identifier.getAssetName());
+        writeNullableString(output, identifier.getAssetType());
+        writeNullableString(output, identifier.getParentPath());
+        writeNullableString(output, identifier.getHostId());
+        writeNullableDate(output, identifier.getSysPublishDate());
+        writeNullableDate(output, identifier.getSysExpireDate());
+    }
+
+    private Identifier readIdentifier(final DataInputStream input) throws IOException {
+        final Identifier identifier = new Identifier();
+        identifier.setId(readNullableString(input));
+        identifier.setAssetName(readNullableString(input));
+        identifier.setAssetType(readNullableString(input));
+        identifier.setParentPath(readNullableString(input));
+        identifier.setHostId(readNullableString(input));
+        identifier.setSysPublishDate(readNullableDate(input));
+        identifier.setSysExpireDate(readNullableDate(input));
+        return identifier;
+    }
+
+    private void writeVersionInfo(final DataOutputStream output, final ContentletVersionInfo info) throws IOException {
+        writeNullableString(output, info.getIdentifier());
+        writeVarLong(output, info.getLang());
+        writeNullableString(output, info.getWorkingInode());
+        writeNullableString(output, info.getLiveInode());
+        writeNullableString(output, info.getLockedBy());
+        writeNullableDate(output, info.getLockedOn());
+        output.writeBoolean(info.isDeleted());
+        writeNullableDate(output, info.getVersionTs());
+    }
+
+    private ContentletVersionInfo readVersionInfo(final DataInputStream input) throws IOException {
+        final ContentletVersionInfo info = new ContentletVersionInfo();
+        info.setIdentifier(readNullableString(input));
+        info.setLang(readVarLong(input));
+        info.setWorkingInode(readNullableString(input));
+        info.setLiveInode(readNullableString(input));
+        info.setLockedBy(readNullableString(input));
+        info.setLockedOn(readNullableDate(input));
+        info.setDeleted(input.readBoolean());
+        info.setVersionTs(readNullableDate(input));
+        return info;
+    }
+
+    private void writeMap(final DataOutputStream output, final Map<?, ?> map) throws IOException {
+        // take a snapshot, concurrent maps can change while we write them
+        final List<Map.Entry<?, ?>> entries = new ArrayList<>(map.entrySet());
+        writeVarLong(output, entries.size());
+        for (final Map.Entry<?, ?> entry : entries) {
+            write(output, entry.getKey());
+            write(output, entry.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <M extends Map> M readMap(final DataInputStream input, final M map) throws IOException, ClassNotFoundException {
+        final long size = readVarLong(input);
+        for (long i = 0; i < size; i++) {
+            final Object key = read(input);
+            final Object value = read(input);
+            if (key != null && value != null) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    private void writeCollection(final DataOutputStream output, final Collection<?> collection) throws IOException {
+        final Object[] values = collection.toArray();
+        writeVarLong(output, values.length);
+        for (final Object value : values) {
+            write(output, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C extends Collection> C readCollection(final DataInputStream input, final C collection)
+            throws IOException, ClassNotFoundException {
+        final long size = readVarLong(input);
+        for (long i = 0; i < size; i++) {
+            final Object value = read(input);
+            if (value != null || !(collection instanceof Set)) {
+                collection.add(value);
+            }
+        }
+        return collection;
+    }
+
+    private void writeNullableString(final DataOutputStream output, final String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            writeString(output, value);
+        }
+    }
+
+    private String readNullableString(final DataInputStream input) throws IOException {
+        return input.readBoolean() ? readString(input) : null;
+    }
+
+    private void writeNullableDate(final DataOutputStream output, final Date value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeLong(value.getTime());
+        }
+    }
+
+    private Date readNullableDate(final DataInputStream input) throws IOException {
+        return input.readBoolean() ? new Date(input.readLong()) : null;
+    }
+
+    private void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[(int) readVarLong(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Zig-zag encoded variable length long, small numbers (sizes, language ids, sort orders) take one byte
+     */
+    private void writeVarLong(final DataOutputStream output, final long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        output.writeByte((int) zigZag);
+    }
+
+    private long readVarLong(final DataInputStream input) throws IOException {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte current = input.readByte();
+            zigZag |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+
+}
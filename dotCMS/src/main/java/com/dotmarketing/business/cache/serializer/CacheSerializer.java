@@ -0,0 +1,47 @@
+package com.dotmarketing.business.cache.serializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Converts the objects stored by the Cache Providers that keep their values outside of the java heap
+ * (H22, Redis, Hazelcast, Mapped Cache...) to and from bytes.
+ * <br/>
+ * The implementation to use can be set globally with the <strong>cache.serializer</strong> property or for a
+ * specific provider with <strong>cache.[provider key].serializer</strong>, both expect a class name, e.g.:
+ * <ul>
+ * <li>cache.serializer=com.dotmarketing.business.cache.serializer.BinaryCacheSerializer</li>
+ * <li>cache.redisprovider.serializer=com.dotmarketing.business.cache.serializer.JavaCacheSerializer</li>
+ * </ul>
+ *
+ * @see com.dotmarketing.business.cache.provider.CacheProvider#getSerializer()
+ */
+public interface CacheSerializer extends Serializable {
+
+    /**
+     * Returns the human readable name for this serializer
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     * Converts the given object to bytes
+     *
+     * @param object
+     * @return
+     * @throws IOException if the object can not be serialized
+     */
+    byte[] serialize(Object object) throws IOException;
+
+    /**
+     * Rebuilds an object from the bytes produced by {@link #serialize(Object)}
+     *
+     * @param data
+     * @return
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    Object deserialize(byte[] data) throws IOException, ClassNotFoundException;
+
+}
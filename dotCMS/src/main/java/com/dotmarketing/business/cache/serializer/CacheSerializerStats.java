@@ -0,0 +1,64 @@
+package com.dotmarketing.business.cache.serializer;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialization counters of a cache group, kept by each {@link com.dotmarketing.business.cache.provider.CacheProvider}
+ */
+public class CacheSerializerStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder serializeTime = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder deserializeTime = new LongAdder();
+
+    public void serialized(final int bytes, final long nanos) {
+        writes.increment();
+        bytesWritten.add(bytes);
+        serializeTime.add(nanos);
+    }
+
+    public void deserialized(final int bytes, final long nanos) {
+        reads.increment();
+        bytesRead.add(bytes);
+        deserializeTime.add(nanos);
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getReads() {
+        return reads.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Average serialization time in nanoseconds
+     */
+    public long getAvgSerializeTime() {
+        final long count = writes.sum();
+        return count == 0 ? 0 : serializeTime.sum() / count;
+    }
+
+    /**
+     * Average deserialization time in nanoseconds
+     */
+    public long getAvgDeserializeTime() {
+        final long count = reads.sum();
+        return count == 0 ? 0 : deserializeTime.sum() / count;
+    }
+
+}
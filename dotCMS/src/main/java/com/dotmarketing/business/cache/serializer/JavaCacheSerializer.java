@@ -0,0 +1,48 @@
+package com.dotmarketing.business.cache.serializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Plain java serialization, the format used by the providers before the {@link CacheSerializer} was introduced
+ */
+public class JavaCacheSerializer implements CacheSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String getName() {
+        return "Java Serialization";
+    }
+
+    @Override
+    public byte[] serialize(final Object object) throws IOException {
+
+        final ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(arrayOutputStream, 8192))) {
+            output.writeObject(object);
+        }
+        return arrayOutputStream.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(final byte[] data) throws IOException, ClassNotFoundException {
+
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new ByteArrayInputStream(data), 8192))) {
+            return input.readObject();
+        }
+    }
+
+    /**
+     * Returns true if the given bytes start with the java serialization stream header
+     */
+    static boolean isJavaSerialized(final byte[] data) {
+        return data.length > 1 && data[0] == (byte) 0xAC && data[1] == (byte) 0xED;
+    }
+
+}
@@ -0,0 +1,417 @@
+package com.dotmarketing.business.cache.transport;
+
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.util.Logger;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sits in front of a {@link CacheTransport} collecting the invalidations of a short window and sending
+ * them to the cluster as a single frame instead of one message per key.
+ * <p>
+ * Within a window duplicated keys are sent once, keys of a flushed group are dropped and a full flush
+ * drops everything else. The frame is a small binary structure (deflated when it is big enough to be
+ * worth it) sent as a Base64 string prefixed with {@link #FRAME_PREFIX}, the prefix has no ':' so nodes
+ * running an older version just ignore it as an invalid key.
+ *
+ * @author dotCMS
+ */
+public class CacheInvalidationBatcher {
+
+    public static final String FRAME_PREFIX = "DOTINVALIDATIONFRAME-";
+
+    private static final byte VERSION = 1;
+    private static final byte FLAG_FLUSH_ALL = 1;
+    private static final byte FLAG_DEFLATED = 2;
+    private static final int DEFLATE_THRESHOLD = 512;
+
+    private final Supplier<CacheTransport> transport;
+    private final long windowMillis;
+    private final int maxKeys;
+    private final ScheduledExecutorService scheduler;
+
+    // pending invalidations, guarded by this
+    private boolean pendingFlushAll = false;
+    private final Set<String> pendingGroups = new LinkedHashSet<>();
+    private final Map<String, Set<String>> pendingKeys = new LinkedHashMap<>();
+    private int pendingKeyCount = 0;
+    private boolean scheduled = false;
+
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder sentKeys = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder coalescedKeys = new LongAdder();
+    private final LongAdder receivedMessages = new LongAdder();
+    private final LongAdder receivedKeys = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+
+    /**
+     * @param transport    supplies the transport the frames are sent through
+     * @param windowMillis how long the invalidations are collected before sending them
+     * @param maxKeys      number of pending keys that forces sending the frame before the window ends
+     */
+    public CacheInvalidationBatcher(final Supplier<CacheTransport> transport, final long windowMillis, final int maxKeys) {
+        this.transport = transport;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "CacheInvalidationBatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the invalidation of a key in a group
+     */
+    public void invalidate(final String key, final String group) {
+        synchronized (this) {
+            if (pendingFlushAll || pendingGroups.contains(group)) {
+                coalescedKeys.increment();
+                return;
+            }
+            if (pendingKeys.computeIfAbsent(group, g -> new LinkedHashSet<>()).add(key)) {
+                pendingKeyCount++;
+            } else {
+                coalescedKeys.increment();
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Queues the flush of a whole group, dropping the pending keys of the group
+     */
+    public void flushGroup(final String group) {
+        if (DotCacheAdministrator.ROOT_GOUP.equalsIgnoreCase(group)) {
+            flushAll();
+            return;
+        }
+        synchronized (this) {
+            if (pendingFlushAll || !pendingGroups.add(group)) {
+                coalescedKeys.increment();
+                return;
+            }
+            final Set<String> keys = pendingKeys.remove(group);
+            if (keys != null) {
+                pendingKeyCount -= keys.size();
+                coalescedKeys.add(keys.size());
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Queues a flush of the whole cache, dropping everything else that is pending
+     */
+    public void flushAll() {
+        synchronized (this) {
+            if (!pendingFlushAll) {
+                coalescedKeys.add(pendingKeyCount + pendingGroups.size());
+                pendingFlushAll = true;
+                pendingGroups.clear();
+                pendingKeys.clear();
+                pendingKeyCount = 0;
+            }
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        final boolean full;
+        synchronized (this) {
+            full = pendingKeyCount >= maxKeys;
+            if (scheduled && !full) {
+                return;
+            }
+            scheduled = true;
+        }
+        try {
+            scheduler.schedule(this::flush, full ? 0 : windowMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // the scheduler is gone, send it from this thread
+            flush();
+        }
+    }
+
+    /**
+     * Sends whatever is pending as a single frame
+     */
+    public void flush() {
+
+        final String frame;
+        final int keys;
+        synchronized (this) {
+            scheduled = false;
+            if (!pendingFlushAll && pendingGroups.isEmpty() && pendingKeys.isEmpty()) {
+                return;
+            }
+            keys = pendingKeyCount + pendingGroups.size() + (pendingFlushAll ? 1 : 0);
+            try {
+                frame = encode(pendingFlushAll, pendingGroups, pendingKeys);
+            } catch (IOException e) {
+                Logger.error(CacheInvalidationBatcher.class, "Unable to encode invalidation frame: " + e.getMessage(), e);
+                return;
+            } finally {
+                pendingFlushAll = false;
+                pendingGroups.clear();
+                pendingKeys.clear();
+                pendingKeyCount = 0;
+            }
+        }
+
+        final CacheTransport cacheTransport = transport.get();
+        if (cacheTransport == null) {
+            Logger.error(CacheInvalidationBatcher.class, "No Cache transport implementation is defined, dropping " + keys + " invalidations");
+            return;
+        }
+        try {
+            cacheTransport.send(frame);
+            sentMessages.increment();
+            sentKeys.add(keys);
+            sentBytes.add(frame.length());
+        } catch (Exception e) {
+            Logger.error(CacheInvalidationBatcher.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends what is pending and stops the scheduler
+     */
+    public void shutdown() {
+        flush();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns true if the given cluster message is an invalidation frame
+     */
+    public static boolean isFrame(final String message) {
+        return message != null && message.startsWith(FRAME_PREFIX);
+    }
+
+    /**
+     * Decodes a frame received from the cluster, updating the received counters
+     */
+    public Frame receive(final String message) throws IOException {
+        final Frame frame = decode(message);
+        receivedMessages.increment();
+        receivedKeys.add(frame.size());
+        receivedBytes.add(message.length());
+        return frame;
+    }
+
+    static String encode(final boolean flushAll, final Set<String> groups, final Map<String, Set<String>> keys) throws IOException {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(body);
+        if (!flushAll) {
+            writeVarInt(out, groups.size());
+            for (final String group : groups) {
+                writeString(out, group);
+            }
+            writeVarInt(out, keys.size());
+            for (final Map.Entry<String, Set<String>> entry : keys.entrySet()) {
+                writeString(out, entry.getKey());
+                writeVarInt(out, entry.getValue().size());
+                for (final String key : entry.getValue()) {
+                    writeString(out, key);
+                }
+            }
+        }
+        out.flush();
+
+        byte flags = flushAll ? FLAG_FLUSH_ALL : 0;
+        byte[] payload = body.toByteArray();
+        if (payload.length >= DEFLATE_THRESHOLD) {
+            final ByteArrayOutputStream deflated = new ByteArrayOutputStream(payload.length / 2);
+            try (OutputStream deflater = new DeflaterOutputStream(deflated)) {
+                deflater.write(payload);
+            }
+            if (deflated.size() < payload.length) {
+                payload = deflated.toByteArray();
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        final byte[] frame = new byte[payload.length + 2];
+        frame[0] = VERSION;
+        frame[1] = flags;
+        System.arraycopy(payload, 0, frame, 2, payload.length);
+        return FRAME_PREFIX + Base64.getEncoder().encodeToString(frame);
+    }
+
+    /**
+     * Decodes a frame without touching the counters
+     */
+    public static Frame decode(final String message) throws IOException {
+
+        final byte[] frame = Base64.getDecoder().decode(message.substring(FRAME_PREFIX.length()));
+        if (frame.length < 2 || frame[0] != VERSION) {
+            throw new IOException("Unknown invalidation frame version");
+        }
+        if ((frame[1] & FLAG_FLUSH_ALL) != 0) {
+            return new Frame(true, new LinkedHashSet<>(), new HashMap<>());
+        }
+
+        InputStream body = new ByteArrayInputStream(frame, 2, frame.length - 2);
+        if ((frame[1] & FLAG_DEFLATED) != 0) {
+            body = new InflaterInputStream(body);
+        }
+        try (DataInputStream in = new DataInputStream(body)) {
+            final int groupCount = readVarInt(in);
+            final Set<String> groups = new LinkedHashSet<>(groupCount * 2);
+            for (int i = 0; i < groupCount; i++) {
+                groups.add(readString(in));
+            }
+            final int keyGroupCount = readVarInt(in);
+            final Map<String, Set<String>> keys = new LinkedHashMap<>(keyGroupCount * 2);
+            for (int i = 0; i < keyGroupCount; i++) {
+                final String group = readString(in);
+                final int keyCount = readVarInt(in);
+                final Set<String> groupKeys = new LinkedHashSet<>(keyCount * 2);
+                for (int j = 0; j < keyCount; j++) {
+                    groupKeys.add(readString(in));
+                }
+                keys.put(group, groupKeys);
+            }
+            return new Frame(false, groups, keys);
+        }
+    }
+
+    private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed invalidation frame");
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getSentMessages() {
+        return sentMessages.sum();
+    }
+
+    public long getSentKeys() {
+        return sentKeys.sum();
+    }
+
+    public long getSentBytes() {
+        return sentBytes.sum();
+    }
+
+    /**
+     * Invalidations that were not sent because they were duplicated or covered by a flush
+     */
+    public long getCoalescedKeys() {
+        return coalescedKeys.sum();
+    }
+
+    public long getReceivedMessages() {
+        return receivedMessages.sum();
+    }
+
+    public long getReceivedKeys() {
+        return receivedKeys.sum();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidationBatcher{sentMessages=" + getSentMessages() + ", sentKeys=" + getSentKeys()
+                + ", sentBytes=" + getSentBytes() + ", coalescedKeys=" + getCoalescedKeys()
+                + ", receivedMessages=" + getReceivedMessages() + ", receivedKeys=" + getReceivedKeys()
+                + ", receivedBytes=" + getReceivedBytes() + "}";
+    }
+
+    /**
+     * The invalidations carried by a single frame
+     */
+    public static class Frame {
+
+        private final boolean flushAll;
+        private final Set<String> groups;
+        private final Map<String, Set<String>> keys;
+
+        Frame(final boolean flushAll, final Set<String> groups, final Map<String, Set<String>> keys) {
+            this.flushAll = flushAll;
+            this.groups = groups;
+            this.keys = keys;
+        }
+
+        public boolean isFlushAll() {
+            return flushAll;
+        }
+
+        /**
+         * Groups to flush
+         */
+        public Set<String> getGroups() {
+            return groups;
+        }
+
+        /**
+         * Keys to remove by group, never includes a group of {@link #getGroups()}
+         */
+        public Map<String, Set<String>> getKeys() {
+            return keys;
+        }
+
+        public int size() {
+            if (flushAll) {
+                return 1;
+            }
+            int size = groups.size();
+            for (final Set<String> groupKeys : keys.values()) {
+                size += groupKeys.size();
+            }
+            return size;
+        }
+    }
+
+}
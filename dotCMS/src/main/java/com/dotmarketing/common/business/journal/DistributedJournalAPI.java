@@ -7,6 +7,8 @@ import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.folders.model.Folder;
 
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -236,5 +238,37 @@ public interface DistributedJournalAPI<T> {
 	 * @throws DotDataException
 	 */
 	void addIdentifierReindex(Identifier identifier) throws DotDataException;
+
+	/**
+	 * Adds an identifier to be reindexed with the highest priority, held by the given holder until it is deleted
+	 * or released, see {@link DistributedJournalFactory#addHeldReindexEntry(String, String)}
+	 * @param identifier {@link String} identifier
+	 * @param holder {@link String} starts with {@link DistributedJournalFactory#REINDEX_JOURNAL_HOLDER_PREFIX}
+	 * @throws DotDataException
+	 */
+	void addHeldReindexEntry(String identifier, String holder) throws DotDataException;
+
+	/**
+	 * Deletes the records held by the given holders, once they did the reindex
+	 * @param holders {@link Collection} of holders
+	 * @throws DotDataException
+	 */
+	void deleteHeldReindexEntries(Collection<String> holders) throws DotDataException;
+
+	/**
+	 * Releases the records held by the given holders, so the reindex thread picks them up
+	 * @param holders {@link Collection} of holders
+	 * @throws DotDataException
+	 */
+	void releaseHeldReindexEntries(Collection<String> holders) throws DotDataException;
+
+	/**
+	 * Releases the records whose holder starts with the given prefix and were held before the given date
+	 * @param holderPrefix {@link String}
+	 * @param heldBefore {@link Date} null for the records held at any time
+	 * @return int records released
+	 * @throws DotDataException
+	 */
+	int releaseHeldReindexEntries(String holderPrefix, Date heldBefore) throws DotDataException;
 	
 }
@@ -14,6 +14,8 @@ import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.folders.model.Folder;
 
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -192,4 +194,32 @@ public class DistributedJournalAPIImpl<T> implements DistributedJournalAPI<T> {
 		distributedJournalFactory.resetServerForReindexEntry(recordsToModify);
 	}
 
+	@WrapInTransaction
+	@Override
+	public void addHeldReindexEntry(final String identifier, final String holder) throws DotDataException {
+
+		this.distributedJournalFactory.addHeldReindexEntry(identifier, holder);
+	}
+
+	@WrapInTransaction
+	@Override
+	public void deleteHeldReindexEntries(final Collection<String> holders) throws DotDataException {
+
+		this.distributedJournalFactory.deleteHeldReindexEntries(holders);
+	}
+
+	@WrapInTransaction
+	@Override
+	public void releaseHeldReindexEntries(final Collection<String> holders) throws DotDataException {
+
+		this.distributedJournalFactory.releaseHeldReindexEntries(holders);
+	}
+
+	@WrapInTransaction
+	@Override
+	public int releaseHeldReindexEntries(final String holderPrefix, final Date heldBefore) throws DotDataException {
+
+		return this.distributedJournalFactory.releaseHeldReindexEntries(holderPrefix, heldBefore);
+	}
+
 }
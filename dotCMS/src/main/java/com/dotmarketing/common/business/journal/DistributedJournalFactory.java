@@ -7,6 +7,8 @@ import com.dotmarketing.portlets.folders.model.Folder;
 import com.dotmarketing.util.Config;
 
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -29,6 +31,11 @@ public abstract class DistributedJournalFactory<T> {
 	
 	public static final int REINDEX_ACTION_REINDEX_OBJECT = 1;
 	public static final int REINDEX_ACTION_DELETE_OBJECT = 2;
+
+	/**
+	 * Prefix of the {@code serverid} of the records held, see {@link #addHeldReindexEntry(String, String)}
+	 */
+	public static final String REINDEX_JOURNAL_HOLDER_PREFIX = "coalesce:";
 	
 	protected T reindexJournalObjectToIndexNew;
 	
@@ -208,4 +215,37 @@ public abstract class DistributedJournalFactory<T> {
 	 * @throws DotDataException
 	 */
 	protected abstract int addReindexHighPriority(Set<String> identifiers) throws DotDataException;
+
+	/**
+	 * Adds an identifier to be reindexed with the highest priority, held by the given holder: the record is not
+	 * picked up by any server until it is released, it only recovers the reindex when the holder never does it.
+	 * @param identifier
+	 * @param holder starts with {@link #REINDEX_JOURNAL_HOLDER_PREFIX}
+	 * @throws DotDataException
+	 */
+	protected abstract void addHeldReindexEntry(String identifier, String holder) throws DotDataException;
+
+	/**
+	 * Deletes the records held by the given holders, once they did the reindex
+	 * @param holders
+	 * @throws DotDataException
+	 */
+	protected abstract void deleteHeldReindexEntries(Collection<String> holders) throws DotDataException;
+
+	/**
+	 * Releases the records held by the given holders, so the reindex thread picks them up
+	 * @param holders
+	 * @throws DotDataException
+	 */
+	protected abstract void releaseHeldReindexEntries(Collection<String> holders) throws DotDataException;
+
+	/**
+	 * Releases the records whose holder starts with the given prefix and were held before the given date, left
+	 * behind by a server that stopped before doing the reindex
+	 * @param holderPrefix
+	 * @param heldBefore null for the records held at any time
+	 * @return the records released
+	 * @throws DotDataException
+	 */
+	protected abstract int releaseHeldReindexEntries(String holderPrefix, Date heldBefore) throws DotDataException;
 }
@@ -0,0 +1,521 @@
+package com.dotmarketing.common.reindex;
+
+import com.dotcms.content.elasticsearch.business.LiveQueryResultCache;
+import com.dotcms.content.elasticsearch.util.ESClient;
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotmarketing.common.business.journal.IndexJournal;
+import com.dotmarketing.util.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * Indexes the records of a full reindex in stages, so loading the contentlets from the db and sending
+ * them to elasticsearch overlap instead of taking turns on the {@link ReindexThread}:
+ * <ol>
+ * <li>the {@link ReindexThread} claims the records from the journal and submits them, blocking when the
+ * loaders are behind</li>
+ * <li>a pool of loader threads load the contentlets of each record and build their index requests</li>
+ * <li>a batcher thread groups the requests in bulk requests of up to a given size in bytes and sends
+ * them asynchronously, with a cap on the bulk requests in flight</li>
+ * </ol>
+ * When elasticsearch rejects a bulk request, or some of its items, because its queues are full, the
+ * rejected items are sent again after a backoff that holds the in-flight slot, so the whole pipeline
+ * slows down until elasticsearch catches up.
+ * <p>
+ * The {@link Listener} is called from the loader threads and the elasticsearch response threads, it should
+ * hand anything slow (db work, notifications) off to another thread.
+ *
+ * @author dotCMS
+ */
+public class ReindexPipeline {
+
+    /**
+     * Loads the contentlets of a record and adds their index requests to the bulk
+     */
+    public interface Loader {
+
+        void load(BulkRequestBuilder bulk, IndexJournal<String> record) throws Exception;
+    }
+
+    /**
+     * Builds and sends the bulk requests
+     */
+    public interface BulkClient {
+
+        BulkRequestBuilder prepareBulk();
+
+        void execute(BulkRequestBuilder bulk, ActionListener<BulkResponse> listener);
+    }
+
+    /**
+     * Sends the bulk requests to the elasticsearch cluster
+     */
+    public static final BulkClient ES_BULK_CLIENT = new BulkClient() {
+
+        @Override
+        public BulkRequestBuilder prepareBulk() {
+            return new ESClient().getClient().prepareBulk();
+        }
+
+        @Override
+        public void execute(final BulkRequestBuilder bulk, final ActionListener<BulkResponse> listener) {
+            bulk.execute(new ActionListener<BulkResponse>() {
+
+                @Override
+                public void onResponse(final BulkResponse response) {
+                    LiveQueryResultCache.getInstance().written(bulk.request());
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(final Exception e) {
+                    LiveQueryResultCache.getInstance().written(bulk.request());
+                    listener.onFailure(e);
+                }
+            });
+        }
+    };
+
+    /**
+     * Gets the outcome of the records
+     */
+    public interface Listener {
+
+        /**
+         * The records are in the index and can be removed from the journal
+         */
+        void indexed(List<IndexJournal<String>> records);
+
+        /**
+         * The contentlets of the record could not be loaded
+         */
+        void loadFailed(IndexJournal<String> record, Exception e);
+
+        /**
+         * Elasticsearch could not index the records
+         */
+        void indexFailed(List<IndexJournal<String>> records, String message);
+
+        /**
+         * The records are about to be sent again after a backoff, called from the retry thread
+         */
+        default void retrying(List<IndexJournal<String>> records) {
+        }
+    }
+
+    private final Loader loader;
+    private final Listener listener;
+    private final BulkClient client;
+    private final long maxBatchBytes;
+    private final long flushMillis;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxRetries;
+    private final int maxInFlight;
+
+    private final BlockingQueue<IndexJournal<String>> records;
+    private final BlockingQueue<Loaded> loaded;
+    private final Semaphore inFlight;
+    private final List<Thread> threads = new ArrayList<>();
+    private final ScheduledExecutorService retryScheduler;
+    private volatile boolean running = true;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final LongAdder loadedRecords = new LongAdder();
+    private final LongAdder failedRecords = new LongAdder();
+    private final LongAdder indexedRecords = new LongAdder();
+    private final LongAdder indexedDocs = new LongAdder();
+    private final LongAdder indexedBytes = new LongAdder();
+    private final LongAdder bulkRequests = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private volatile long sampledAt = System.currentTimeMillis();
+    private volatile long sampledDocs = 0;
+    private volatile double docsPerSecond = 0;
+
+    /**
+     * @param loader               loads the contentlets of the records
+     * @param listener             gets the outcome of the records
+     * @param loaderThreads        number of threads loading the contentlets
+     * @param maxInFlight          max number of bulk requests sent and not answered yet
+     * @param maxBatchBytes        max size of a bulk request
+     * @param flushMillis          max time the requests wait for a bulk request to fill up
+     * @param initialBackoffMillis time to wait before sending rejected requests again, doubled on every retry
+     * @param maxBackoffMillis     max time to wait before sending rejected requests again
+     * @param maxRetries           times rejected requests are sent again before giving up on them
+     */
+    public ReindexPipeline(final Loader loader, final Listener listener, final int loaderThreads, final int maxInFlight,
+            final long maxBatchBytes, final long flushMillis, final long initialBackoffMillis,
+            final long maxBackoffMillis, final int maxRetries) {
+
+        this(ES_BULK_CLIENT, loader, listener, loaderThreads, maxInFlight, maxBatchBytes, flushMillis,
+                initialBackoffMillis, maxBackoffMillis, maxRetries);
+    }
+
+    @VisibleForTesting
+    ReindexPipeline(final BulkClient client, final Loader loader, final Listener listener, final int loaderThreads,
+            final int maxInFlight, final long maxBatchBytes, final long flushMillis, final long initialBackoffMillis,
+            final long maxBackoffMillis, final int maxRetries) {
+
+        this.client = client;
+        this.loader = loader;
+        this.listener = listener;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxBatchBytes = Math.max(1, maxBatchBytes);
+        this.flushMillis = Math.max(1, flushMillis);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.maxRetries = Math.max(0, maxRetries);
+
+        final int loaders = Math.max(1, loaderThreads);
+        this.records = new ArrayBlockingQueue<>(loaders * 4);
+        this.loaded = new ArrayBlockingQueue<>(loaders * 4);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ReindexPipeline-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < loaders; i++) {
+            threads.add(new Thread(this::loadLoop, "ReindexPipeline-loader-" + i));
+        }
+        threads.add(new Thread(this::batchLoop, "ReindexPipeline-batcher"));
+        for (final Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Hands a record to the loaders, blocks while they are behind. Returns false if the pipeline was
+     * shut down and the record was not taken.
+     */
+    public boolean submit(final IndexJournal<String> record) throws InterruptedException {
+        while (running) {
+            if (records.offer(record, flushMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True when there are no records being loaded nor requests waiting to be sent
+     */
+    public boolean isIdle() {
+        return records.isEmpty() && loaded.isEmpty() && inFlight.availablePermits() == maxInFlight;
+    }
+
+    /**
+     * Stops the threads, the records that were not indexed yet are dropped
+     */
+    public void shutdown() {
+        running = false;
+        for (final Thread thread : threads) {
+            thread.interrupt();
+        }
+        retryScheduler.shutdownNow();
+        records.clear();
+        loaded.clear();
+    }
+
+    private void loadLoop() {
+        while (running) {
+            final IndexJournal<String> record;
+            try {
+                record = records.poll(flushMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (record == null) {
+                continue;
+            }
+
+            final BulkRequestBuilder bulk = client.prepareBulk();
+            try {
+                loader.load(bulk, record);
+                loadedRecords.increment();
+            } catch (Exception e) {
+                failedRecords.increment();
+                listener.loadFailed(record, e);
+                continue;
+            }
+
+            if (bulk.numberOfActions() == 0) {
+                indexedRecords.increment();
+                listener.indexed(Collections.singletonList(record));
+                continue;
+            }
+            try {
+                loaded.put(new Loaded(record, bulk.request().requests(), bulk.request().estimatedSizeInBytes()));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void batchLoop() {
+        Batch batch = new Batch();
+        while (running) {
+            final Loaded next;
+            try {
+                next = loaded.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    if (!batch.isEmpty()) {
+                        send(batch);
+                        batch = new Batch();
+                    }
+                    continue;
+                }
+                if (!batch.isEmpty() && batch.bytes + next.bytes > maxBatchBytes) {
+                    send(batch);
+                    batch = new Batch();
+                }
+                batch.add(next);
+                if (batch.bytes >= maxBatchBytes) {
+                    send(batch);
+                    batch = new Batch();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for an in-flight slot and sends the batch
+     */
+    private void send(final Batch batch) throws InterruptedException {
+        inFlight.acquire();
+        execute(batch, 0);
+    }
+
+    private void execute(final Batch batch, final int attempt) {
+
+        if (!running) {
+            inFlight.release();
+            return;
+        }
+
+        final BulkRequestBuilder bulk = client.prepareBulk();
+        for (final DocWriteRequest request : batch.requests) {
+            bulk.request().add(request);
+        }
+        bulkRequests.increment();
+
+        final ActionListener<BulkResponse> responseListener = new ActionListener<BulkResponse>() {
+
+            @Override
+            public void onResponse(final BulkResponse response) {
+
+                final Set<IndexJournal<String>> failed = new LinkedHashSet<>();
+                final List<Integer> rejectedItems = new ArrayList<>();
+                final List<String> messages = new ArrayList<>();
+                for (final BulkItemResponse item : response.getItems()) {
+                    if (!item.isFailed()) {
+                        continue;
+                    }
+                    if (item.status() == RestStatus.TOO_MANY_REQUESTS && attempt < maxRetries) {
+                        rejectedItems.add(item.getItemId());
+                    } else {
+                        failed.add(batch.owners.get(item.getItemId()));
+                        if (messages.size() < 10) {
+                            messages.add(item.getFailureMessage());
+                        }
+                    }
+                }
+
+                // a record that already failed is not sent again, even if some of its requests were only rejected
+                final Batch rejected = new Batch();
+                for (final int itemId : rejectedItems) {
+                    if (!failed.contains(batch.owners.get(itemId))) {
+                        rejected.add(batch.owners.get(itemId), batch.requests.get(itemId), 0);
+                    }
+                }
+
+                final Set<IndexJournal<String>> pending = new HashSet<>(failed);
+                pending.addAll(rejected.owners);
+                completed(batch, pending, failed, String.join(", ", messages));
+
+                if (!rejected.isEmpty()) {
+                    rejections.increment();
+                    retry(rejected, attempt);
+                } else {
+                    inFlight.release();
+                }
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+
+                if (ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException && attempt < maxRetries) {
+                    rejections.increment();
+                    retry(batch, attempt);
+                    return;
+                }
+
+                Logger.error(ReindexPipeline.class, "Indexing process failed", e);
+                final Set<IndexJournal<String>> all = new LinkedHashSet<>(batch.owners);
+                completed(batch, all, all, e.getMessage());
+                inFlight.release();
+            }
+        };
+
+        try {
+            client.execute(bulk, responseListener);
+        } catch (Exception e) {
+            // not sent at all, e.g. the client is closed
+            responseListener.onFailure(e);
+        }
+    }
+
+    /**
+     * Sends the rejected requests again after the backoff, the in-flight slot is kept meanwhile
+     */
+    private void retry(final Batch batch, final int attempt) {
+
+        final long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 20));
+        Logger.warn(ReindexPipeline.class, "Elasticsearch rejected " + batch.requests.size()
+                + " index requests, sending them again in " + backoff + " millis");
+        try {
+            retryScheduler.schedule(() -> {
+                try {
+                    listener.retrying(new ArrayList<>(new LinkedHashSet<>(batch.owners)));
+                } catch (Exception e) {
+                    Logger.warn(ReindexPipeline.class, "Error notifying the retry of " + batch.requests.size()
+                            + " index requests: " + e.getMessage(), e);
+                }
+                execute(batch, attempt + 1);
+            }, backoff, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Reports the records of the batch that are not waiting for a retry
+     */
+    private void completed(final Batch batch, final Set<IndexJournal<String>> pending,
+            final Set<IndexJournal<String>> failed, final String message) {
+
+        final List<IndexJournal<String>> indexed = new ArrayList<>();
+        long docs = 0;
+        for (int i = 0; i < batch.owners.size(); i++) {
+            if (!pending.contains(batch.owners.get(i))) {
+                docs++;
+            }
+        }
+        for (final IndexJournal<String> record : new LinkedHashSet<>(batch.owners)) {
+            if (!pending.contains(record)) {
+                indexed.add(record);
+            }
+        }
+
+        indexedDocs.add(docs);
+        indexedRecords.add(indexed.size());
+        if (docs == batch.requests.size()) {
+            indexedBytes.add(batch.bytes);
+        }
+        if (!indexed.isEmpty()) {
+            listener.indexed(indexed);
+        }
+        if (!failed.isEmpty()) {
+            failedRecords.add(failed.size());
+            listener.indexFailed(new ArrayList<>(failed), message);
+        }
+    }
+
+    /**
+     * Progress of the pipeline: records loaded, indexed and failed, documents and bytes indexed, bulk
+     * requests sent, rejected and in flight, and the documents per second
+     */
+    public Map<String, Object> getStats() {
+
+        final long now = System.currentTimeMillis();
+        final long docs = indexedDocs.sum();
+        if (now - sampledAt >= TimeUnit.SECONDS.toMillis(10)) {
+            docsPerSecond = (docs - sampledDocs) * 1000d / (now - sampledAt);
+            sampledDocs = docs;
+            sampledAt = now;
+        }
+        final long elapsedSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(now - startedAt));
+
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loadedRecords", loadedRecords.sum());
+        stats.put("indexedRecords", indexedRecords.sum());
+        stats.put("failedRecords", failedRecords.sum());
+        stats.put("indexedDocs", docs);
+        stats.put("indexedBytes", indexedBytes.sum());
+        stats.put("bulkRequests", bulkRequests.sum());
+        stats.put("bulkRejections", rejections.sum());
+        stats.put("bulkRequestsInFlight", maxInFlight - inFlight.availablePermits());
+        stats.put("docsPerSecond", Math.round(docsPerSecond));
+        stats.put("averageDocsPerSecond", docs / elapsedSeconds);
+        return stats;
+    }
+
+    /**
+     * The index requests of a loaded record
+     */
+    private static class Loaded {
+
+        private final IndexJournal<String> record;
+        private final List<DocWriteRequest> requests;
+        private final long bytes;
+
+        Loaded(final IndexJournal<String> record, final List<DocWriteRequest> requests, final long bytes) {
+            this.record = record;
+            this.requests = requests;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The requests of a bulk request and the record each one belongs to
+     */
+    private static class Batch {
+
+        private final List<DocWriteRequest> requests = new ArrayList<>();
+        private final List<IndexJournal<String>> owners = new ArrayList<>();
+        private long bytes = 0;
+
+        void add(final Loaded loaded) {
+            for (final DocWriteRequest request : loaded.requests) {
+                add(loaded.record, request, 0);
+            }
+            bytes += loaded.bytes;
+        }
+
+        void add(final IndexJournal<String> record, final DocWriteRequest request, final long size) {
+            requests.add(request);
+            owners.add(record);
+            bytes += size;
+        }
+
+        boolean isEmpty() {
+            return requests.isEmpty();
+        }
+    }
+
+}
@@ -4,14 +4,21 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.client.Client;
@@ -19,9 +26,12 @@ import org.elasticsearch.client.Client;
 import com.dotcms.api.system.event.Visibility;
 import com.dotcms.business.CloseDBIfOpened;
 import com.dotcms.business.WrapInTransaction;
+import com.dotcms.content.elasticsearch.business.CoalescingIndexQueue;
 import com.dotcms.content.elasticsearch.business.ContentletIndexAPI;
+import com.dotcms.content.elasticsearch.business.LiveQueryResultCache;
 import com.dotcms.content.elasticsearch.util.ESClient;
 import com.dotcms.content.elasticsearch.util.ESReindexationProcessStatus;
+import com.dotcms.journal.business.ReindexJournalLeases;
 import com.dotcms.notifications.bean.NotificationLevel;
 import com.dotcms.notifications.bean.NotificationType;
 import com.dotcms.notifications.business.NotificationAPI;
@@ -44,6 +54,7 @@ import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
 import com.liferay.portal.language.LanguageException;
@@ -115,6 +126,8 @@ public class ReindexThread extends Thread {
 	private int failedAttemptsCount = 0;
 	private boolean reindexSleepDuringIndex = false;
 	private int reindexSleepDuringIndexTime = 0;
+	private volatile ReindexPipeline pipeline;
+	private final Queue<Runnable> pipelineFailures = new ConcurrentLinkedQueue<>();
 
 	public ReindexThread() {
 
@@ -243,10 +256,15 @@ public class ReindexThread extends Thread {
 						+ sleep);
 				start = false;
 				work = true;
+				// deferred saves the index queue held when this server stopped
+				CoalescingIndexQueue.getInstance().recover();
+				DbConnectionFactory.closeSilently();
 			}
 			if (work) {
 			    boolean wait=true;
 				try {
+					handlePipelineFailures();
+
 					if(remoteQ.size()==0)
 					    fillRemoteQ();
 
@@ -263,7 +281,8 @@ public class ReindexThread extends Thread {
 						fillRemoteQ(true);
 					}
 
-					if(!remoteDelQ.isEmpty()) {
+					final boolean deleting = !remoteDelQ.isEmpty();
+					if(deleting) {
 					    synchronized(remoteDelQ) {
 				            try {
 				                List<IndexJournal<String>> toDelete=remoteDelQ;
@@ -287,58 +306,35 @@ public class ReindexThread extends Thread {
 				            }
 				        }
 					}
-					else if(!remoteQ.isEmpty()) {
+					if(!remoteQ.isEmpty() && usePipeline()) {
+					    // the pipeline deletes the records as they get indexed, no need to wait for the deletes
+					    wait=false;
+					    submitToPipeline();
+					}
+					else if(!deleting && !remoteQ.isEmpty()) {
 					    wait=false;
 					    Client client=new ESClient().getClient();
 						BulkRequestBuilder bulk=client.prepareBulk();
 						final ArrayList<IndexJournal<String>> recordsToDelete= new ArrayList<>();
+						final Map<IndexJournal<String>, List<Contentlet>> contentToIndex = new LinkedHashMap<>();
+						final Set<String> identifiersToIndex = new HashSet<>();
+						int coalesced = 0;
 						while(!remoteQ.isEmpty()) {
 
 							IndexJournal<String> idx = remoteQ.removeFirst();
 
+							if (!idx.isDelete() && !identifiersToIndex.add(idx.getIdentToIndex())) {
+								// another record of this batch already indexes the current versions of the identifier
+								recordsToDelete.add(idx);
+								coalesced++;
+								continue;
+							}
+
 							try {
-								writeDocumentToIndex(bulk, idx);
+								contentToIndex.put(idx, loadDocumentsToIndex(idx));
 							} catch ( Exception e ) {
 
-								Logger.error(this, "Unable to index record with id [" + idx.getIdentToIndex() + "]", e);
-
-								//Counts the failed attempts when indexing and handles error notifications
-								addIndexingFailedAttempt();
-
-								try {
-									/*
-									Reset to null the server id of the failed records in the reindex journal table
-									in order to make them available again for the reindex process.
-									 */
-									List<IndexJournal<String>> failedRecords = new ArrayList<>();
-									failedRecords.add(idx);
-									jAPI.resetServerForReindexEntry(failedRecords);
-								} catch ( DotDataException dataException ) {
-									Logger.error(this, "Error adding back failed records to reindex queue", dataException);
-								}
-								// The total number of re-tries minus 1 will
-								// indicate the last opportunity of a record to
-								// be re-indexed.
-								int totalAttempts = (DistributedJournalFactory.REINDEX_JOURNAL_PRIORITY_FAILED_FIRST_ATTEMPT + DistributedJournalFactory.RETRY_FAILED_INDEX_TIMES);
-								String identToIndex = idx.getIdentToIndex();
-								if (!this.notifiedFailingRecords.contains(identToIndex) && idx.getPriority() >= totalAttempts) {
-									// The record was not able to be re-indexed,
-									// so a notification will be generated and
-									// the record will not be processed anymore
-									String msg = "Could not re-index record with the Identifier '"
-											+ identToIndex
-											+ "'. The record is in a bad state or can be associated to orphaned records. You can try running the Fix Assets Inconsistencies tool and re-start the reindex.";
-
-                                    //Generate and send an user notification
-									sendNotification("notification.reindexing.error.processrecord", new Object[] {identToIndex}, msg, true);
-									this.notifiedFailingRecords.add(identToIndex);
-								}
-
-								try {
-									Thread.sleep(delayOnError);
-								} catch ( InterruptedException ie ) {
-									Logger.error(this, ie.getMessage(), ie);
-								}
+								handleFailedRecord(idx, e);
 
 								/*
 								This continue will avoid to remove this failed record from the index journal table so
@@ -350,24 +346,23 @@ public class ReindexThread extends Thread {
 							recordsToDelete.add(idx);
 
 							//If the REINDEX_SLEEP_DURING_INDEX was set
-							if ( reindexSleepDuringIndex ) {
-								try {
-									int sleepTime = getReindexSleepDuringIndexTime();
-									Thread.sleep(sleepTime);
-								} catch ( InterruptedException e ) {
-									Logger.error(this, e.getMessage(), e);
-								}
-							}
+							sleepDuringIndex();
 
 						}
 
+						CoalescingIndexQueue.getInstance().journalCoalesced(coalesced);
+						bulk = writeDocumentsToIndex(client, bulk, contentToIndex, recordsToDelete);
+
 						HibernateUtil.closeSession();
 
 				        if(bulk.numberOfActions()>0) {
+				            final BulkRequest bulkRequest = bulk.request();
 				            bulk.execute(new ActionListener<BulkResponse>() {
 
 								void handleRecords (List<IndexJournal<String>> failedRecords) {
 
+									LiveQueryResultCache.getInstance().written(bulkRequest);
+
 									//List of records to delete from the reindex journal table
 									addRecordsToDelete(recordsToDelete);
 
@@ -541,6 +536,235 @@ public class ReindexThread extends Thread {
 				}
 			}
 		}
+		stopPipeline();
+		handlePipelineFailures();
+	}
+
+	/**
+	 * Handles a record that could not be indexed: resets its server in the reindex journal so it
+	 * can be taken again and notifies the user when it ran out of attempts
+	 */
+	private void handleFailedRecord(final IndexJournal<String> idx, final Exception e) {
+
+		resetFailedRecord(idx, e);
+
+		try {
+			Thread.sleep(delayOnError);
+		} catch ( InterruptedException ie ) {
+			Logger.error(this, ie.getMessage(), ie);
+		}
+	}
+
+	/**
+	 * Resets the server of a record that could not be indexed in the reindex journal so it can be taken
+	 * again, and notifies the user when it ran out of attempts
+	 */
+	private void resetFailedRecord(final IndexJournal<String> idx, final Exception e) {
+
+		Logger.error(this, "Unable to index record with id [" + idx.getIdentToIndex() + "]", e);
+
+		//Counts the failed attempts when indexing and handles error notifications
+		addIndexingFailedAttempt();
+
+		try {
+			/*
+			Reset to null the server id of the failed records in the reindex journal table
+			in order to make them available again for the reindex process.
+			 */
+			List<IndexJournal<String>> failedRecords = new ArrayList<>();
+			failedRecords.add(idx);
+			jAPI.resetServerForReindexEntry(failedRecords);
+		} catch ( DotDataException dataException ) {
+			Logger.error(this, "Error adding back failed records to reindex queue", dataException);
+		}
+		// The total number of re-tries minus 1 will
+		// indicate the last opportunity of a record to
+		// be re-indexed.
+		int totalAttempts = (DistributedJournalFactory.REINDEX_JOURNAL_PRIORITY_FAILED_FIRST_ATTEMPT + DistributedJournalFactory.RETRY_FAILED_INDEX_TIMES);
+		String identToIndex = idx.getIdentToIndex();
+		if (!this.notifiedFailingRecords.contains(identToIndex) && idx.getPriority() >= totalAttempts) {
+			// The record was not able to be re-indexed,
+			// so a notification will be generated and
+			// the record will not be processed anymore
+			String msg = "Could not re-index record with the Identifier '"
+					+ identToIndex
+					+ "'. The record is in a bad state or can be associated to orphaned records. You can try running the Fix Assets Inconsistencies tool and re-start the reindex.";
+
+			try {
+				//Generate and send an user notification
+				sendNotification("notification.reindexing.error.processrecord", new Object[] {identToIndex}, msg, true);
+			} catch ( DotDataException | LanguageException notificationException ) {
+				Logger.error(this, "Error creating a system notification informing about a record that could not be indexed.", notificationException);
+			}
+			this.notifiedFailingRecords.add(identToIndex);
+		}
+	}
+
+	private void sleepDuringIndex() {
+		if ( reindexSleepDuringIndex ) {
+			try {
+				int sleepTime = getReindexSleepDuringIndexTime();
+				Thread.sleep(sleepTime);
+			} catch ( InterruptedException e ) {
+				Logger.error(this, e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * The {@link ReindexPipeline} is used for the full reindex when {@code reindex.pipeline.enabled} is set
+	 */
+	private boolean usePipeline() throws DotDataException {
+		return Config.getBooleanProperty("reindex.pipeline.enabled", false) && ESReindexationProcessStatus.inFullReindexation();
+	}
+
+	/**
+	 * Hands the records of the queue to the pipeline, blocks while the pipeline is full
+	 */
+	private void submitToPipeline() throws InterruptedException, DotDataException {
+
+		final ReindexPipeline reindexPipeline = getPipeline();
+		while (!remoteQ.isEmpty()) {
+			handlePipelineFailures();
+			final IndexJournal<String> idx = remoteQ.removeFirst();
+			if (!reindexPipeline.submit(idx)) {
+				jAPI.resetServerForReindexEntry(new ArrayList<>(Collections.singletonList(idx)));
+			}
+		}
+	}
+
+	private synchronized ReindexPipeline getPipeline() {
+
+		if (pipeline == null) {
+			final int loaderThreads = Config.getIntProperty("reindex.pipeline.loader.threads", 4);
+			final int maxInFlight   = Config.getIntProperty("reindex.pipeline.max.inflight.bulk.requests", 2);
+			Logger.info(this, "Starting the reindex pipeline with " + loaderThreads + " loader threads and up to "
+					+ maxInFlight + " bulk requests in flight");
+
+			pipeline = new ReindexPipeline(
+					(bulk, idx) -> {
+						try {
+							writeDocumentToIndex(bulk, idx);
+							sleepDuringIndex();
+						} finally {
+							HibernateUtil.closeSessionSilently();
+							DbConnectionFactory.closeSilently();
+						}
+					},
+					// called from the loader and elasticsearch threads, the failures are handled by the reindex thread
+					new ReindexPipeline.Listener() {
+
+						@Override
+						public void indexed(final List<IndexJournal<String>> records) {
+							addRecordsToDelete(records);
+						}
+
+						@Override
+						public void loadFailed(final IndexJournal<String> record, final Exception e) {
+							pipelineFailures.add(() -> resetFailedRecord(record, e));
+						}
+
+						@Override
+						public void indexFailed(final List<IndexJournal<String>> records, final String message) {
+							pipelineFailures.add(() -> resetFailedRecords(records, message));
+						}
+
+						// the backoffs of a record can outlast its lease, it is renewed before every retry
+						@Override
+						public void retrying(final List<IndexJournal<String>> records) {
+							renewLeases(records);
+						}
+					},
+					loaderThreads,
+					maxInFlight,
+					Config.getLongProperty("reindex.pipeline.bulk.max.bytes", 5L * 1024 * 1024),
+					Config.getLongProperty("reindex.pipeline.bulk.flush.millis", 1000),
+					Config.getLongProperty("reindex.pipeline.backoff.millis", 500),
+					Config.getLongProperty("reindex.pipeline.backoff.max.millis", 30000),
+					Config.getIntProperty("reindex.pipeline.max.retries", 8));
+		}
+		return pipeline;
+	}
+
+	/**
+	 * Starts the journal leases of the given records again, so other servers do not claim them while
+	 * they are still being indexed here
+	 */
+	private void renewLeases(final List<IndexJournal<String>> records) {
+		final ReindexJournalLeases leases = ReindexJournalLeases.getInstance();
+		if (!leases.isEnabled()) {
+			return;
+		}
+		final List<Long> ids = new ArrayList<>(records.size());
+		for (final IndexJournal<String> record : records) {
+			ids.add(record.getId());
+		}
+		try {
+			leases.renew(ConfigUtils.getServerId(), ids);
+		} catch (Exception e) {
+			Logger.warn(this, "Unable to renew the lease of " + ids.size() + " reindex records: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Handles the failures the pipeline reported since the last call, waits {@code delayOnError} afterwards
+	 * when there were any, same as the records that fail without the pipeline
+	 */
+	private void handlePipelineFailures() {
+
+		boolean failed = false;
+		Runnable failure;
+		while ((failure = pipelineFailures.poll()) != null) {
+			failed = true;
+			try {
+				failure.run();
+			} catch (Exception e) {
+				Logger.error(this, "Error handling the records the reindex pipeline could not index", e);
+			}
+		}
+
+		if (failed) {
+			DbConnectionFactory.closeSilently();
+			try {
+				Thread.sleep(delayOnError);
+			} catch ( InterruptedException ie ) {
+				Logger.error(this, ie.getMessage(), ie);
+			}
+		}
+	}
+
+	/**
+	 * Resets the server of the records elasticsearch could not index so they can be taken again
+	 */
+	private void resetFailedRecords(final List<IndexJournal<String>> records, final String message) {
+
+		Logger.error(ReindexThread.class, "Error indexing content [" + message + "], the reindex thread will try to re-index ["
+				+ records.size() + "] failed records.");
+
+		//Counts the failed attempts when indexing and handles error notifications
+		addIndexingFailedAttempt();
+		try {
+			jAPI.resetServerForReindexEntry(records);
+		} catch ( DotDataException e ) {
+			Logger.error(ReindexThread.class, "Error adding back failed records to reindex queue", e);
+		}
+	}
+
+	private synchronized void stopPipeline() {
+		if (pipeline != null) {
+			pipeline.shutdown();
+			pipeline = null;
+		}
+	}
+
+	/**
+	 * Progress of the reindex pipeline of this server (records and documents indexed, bulk requests in
+	 * flight and rejected, documents per second), empty if it is not running
+	 */
+	public static Map<String, Object> getPipelineStats() {
+		final ReindexThread thread = instance;
+		final ReindexPipeline reindexPipeline = thread != null ? thread.pipeline : null;
+		return reindexPipeline != null ? reindexPipeline.getStats() : Collections.emptyMap();
 	}
 
 	public void unlockCluster() throws DotDataException {
@@ -711,6 +935,44 @@ public class ReindexThread extends Thread {
 
 	private void writeDocumentToIndex(BulkRequestBuilder bulk, IndexJournal<String> idx) throws DotDataException, DotSecurityException {
 
+		indexAPI.indexContentList(loadDocumentsToIndex(idx), bulk, indexAPI.isInFullReindex());
+	}
+
+	/**
+	 * Adds the documents of the records to the bulk, the maps of all of them are built at once. When
+	 * that fails the records are added one by one, so only the ones that can not be indexed are left
+	 * in the journal
+	 */
+	private BulkRequestBuilder writeDocumentsToIndex(final Client client, final BulkRequestBuilder bulk,
+			final Map<IndexJournal<String>, List<Contentlet>> contentToIndex, final List<IndexJournal<String>> recordsToDelete) {
+
+		final List<Contentlet> contentlets = new ArrayList<>();
+		contentToIndex.values().forEach(contentlets::addAll);
+		try {
+			indexAPI.indexContentList(contentlets, bulk, indexAPI.isInFullReindex());
+			return bulk;
+		} catch (Exception e) {
+			Logger.warn(this, "Unable to index a batch of " + contentToIndex.size() + " records, indexing them one by one: " + e.getMessage());
+		}
+
+		final BulkRequestBuilder recordsBulk = client.prepareBulk();
+		for (final Map.Entry<IndexJournal<String>, List<Contentlet>> entry : contentToIndex.entrySet()) {
+			try {
+				indexAPI.indexContentList(entry.getValue(), recordsBulk, indexAPI.isInFullReindex());
+			} catch (Exception e) {
+				handleFailedRecord(entry.getKey(), e);
+				recordsToDelete.remove(entry.getKey());
+			}
+		}
+		return recordsBulk;
+	}
+
+	/**
+	 * Loads the working and live versions of the identifier of the record, the ones to delete are
+	 * removed from the index right away and the ones to index are returned
+	 */
+	private List<Contentlet> loadDocumentsToIndex(IndexJournal<String> idx) throws DotDataException, DotSecurityException {
+
 	    Logger.debug(this, "Indexing document "+idx.getIdentToIndex());
 	    System.setProperty("IN_FULL_REINDEX", "true");
 
@@ -727,6 +989,7 @@ public class ReindexThread extends Thread {
         	}
         }
 
+        final List<Contentlet> contentToIndex = new ArrayList<>();
         for(String inode : inodes) {
 
         	final com.dotmarketing.portlets.contentlet.business.Contentlet fattyContentlet =
@@ -738,10 +1001,11 @@ public class ReindexThread extends Thread {
 				// we delete contentlets from the identifier pointed on index journal record
 				// its dependencies are reindexed in order to update its relationships fields
 				indexAPI.removeContentFromIndex(contentlet);
-			} else {
-				indexAPI.addContentToIndex(contentlet, false, true, indexAPI.isInFullReindex(), bulk);
+			} else if (UtilMethods.isSet(contentlet.getIdentifier())) {
+				contentToIndex.add(contentlet);
 			}
         }
+        return contentToIndex;
 	}
 	
 	int threadsPausing = 0;
@@ -773,6 +1037,7 @@ public class ReindexThread extends Thread {
 	public void stopFullReindexation() throws DotDataException {
         try {
             pause();
+            stopPipeline();
             this.remoteQ.clear();
             this.notifiedFailingRecords.clear();
             this.jAPI.cleanDistReindexJournal();
@@ -801,6 +1066,7 @@ public class ReindexThread extends Thread {
 	 *             The established pauses to switch to the new index failed.
 	 */
 	public void stopFullReindexationAndSwitchover() throws SQLException, DotDataException, InterruptedException {
+		stopPipeline();
 		this.remoteQ.clear();
 		reindexSwitchover(true);
 	}
@@ -906,8 +1172,8 @@ public class ReindexThread extends Thread {
 			if (ESReindexationProcessStatus.inFullReindexation(conn)) {
 				if (forceSwitch || jAPI.recordsLeftToIndexForServer(conn) == 0) {
 					Logger.info(this, "Running Reindex Switchover");
-					// Wait a bit while all records gets flushed to index
-					Thread.sleep(2000L);
+					// no record is left in the journal, so every bulk request was acknowledged. The
+					// switchover refreshes the new indices before pointing to them
 					indexAPI.fullReindexSwitchover(conn);
 					failedAttemptsCount = 0;
 					// Wait a bit while elasticsearch flushes it state
@@ -931,6 +1197,7 @@ public class ReindexThread extends Thread {
 				}
 			}
 			this.notifiedFailingRecords.clear();
+			stopPipeline();
 		}
 	}
 
@@ -1,6 +1,7 @@
 package com.dotmarketing.listeners;
 
 import com.dotcms.concurrent.DotConcurrentFactory;
+import com.dotcms.content.elasticsearch.business.CoalescingIndexQueue;
 import com.dotcms.util.AsciiArt;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.common.reindex.ReindexThread;
@@ -34,6 +35,12 @@ public class ContextLifecycleListener implements ServletContextListener {
 		} catch (Exception e) {
 			Logger.error(this, "A error ocurred trying to shutdown the Schedulers.");
 		}
+        try {
+        	CoalescingIndexQueue.getInstance().shutdown();
+        } catch (Exception e) {
+            Logger.error(this, "A error ocurred trying to shutdown the CoalescingIndexQueue.");
+        }
+
         try {
         	ReindexThread.shutdownThread();
 
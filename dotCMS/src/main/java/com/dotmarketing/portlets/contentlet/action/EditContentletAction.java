@@ -3147,11 +3147,10 @@ public class EditContentletAction extends DotPortletAction implements DotPortlet
 	    if (Boolean.parseBoolean(req.getParameter("fullCommand"))) {
 	        String luceneQuery=req.getParameter("luceneQuery");
 	        try {
-                List<ContentletSearch> list=conAPI.searchIndex(luceneQuery, -1, -1, null, user, false);
-                allInodes=new String[list.size()];
-                int idx=0;
-                for(ContentletSearch cs : list)
-                    allInodes[idx++]=cs.getInode();
+                // streams every match instead of the first MAX_LIMIT ones
+                allInodes=conAPI.searchIndexStream(luceneQuery, null, user, false)
+                        .map(ContentletSearch::getInode)
+                        .toArray(String[]::new);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
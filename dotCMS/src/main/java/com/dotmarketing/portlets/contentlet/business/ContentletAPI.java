@@ -24,6 +24,7 @@ import com.dotmarketing.portlets.structure.model.ContentletRelationships.Content
 import com.dotmarketing.portlets.structure.model.Field;
 import com.dotmarketing.portlets.structure.model.Relationship;
 import com.dotmarketing.portlets.structure.model.Structure;
+import com.dotmarketing.util.PaginatedArrayList;
 import com.liferay.portal.model.User;
 import java.io.Serializable;
 import java.util.Date;
@@ -31,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Provides access to a wide range of routines aimed to interact with
@@ -146,6 +148,17 @@ public interface ContentletAPI {
 	 * @throws DotSecurityException 
 	 */
 	public List<Contentlet> findContentlets(List<String> inodes) throws DotDataException, DotSecurityException;
+
+	/**
+	 * Returns a lazily loaded stream of the Contentlets of a passed in list of inodes, in the same order.
+	 * The contentlets are loaded in batches while the stream is consumed, so big result sets are never
+	 * held in memory at once. Inodes that do not exist are skipped. The stream should be closed once consumed
+	 * (i.e. try-with-resources) to close the DB connection opened to load it. Data errors are thrown as
+	 * {@link com.dotmarketing.exception.DotRuntimeException}
+	 * @param inodes
+	 * @return Stream<Contentlet>
+	 */
+	public Stream<Contentlet> findContentletsStream(List<String> inodes);
 	
 	/**
 	 * Gets a list of Contentlets from a given parent folder  
@@ -342,6 +355,50 @@ public interface ContentletAPI {
 	 * @throws DotDataException 
 	 */
 	public List<ContentletSearch> searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException;
+
+	/**
+	 * Same as {@link #searchIndex(String, int, int, String, User, boolean)} but pages with a cursor instead of an offset,
+	 * so deep pages are as fast as the first one and are not bound by the index result window. Pass a null cursor for
+	 * the first page, {@link PaginatedArrayList#getNextCursor()} of the returned list is the cursor of the next page and
+	 * is null on the last one. Random sorting can not be paginated with a cursor
+	 * @param luceneQuery
+	 * @param limit
+	 * @param sortBy indexName(previously known as dbColumnName) to order by. Can be null or empty string
+	 * @param cursor opaque cursor returned with the previous page, null for the first page
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return PaginatedArrayList<ContentletSearch> list of objects with each content's identifier, inode and score in ES Index
+	 * @throws DotSecurityException if user is null and respectFrontendRoles is false
+	 * @throws DotDataException
+	 */
+	public PaginatedArrayList<ContentletSearch> searchIndexAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException;
+
+	/**
+	 * Same as {@link #searchIndexAfter(String, int, String, String, User, boolean)} but returns the contentlets of the page
+	 * @param luceneQuery
+	 * @param limit
+	 * @param sortBy indexName(previously known as dbColumnName) to order by. Can be null or empty string
+	 * @param cursor opaque cursor returned with the previous page, null for the first page
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return PaginatedArrayList<Contentlet>
+	 * @throws DotDataException
+	 * @throws DotSecurityException
+	 */
+	public PaginatedArrayList<Contentlet> searchAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles) throws DotDataException, DotSecurityException;
+
+	/**
+	 * Returns a lazily loaded stream of all the index hits of a lucene query, the pages are loaded with a cursor while the
+	 * stream is consumed. Meant for bulk jobs that need every match without holding them all in memory
+	 * @param luceneQuery
+	 * @param sortBy indexName(previously known as dbColumnName) to order by. Can be null or empty string
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return Stream<ContentletSearch>
+	 * @throws DotSecurityException if user is null and respectFrontendRoles is false
+	 * @throws DotDataException
+	 */
+	public Stream<ContentletSearch> searchIndexStream(String luceneQuery, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException;
 	
 	/**
 	 * Publishes all related HTMLPage
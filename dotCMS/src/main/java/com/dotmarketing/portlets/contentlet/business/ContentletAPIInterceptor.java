@@ -29,12 +29,14 @@ import com.dotmarketing.portlets.structure.model.Field;
 import com.dotmarketing.portlets.structure.model.Relationship;
 import com.dotmarketing.portlets.structure.model.Structure;
 import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.PaginatedArrayList;
 import com.liferay.portal.model.User;
 import org.elasticsearch.action.search.SearchResponse;
 
 import java.io.File;
 import java.io.Serializable;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * This interceptor class allows developers to execute Java <b>code</b> before
@@ -808,6 +810,18 @@ public class ContentletAPIInterceptor implements ContentletAPI, Interceptor {
 		return c;
 	}
 
+	@Override
+	public Stream<Contentlet> findContentletsStream(List<String> inodes) {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.findContentletsStream(inodes);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		return conAPI.findContentletsStream(inodes);
+	}
+
 	@Override
 	public List<Contentlet> findContentletsByFolder(Folder parentFolder, User user, boolean respectFrontendRoles) throws DotDataException, DotSecurityException {
 		for(ContentletAPIPreHook pre : preHooks){
@@ -1175,6 +1189,50 @@ public class ContentletAPIInterceptor implements ContentletAPI, Interceptor {
 		return c;
 	}
 
+	@Override
+	public PaginatedArrayList<ContentletSearch> searchIndexAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.searchIndexAfter(luceneQuery, limit, sortBy, cursor, user, respectFrontendRoles);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		PaginatedArrayList<ContentletSearch> c = conAPI.searchIndexAfter(luceneQuery, limit, sortBy, cursor, user, respectFrontendRoles);
+		for(ContentletAPIPostHook post : postHooks){
+			post.searchIndexAfter(luceneQuery, limit, sortBy, cursor, user, respectFrontendRoles,c);
+		}
+		return c;
+	}
+
+	@Override
+	public PaginatedArrayList<Contentlet> searchAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles) throws DotDataException, DotSecurityException {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.searchAfter(luceneQuery, limit, sortBy, cursor, user, respectFrontendRoles);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		PaginatedArrayList<Contentlet> c = conAPI.searchAfter(luceneQuery, limit, sortBy, cursor, user, respectFrontendRoles);
+		for(ContentletAPIPostHook post : postHooks){
+			post.searchAfter(luceneQuery, limit, sortBy, cursor, user, respectFrontendRoles,c);
+		}
+		return c;
+	}
+
+	@Override
+	public Stream<ContentletSearch> searchIndexStream(String luceneQuery, String sortBy, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
+		for(ContentletAPIPreHook pre : preHooks){
+			boolean preResult = pre.searchIndexStream(luceneQuery, sortBy, user, respectFrontendRoles);
+			if(!preResult){
+				Logger.error(this, "The following prehook failed " + pre.getClass().getName());
+				throw new DotRuntimeException("The following prehook failed " + pre.getClass().getName());
+			}
+		}
+		return conAPI.searchIndexStream(luceneQuery, sortBy, user, respectFrontendRoles);
+	}
+
 	@Override
 	public boolean isContentEqual(Contentlet contentlet1, Contentlet contentlet2, User user, boolean respectFrontendRoles) throws DotSecurityException, DotDataException {
 		for(ContentletAPIPreHook pre : preHooks){
@@ -242,6 +242,30 @@ public interface ContentletAPIPostHook {
 	 */
 
 	public default void searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles,List<ContentletSearch> returnValue){}
+
+	/**
+	 * Searches the index paging with a cursor instead of an offset
+	 * @param luceneQuery
+	 * @param limit
+	 * @param sortBy
+	 * @param cursor
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param returnValue - value returned by primary API Method
+	 */
+	public default void searchIndexAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles,List<ContentletSearch> returnValue){}
+
+	/**
+	 * Searches the contentlets paging with a cursor instead of an offset
+	 * @param luceneQuery
+	 * @param limit
+	 * @param sortBy
+	 * @param cursor
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @param returnValue - value returned by primary API Method
+	 */
+	public default void searchAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles,List<Contentlet> returnValue){}
 	
 	/**
 	 * Publishes all related HTMLPage
@@ -133,6 +133,15 @@ public interface ContentletAPIPreHook {
       return true;
     }
 
+	/**
+	 * Gets a lazily loaded stream of Contentlets from a passed in list of inodes.
+	 * @param inodes
+	 * @return
+	 */
+	public default boolean findContentletsStream(List<String> inodes){
+      return true;
+    }
+
 	/**
 	 * Gets a list of Contentlets from a given parent folder  
 	 * @param parentFolder
@@ -280,6 +289,46 @@ public interface ContentletAPIPreHook {
 	public default boolean searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles){
       return true;
     }
+
+	/**
+	 * Searches the index paging with a cursor instead of an offset
+	 * @param luceneQuery
+	 * @param limit
+	 * @param sortBy indexName(previously known as dbColumnName) to order by. Can be null or empty string
+	 * @param cursor
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return
+	 */
+	public default boolean searchIndexAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles){
+      return true;
+    }
+
+	/**
+	 * Searches the contentlets paging with a cursor instead of an offset
+	 * @param luceneQuery
+	 * @param limit
+	 * @param sortBy
+	 * @param cursor
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return
+	 */
+	public default boolean searchAfter(String luceneQuery, int limit, String sortBy, String cursor, User user, boolean respectFrontendRoles){
+      return true;
+    }
+
+	/**
+	 * Streams all the index hits of a query
+	 * @param luceneQuery
+	 * @param sortBy
+	 * @param user
+	 * @param respectFrontendRoles
+	 * @return
+	 */
+	public default boolean searchIndexStream(String luceneQuery, String sortBy, User user, boolean respectFrontendRoles){
+      return true;
+    }
 	
 	/**
 	 * Publishes all related HTMLPage
@@ -1,8 +1,16 @@
 package com.dotmarketing.portlets.contentlet.business;
 
+import com.dotcms.content.elasticsearch.business.CompiledQueryCache.CompiledQuery;
 import com.dotcms.content.elasticsearch.business.ESContentFactoryImpl.TranslatedQuery;
+import com.dotcms.content.elasticsearch.business.LiveQueryResultCache.LiveQueryResult;
 import com.dotmarketing.business.Cachable;
+import com.dotmarketing.business.CacheLoader;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 //This interface should have default package access
 public abstract class ContentletCache implements Cachable {
@@ -13,6 +21,23 @@ public abstract class ContentletCache implements Cachable {
     public abstract Contentlet add(Contentlet content);
 	public abstract Contentlet get(String inode);
 
+	/**
+	 * Returns the cached contentlet, loading and caching it on a miss. Concurrent misses of the same
+	 * inode wait for a single load
+	 */
+	public abstract Contentlet get(String inode, CacheLoader<Contentlet> loader) throws DotDataException, DotSecurityException;
+
+	/**
+	 * Returns the cached contentlets of the given inodes with a single cache lookup, the inodes that are
+	 * not cached are not in the returned map
+	 */
+	public abstract Map<String, Contentlet> getAll(Collection<String> inodes);
+
+	/**
+	 * Caches all the given contentlets, keyed by their inodes
+	 */
+	public abstract void addAll(Collection<Contentlet> contents);
+
 	public abstract void clearCache();
 
 	public abstract void remove(String key);
@@ -22,6 +47,31 @@ public abstract class ContentletCache implements Cachable {
     public abstract void addTranslatedQuery(String key, TranslatedQuery translatedQuery);
 
     public abstract TranslatedQuery getTranslatedQuery(String key);
+
+    public abstract void addCompiledQuery(String key, CompiledQuery compiledQuery);
+
+    public abstract CompiledQuery getCompiledQuery(String key);
+
+    public abstract void addLiveQueryResult(String key, LiveQueryResult result);
+
+    public abstract LiveQueryResult getLiveQueryResult(String key);
+
+    public abstract void addLiveQueryToken(String dependency, Long token);
+
+    public abstract Long getLiveQueryToken(String dependency);
+
+    public abstract void removeLiveQueryToken(String dependency);
+
+    /**
+     * Flushes the live query results and their dependency tokens
+     */
+    public abstract void clearLiveQueryCache();
+
+    public abstract void addPropagatedRelationships(String identifier, Set<String> entries);
+
+    public abstract Set<String> getPropagatedRelationships(String identifier);
+
+    public abstract void removePropagatedRelationships(String identifier);
     
     public abstract String getMetadata(String key);
 
@@ -1,6 +1,8 @@
 package com.dotmarketing.portlets.contentlet.business;
 
+import com.dotcms.content.elasticsearch.business.CompiledQueryCache.CompiledQuery;
 import com.dotcms.content.elasticsearch.business.ESContentFactoryImpl.TranslatedQuery;
+import com.dotcms.content.elasticsearch.business.LiveQueryResultCache.LiveQueryResult;
 import com.dotcms.contenttype.model.type.BaseContentType;
 import com.dotcms.contenttype.model.type.PageContentType;
 import com.dotcms.rendering.velocity.services.PageLoader;
@@ -8,6 +10,7 @@ import com.dotcms.rendering.velocity.services.SiteLoader;
 import com.dotcms.services.VanityUrlServices;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLoader;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.business.DotCacheException;
@@ -22,6 +25,12 @@ import com.dotmarketing.portlets.structure.model.Structure;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Jason Tesser
@@ -34,8 +43,13 @@ public class ContentletCacheImpl extends ContentletCache {
 	private String primaryGroup = "ContentletCache";
 	private String metadataGroup = "FileAssetMetadataCache";
 	private String translatedQueryGroup = "TranslatedQueryCache";
+	private String compiledQueryGroup = "CompiledQueryCache";
+	private String liveQueryResultGroup = "LiveQueryResultCache";
+	private String liveQueryTokenGroup = "LiveQueryTokenCache";
+	private String propagatedRelationshipsGroup = "PropagatedRelationshipsCache";
 	// region's name for the cache
-	private String[] groupNames = {primaryGroup, HostCache.PRIMARY_GROUP, metadataGroup,translatedQueryGroup};
+	private String[] groupNames = {primaryGroup, HostCache.PRIMARY_GROUP, metadataGroup,translatedQueryGroup,compiledQueryGroup,
+			liveQueryResultGroup,liveQueryTokenGroup,propagatedRelationshipsGroup};
 
 	public ContentletCacheImpl() {
 		cache = CacheLocator.getCacheAdministrator();
@@ -46,6 +60,83 @@ public class ContentletCacheImpl extends ContentletCache {
 		cache.put(key, translatedQuery, translatedQueryGroup);
 	}
 
+	@Override
+	public void addCompiledQuery(String key, CompiledQuery compiledQuery) {
+		cache.put(key, compiledQuery, compiledQueryGroup);
+	}
+
+	@Override
+	public CompiledQuery getCompiledQuery(String key) {
+		try {
+			return (CompiledQuery) cache.get(key, compiledQueryGroup);
+		} catch (DotCacheException e) {
+			Logger.error(ContentletCacheImpl.class,e.getMessage(),e);
+			return null;
+		}
+	}
+
+	@Override
+	public void addLiveQueryResult(String key, LiveQueryResult result) {
+		cache.put(key, result, liveQueryResultGroup);
+	}
+
+	@Override
+	public LiveQueryResult getLiveQueryResult(String key) {
+		try {
+			return (LiveQueryResult) cache.get(key, liveQueryResultGroup);
+		} catch (DotCacheException e) {
+			Logger.error(ContentletCacheImpl.class,e.getMessage(),e);
+			return null;
+		}
+	}
+
+	@Override
+	public void addLiveQueryToken(String dependency, Long token) {
+		cache.put(dependency, token, liveQueryTokenGroup);
+	}
+
+	@Override
+	public Long getLiveQueryToken(String dependency) {
+		try {
+			return (Long) cache.get(dependency, liveQueryTokenGroup);
+		} catch (DotCacheException e) {
+			Logger.error(ContentletCacheImpl.class,e.getMessage(),e);
+			return null;
+		}
+	}
+
+	@Override
+	public void removeLiveQueryToken(String dependency) {
+		cache.remove(dependency, liveQueryTokenGroup);
+	}
+
+	@Override
+	public void clearLiveQueryCache() {
+		cache.flushGroup(liveQueryTokenGroup);
+		cache.flushGroup(liveQueryResultGroup);
+	}
+
+	@Override
+	public void addPropagatedRelationships(String identifier, Set<String> entries) {
+		cache.put(identifier, entries, propagatedRelationshipsGroup);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<String> getPropagatedRelationships(String identifier) {
+		try {
+			return (Set<String>) cache.get(identifier, propagatedRelationshipsGroup);
+		} catch (DotCacheException e) {
+			Logger.error(ContentletCacheImpl.class,e.getMessage(),e);
+			return null;
+		}
+	}
+
+	@Override
+	public void removePropagatedRelationships(String identifier) {
+		cache.remove(identifier, propagatedRelationshipsGroup);
+	}
+
 	@Override
 	public TranslatedQuery getTranslatedQuery(String key) {
 		Object o = null;
@@ -126,6 +217,41 @@ public class ContentletCacheImpl extends ContentletCache {
 		return content;
 	}
 
+	@Override
+	public Map<String, Contentlet> getAll(final Collection<String> inodes) {
+		final List<String> keys = new ArrayList<>(inodes.size());
+		for (final String inode : inodes) {
+			keys.add(primaryGroup + inode);
+		}
+		final Map<String, Object> cached = cache.getAll(keys, primaryGroup);
+		final Map<String, Contentlet> contents = new HashMap<>(cached.size());
+		for (final String inode : inodes) {
+			final Object content = cached.get(primaryGroup + inode);
+			if (content != null) {
+				contents.put(inode, (Contentlet) content);
+			}
+		}
+		return contents;
+	}
+
+	@Override
+	public void addAll(final Collection<Contentlet> contents) {
+		for (final Contentlet content : contents) {
+			add(content.getInode(), content);
+		}
+	}
+
+	@Override
+	public Contentlet get(final String inode, final CacheLoader<Contentlet> loader) throws DotDataException, DotSecurityException {
+		return cache.get(primaryGroup + inode, primaryGroup, () -> {
+			final Contentlet content = loader.load();
+			if (content != null) {
+				addMetadata(inode, content);
+			}
+			return content;
+		});
+	}
+
 	/* (non-Javadoc)
      * @see com.dotmarketing.business.PermissionCache#clearCache()
      */
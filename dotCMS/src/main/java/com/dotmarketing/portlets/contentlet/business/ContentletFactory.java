@@ -150,6 +150,18 @@ public abstract class ContentletFactory {
 	 * @return
 	 */
 	protected abstract SearchHits indexSearch(String luceneQuery, int limit, int offset, String sortBy);
+
+	/**
+	 * Same as {@link #indexSearch(String, int, int, String)} but pages with the sort values of the last hit of the
+	 * previous page instead of an offset, so deep pages cost the same as the first one. The hits are also sorted by
+	 * identifier and inode to break ties, pass an empty array for the first page
+	 * @param luceneQuery
+	 * @param limit
+	 * @param sortBy
+	 * @param searchAfter the sort values of the last hit of the previous page
+	 * @return
+	 */
+	protected abstract SearchHits indexSearchAfter(String luceneQuery, int limit, String sortBy, Object[] searchAfter);
 	
 	/**
 	 * Returns the contentlets on a given page.  You can pass -1 for languageId if you don't want to query to pull based
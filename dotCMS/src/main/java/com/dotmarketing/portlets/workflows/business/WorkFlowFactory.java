@@ -42,6 +42,13 @@ public interface WorkFlowFactory {
 
 	public WorkflowTask findTaskByContentlet(Contentlet contentlet) throws DotDataException;
 
+	/**
+	 * Loads into the cache the tasks of the contentlets that are not cached yet, with a query per batch of identifiers
+	 * @param contentlets {@link List}
+	 * @throws DotDataException
+	 */
+	public void preloadTasksByContentlets(List<Contentlet> contentlets) throws DotDataException;
+
 	public WorkflowTask findWorkFlowTaskById(String id) throws DotDataException;
 
 	public List<WorkflowTask> searchTasks(WorkflowSearcher searcher) throws DotDataException;
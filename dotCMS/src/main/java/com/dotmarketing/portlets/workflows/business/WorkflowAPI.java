@@ -79,6 +79,14 @@ public interface WorkflowAPI {
 	 */
 	public WorkflowTask findTaskByContentlet(Contentlet contentlet) throws DotDataException;
 
+	/**
+	 * Loads the tasks of the contentlets into the cache with a query per batch of identifiers, so
+	 * {@link #findTaskByContentlet(Contentlet)} does not hit the db for each one of them
+	 * @param contentlets {@link List}
+	 * @throws DotDataException
+	 */
+	public void preloadTasksByContentlets(List<Contentlet> contentlets) throws DotDataException;
+
 	/**
 	 * This method will get a list with the current contentlet workflow step.
 	 * If the contentlet doesn't have a workflow step associated, then it will
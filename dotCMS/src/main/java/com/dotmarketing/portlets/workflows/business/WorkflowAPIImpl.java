@@ -318,6 +318,12 @@ public class WorkflowAPIImpl implements WorkflowAPI, WorkflowAPIOsgiService {
 		return workFlowFactory.findTaskByContentlet(contentlet);
 	}
 
+	@Override
+	@CloseDBIfOpened
+	public void preloadTasksByContentlets(final List<Contentlet> contentlets) throws DotDataException {
+		workFlowFactory.preloadTasksByContentlets(contentlets);
+	}
+
 	@Override
 	@CloseDBIfOpened
 	public List<WorkflowStep> findStepsByContentlet(final Contentlet contentlet) throws DotDataException{
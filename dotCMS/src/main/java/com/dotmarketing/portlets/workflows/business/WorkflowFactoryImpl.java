@@ -23,7 +23,9 @@ import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UUIDGenerator;
 import com.dotmarketing.util.UtilMethods;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.liferay.portal.model.User;
+import com.liferay.util.StringPool;
 import org.apache.commons.beanutils.BeanUtils;
 
 import java.io.StringWriter;
@@ -42,6 +44,8 @@ import java.util.stream.Collectors;
 
 public class WorkflowFactoryImpl implements WorkFlowFactory {
 
+	private static final int PRELOAD_BATCH_SIZE = 500;
+
 	private final WorkflowCache cache;
 	private final WorkflowSQL   sql;
 
@@ -844,6 +848,41 @@ public class WorkflowFactoryImpl implements WorkFlowFactory {
 		return task;
 	}
 
+	@Override
+	public void preloadTasksByContentlets(final List<Contentlet> contentlets) throws DotDataException {
+
+		final Map<String, List<Contentlet>> notCached = new HashMap<>();
+		for (final Contentlet contentlet : contentlets) {
+			if (UtilMethods.isSet(contentlet.getIdentifier()) && !cache.is404(contentlet) && cache.getTask(contentlet) == null) {
+				notCached.computeIfAbsent(contentlet.getIdentifier(), k -> new ArrayList<>()).add(contentlet);
+			}
+		}
+
+		for (final List<String> identifiers : Lists.partition(new ArrayList<>(notCached.keySet()), PRELOAD_BATCH_SIZE)) {
+
+			final DotConnect db = new DotConnect();
+			db.setSQL(String.format(WorkflowSQL.SELECT_TASKS_BY_WEBASSETS, DotConnect.createParametersPlaceholder(identifiers.size())));
+			identifiers.forEach(db::addParam);
+
+			final Map<String, WorkflowTask> tasks = new HashMap<>();
+			for (final Object task : this.convertListToObjects(db.loadObjectResults(), WorkflowTask.class)) {
+				final WorkflowTask workflowTask = (WorkflowTask) task;
+				tasks.putIfAbsent(workflowTask.getWebasset() + StringPool.UNDERLINE + workflowTask.getLanguageId(), workflowTask);
+			}
+
+			for (final String identifier : identifiers) {
+				for (final Contentlet contentlet : notCached.get(identifier)) {
+					final WorkflowTask task = tasks.get(identifier + StringPool.UNDERLINE + contentlet.getLanguageId());
+					if (null != task && null != task.getId()) {
+						cache.addTask(contentlet, task);
+					} else {
+						cache.add404Task(contentlet);
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public WorkflowComment findWorkFlowCommentById(String id) throws DotDataException {
 		final HibernateUtil hu = new HibernateUtil(WorkflowComment.class);
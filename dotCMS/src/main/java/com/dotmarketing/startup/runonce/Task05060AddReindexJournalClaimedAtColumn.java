@@ -0,0 +1,178 @@
+package com.dotmarketing.startup.runonce;
+
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.startup.AbstractJDBCStartupTask;
+import com.dotmarketing.util.Logger;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.dotcms.util.CollectionsUtils.map;
+
+/**
+ * This upgrade task will add the column claimed_at to the dist_reindex_journal table, it keeps the
+ * time a server claimed a record so the lease of a server that died can be reclaimed by the others.
+ * The MySQL version of {@code load_records_to_index} fetches the rows of the table into a fixed list of
+ * variables, so it is recreated selecting its columns by name.
+ *
+ * @version 5.0
+ *
+ */
+public class Task05060AddReindexJournalClaimedAtColumn extends AbstractJDBCStartupTask {
+
+    private static final String SELECT_CLAIMED_AT_COLUMN_SQL = "SELECT claimed_at FROM dist_reindex_journal";
+
+    private static final Map<DbType, String> addClaimedAtColumnSQLMap = map(
+            DbType.POSTGRESQL,   "ALTER TABLE dist_reindex_journal ADD claimed_at timestamp",
+            DbType.MYSQL,        "ALTER TABLE dist_reindex_journal ADD claimed_at DATETIME",
+            DbType.ORACLE,       "ALTER TABLE dist_reindex_journal ADD claimed_at TIMESTAMP",
+            DbType.MSSQL,        "ALTER TABLE dist_reindex_journal ADD claimed_at datetime",
+            DbType.H2,           "ALTER TABLE dist_reindex_journal ADD claimed_at timestamp"
+    );
+
+    private static final String MYSQL_DROP_LOAD_RECORDS_TO_INDEX = "DROP PROCEDURE IF EXISTS load_records_to_index";
+
+    private static final String MYSQL_CREATE_LOAD_RECORDS_TO_INDEX = "CREATE PROCEDURE load_records_to_index(IN server_id VARCHAR(100), IN records_to_fetch INT, IN priority_level INT)\n"
+            + "BEGIN\n"
+            + "DECLARE v_id BIGINT;\n"
+            + "DECLARE v_inode_to_index VARCHAR(100);\n"
+            + "DECLARE v_ident_to_index VARCHAR(100);\n"
+            + "DECLARE v_serverid VARCHAR(64);\n"
+            + "DECLARE v_priority INT;\n"
+            + "DECLARE v_time_entered TIMESTAMP;\n"
+            + "DECLARE v_index_val VARCHAR(325);\n"
+            + "DECLARE v_dist_action INT;\n"
+            + "DECLARE cursor_end BOOL DEFAULT FALSE;\n"
+            + "DECLARE cur1 CURSOR FOR SELECT id,inode_to_index,ident_to_index,serverid,priority,time_entered,index_val,dist_action FROM dist_reindex_journal WHERE serverid IS NULL or serverid='' AND priority <= priority_level ORDER BY priority ASC LIMIT records_to_fetch FOR UPDATE;\n"
+            + "DECLARE CONTINUE HANDLER FOR NOT FOUND SET cursor_end:=TRUE;\n"
+            + "DROP TEMPORARY TABLE IF EXISTS tmp_records_reindex;\n"
+            + "CREATE TEMPORARY TABLE tmp_records_reindex (\n"
+            + "id BIGINT PRIMARY KEY,\n"
+            + "inode_to_index varchar(36),\n"
+            + "ident_to_index varchar(36),\n"
+            + "dist_action INT,\n"
+            + "priority INT\n"
+            + ") ENGINE=MEMORY;\n"
+            + "OPEN cur1;\n"
+            + "WHILE (NOT cursor_end) DO\n"
+            + "FETCH cur1 INTO v_id,v_inode_to_index,v_ident_to_index,v_serverid,v_priority,v_time_entered,v_index_val,v_dist_action;\n"
+            + "IF (NOT cursor_end) THEN\n"
+            + "UPDATE dist_reindex_journal SET serverid=server_id WHERE id=v_id;\n"
+            + "INSERT INTO tmp_records_reindex VALUES (v_id, v_inode_to_index, v_ident_to_index, v_dist_action, v_priority);\n"
+            + "END IF;\n"
+            + "END WHILE;\n"
+            + "CLOSE cur1;\n"
+            + "SELECT * FROM tmp_records_reindex;\n"
+            + "END";
+
+    @Override
+    public boolean forceRun() {
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public void executeUpgrade() throws DotDataException {
+
+        if (this.addClaimedAtColumn() && DbConnectionFactory.isMySql()) {
+            this.updateMySQLLoadRecordsToIndex();
+        }
+    }
+
+    private void updateMySQLLoadRecordsToIndex() throws DotDataException {
+
+        Logger.info(this, "Updating the 'load_records_to_index' procedure.");
+        try {
+
+            final DotConnect dotConnect = new DotConnect();
+            dotConnect.executeStatement(MYSQL_DROP_LOAD_RECORDS_TO_INDEX);
+            dotConnect.executeStatement(MYSQL_CREATE_LOAD_RECORDS_TO_INDEX);
+        } catch (SQLException e) {
+            throw new DotRuntimeException("The 'load_records_to_index' procedure could not be updated.", e);
+        } finally {
+            this.commitAndCloseTransaction();
+        }
+    }
+
+    private boolean addClaimedAtColumn() throws DotDataException {
+
+        boolean needToCreate = false;
+        Logger.info(this, "Adding new 'claimed_at' column to 'dist_reindex_journal' table.");
+
+        try {
+
+            if (DbConnectionFactory.isMsSql() && !DbConnectionFactory.getAutoCommit()) {
+                DbConnectionFactory.setAutoCommit(true);
+            }
+
+            new DotConnect().setSQL(SELECT_CLAIMED_AT_COLUMN_SQL).setMaxRows(1).loadObjectResults();
+        } catch (Throwable e) {
+
+            Logger.info(this, "Column 'dist_reindex_journal.claimed_at' does not exists, creating it");
+            needToCreate = true;
+            // in some databases if an error is throw the transaction is not longer valid
+            this.closeAndStartTransaction();
+        }
+
+        if (needToCreate) {
+            try {
+
+                if (DbConnectionFactory.isMsSql() && !DbConnectionFactory.getAutoCommit()) {
+                    DbConnectionFactory.setAutoCommit(true);
+                }
+
+                new DotConnect().executeStatement(getAddClaimedAtColumnSQL());
+            } catch (SQLException e) {
+                throw new DotRuntimeException("The 'claimed_at' column could not be created.", e);
+            } finally {
+                this.commitAndCloseTransaction();
+            }
+        }
+
+        return needToCreate;
+    }
+
+    private String getAddClaimedAtColumnSQL() {
+
+        final DbType dbType = DbType.getDbType(DbConnectionFactory.getDBType());
+
+        return addClaimedAtColumnSQLMap.getOrDefault(dbType, null);
+    }
+
+    private void commitAndCloseTransaction() throws DotHibernateException {
+        if (DbConnectionFactory.inTransaction()) {
+            HibernateUtil.closeAndCommitTransaction();
+        }
+    }
+
+    private void closeAndStartTransaction() throws DotHibernateException {
+
+        HibernateUtil.closeSessionSilently();
+        HibernateUtil.startTransaction();
+    }
+
+    @Override
+    public String getPostgresScript() { return null; }
+
+    @Override
+    public String getMySQLScript() { return null; }
+
+    @Override
+    public String getOracleScript() { return null; }
+
+    @Override
+    public String getMSSQLScript() { return null; }
+
+    @Override
+    public String getH2Script() { return null; }
+
+    @Override
+    protected List<String> getTablesToDropConstraints() { return Collections.emptyList(); }
+
+}
@@ -19,6 +19,7 @@ public class PaginatedArrayList<E> extends ArrayList<E>{
 	private static final long serialVersionUID = -7345046002562313843L;
 	private long totalResults;
 	private String query;
+	private String nextCursor;
 	/**
 	 * @return the totalResults
 	 */
@@ -37,5 +38,18 @@ public class PaginatedArrayList<E> extends ArrayList<E>{
 	public void setQuery(String query) {
 		this.query = query;
 	}
+	/**
+	 * @return the opaque cursor of the page that follows this one when the list was loaded with a cursor,
+	 * null when this is the last page
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	/**
+	 * @param nextCursor the cursor of the next page to set
+	 */
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
 
 }
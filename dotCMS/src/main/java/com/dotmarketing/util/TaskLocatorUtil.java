@@ -238,6 +238,7 @@ public class TaskLocatorUtil {
 		ret.add(Task05035CreateIndexForQRTZ_EXCL_TRIGGERSTable.class);
 		ret.add(Task05040LanguageTableIdentityOff.class);
 		ret.add(Task05050FileAssetContentTypeReadOnlyFileName.class);
+		ret.add(Task05060AddReindexJournalClaimedAtColumn.class);
 		return ret;
 	}
 
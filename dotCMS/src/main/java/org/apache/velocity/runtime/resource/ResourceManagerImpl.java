@@ -21,6 +21,7 @@ package org.apache.velocity.runtime.resource;
 
 import com.dotcms.api.web.HttpServletRequestThreadLocal;
 import com.dotcms.rendering.velocity.services.ContentletLoader;
+import com.dotcms.rendering.velocity.services.DotResourceCache;
 import com.dotcms.rendering.velocity.services.DotResourceLoader;
 import com.dotcms.rendering.velocity.services.VelocityResourceKey;
 import com.dotcms.rendering.velocity.services.VelocityType;
@@ -359,11 +360,22 @@ public class ResourceManagerImpl
                 /*
                  *  it's not in the cache, so load it.
                  */    
-                resource = loadResource(resourceName, resourceType, encoding);
-
-                if (DotResourceLoader.getInstance().isCachingOn())
+                if (DotResourceLoader.getInstance().isCachingOn() && globalCache instanceof DotResourceCache)
+                {
+                    /*
+                     * concurrent misses of the same resource wait for a single load and parse
+                     */
+                    resource = ((DotResourceCache) globalCache).get(resourceKey,
+                            () -> loadResource(resourceName, resourceType, encoding));
+                }
+                else
                 {
-                    globalCache.put(resourceKey, resource);
+                    resource = loadResource(resourceName, resourceType, encoding);
+
+                    if (DotResourceLoader.getInstance().isCachingOn())
+                    {
+                        globalCache.put(resourceKey, resource);
+                    }
                 }
             }
             catch (ResourceNotFoundException rnfe)
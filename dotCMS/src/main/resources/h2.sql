@@ -1842,6 +1842,7 @@ CREATE TABLE dist_reindex_journal
   time_entered timestamp NOT NULL DEFAULT CURRENT_DATE,
   index_val varchar(325),
   dist_action integer NOT NULL DEFAULT 1,
+  claimed_at timestamp,
   CONSTRAINT dist_reindex_journal_pkey PRIMARY KEY (id)
 );
 
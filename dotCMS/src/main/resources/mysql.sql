@@ -1660,7 +1660,7 @@ alter table plugin_property add constraint fk_plugin_plugin_property foreign key
 CREATE TABLE `dist_process` (`id` BIGINT  NOT NULL AUTO_INCREMENT,`object_to_index` VARCHAR(1024)  NOT NULL,`serverid` VARCHAR(64)  NOT NULL,`journal_type` INTEGER  NOT NULL,`time_entered` DATETIME  NOT NULL, PRIMARY KEY (`id`));
 CREATE INDEX dist_process_index USING BTREE on dist_process (object_to_index (255), serverid,journal_type);
 
-CREATE TABLE `dist_reindex_journal` (`id` BIGINT  NOT NULL AUTO_INCREMENT,`inode_to_index` VARCHAR(100)  NOT NULL,`ident_to_index` VARCHAR(100)  NOT NULL,`serverid` VARCHAR(64),`priority` INTEGER  NOT NULL,`time_entered` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, index_val varchar(325), dist_action integer NOT NULL DEFAULT 1, PRIMARY KEY (`id`));
+CREATE TABLE `dist_reindex_journal` (`id` BIGINT  NOT NULL AUTO_INCREMENT,`inode_to_index` VARCHAR(100)  NOT NULL,`ident_to_index` VARCHAR(100)  NOT NULL,`serverid` VARCHAR(64),`priority` INTEGER  NOT NULL,`time_entered` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, index_val varchar(325), dist_action integer NOT NULL DEFAULT 1, claimed_at DATETIME, PRIMARY KEY (`id`));
 
 CREATE INDEX dist_reindex_index1 USING BTREE on dist_reindex_journal (inode_to_index (100));
 CREATE INDEX dist_reindex_index2 USING BTREE on dist_reindex_journal (dist_action);
@@ -1736,7 +1736,7 @@ DECLARE v_time_entered TIMESTAMP;
 DECLARE v_index_val VARCHAR(325);
 DECLARE v_dist_action INT;
 DECLARE cursor_end BOOL DEFAULT FALSE;
-DECLARE cur1 CURSOR FOR SELECT * FROM dist_reindex_journal WHERE serverid IS NULL or serverid='' AND priority <= priority_level ORDER BY priority ASC LIMIT records_to_fetch FOR UPDATE;
+DECLARE cur1 CURSOR FOR SELECT id,inode_to_index,ident_to_index,serverid,priority,time_entered,index_val,dist_action FROM dist_reindex_journal WHERE serverid IS NULL or serverid='' AND priority <= priority_level ORDER BY priority ASC LIMIT records_to_fetch FOR UPDATE;
 DECLARE CONTINUE HANDLER FOR NOT FOUND SET cursor_end:=TRUE;
 
 DROP TEMPORARY TABLE IF EXISTS tmp_records_reindex;
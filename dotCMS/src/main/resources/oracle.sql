@@ -1686,6 +1686,7 @@ CREATE TABLE dist_reindex_journal (
   TIME_ENTERED TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   index_val varchar2(325) ,
   dist_action INTEGER DEFAULT 1 NOT NULL,
+  claimed_at TIMESTAMP,
   PRIMARY KEY (ID) VALIDATE);
 
 CREATE INDEX dist_reindex_index1 on dist_reindex_journal (inode_to_index);
@@ -1687,6 +1687,7 @@ CREATE TABLE dist_reindex_journal
   time_entered timestamp without time zone NOT NULL DEFAULT CURRENT_DATE,
   index_val varchar(325),
   dist_action integer NOT NULL DEFAULT 1,
+  claimed_at timestamp without time zone,
   CONSTRAINT dist_reindex_journal_pkey PRIMARY KEY (id)
 );
 
@@ -0,0 +1,222 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.dotcms.UnitTestBase;
+import com.dotmarketing.common.business.journal.DistributedJournalAPI;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * CoalescingIndexQueue unit test, the time is moved by hand and the flusher is run with {@code tick()}
+ */
+public class CoalescingIndexQueueTest extends UnitTestBase {
+
+    private static final long START = 1_000_000L;
+
+    private final AtomicLong now = new AtomicLong(START);
+    private final Map<String, List<Contentlet>> versions = new HashMap<>();
+    private final List<List<Contentlet>> indexed = new ArrayList<>();
+    private DistributedJournalAPI<String> journal;
+    private CoalescingIndexQueue queue;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Config.setProperty("INDEX_COALESCE_WINDOW_MILLIS", 1000);
+        Config.setProperty("INDEX_COALESCE_MAX_DELAY_MILLIS", 5000);
+        Config.setProperty("INDEX_COALESCE_RECOVERY_SECONDS", 60);
+        journal = mock(DistributedJournalAPI.class);
+        queue = new CoalescingIndexQueue(now::get, () -> journal,
+                (identifier, languageId) -> versions.getOrDefault(identifier, Collections.emptyList()),
+                contentlets -> indexed.add(new ArrayList<>(contentlets)), () -> "server1", false);
+    }
+
+    @Test
+    public void enqueue_writesHeldJournalRecordBeforeQueuing() throws DotDataException {
+        assertTrue(queue.enqueue(ImmutableList.of(contentlet("id1", "w1"))).isEmpty());
+
+        verify(journal).addHeldReindexEntry(eq("id1"), startsWith("coalesce:server1:"));
+        assertEquals(1, queue.getPending());
+    }
+
+    @Test
+    public void enqueue_sameContentWithinWindow_oneHeldRecord() throws DotDataException {
+        queue.enqueue(ImmutableList.of(contentlet("id1", "w1")));
+        now.addAndGet(500);
+        queue.enqueue(ImmutableList.of(contentlet("id1", "w2")));
+
+        verify(journal, times(1)).addHeldReindexEntry(anyString(), anyString());
+        assertEquals(1, queue.getPending());
+        assertEquals(1, queue.getCoalesced());
+    }
+
+    @Test
+    public void enqueue_journalFails_contentReturnedToBeIndexedNow() throws DotDataException {
+        doThrow(new DotDataException("down")).when(journal).addHeldReindexEntry(anyString(), anyString());
+        final Contentlet contentlet = contentlet("id1", "w1");
+
+        assertEquals(ImmutableList.of(contentlet), queue.enqueue(ImmutableList.of(contentlet)));
+        assertEquals(0, queue.getPending());
+    }
+
+    @Test
+    public void tick_indexesLatestVersionsOnceTheWindowCloses() throws DotDataException {
+        versions.put("id1", ImmutableList.of(contentlet("id1", "w3"), contentlet("id1", "l2")));
+        queue.enqueue(ImmutableList.of(contentlet("id1", "w1")));
+        final String holder = holder("id1");
+        now.addAndGet(500);
+        queue.enqueue(ImmutableList.of(contentlet("id1", "w2")));
+
+        now.addAndGet(900);
+        queue.tick();
+        assertTrue(indexed.isEmpty());
+
+        now.addAndGet(100);
+        queue.tick();
+        assertEquals(1, indexed.size());
+        assertEquals(ImmutableList.of("w3", "l2"), inodes(indexed.get(0)));
+        verify(journal).deleteHeldReindexEntries(eq(ImmutableList.of(holder)));
+        assertEquals(0, queue.getPending());
+        assertEquals(1, queue.getIndexed());
+    }
+
+    @Test
+    public void tick_contentSavedOverAndOver_indexedAfterMaxDelay() {
+        versions.put("id1", ImmutableList.of(contentlet("id1", "w1")));
+        // saved every 800 millis, so the 1000 millis window never closes
+        for (long at = START; at < START + 5000; at += 800) {
+            now.set(at);
+            queue.enqueue(ImmutableList.of(contentlet("id1", "w1")));
+            queue.tick();
+            assertTrue(indexed.isEmpty());
+        }
+        now.set(START + 5000);
+        queue.tick();
+
+        assertEquals(1, indexed.size());
+        assertEquals(0, queue.getPending());
+    }
+
+    @Test
+    public void tick_indexFails_heldRecordReleased() throws DotDataException {
+        queue = new CoalescingIndexQueue(now::get, () -> journal, (identifier, languageId) -> Collections.emptyList(),
+                contentlets -> {
+                    throw new DotDataException("index down");
+                }, () -> "server1", false);
+        queue.enqueue(ImmutableList.of(contentlet("id1", "w1")));
+        final String holder = holder("id1");
+        now.addAndGet(1000);
+        queue.tick();
+
+        verify(journal).releaseHeldReindexEntries(eq(ImmutableList.of(holder)));
+        verify(journal, never()).deleteHeldReindexEntries(any(Collection.class));
+        assertEquals(1, queue.getFailed());
+    }
+
+    @Test
+    public void indexNow_pendingVersionsIndexedAlongWithTheContent() throws DotDataException {
+        // a deferred publish queued a new live version, then a new working version is checked in with FORCE
+        versions.put("id1", ImmutableList.of(contentlet("id1", "w2"), contentlet("id1", "l1")));
+        queue.enqueue(ImmutableList.of(contentlet("id1", "l1")));
+        final String holder = holder("id1");
+
+        queue.indexNow(ImmutableList.of(contentlet("id1", "w2")), indexed::add);
+
+        assertEquals(1, indexed.size());
+        assertEquals(ImmutableList.of("w2", "l1"), inodes(indexed.get(0)));
+        verify(journal).deleteHeldReindexEntries(eq(ImmutableList.of(holder)));
+        assertEquals(0, queue.getPending());
+        assertEquals(1, queue.getBypassed());
+    }
+
+    @Test
+    public void indexNow_nothingPending_onlyTheContentIndexed() throws DotDataException {
+        queue.indexNow(ImmutableList.of(contentlet("id1", "w1")), indexed::add);
+
+        assertEquals(ImmutableList.of("w1"), inodes(indexed.get(0)));
+        verify(journal, never()).deleteHeldReindexEntries(any(Collection.class));
+        verify(journal, never()).releaseHeldReindexEntries(any(Collection.class));
+    }
+
+    @Test
+    public void indexNow_indexFails_heldRecordReleased() throws DotDataException {
+        queue.enqueue(ImmutableList.of(contentlet("id1", "l1")));
+        final String holder = holder("id1");
+
+        try {
+            queue.indexNow(ImmutableList.of(contentlet("id1", "w2")), contentlets -> {
+                throw new DotDataException("index down");
+            });
+            fail("The index failure should be thrown");
+        } catch (DotDataException e) {
+            verify(journal).releaseHeldReindexEntries(eq(ImmutableList.of(holder)));
+        }
+    }
+
+    @Test
+    public void shutdown_heldRecordsReleased() throws DotDataException {
+        queue.enqueue(ImmutableList.of(contentlet("id1", "w1")));
+        final String holder = holder("id1");
+
+        queue.shutdown();
+
+        verify(journal).releaseHeldReindexEntries(eq(ImmutableList.of(holder)));
+        assertTrue(indexed.isEmpty());
+        assertEquals(0, queue.getPending());
+    }
+
+    @Test
+    public void recover_releasesRecordsOfThePreviousRunAndTheOldOnes() throws DotDataException {
+        now.addAndGet(120_000);
+
+        queue.recover();
+
+        verify(journal).releaseHeldReindexEntries("coalesce:server1:", new Date(START));
+        verify(journal).releaseHeldReindexEntries("coalesce:", new Date(START + 60_000));
+    }
+
+    private String holder(final String identifier) throws DotDataException {
+        final ArgumentCaptor<String> holder = ArgumentCaptor.forClass(String.class);
+        verify(journal).addHeldReindexEntry(eq(identifier), holder.capture());
+        return holder.getValue();
+    }
+
+    private static List<String> inodes(final List<Contentlet> contentlets) {
+        return contentlets.stream().map(Contentlet::getInode).collect(Collectors.toList());
+    }
+
+    private static Contentlet contentlet(final String identifier, final String inode) {
+        final Contentlet contentlet = new Contentlet();
+        contentlet.setIdentifier(identifier);
+        contentlet.setInode(inode);
+        contentlet.setLanguageId(1);
+        return contentlet;
+    }
+
+}
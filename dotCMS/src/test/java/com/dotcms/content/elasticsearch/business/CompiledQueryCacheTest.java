@@ -0,0 +1,55 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.UnitTestBase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * CompiledQueryCache unit test.
+ */
+public class CompiledQueryCacheTest extends UnitTestBase {
+
+    @Test
+    public void liftDates_replacesTheDatesWithParameters() {
+        final String query = "+contentType:News +News.sysPublishDate:[* TO 20180501120000]"
+                + " +News.expireDate:[20180501120000 TO 20990101000000]";
+        final List<String> dates = new ArrayList<>();
+
+        final String template = CompiledQueryCache.liftDates(query, dates);
+
+        assertEquals("+contentType:News +News.sysPublishDate:[* TO __dotqp0__]"
+                + " +News.expireDate:[__dotqp1__ TO __dotqp2__]", template);
+        assertEquals(Arrays.asList("20180501120000", "20180501120000", "20990101000000"), dates);
+        assertEquals(query, CompiledQueryCache.bind(template, dates));
+    }
+
+    @Test
+    public void liftDates_keepsValuesThatAreNotDates() {
+        final String query = "+News.code:12345678901234 +News.number:20181301120000 +title:2018050112000*"
+                + " +News.ref:a20180501120000";
+        final List<String> dates = new ArrayList<>();
+
+        assertEquals(query, CompiledQueryCache.liftDates(query, dates));
+        assertTrue(dates.isEmpty());
+    }
+
+    @Test
+    public void bind_moreThanTenParameters() {
+        final StringBuilder query = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            query.append(" +News.date").append(i).append(":[* TO 201805011200").append(10 + i).append(']');
+        }
+        final List<String> dates = new ArrayList<>();
+
+        final String template = CompiledQueryCache.liftDates(query.toString(), dates);
+
+        assertEquals(12, dates.size());
+        assertEquals(query.toString(), CompiledQueryCache.bind(template, dates));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+
+import com.dotcms.UnitTestBase;
+import com.dotcms.content.elasticsearch.constants.ESMappingConstants;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+/**
+ * DependencyReindexTracker unit test.
+ */
+public class DependencyReindexTrackerTest extends UnitTestBase {
+
+    @Test
+    public void relationshipEntries_relatedIdentifierAndOrderOfEachRow() {
+        assertEquals(ImmutableSet.of("Blog-Author|author1|0", "Blog-Author|author2|1", "Blog-Comment|comment1|0"),
+                DependencyReindexTracker.relationshipEntries("blog1", ImmutableSet.of("Blog-Author", "Blog-Comment"),
+                        ImmutableList.of(row("author1", "blog1", "Blog-Author", "0"),
+                                row("author2", "blog1", "Blog-Author", "1"),
+                                row("blog1", "comment1", "Blog-Comment", "0"))));
+    }
+
+    @Test
+    public void relationshipEntries_ignoresRowsOfOtherRelationships() {
+        assertEquals(ImmutableSet.of("Blog-Author|author1|0"),
+                DependencyReindexTracker.relationshipEntries("blog1", ImmutableSet.of("Blog-Author"),
+                        ImmutableList.of(row("author1", "blog1", "Blog-Author", "0"),
+                                row("blog1", "image1", "Blog-Image", "0"))));
+    }
+
+    private static ImmutableMap<String, String> row(final String parent, final String child,
+            final String relationType, final String order) {
+        return ImmutableMap.of(ESMappingConstants.PARENT, parent, ESMappingConstants.CHILD, child,
+                ESMappingConstants.RELATION_TYPE, relationType, ESMappingConstants.TREE_ORDER, order);
+    }
+
+}
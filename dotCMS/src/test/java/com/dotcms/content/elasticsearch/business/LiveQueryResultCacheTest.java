@@ -0,0 +1,36 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+
+import com.dotcms.UnitTestBase;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+/**
+ * LiveQueryResultCache unit test.
+ */
+public class LiveQueryResultCacheTest extends UnitTestBase {
+
+    @Test
+    public void dependencies_requiredTypesAndSites() {
+        assertEquals(ImmutableSet.of("news|48190c8c-42c4-46af-8d1a-0cd5db894797", "blog|48190c8c-42c4-46af-8d1a-0cd5db894797"),
+                LiveQueryResultCache.dependencies("+contentType:News +structureName:Blog"
+                        + " +conHost:48190c8c-42c4-46af-8d1a-0cd5db894797 +languageId:1 +live:true"));
+    }
+
+    @Test
+    public void dependencies_anyTypeOrSiteWhenNotRequired() {
+        assertEquals(ImmutableSet.of("news|*"),
+                LiveQueryResultCache.dependencies("+contentType:News +(conhost:abc conhost:SYSTEM_HOST) +live:true"));
+        assertEquals(ImmutableSet.of("*|abc"),
+                LiveQueryResultCache.dependencies("+conhost:abc contentType:News +live:true"));
+    }
+
+    @Test
+    public void dependencies_ignoresClausesInsideParenthesesAndWildcards() {
+        assertEquals(ImmutableSet.of("*|*"),
+                LiveQueryResultCache.dependencies("(+contentType:News) (+contentType:Blog +(conhost:abc))"
+                        + " +contentType:New* +live:true"));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.dotcms.UnitTestBase;
+import org.junit.Test;
+
+/**
+ * SearchCursor unit test.
+ */
+public class SearchCursorTest extends UnitTestBase {
+
+    @Test
+    public void decode_returnsTheEncodedSortValues() {
+        final Object[] sortValues = {1.5F, 1525132800000L, "news/item one", null, 7, 2.25D, true,
+                "5b3e6e8f-2a47-4b8e-9a31-1e1bd6f9c0a2"};
+
+        final String cursor = SearchCursor.encode(sortValues);
+
+        assertFalse(cursor.contains("/"));
+        assertArrayEquals(sortValues, SearchCursor.decode(cursor));
+    }
+
+    @Test
+    public void decode_emptySortValues() {
+        assertArrayEquals(new Object[0], SearchCursor.decode(SearchCursor.encode(new Object[0])));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_invalidCursor_throwsIllegalArgumentException() {
+        SearchCursor.decode("not a cursor");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_truncatedCursor_throwsIllegalArgumentException() {
+        final String cursor = SearchCursor.encode(new Object[]{"value", 10L});
+        SearchCursor.decode(cursor.substring(0, cursor.length() - 4));
+    }
+}
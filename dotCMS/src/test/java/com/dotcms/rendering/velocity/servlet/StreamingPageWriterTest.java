@@ -0,0 +1,144 @@
+package com.dotcms.rendering.velocity.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * StreamingPageWriter unit test.
+ */
+public class StreamingPageWriterTest {
+
+    private static final String PAGE = " \n\t<html>\n  <head><title>Page</title></head>\n  <body>\n <p> a  b </p>\n </body>\n</html>\n \r\n";
+
+    @Test
+    public void keptPage_sameAsTrimmedPage_forAnyChunking() throws IOException {
+        for (int chunk = 1; chunk <= PAGE.length(); chunk++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final StreamingPageWriter writer = new StreamingPageWriter(out, true, false);
+            for (int from = 0; from < PAGE.length(); from += chunk) {
+                writer.write(PAGE.substring(from, Math.min(from + chunk, PAGE.length())));
+            }
+            writer.close();
+
+            assertEquals("chunks of " + chunk, PAGE.trim(), writer.getPage());
+            assertEquals("chunks of " + chunk, PAGE.trim(), out.toString());
+            assertEquals(PAGE.trim().length(), writer.getBytes());
+        }
+    }
+
+    @Test
+    public void keptPage_whitespaceAcrossChunks_keptBetweenText() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final StreamingPageWriter writer = new StreamingPageWriter(out, true, false);
+        writer.write("  a ");
+        writer.write(" ");
+        writer.write("\n b");
+        writer.write("  ");
+        writer.write("\t");
+        writer.close();
+
+        assertEquals("a  \n b", writer.getPage());
+        assertEquals("a  \n b", out.toString());
+    }
+
+    @Test
+    public void keptPage_largerThanTheBuffer() throws IOException {
+        final StringBuilder page = new StringBuilder("\n");
+        for (int i = 0; i < 3000; i++) {
+            page.append("<div>").append(i).append("</div>\n");
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final StreamingPageWriter writer = new StreamingPageWriter(out, true, false);
+        writer.write(page.toString());
+        writer.close();
+
+        assertEquals(page.toString().trim(), writer.getPage());
+        assertEquals(page.toString().trim(), out.toString());
+    }
+
+    @Test
+    public void notKeptPage_writtenAsIs() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final StreamingPageWriter writer = new StreamingPageWriter(out, false, false);
+        writer.write(PAGE);
+        writer.close();
+
+        assertNull(writer.getPage());
+        assertEquals(PAGE, out.toString());
+    }
+
+    @Test
+    public void flushAfterHead_headSplitAcrossWrites_flushedOnce() throws IOException {
+        final FlushRecordingStream out = new FlushRecordingStream();
+        final StreamingPageWriter writer = new StreamingPageWriter(out, true, true);
+        writer.write("<html><head><title>Page</title></he");
+        assertEquals(0, out.flushed.size());
+        writer.write("AD>\n<body>");
+        assertEquals(1, out.flushed.size());
+        assertEquals("<html><head><title>Page</title></heAD>", out.flushed.get(0));
+        writer.write("</head></body></html>");
+        assertEquals("only the first </head> flushes", 1, out.flushed.size());
+        writer.close();
+
+        assertEquals("<html><head><title>Page</title></heAD>\n<body></head></body></html>", out.toString());
+    }
+
+    @Test
+    public void flushAfterHead_off_notFlushedUntilClose() throws IOException {
+        final FlushRecordingStream out = new FlushRecordingStream();
+        final StreamingPageWriter writer = new StreamingPageWriter(out, true, false);
+        writer.write("<html><head></head><body>");
+        assertEquals(0, out.flushed.size());
+        writer.close();
+
+        assertEquals(1, out.flushed.size());
+    }
+
+    @Test
+    public void nestedPages_getTheirOwnBuffer() throws IOException {
+        final ByteArrayOutputStream outerOut = new ByteArrayOutputStream();
+        final StreamingPageWriter outer = new StreamingPageWriter(outerOut, true, false);
+        outer.write("<outer>");
+
+        final ByteArrayOutputStream innerOut = new ByteArrayOutputStream();
+        final StreamingPageWriter inner = new StreamingPageWriter(innerOut, true, false);
+        inner.write("<inner></inner>");
+        inner.close();
+
+        outer.write("</outer>");
+        outer.close();
+
+        assertEquals("<inner></inner>", innerOut.toString());
+        assertEquals("<inner></inner>", inner.getPage());
+        assertEquals("<outer></outer>", outerOut.toString());
+        assertEquals("<outer></outer>", outer.getPage());
+
+        // the buffers given back are reused by the next pages of the thread
+        final ByteArrayOutputStream nextOut = new ByteArrayOutputStream();
+        final StreamingPageWriter next = new StreamingPageWriter(nextOut, true, false);
+        next.write("<next>");
+        next.close();
+        next.close();
+        assertEquals("<next>", nextOut.toString());
+    }
+
+    /**
+     * Keeps what was written at each flush
+     */
+    private static class FlushRecordingStream extends ByteArrayOutputStream {
+
+        private final List<String> flushed = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            flushed.add(toString());
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.business.EffectivePermissionIndex.EffectivePermissions;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link EffectivePermissionIndex}
+ */
+public class EffectivePermissionIndexTest {
+
+    private final EffectivePermissionIndex index = EffectivePermissionIndex.getInstance();
+
+    /**
+     * The permissionables that share a source reuse the entry built by the first one, and the entry grants the
+     * bits of each role
+     */
+    @Test
+    public void testPermissionablesOfTheSameSourceShareTheEntry() {
+
+        final String reader = UUID.randomUUID().toString();
+        final String editor = UUID.randomUUID().toString();
+        final String other  = UUID.randomUUID().toString();
+        final String inode  = UUID.randomUUID().toString();
+
+        final Map<String, EffectivePermissions> sources = index.sources();
+        final EffectivePermissions effective = index.effectivePermissions(permissions(inode, reader, editor), sources);
+
+        assertSame(effective, index.effectivePermissions(permissions(inode, reader, editor), sources));
+        assertTrue(effective.grantsAny(PermissionAPI.PERMISSION_READ, roles(reader)));
+        assertFalse(effective.grantsAny(PermissionAPI.PERMISSION_EDIT, roles(reader)));
+        assertTrue(effective.grantsAny(PermissionAPI.PERMISSION_EDIT, roles(editor)));
+        assertTrue(effective.grants(PermissionAPI.PERMISSION_EDIT, index.roleBit(editor)));
+        assertFalse(effective.grantsAny(PermissionAPI.PERMISSION_READ, roles(other)));
+    }
+
+    /**
+     * Permissions that come from more than one source are not indexed
+     */
+    @Test
+    public void testMixedSourcesAreNotIndexed() {
+
+        final String role = UUID.randomUUID().toString();
+        final List<Permission> permissions = Arrays.asList(
+                new Permission(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE, UUID.randomUUID().toString(), role,
+                        PermissionAPI.PERMISSION_READ, true),
+                new Permission(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE, UUID.randomUUID().toString(), role,
+                        PermissionAPI.PERMISSION_EDIT, true));
+
+        assertNull(index.effectivePermissions(permissions, index.sources()));
+    }
+
+    private List<Permission> permissions(final String inode, final String reader, final String editor) {
+        return Arrays.asList(
+                new Permission(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE, inode, reader,
+                        PermissionAPI.PERMISSION_READ, true),
+                new Permission(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE, inode, editor,
+                        PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT, true));
+    }
+
+    private BitSet roles(final String... roleIds) {
+        final BitSet roles = new BitSet();
+        for (final String roleId : roleIds) {
+            roles.set(index.roleBit(roleId));
+        }
+        return roles;
+    }
+
+}
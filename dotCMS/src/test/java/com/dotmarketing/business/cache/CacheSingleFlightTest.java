@@ -0,0 +1,109 @@
+package com.dotmarketing.business.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.dotmarketing.exception.DotDataException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class CacheSingleFlightTest {
+
+	final String GROUP = "testgroup";
+	final String KEY = "testkey";
+	final int THREADS = 20;
+
+	@Test
+	public void testConcurrentMissesAreCollapsed() throws Exception {
+
+		final CacheSingleFlight singleFlight = new CacheSingleFlight(10000);
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final List<Future<String>> results = runConcurrently(() -> singleFlight.load(GROUP, KEY, () -> {
+			loads.incrementAndGet();
+			started.countDown();
+			pause(500);
+			return "value";
+		}), started);
+
+		for (Future<String> result : results) {
+			assertThat("every thread gets the loaded value", "value".equals(result.get()));
+		}
+		assertThat("the value is loaded once", loads.get() == 1);
+		assertThat("the other misses are collapsed", singleFlight.getCollapsedLoads() == THREADS - 1);
+		assertThat("nothing is left in flight", singleFlight.getInFlight() == 0);
+	}
+
+	@Test
+	public void testLoadErrorIsShared() throws Exception {
+
+		final CacheSingleFlight singleFlight = new CacheSingleFlight(10000);
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final List<Future<String>> results = runConcurrently(() -> singleFlight.load(GROUP, KEY, () -> {
+			started.countDown();
+			pause(500);
+			throw new DotDataException("load failed");
+		}), started);
+
+		for (Future<String> result : results) {
+			try {
+				result.get();
+				assertThat("the load error should be thrown", false);
+			} catch (Exception e) {
+				assertThat("every thread gets the load error", e.getCause() instanceof DotDataException);
+			}
+		}
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+
+		final CacheSingleFlight singleFlight = new CacheSingleFlight(50);
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final List<Future<String>> results = runConcurrently(() -> singleFlight.load(GROUP, KEY, () -> {
+			if (loads.incrementAndGet() == 1) {
+				started.countDown();
+				pause(1000);
+			}
+			return "value";
+		}), started);
+
+		for (Future<String> result : results) {
+			assertThat("every thread gets a value", "value".equals(result.get()));
+		}
+		assertThat("threads that time out load by themselves", loads.get() == THREADS);
+		assertThat("timeouts are counted", singleFlight.getTimeouts() == THREADS - 1);
+	}
+
+	private void pause(final long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private List<Future<String>> runConcurrently(final Callable<String> task, final CountDownLatch started) throws Exception {
+
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final List<Future<String>> results = new ArrayList<>();
+		results.add(executor.submit(task));
+		started.await();
+		for (int i = 1; i < THREADS; i++) {
+			results.add(executor.submit(task));
+		}
+		executor.shutdown();
+		return results;
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.dotmarketing.business.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+public class CacheVersionTrackerTest {
+
+	final String GROUP = "contentletcache";
+	final String KEY = "testkey";
+
+	@Test
+	public void testStalePutIsDropped() {
+
+		CacheVersionTracker tracker = new CacheVersionTracker(Collections.singleton(GROUP), 1000);
+
+		tracker.loadStarted(GROUP, KEY);
+		tracker.invalidate(GROUP, KEY, false);
+		assertThat("a value loaded before the invalidation is stale", !tracker.canPut(GROUP, KEY));
+
+		tracker.loadStarted(GROUP, KEY);
+		assertThat("a value loaded after the invalidation is fine", tracker.canPut(GROUP, KEY));
+
+		tracker.loadStarted(GROUP, KEY);
+		tracker.flush(GROUP);
+		assertThat("a value loaded before a group flush is stale", !tracker.canPut(GROUP, KEY));
+
+		assertThat("not versioned groups are not tracked", tracker.canPut("othergroup", KEY));
+		assertThat("stale puts are counted", tracker.getStalePuts() == 2);
+	}
+
+	@Test
+	public void testClusterRemovesAreSkipped() {
+
+		CacheVersionTracker tracker = new CacheVersionTracker(Collections.singleton(GROUP), 1000);
+
+		assertThat("before a flush we don't know which keys we have", tracker.invalidate(GROUP, KEY, true));
+
+		tracker.flush(GROUP);
+		assertThat("a key we never cached is skipped", !tracker.invalidate(GROUP, KEY, true));
+		assertThat("a local remove is never skipped", tracker.invalidate(GROUP, KEY, false));
+
+		tracker.canPut(GROUP, KEY);
+		assertThat("a key we cached is removed", tracker.invalidate(GROUP, KEY, true));
+		assertThat("a key already removed is skipped", !tracker.invalidate(GROUP, KEY, true));
+		assertThat("skipped removes are counted", tracker.getSkippedRemoves() == 2);
+	}
+
+	@Test
+	public void testBoundedKeys() {
+
+		CacheVersionTracker tracker = new CacheVersionTracker(Collections.singleton(GROUP), 10);
+		tracker.flush(GROUP);
+		tracker.loadStarted(GROUP, KEY);
+		for (int i = 0; i < 20; i++) {
+			tracker.canPut(GROUP, KEY + i);
+		}
+		assertThat("once the stamps are dropped every invalidation is applied", tracker.invalidate(GROUP, "unknownkey", true));
+	}
+
+	@Test
+	public void testConcurrentLoadersKeepTheirOwnToken() throws Exception {
+
+		CacheVersionTracker tracker = new CacheVersionTracker(Collections.singleton(GROUP), 1000);
+		ExecutorService staleLoader = Executors.newSingleThreadExecutor();
+		ExecutorService freshLoader = Executors.newSingleThreadExecutor();
+		try {
+			staleLoader.submit(() -> tracker.loadStarted(GROUP, KEY)).get();
+			tracker.invalidate(GROUP, KEY, false);
+			freshLoader.submit(() -> tracker.loadStarted(GROUP, KEY)).get();
+
+			assertThat("the value loaded after the invalidation is put first",
+					freshLoader.submit(() -> tracker.canPut(GROUP, KEY)).get());
+			assertThat("the value loaded before the invalidation is dropped even after a fresh put",
+					!staleLoader.submit(() -> tracker.canPut(GROUP, KEY)).get());
+		} finally {
+			staleLoader.shutdownNow();
+			freshLoader.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLoaderThatNeverPutsDoesNotRejectOthers() throws Exception {
+
+		CacheVersionTracker tracker = new CacheVersionTracker(Collections.singleton(GROUP), 1000);
+		ExecutorService abandonedLoader = Executors.newSingleThreadExecutor();
+		ExecutorService freshLoader = Executors.newSingleThreadExecutor();
+		try {
+			abandonedLoader.submit(() -> tracker.loadStarted(GROUP, KEY)).get();
+			tracker.invalidate(GROUP, KEY, false);
+
+			assertThat("a value loaded after the invalidation is accepted", freshLoader.submit(() -> {
+				tracker.loadStarted(GROUP, KEY);
+				return tracker.canPut(GROUP, KEY);
+			}).get());
+			assertThat("no stale put was counted", tracker.getStalePuts() == 0);
+		} finally {
+			abandonedLoader.shutdownNow();
+			freshLoader.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testTokens() {
+
+		CacheVersionTracker tracker = new CacheVersionTracker(Collections.singleton(GROUP), 1000);
+
+		final long stale = tracker.loadStarted(GROUP, KEY);
+		tracker.invalidate(GROUP, KEY, false);
+		final long fresh = tracker.loadStarted(GROUP, KEY);
+
+		assertThat("the fresh token is accepted", tracker.canPut(GROUP, KEY, fresh));
+		assertThat("the stale token is rejected after the fresh put", !tracker.canPut(GROUP, KEY, stale));
+	}
+
+}
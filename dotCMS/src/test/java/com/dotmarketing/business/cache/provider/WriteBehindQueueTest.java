@@ -0,0 +1,144 @@
+package com.dotmarketing.business.cache.provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.dotmarketing.business.cache.provider.h22.H22Cache;
+import com.liferay.util.FileUtil;
+import java.io.File;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class WriteBehindQueueTest {
+
+	private final Map<String, Object> store = new ConcurrentHashMap<>();
+	private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+
+	private final WriteBehindQueue.Writer writer = new WriteBehindQueue.Writer() {
+		public void write(List<WriteBehindQueue.Entry> entries) {
+			batches.add(entries.size());
+			for (WriteBehindQueue.Entry entry : entries) {
+				store.put(entry.group + ":" + entry.key, entry.value);
+			}
+		}
+
+		public void delete(WriteBehindQueue.Entry entry) {
+			store.remove(entry.group + ":" + entry.key);
+		}
+	};
+
+	@Test
+	public void testPutsAreCoalescedAndBatched() throws Exception {
+
+		WriteBehindQueue queue = new WriteBehindQueue("test", 10000, 100, 60000, writer);
+		for (int i = 0; i < 1000; i++) {
+			queue.offer("group", "key" + (i % 50), i);
+		}
+		assertThat("queued values can be read", Integer.valueOf(999).equals(queue.peek("group", "key49").value));
+		queue.shutdown();
+
+		assertThat("only the last value of a key is written", store.size() == 50 && Integer.valueOf(999).equals(store.get("group:key49")));
+		assertThat("puts to the same key are coalesced", queue.getCoalesced() == 950 && queue.getWritten() == 50);
+		assertThat("the keys are written in a single batch", batches.size() == 1);
+	}
+
+	@Test
+	public void testRemoveCancelsThePut() throws Exception {
+
+		WriteBehindQueue queue = new WriteBehindQueue("test", 10000, 100, 60000, writer);
+		queue.offer("group", "key1", "value1");
+		queue.offer("group", "key2", "value2");
+		queue.offer("other", "key1", "value1");
+		queue.cancel("group", "key1");
+		queue.cancelGroup("other");
+		queue.shutdown();
+
+		assertThat("cancelled puts are not written", store.size() == 1 && store.containsKey("group:key2"));
+		assertThat("cancelled puts are counted", queue.getCancelled() == 2);
+	}
+
+	@Test
+	public void testRemoveWhileWriting() throws Exception {
+
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch removed = new CountDownLatch(1);
+		WriteBehindQueue queue = new WriteBehindQueue("test", 10000, 1, 1, new WriteBehindQueue.Writer() {
+			public void write(List<WriteBehindQueue.Entry> entries) throws Exception {
+				writing.countDown();
+				removed.await();
+				writer.write(entries);
+			}
+
+			public void delete(WriteBehindQueue.Entry entry) throws Exception {
+				writer.delete(entry);
+			}
+		});
+		final File dir = new File("/tmp/writebehindtest");
+		FileUtil.deltree(dir);
+		dir.mkdirs();
+		final H22Cache cache = new H22Cache(dir.getCanonicalPath());
+		cache.init();
+		cache.setWriteBehind(queue);
+
+		cache.put("group", "key", "value");
+		writing.await();
+		assertThat("the put being written can be read", "value".equals(cache.get("group", "key")));
+		assertThat("the put is being written", queue.cancel("group", "key"));
+		assertThat("the cancelled put is not read while it is being written", queue.peek("group", "key") == null);
+		cache.remove("group", "key");
+		assertThat("the removed key is not read while it is being written", cache.get("group", "key") == null);
+		removed.countDown();
+		queue.shutdown();
+		cache.shutdown();
+
+		assertThat("the remove is applied after the write", store.isEmpty());
+	}
+
+	@Test
+	public void testBackpressure() throws Exception {
+
+		WriteBehindQueue queue = new WriteBehindQueue("test", 10, 1000, 60000, writer);
+		int accepted = 0;
+		for (int i = 0; i < 20; i++) {
+			if (queue.offer("group", "key" + i, i)) {
+				accepted++;
+			}
+		}
+		assertThat("puts over the max are rejected", accepted == 10 && queue.getRejected() == 10);
+		assertThat("queued keys can still be replaced", queue.offer("group", "key0", 0));
+		queue.shutdown();
+	}
+
+	@Test
+	public void testFullQueueStillTakesTheKeyBeingWritten() throws Exception {
+
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		WriteBehindQueue queue = new WriteBehindQueue("test", 1, 1, 1, new WriteBehindQueue.Writer() {
+			public void write(List<WriteBehindQueue.Entry> entries) throws Exception {
+				writing.countDown();
+				release.await();
+				writer.write(entries);
+			}
+
+			public void delete(WriteBehindQueue.Entry entry) throws Exception {
+				writer.delete(entry);
+			}
+		});
+		queue.offer("group", "key", "old");
+		writing.await();
+		assertThat("the queue is filled", queue.offer("group", "other", "value"));
+		assertThat("a put to another key is rejected", !queue.offer("group", "another", "value"));
+		assertThat("a put to the key being written is queued", queue.offer("group", "key", "new"));
+		release.countDown();
+		queue.shutdown();
+
+		assertThat("the newer value is written last", "new".equals(store.get("group:key")));
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.dotmarketing.business.cache.provider.caffine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.dotcms.UnitTestBase;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Test;
+
+/**
+ * AdaptiveCacheBudget unit test, the regions are real caffeine caches weighted by the length of their values
+ * and the budget is rebalanced by hand
+ */
+public class AdaptiveCacheBudgetTest extends UnitTestBase {
+
+    @Test
+    public void initialMaximum_budgetSplitBetweenTheExpectedRegions() {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(100_000, 0.05, 4);
+        assertEquals(25_000, budget.initialMaximum());
+
+        // more regions than expected, the next one gets a smaller share
+        for (int i = 0; i < 4; i++) {
+            budget.register("region" + i, region(25_000));
+        }
+        assertEquals(20_000, budget.initialMaximum());
+    }
+
+    @Test
+    public void initialMaximum_neverUnderTheMinimumShare() {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(100_000, 0.1, 50);
+        assertEquals(10_000, budget.initialMaximum());
+    }
+
+    @Test
+    public void rebalance_evictingRegionGetsWhatTheIdleRegionDoesNotUse() {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(100_000, 0.05, 2);
+        final Cache<String, Object> idle = region(50_000);
+        final Cache<String, Object> busy = region(50_000);
+        budget.register("idle", idle);
+        budget.register("busy", busy);
+
+        idle.put("key", value(1_000));
+        fill(busy, 0, 100);
+        budget.rebalance();
+
+        // idle target: the minimum, busy target: the rest, both damped by half
+        assertEquals(27_500, budget.getMaximum("idle"));
+        assertEquals(72_500, budget.getMaximum("busy"));
+        assertTrue(budget.getMaximum("idle") + budget.getMaximum("busy") <= budget.getBudget());
+    }
+
+    @Test
+    public void rebalance_keepsMovingTowardsTheTargetWithoutGoingUnderTheMinimum() {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(100_000, 0.05, 2);
+        final Cache<String, Object> idle = region(50_000);
+        final Cache<String, Object> busy = region(50_000);
+        budget.register("idle", idle);
+        budget.register("busy", busy);
+        idle.put("key", value(1_000));
+
+        long previous = budget.getMaximum("idle");
+        for (int round = 0; round < 20; round++) {
+            fill(busy, round * 200, 200);
+            budget.rebalance();
+
+            final long maximum = budget.getMaximum("idle");
+            assertTrue("round " + round + ": " + maximum, maximum <= previous && maximum >= 5_000);
+            previous = maximum;
+        }
+        assertTrue(budget.getMaximum("idle") < 5_100);
+        assertTrue(budget.getMaximum("busy") > 90_000);
+    }
+
+    @Test
+    public void rebalance_evictingRegionsSplitTheBudgetByTheirMisses() {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(90_000, 0.1, 3);
+        final Cache<String, Object> missing = region(30_000);
+        final Cache<String, Object> hitting = region(30_000);
+        final Cache<String, Object> quiet = region(30_000);
+        budget.register("missing", missing);
+        budget.register("hitting", hitting);
+        budget.register("quiet", quiet);
+
+        fill(missing, 0, 40);
+        fill(hitting, 0, 40);
+        fill(quiet, 0, 40);
+        for (int i = 0; i < 100; i++) {
+            missing.getIfPresent("missing" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            hitting.getIfPresent("missing" + i);
+        }
+        budget.rebalance();
+
+        assertTrue(budget.getMaximum("missing") > budget.getMaximum("hitting"));
+        assertTrue(budget.getMaximum("hitting") > budget.getMaximum("quiet"));
+        assertTrue(budget.getMaximum("quiet") >= 9_000);
+    }
+
+    @Test
+    public void rebalance_idleRegionsOverTheBudget_everyRegionKeepsTheMinimum() {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(10_000, 0.3, 4);
+        for (int i = 0; i < 4; i++) {
+            final Cache<String, Object> region = region(5_000);
+            region.put("key", value(3_500));
+            budget.register("region" + i, region);
+        }
+
+        for (int round = 0; round < 10; round++) {
+            budget.rebalance();
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(budget.getMaximum("region" + i) >= 3_000);
+        }
+    }
+
+    @Test
+    public void missedThenLoaded_missCostMeasured() throws InterruptedException {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(100_000, 0.05, 1);
+        budget.register("region", region(50_000));
+        assertEquals(-1, budget.getAverageMissCost("region"));
+
+        final String key = sampledKey();
+        budget.missed("region", key);
+        Thread.sleep(5);
+        budget.loaded("region", key);
+
+        assertTrue(budget.getAverageMissCost("region") > 0);
+    }
+
+    @Test
+    public void unknownRegion_notInTheBudget() {
+        final AdaptiveCacheBudget budget = new AdaptiveCacheBudget(100_000, 0.05, 1);
+        budget.register("region", region(50_000));
+        budget.unregister("region");
+
+        budget.missed("region", sampledKey());
+        budget.loaded("region", sampledKey());
+        budget.rebalance();
+
+        assertEquals(-1, budget.getWeight("region"));
+        assertEquals(-1, budget.getMaximum("region"));
+        assertEquals(-1, budget.getAverageMissCost("region"));
+    }
+
+    /**
+     * A region weighted by the length of its values, the maintenance runs on the calling thread
+     */
+    private static Cache<String, Object> region(final long maximum) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maximum)
+                .weigher((String key, Object value) -> ((String) value).length())
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    private static void fill(final Cache<String, Object> region, final int from, final int entries) {
+        for (int i = from; i < from + entries; i++) {
+            region.put("key" + i, value(1_000));
+        }
+        region.cleanUp();
+    }
+
+    private static String value(final int length) {
+        final StringBuilder value = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            value.append('x');
+        }
+        return value.toString();
+    }
+
+    /**
+     * Only some keys are sampled to measure the miss cost
+     */
+    private static String sampledKey() {
+        int i = 0;
+        while ((("key" + i).hashCode() & 0x7) != 0) {
+            i++;
+        }
+        return "key" + i;
+    }
+
+}
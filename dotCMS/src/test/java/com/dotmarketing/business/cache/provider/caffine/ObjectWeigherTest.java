@@ -0,0 +1,132 @@
+package com.dotmarketing.business.cache.provider.caffine;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.dotcms.UnitTestBase;
+import com.dotmarketing.business.cache.serializer.CacheSerializer;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * ObjectWeigher unit test
+ */
+public class ObjectWeigherTest extends UnitTestBase {
+
+    private static final int DEFAULT_WEIGHT = 256;
+
+    private final ObjectWeigher weigher = new ObjectWeigher(null);
+
+    @Test
+    public void weigh_entry_keyAndValuePlusTheEntryOverhead() {
+        assertEquals(ObjectWeigher.ENTRY_OVERHEAD + weigher.weigh("key", 0) + weigher.weigh("value", 0),
+                weigher.weigh("key", "value"));
+        assertEquals(ObjectWeigher.ENTRY_OVERHEAD + weigher.weigh("key", 0), weigher.weigh("key", null));
+    }
+
+    @Test
+    public void weigh_simpleValues() {
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 24 + 2 * 5, weigher.weigh("value", 0));
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 8, weigher.weigh(42L, 0));
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 8, weigher.weigh(Boolean.TRUE, 0));
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 16, weigher.weigh(new Date(), 0));
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 100, weigher.weigh(new byte[100], 0));
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 200, weigher.weigh(new char[100], 0));
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 8 * 100, weigher.weigh(new long[100], 0));
+        assertEquals(0, weigher.weigh(null, 0));
+    }
+
+    @Test
+    public void weigh_bigCollection_extrapolatedFromASample() {
+        final long small = weigher.weigh(strings(100), 0);
+        final long big = weigher.weigh(strings(1000), 0);
+
+        // header + references + the sampled elements scaled to the size
+        final long header = ObjectWeigher.OBJECT_HEADER + 24;
+        assertEquals(10 * (small - header), big - header);
+        assertEquals(weigher.weigh(strings(1000).toArray(new String[0]), 0) - ObjectWeigher.OBJECT_HEADER,
+                big - header);
+    }
+
+    @Test
+    public void weigh_map_entriesWeighed() {
+        final Map<String, Object> map = new HashMap<>();
+        map.put("title", "value");
+        map.put("count", 42L);
+
+        final long entries = 2 * ObjectWeigher.ENTRY_OVERHEAD + weigher.weigh("title", 1) + weigher.weigh("value", 1)
+                + weigher.weigh("count", 1) + weigher.weigh(42L, 1);
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 48 + 2 * ObjectWeigher.REFERENCE + entries, weigher.weigh(map, 0));
+    }
+
+    @Test
+    public void weigh_deepNesting_cutWithTheDefaultWeight() {
+        assertEquals(DEFAULT_WEIGHT, weigher.weigh(Collections.singletonList("value"), 4));
+        assertEquals(DEFAULT_WEIGHT, weigher.weigh(new HashMap<>(), 4));
+        // the simple values are still weighed
+        assertEquals(weigher.weigh("value", 0), weigher.weigh("value", 4));
+
+        Object nested = "value";
+        for (int i = 0; i < 10; i++) {
+            nested = Collections.singletonList(nested);
+        }
+        assertEquals(4 * (ObjectWeigher.OBJECT_HEADER + 24 + ObjectWeigher.REFERENCE) + DEFAULT_WEIGHT,
+                weigher.weigh(nested, 0));
+    }
+
+    @Test
+    public void weigh_contentlet_itsMapWeighed() {
+        final Contentlet contentlet = new Contentlet();
+        contentlet.setIdentifier("identifier");
+        contentlet.setInode("inode");
+        contentlet.setStringProperty("title", "a title");
+
+        assertEquals(ObjectWeigher.OBJECT_HEADER + 64 + weigher.weigh(contentlet.getMap(), 1),
+                weigher.weigh(contentlet, 0));
+    }
+
+    @Test
+    public void weigh_otherClasses_firstInstancesSerializedThenTheAverageUsed() throws IOException {
+        final CacheSerializer serializer = mock(CacheSerializer.class);
+        when(serializer.serialize(any())).thenReturn(new byte[100]);
+        final ObjectWeigher serializing = new ObjectWeigher(serializer);
+
+        final long expected = ObjectWeigher.OBJECT_HEADER + 100 * 3;
+        for (int i = 0; i < 20; i++) {
+            assertEquals(expected, serializing.weigh(new Measured(), 0));
+        }
+        verify(serializer, times(8)).serialize(any());
+    }
+
+    @Test
+    public void weigh_otherClasses_defaultWeightWhenNotSerializable() throws IOException {
+        final CacheSerializer serializer = mock(CacheSerializer.class);
+        when(serializer.serialize(any())).thenThrow(new IOException("not serializable"));
+
+        assertEquals(DEFAULT_WEIGHT, new ObjectWeigher(serializer).weigh(new Measured(), 0));
+        assertEquals(DEFAULT_WEIGHT, weigher.weigh(new Measured(), 0));
+    }
+
+    private static List<String> strings(final int size) {
+        final List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add("value");
+        }
+        return strings;
+    }
+
+    private static class Measured {
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.dotmarketing.util.Config;
+import com.liferay.util.FileUtil;
+import java.io.File;
+import org.apache.commons.lang.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedCacheTest {
+
+	final String[] GROUPNAMES = { "testGroup", "testGroup2", "myBigGroup" };
+	final String KEYNAME = "testKey";
+	final String CONTENT = "test my Content!!!";
+
+	File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		Config.initializeConfig();
+		Config.setProperty("cache.mapped.segment.size.mb", 1);
+		dir = new File("/tmp/mappedcachetest");
+		FileUtil.deltree(dir);
+		dir.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		FileUtil.deltree(dir);
+	}
+
+	@Test
+	public void testPutGetRemove() throws Exception {
+
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+
+		assertThat("Are we the Mapped Cache?", "MappedCache".equals(cache.getKey()));
+
+		for (String group : GROUPNAMES) {
+			cache.put(group, KEYNAME, CONTENT);
+			assertThat("Did we cache something", CONTENT.equals(cache.get(group, KEYNAME)));
+			assertThat("Keys should include our key", cache.getKeys(group).contains(KEYNAME.toLowerCase()));
+
+			cache.remove(group);
+			assertThat("we should be null after flushing the group", cache.get(group, KEYNAME) == null);
+
+			cache.put(group, KEYNAME, CONTENT);
+			cache.remove(group, KEYNAME);
+			assertThat("we should be null after remove", cache.get(group, KEYNAME) == null);
+		}
+
+		cache.put(GROUPNAMES[0], KEYNAME, new Object());
+		assertThat("we should be null because the object can't be serialized", cache.get(GROUPNAMES[0], KEYNAME) == null);
+
+		cache.put(GROUPNAMES[1], KEYNAME, CONTENT);
+		assertThat("Cache not flushed , we have groups", cache.getGroups().size() > 0);
+		cache.removeAll();
+		assertThat("Cache flushed, we have no groups", cache.getGroups().size() == 0);
+
+		cache.shutdown();
+	}
+
+	@Test
+	public void testRecoverAfterRestart() throws Exception {
+
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+		for (int i = 0; i < 100; i++) {
+			cache.put(GROUPNAMES[i % GROUPNAMES.length], KEYNAME + i, CONTENT + i);
+		}
+		cache.remove(GROUPNAMES[0], KEYNAME + 0);
+		cache.remove(GROUPNAMES[1]);
+		cache.shutdown();
+
+		cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+		assertThat("removed key should stay removed", cache.get(GROUPNAMES[0], KEYNAME + 0) == null);
+		assertThat("flushed group should stay flushed", cache.get(GROUPNAMES[1], KEYNAME + 1) == null);
+		assertThat("entries should survive a restart", (CONTENT + 3).equals(cache.get(GROUPNAMES[0], KEYNAME + 3)));
+		assertThat("entries should survive a restart", (CONTENT + 2).equals(cache.get(GROUPNAMES[2], KEYNAME + 2)));
+		cache.shutdown();
+	}
+
+	@Test
+	public void testGroupBudget() throws Exception {
+
+		Config.setProperty("cache.budgetgroup.mapped.max.bytes", 64 * 1024);
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+
+		for (int i = 0; i < 1000; i++) {
+			cache.put("budgetGroup", KEYNAME + i, RandomStringUtils.randomAlphanumeric(500));
+		}
+
+		assertThat("oldest entries should be evicted", cache.get("budgetGroup", KEYNAME + 0) == null);
+		assertThat("newest entries should be kept", cache.get("budgetGroup", KEYNAME + 999) != null);
+		assertThat("the group should fit its budget", cache.getKeys("budgetGroup").size() * 500 < 64 * 1024);
+		cache.shutdown();
+	}
+
+	@Test
+	public void testEvictedRemovalSurvivesRestart() throws Exception {
+
+		Config.setProperty("cache.evictedgroup.mapped.max.bytes", 64 * 1024);
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+
+		cache.put("evictedGroup", KEYNAME, CONTENT);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("evictedGroup", KEYNAME + i, RandomStringUtils.randomAlphanumeric(500));
+		}
+		assertThat("the entry should be evicted", cache.get("evictedGroup", KEYNAME) == null);
+		cache.remove("evictedGroup", KEYNAME);
+		cache.shutdown();
+
+		// with a larger budget the rebuild keeps every value record it finds
+		Config.setProperty("cache.evictedgroup.mapped.max.bytes", 1024 * 1024);
+		cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+		assertThat("an evicted entry removed should stay removed", cache.get("evictedGroup", KEYNAME) == null);
+		assertThat("the other entries should survive a restart", cache.get("evictedGroup", KEYNAME + 0) != null);
+		cache.shutdown();
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+
+		// overwrite the same keys until several segments are filled with garbage
+		for (int i = 0; i < 5000; i++) {
+			cache.put(GROUPNAMES[0], KEYNAME + (i % 10), RandomStringUtils.randomAlphanumeric(1000));
+		}
+		cache.put(GROUPNAMES[0], KEYNAME, CONTENT);
+
+		final int segments = cache.segmentCount();
+		assertThat("we should have several segments", segments > 2);
+		for (int i = 0; i < segments; i++) {
+			cache.compact();
+		}
+
+		assertThat("compaction should reclaim segments", cache.segmentCount() < segments);
+		assertThat("live entries should survive compaction", CONTENT.equals(cache.get(GROUPNAMES[0], KEYNAME)));
+		assertThat("live entries should survive compaction", cache.getKeys(GROUPNAMES[0]).size() == 11);
+		cache.shutdown();
+	}
+
+	@Test
+	public void testFlushAllDeletesTheSegments() throws Exception {
+
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+
+		for (int i = 0; i < 5000; i++) {
+			cache.put(GROUPNAMES[0], KEYNAME + i, RandomStringUtils.randomAlphanumeric(1000));
+		}
+		assertThat("we should have several segments", cache.segmentCount() > 2);
+
+		// the deleted segments are unmapped, only the new active segment is left on disk
+		cache.removeAll();
+		assertThat("the flushed segments are deleted", dir.listFiles().length == 1 && cache.segmentCount() == 1);
+
+		cache.put(GROUPNAMES[0], KEYNAME, CONTENT);
+		assertThat("the cache is usable after the flush", CONTENT.equals(cache.get(GROUPNAMES[0], KEYNAME)));
+		assertThat("the flushed entries are gone", cache.get(GROUPNAMES[0], KEYNAME + 1) == null);
+		cache.shutdown();
+	}
+
+	@Test
+	public void testCompactedRemovalsKeepLaterPutsAfterRestart() throws Exception {
+
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+
+		// the oldest segment stays live, so the removals of the next one are copied forward
+		for (int i = 0; i < 1200; i++) {
+			cache.put("liveGroup", KEYNAME + i, RandomStringUtils.randomAlphanumeric(1000));
+		}
+		cache.put(GROUPNAMES[0], KEYNAME, CONTENT);
+		cache.remove(GROUPNAMES[0], KEYNAME);
+		cache.put(GROUPNAMES[1], KEYNAME, CONTENT);
+		cache.remove(GROUPNAMES[1]);
+		for (int i = 0; i < 1200; i++) {
+			cache.put(GROUPNAMES[2], KEYNAME, RandomStringUtils.randomAlphanumeric(1000));
+		}
+
+		// written again after the removals
+		cache.put(GROUPNAMES[0], KEYNAME, CONTENT);
+		cache.put(GROUPNAMES[1], KEYNAME, CONTENT);
+		for (int i = 0; i < 1200; i++) {
+			cache.put(GROUPNAMES[2], KEYNAME, RandomStringUtils.randomAlphanumeric(1000));
+		}
+
+		// only the segment of the removals, the puts written after them are not moved
+		final int segments = cache.segmentCount();
+		cache.compact();
+		assertThat("compaction should reclaim the segment", cache.segmentCount() < segments);
+		cache.shutdown();
+
+		cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+		assertThat("a key put after its removal should survive", CONTENT.equals(cache.get(GROUPNAMES[0], KEYNAME)));
+		assertThat("a key put after its group flush should survive", CONTENT.equals(cache.get(GROUPNAMES[1], KEYNAME)));
+		assertThat("entries of the oldest segment should survive", cache.get("liveGroup", KEYNAME + 0) != null);
+		assertThat("entries should be kept once", cache.getKeys("liveGroup").size() == 1200);
+		cache.shutdown();
+	}
+
+	@Test
+	public void testGroupsKeptApartWhileTheIndexGrows() throws Exception {
+
+		Config.setProperty("cache.mapped.index.initial.capacity", 16);
+		Config.setProperty("cache.smallgroup.mapped.max.bytes", 16 * 1024);
+		MappedCache cache = new MappedCache(dir.getCanonicalPath());
+		cache.init();
+
+		for (int i = 0; i < 5000; i++) {
+			cache.put(GROUPNAMES[i % 2], KEYNAME + i, CONTENT + i);
+			cache.put("smallGroup", KEYNAME + i, CONTENT + i);
+		}
+		int oldest = 0;
+		while (cache.get("smallGroup", KEYNAME + oldest) == null) {
+			oldest++;
+		}
+		final int kept = cache.getKeys("smallGroup").size();
+		assertThat("the group should be over its budget", oldest > 0);
+
+		// rewriting the oldest entry makes it the most recent of its group
+		cache.put("smallGroup", KEYNAME + oldest, CONTENT);
+		for (int i = 5000; i < 5000 + kept / 2; i++) {
+			cache.put("smallGroup", KEYNAME + i, CONTENT + i);
+		}
+
+		assertThat("every entry should be listed", cache.getKeys(GROUPNAMES[0]).size() == 2500
+				&& cache.getKeys(GROUPNAMES[1]).size() == 2500);
+		assertThat("the rewritten entry should not be evicted", CONTENT.equals(cache.get("smallGroup", KEYNAME + oldest)));
+		assertThat("the entries written before it should be evicted", cache.get("smallGroup", KEYNAME + (oldest + 1)) == null);
+		assertThat("the newest entries should be kept", cache.get("smallGroup", KEYNAME + (4999 + kept / 2)) != null);
+
+		cache.remove(GROUPNAMES[0]);
+		assertThat("the flushed group should be empty", cache.getKeys(GROUPNAMES[0]).isEmpty());
+		assertThat("other groups should be kept", cache.getKeys(GROUPNAMES[1]).size() == 2500
+				&& (CONTENT + 1).equals(cache.get(GROUPNAMES[1], KEYNAME + 1)));
+
+		cache.put(GROUPNAMES[0], KEYNAME, CONTENT);
+		assertThat("a flushed group should be usable again", cache.getKeys(GROUPNAMES[0]).size() == 1);
+		cache.shutdown();
+		Config.setProperty("cache.mapped.index.initial.capacity", 1 << 16);
+	}
+
+}
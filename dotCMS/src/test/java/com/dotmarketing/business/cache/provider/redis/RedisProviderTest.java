@@ -0,0 +1,118 @@
+package com.dotmarketing.business.cache.provider.redis;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.dotcms.UnitTestBase;
+import com.dotmarketing.util.Config;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+
+/**
+ * Runs against the Redis server of the redis.server.address and redis.server.port properties (a local
+ * server by default), skipped when there is none. The server is flushed by the tests.
+ */
+public class RedisProviderTest extends UnitTestBase {
+
+	final String GROUP = "testGroup";
+	final String CONTENT = "test my Content!!!";
+
+	private RedisProvider provider;
+
+	@Before
+	public void setUp() throws Exception {
+
+		Assume.assumeTrue("No Redis server to test with", isRedisRunning());
+		provider = new RedisProvider();
+		provider.init();
+		provider.removeAll();
+	}
+
+	@After
+	public void tearDown() {
+
+		if (provider != null) {
+			provider.removeAll();
+			provider.shutdown();
+		}
+	}
+
+	@Test
+	public void testPutGetRemove() {
+
+		provider.put(GROUP, "key1", CONTENT);
+		assertThat("the value is cached", CONTENT.equals(provider.get(GROUP, "key1")));
+		assertThat("the key is indexed in its group", provider.getKeys(GROUP).contains("key1"));
+		assertThat("the group is listed", provider.getGroups().contains(GROUP.toLowerCase()));
+
+		provider.remove(GROUP, "key1");
+		assertThat("the value is removed", provider.get(GROUP, "key1") == null);
+		assertThat("the key is removed from the index", !provider.getKeys(GROUP).contains("key1"));
+	}
+
+	@Test
+	public void testPutIsWrittenRightAway() {
+
+		provider.put(GROUP, "key1", CONTENT);
+
+		try (Jedis jedis = newJedis()) {
+			assertThat("the put is written on the calling thread",
+					jedis.exists((GROUP.toLowerCase() + ";key1").getBytes()));
+		}
+	}
+
+	@Test
+	public void testGroupFlush() {
+
+		for (int i = 0; i < 2500; i++) {
+			provider.put(GROUP, "key" + i, CONTENT + i);
+		}
+		provider.put("otherGroup", "key1", CONTENT);
+
+		provider.remove(GROUP);
+		assertThat("the values of the group are removed", provider.get(GROUP, "key1") == null
+				&& provider.get(GROUP, "key2499") == null);
+		assertThat("the index of the group is removed", provider.getKeys(GROUP).isEmpty());
+		assertThat("other groups are kept", CONTENT.equals(provider.get("otherGroup", "key1")));
+
+		try (Jedis jedis = newJedis()) {
+			assertThat("the swapped index is deleted", jedis.keys("#flushing;*").isEmpty());
+		}
+
+		provider.put(GROUP, "key1", CONTENT);
+		assertThat("a key put after a flush is indexed", provider.getKeys(GROUP).contains("key1"));
+		provider.remove(GROUP);
+		assertThat("and removed by the next flush", provider.get(GROUP, "key1") == null);
+
+		provider.remove("neverUsedGroup");
+	}
+
+	private boolean isRedisRunning() {
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress(host(), port()), 500);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private Jedis newJedis() {
+		return new Jedis(host(), port());
+	}
+
+	private String host() {
+		return Config.getStringProperty("redis.server.address", Protocol.DEFAULT_HOST);
+	}
+
+	private int port() {
+		return Config.getIntProperty("redis.server.port", Protocol.DEFAULT_PORT);
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.dotmarketing.business.cache.transport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.dotcms.cluster.bean.Server;
+import com.dotmarketing.business.DotCacheAdministrator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class CacheInvalidationBatcherTest {
+
+	private final List<String> sent = new ArrayList<>();
+
+	private final CacheTransport transport = new CacheTransport() {
+		public void init(Server localServer) {}
+		public void send(String message) { sent.add(message); }
+		public void testCluster() {}
+		public Map<String, Boolean> validateCacheInCluster(String dateInMillis, int numberServers, int maxWaitSeconds) { return null; }
+		public void shutdown() {}
+		public boolean isInitialized() { return true; }
+		public boolean shouldReinit() { return false; }
+		public CacheTransportInfo getInfo() { return null; }
+	};
+
+	@Test
+	public void testCoalescing() throws Exception {
+
+		CacheInvalidationBatcher batcher = new CacheInvalidationBatcher(() -> transport, 60000, 100000);
+		for (int i = 0; i < 1000; i++) {
+			batcher.invalidate("key" + (i % 100), "contentletcache");
+			batcher.invalidate("key" + i, "identifiercache");
+		}
+		batcher.flushGroup("identifiercache");
+		batcher.invalidate("key0", "identifiercache");
+		batcher.flush();
+
+		assertThat("a single message should be sent", sent.size() == 1);
+		assertThat("it should be an invalidation frame", CacheInvalidationBatcher.isFrame(sent.get(0)));
+
+		CacheInvalidationBatcher.Frame frame = batcher.receive(sent.get(0));
+		assertThat("the group flush is in the frame", frame.getGroups().contains("identifiercache"));
+		assertThat("keys of a flushed group are dropped", !frame.getKeys().containsKey("identifiercache"));
+		assertThat("duplicated keys are dropped", frame.getKeys().get("contentletcache").size() == 100);
+		assertThat("counters match the frame", batcher.getSentKeys() == 101 && batcher.getReceivedKeys() == 101);
+		assertThat("dropped keys are counted", batcher.getCoalescedKeys() == 1901);
+		assertThat("the frame is smaller than the single messages", batcher.getSentBytes() < 2000 * "key000:contentletcache".length());
+		batcher.shutdown();
+	}
+
+	@Test
+	public void testFlushAll() throws Exception {
+
+		CacheInvalidationBatcher batcher = new CacheInvalidationBatcher(() -> transport, 60000, 100000);
+		batcher.invalidate("key", "contentletcache");
+		batcher.flushGroup("identifiercache");
+		batcher.flushGroup(DotCacheAdministrator.ROOT_GOUP);
+		batcher.invalidate("key2", "contentletcache");
+		batcher.flush();
+
+		CacheInvalidationBatcher.Frame frame = CacheInvalidationBatcher.decode(sent.get(0));
+		assertThat("a full flush covers everything else", frame.isFlushAll() && frame.size() == 1);
+		batcher.shutdown();
+	}
+
+	@Test
+	public void testWindow() throws Exception {
+
+		CacheInvalidationBatcher batcher = new CacheInvalidationBatcher(() -> transport, 5, 100000);
+		batcher.invalidate("key", "contentletcache");
+		batcher.invalidate("key2", "contentletcache");
+		for (int i = 0; i < 100 && sent.isEmpty(); i++) {
+			Thread.sleep(10);
+		}
+		assertThat("the frame is sent once the window ends", sent.size() == 1 && batcher.getSentKeys() == 2);
+		batcher.shutdown();
+	}
+
+}
@@ -0,0 +1,308 @@
+package com.dotmarketing.common.reindex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.dotcms.UnitTestBase;
+import com.dotmarketing.common.business.journal.IndexJournal;
+import com.dotmarketing.common.reindex.ReindexPipeline.BulkClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkAction;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * ReindexPipeline unit test, the contentlets are "loaded" by a fake loader and the bulk requests answered by hand
+ * through a fake bulk client
+ */
+public class ReindexPipelineTest extends UnitTestBase {
+
+    private static final long WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final FakeBulkClient client = new FakeBulkClient();
+    private final RecordingListener listener = new RecordingListener();
+    private ReindexPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void recordsLoaded_batchedAndMappedToTheirBulkItems() throws Exception {
+        pipeline = pipeline(1, 8);
+        final IndexJournal<String> twoDocs = record(1, "two:a");
+        final IndexJournal<String> oneDoc = record(2, "one:b");
+        pipeline.submit(twoDocs);
+        pipeline.submit(oneDoc);
+
+        final Sent sent = client.next();
+        assertEquals(Arrays.asList("two:a_0", "two:a_1", "one:b_0"), sent.ids());
+
+        // the second document of the first record fails, only that record is reported as failed
+        sent.respond(RestStatus.OK, RestStatus.BAD_REQUEST, RestStatus.OK);
+
+        assertEquals(Collections.singletonList(oneDoc), listener.indexed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList(twoDocs), listener.indexFailed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        waitUntilIdle();
+    }
+
+    @Test
+    public void recordWithoutDocuments_indexedWithoutABulkRequest() throws Exception {
+        pipeline = pipeline(1, 8);
+        final IndexJournal<String> empty = record(1, "none");
+        pipeline.submit(empty);
+
+        assertEquals(Collections.singletonList(empty), listener.indexed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNull(client.sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void loadFails_reportedAndNotSent() throws Exception {
+        pipeline = pipeline(1, 8);
+        final IndexJournal<String> failing = record(1, "fail");
+        pipeline.submit(failing);
+
+        assertEquals(failing, listener.loadFailed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNull(client.sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void rejectedItems_onlyThoseSentAgainAfterTheBackoff() throws Exception {
+        pipeline = pipeline(1, 8);
+        final IndexJournal<String> first = record(1, "one:a");
+        final IndexJournal<String> second = record(2, "one:b");
+        pipeline.submit(first);
+        pipeline.submit(second);
+
+        final Sent sent = client.next();
+        assertEquals(Arrays.asList("one:a_0", "one:b_0"), sent.ids());
+        sent.respond(RestStatus.OK, RestStatus.TOO_MANY_REQUESTS);
+        assertEquals(Collections.singletonList(first), listener.indexed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+        final Sent retried = client.next();
+        assertEquals(Collections.singletonList("one:b_0"), retried.ids());
+        assertEquals("the records are told before they are sent again", Collections.singletonList(second),
+                listener.retrying.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse("the retry holds the in-flight slot", pipeline.isIdle());
+        retried.respond(RestStatus.OK);
+
+        assertEquals(Collections.singletonList(second), listener.indexed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(listener.indexFailed.isEmpty());
+        assertEquals(1L, pipeline.getStats().get("bulkRejections"));
+        waitUntilIdle();
+    }
+
+    @Test
+    public void rejectedBulkRequest_sentAgainUntilTheRetriesRunOut() throws Exception {
+        pipeline = pipeline(1, 8);
+        final IndexJournal<String> record = record(1, "one");
+        pipeline.submit(record);
+
+        // 2 retries, so the request is sent 3 times
+        for (int attempt = 0; attempt < 3; attempt++) {
+            client.next().fail(new EsRejectedExecutionException("queue full"));
+        }
+
+        assertEquals(Collections.singletonList(record), listener.indexFailed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNull(client.sent.poll(100, TimeUnit.MILLISECONDS));
+        waitUntilIdle();
+    }
+
+    @Test
+    public void bulkRequestsInFlight_cappedUntilAnswered() throws Exception {
+        pipeline = pipeline(2, 1);
+        pipeline.submit(record(1, "big"));
+        pipeline.submit(record(2, "big"));
+
+        final Sent first = client.next();
+        assertNull("the second bulk request waits for a slot", client.sent.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, pipeline.getStats().get("bulkRequestsInFlight"));
+
+        first.respond(RestStatus.OK);
+        final Sent second = client.next();
+        assertNotNull(second);
+        second.respond(RestStatus.OK);
+
+        waitUntilIdle();
+        assertEquals(2L, pipeline.getStats().get("indexedRecords"));
+    }
+
+    @Test
+    public void clientThrows_recordsReportedAsFailed() throws Exception {
+        client.throwOnExecute = true;
+        pipeline = pipeline(1, 8);
+        final IndexJournal<String> record = record(1, "one");
+        pipeline.submit(record);
+
+        assertEquals(Collections.singletonList(record), listener.indexFailed.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        waitUntilIdle();
+    }
+
+    @Test
+    public void shutdown_recordsNoLongerTaken() throws Exception {
+        pipeline = pipeline(1, 8);
+        pipeline.submit(record(1, "one"));
+        final Sent sent = client.next();
+
+        pipeline.shutdown();
+
+        assertFalse(pipeline.submit(record(2, "one")));
+        // a late answer is still reported, nothing is sent anymore
+        sent.respond(RestStatus.TOO_MANY_REQUESTS);
+        assertNull(client.sent.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    private ReindexPipeline pipeline(final int loaderThreads, final int maxInFlight) {
+        // a "big" record fills a bulk request by itself
+        return new ReindexPipeline(client, ReindexPipelineTest::load, listener, loaderThreads, maxInFlight,
+                1000, 200, 10, 20, 2);
+    }
+
+    /**
+     * Adds as many documents as the identifier of the record starts with: none, one, two or a big one
+     */
+    private static void load(final BulkRequestBuilder bulk, final IndexJournal<String> record) {
+        final String identifier = record.getIdentToIndex();
+        final String kind = identifier.split(":")[0];
+        if ("fail".equals(kind)) {
+            throw new IllegalStateException("cannot load " + identifier);
+        }
+        final int docs = "two".equals(kind) ? 2 : "none".equals(kind) ? 0 : 1;
+        final StringBuilder value = new StringBuilder("value");
+        if ("big".equals(kind)) {
+            for (int i = 0; i < 2000; i++) {
+                value.append('x');
+            }
+        }
+        for (int i = 0; i < docs; i++) {
+            bulk.add(new IndexRequest("index", "content", identifier + "_" + i).source("field", value.toString()));
+        }
+    }
+
+    private void waitUntilIdle() throws InterruptedException {
+        final long until = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!pipeline.isIdle() && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertTrue(pipeline.isIdle());
+    }
+
+    private static IndexJournal<String> record(final long id, final String identifier) {
+        return new IndexJournal<>(id, identifier, 1);
+    }
+
+    /**
+     * A bulk request sent to the fake client, answered by the test
+     */
+    private static class Sent {
+
+        private final List<DocWriteRequest> requests;
+        private final ActionListener<BulkResponse> listener;
+
+        Sent(final List<DocWriteRequest> requests, final ActionListener<BulkResponse> listener) {
+            this.requests = new ArrayList<>(requests);
+            this.listener = listener;
+        }
+
+        List<String> ids() {
+            return requests.stream().map(DocWriteRequest::id).collect(Collectors.toList());
+        }
+
+        /**
+         * Answers with a status per request
+         */
+        void respond(final RestStatus... statuses) {
+            final BulkItemResponse[] items = new BulkItemResponse[statuses.length];
+            for (int i = 0; i < statuses.length; i++) {
+                final BulkItemResponse item = mock(BulkItemResponse.class);
+                when(item.getItemId()).thenReturn(i);
+                when(item.status()).thenReturn(statuses[i]);
+                when(item.isFailed()).thenReturn(statuses[i] != RestStatus.OK);
+                when(item.getFailureMessage()).thenReturn(statuses[i].name());
+                items[i] = item;
+            }
+            listener.onResponse(new BulkResponse(items, 1));
+        }
+
+        void fail(final Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private static class FakeBulkClient implements BulkClient {
+
+        private final BlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+        private volatile boolean throwOnExecute = false;
+
+        @Override
+        public BulkRequestBuilder prepareBulk() {
+            return new BulkRequestBuilder(null, BulkAction.INSTANCE);
+        }
+
+        @Override
+        public void execute(final BulkRequestBuilder bulk, final ActionListener<BulkResponse> listener) {
+            if (throwOnExecute) {
+                throw new IllegalStateException("client closed");
+            }
+            sent.add(new Sent(bulk.request().requests(), listener));
+        }
+
+        Sent next() throws InterruptedException {
+            final Sent next = sent.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull("a bulk request was sent", next);
+            return next;
+        }
+    }
+
+    private static class RecordingListener implements ReindexPipeline.Listener {
+
+        private final BlockingQueue<List<IndexJournal<String>>> indexed = new LinkedBlockingQueue<>();
+        private final BlockingQueue<IndexJournal<String>> loadFailed = new LinkedBlockingQueue<>();
+        private final BlockingQueue<List<IndexJournal<String>>> indexFailed = new LinkedBlockingQueue<>();
+        private final BlockingQueue<List<IndexJournal<String>>> retrying = new LinkedBlockingQueue<>();
+
+        @Override
+        public void indexed(final List<IndexJournal<String>> records) {
+            indexed.add(records);
+        }
+
+        @Override
+        public void loadFailed(final IndexJournal<String> record, final Exception e) {
+            loadFailed.add(record);
+        }
+
+        @Override
+        public void indexFailed(final List<IndexJournal<String>> records, final String message) {
+            indexFailed.add(records);
+        }
+
+        @Override
+        public void retrying(final List<IndexJournal<String>> records) {
+            retrying.add(records);
+        }
+    }
+
+}